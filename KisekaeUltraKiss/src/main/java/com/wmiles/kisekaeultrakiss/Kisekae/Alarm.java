@@ -69,7 +69,7 @@ final class Alarm extends KissObject implements Comparable
 {
 	// Class attributes.  Sized for 512 alarm objects.
 
-	static private Hashtable key = new Hashtable(600,0.855f) ;
+	static private KeyTable key = new KeyTable(600) ;
 
 	// Alarm attributes
 
@@ -115,22 +115,16 @@ final class Alarm extends KissObject implements Comparable
 	// Class methods
 	// -------------
 
-	static Hashtable getKeyTable() { return key ; }
+	static KeyTable getKeyTable() { return key ; }
 
-	// Hashtable keys are compound entities that contain a reference
-	// to a configuration.  Thus, multiple configurations can coexist
-	// in the static hash table.  When we clear a table we must remove
-	// only those entities that are associated with the specified
-	// configuration identifier.
+	// Key table entries are grouped by configuration.  Thus, multiple
+	// configurations can coexist in the static key table.  When we clear
+	// a table we must remove only those entities that are associated with
+	// the specified configuration identifier.
 
 	static void clearTable(Object cid)
 	{
-		Enumeration e = key.keys() ;
-		while (e.hasMoreElements())
-		{
-			String hashkey = (String) e.nextElement() ;
-			if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-		}
+		key.clear(cid) ;
 	}
 
 
@@ -44,27 +44,35 @@ package com.wmiles.kisekaeultrakiss.Kisekae ;
 
 
 
+
+
 /**
 * AlarmTimer class
 *
 * Purpose:
 *
 * This class is a timer activity.  It is used to activate alarms if
-* the alarm delay time expires.  The timer activity polls the alarms
-* once each period.  The overall event sensitivity depends on the
-* period delay value.
-* 
+* the alarm delay time expires.  Queued alarms are held in a priority
+* queue ordered by the time at which they are due.  The timer activity
+* sleeps until the earliest alarm is due, or until a new alarm is queued.
+* Alarms that are due at the same time fire in their CNF declaration order,
+* as PlayFKiSS does.
+*
 * Alternatively, alarms can be scheduled by Java Timer objects.  See the
 * "EnableTimer" option in the FKiSS section.  If this AlarmTimer is disabled
-* then Alarms are fired by the system.  In this case no throttling of speed is 
-* possible using the Timer period. PlayFKiss compatibility cannot be maintained.  
+* then Alarms are fired by the system.  In this case no throttling of speed is
+* possible using the Timer period. PlayFKiss compatibility cannot be maintained.
 *
 */
 
 
 import java.util.Vector ;
+import java.util.Hashtable ;
 import java.util.Enumeration ;
 import java.util.Collections ;
+import java.util.Comparator ;
+import java.util.Iterator ;
+import java.util.PriorityQueue ;
 import java.util.NoSuchElementException ;
 
 
@@ -76,15 +84,65 @@ final class AlarmTimer extends Thread
    private static boolean enabled = true ;         // Timer enable state
    private static boolean manualsuspend = false ;  // True, manual suspension
    private static boolean suspend = false ;        // If true, suspend timer
+   private static long suspendtime = 0 ;           // Time of suspension
+   private static long suspendshift = 0 ;          // Suspended time to apply
    private static int id = 0 ;                     // AlarmTimer identifier
 
 	private static Thread thread = null ;				// The timer thread
 	private Vector alarms = null ; 	      		   // Set of alarms to monitor
+   private PriorityQueue schedule = null ;         // Alarms ordered by due time
+   private Hashtable scheduled = new Hashtable() ; // Current entry for alarm
+   private Vector parked = new Vector() ;          // Due entries not enabled
+   private Hashtable declaration = null ;          // CNF alarm declaration order
    private boolean active = false ;					   // If true, timer is active
    private boolean wait = false ;					   // If true, timer is sleeping
    private long count = 0 ;							   // Count of alarms fired
+   private long sequence = 0 ;                     // Queue entry sequence
    private long defaultperiod = 10 ;               // Sleep default time peroid
-   private long overtime = 0 ;                     // Sleep period difference
+   private Vector due = new Vector() ;             // Alarms due to fire
+
+
+   // A schedule entry.  The entry records when the alarm was queued and
+   // when it is due.  An entry is discarded if the alarm has since been
+   // queued again.
+
+   private class Entry
+   {
+      Alarm alarm ;                    // The scheduled alarm
+      long start ;                     // Time the alarm was queued
+      long due ;                       // Time the alarm is due
+      int order ;                      // CNF declaration order
+      long seq ;                       // Queue sequence
+
+      Entry(Alarm alarm, long start)
+      {
+         this.alarm = alarm ;
+         this.start = start ;
+         this.due = start + alarm.getInterval() ;
+         this.order = getDeclarationOrder(alarm) ;
+         this.seq = sequence++ ;
+      }
+   }
+
+
+   // Comparator to order schedule entries by due time.  Alarms due at the
+   // same time are ordered by their CNF declaration, then by queue order.
+
+   private static class EntryOrder implements Comparator
+   {
+      public int compare(Object o1, Object o2)
+      {
+         Entry e1 = (Entry) o1 ;
+         Entry e2 = (Entry) o2 ;
+         if (e1.due < e2.due) return -1 ;
+         if (e1.due > e2.due) return 1 ;
+         if (e1.order < e2.order) return -1 ;
+         if (e1.order > e2.order) return 1 ;
+         if (e1.seq < e2.seq) return -1 ;
+         if (e1.seq > e2.seq) return 1 ;
+         return 0 ;
+      }
+   }
 
 
 	// Constructor
@@ -93,6 +151,7 @@ final class AlarmTimer extends Thread
    {
       id++ ;
       setName("AlarmTimer-" + id) ;
+      schedule = new PriorityQueue(64,new EntryOrder()) ;
    }
 
 
@@ -137,7 +196,11 @@ final class AlarmTimer extends Thread
 		if (OptionsDialog.getDebugControl() && !manualsuspend)
 			PrintLn.println("Suspend alarm timer. " + ((manual) ? "Manual" : "")) ;
    	if (manual) manualsuspend = true ;
-   	suspend = true ;
+      synchronized (suspendlock)
+      {
+         if (!suspend) suspendtime = KissClock.currentTimeMillis() ;
+      	suspend = true ;
+      }
    }
 
 
@@ -152,6 +215,9 @@ final class AlarmTimer extends Thread
       {
 			if (OptionsDialog.getDebugControl())
 				PrintLn.println("Resume alarm timer.") ;
+         if (suspend && suspendtime > 0)
+            suspendshift += KissClock.currentTimeMillis() - suspendtime ;
+         suspendtime = 0 ;
    		suspend = false ;
 		   suspendlock.notify() ;
       }
@@ -233,10 +299,10 @@ final class AlarmTimer extends Thread
       }
       return n ;
    }
-   
-   
+
+
    // Return the queuelock so Alarms can synchronize on trigger time updates
-   
+
    static Object getQueueLock() { return queuelock ; }
 
 
@@ -245,16 +311,25 @@ final class AlarmTimer extends Thread
 	void resetQueue()
 	{
 		if (alarms == null) return ;
-      for (int i = 0 ; i < alarms.size() ; i++)
+      synchronized (queuelock)
       {
-         Alarm a = (Alarm) alarms.elementAt(i) ;
-         synchronized (a) { a.init() ; }
+         for (int i = 0 ; i < alarms.size() ; i++)
+         {
+            Alarm a = (Alarm) alarms.elementAt(i) ;
+            synchronized (a) { a.init() ; }
+         }
+         schedule.clear() ;
+         scheduled.clear() ;
+         parked.removeAllElements() ;
+         declaration = null ;
       }
    }
 
-	// Place a single alarm on the monitor queue.
+	// Place a single alarm on the monitor queue.  The alarm is due its
+   // interval after the time it is queued.
 
-	void queueAlarm(Alarm alarm)
+	void queueAlarm(Alarm alarm) { queueAlarm(alarm,KissClock.currentTimeMillis()) ; }
+	private void queueAlarm(Alarm alarm, long now)
 	{
       synchronized (queuelock)
       {
@@ -262,6 +337,10 @@ final class AlarmTimer extends Thread
          if (alarms == null) return ;
          alarm.setTime(0) ;
          if (!alarms.contains(alarm)) alarms.add(alarm) ;
+         Entry entry = new Entry(alarm,now) ;
+         scheduled.put(alarm,entry) ;
+         schedule.add(entry) ;
+         queuelock.notify() ;
    		Vector v = alarm.getEvent("alarm") ;
          for (int i = 0 ; i < v.size() ; i++)
          {
@@ -272,11 +351,13 @@ final class AlarmTimer extends Thread
                long triggertime = alarm.getTriggerTime() - Configuration.getTimestamp() ;
                PrintLn.println("[" + time + "] [" + Thread.currentThread().getName() + "] schedule " + evt.getName() + " in AlarmTimer, trigger time " + triggertime + " delay " + alarm.getInterval()) ;
             }
-         }      
+         }
       }
 	}
 
-	// Place a list of alarms on the monitor queue.
+	// Place a list of alarms on the monitor queue.  All alarms in the list
+   // are queued at the same time so that alarms with equal intervals are
+   // due together.
 
 	void queueAlarm(Vector v)
 	{
@@ -284,12 +365,14 @@ final class AlarmTimer extends Thread
       {
          if (v == null) return ;
          if (alarms == null) return ;
+         long now = KissClock.currentTimeMillis() ;
          for (int i = 0 ; i < v.size() ; i++)
-            queueAlarm((Alarm) v.elementAt(i)) ;
+            queueAlarm((Alarm) v.elementAt(i),now) ;
       }
 	}
 
-	// Remove an alarm from the monitor queue.
+	// Remove an alarm from the monitor queue.  Any schedule entry for the
+   // alarm is discarded when it reaches the head of the queue.
 
 	void removeAlarm(Alarm alarm)
 	{
@@ -298,6 +381,7 @@ final class AlarmTimer extends Thread
          if (alarm == null) return ;
          if (alarms == null) return ;
          alarms.remove(alarm) ;
+         scheduled.remove(alarm) ;
       }
 	}
 
@@ -305,24 +389,235 @@ final class AlarmTimer extends Thread
    // Method to return the number of alarms fired.
 
    long getCount() { return count ; }
-   
-   
-   
+
+
+
    // Method to return the timer thread
-   
+
    static Thread getThread() { return thread ; }
 
 
    // Method to return the alarms queue. We need to synchronize on this
-   // queue when enabling queued alarms to ensure that alarms execute in 
+   // queue when enabling queued alarms to ensure that alarms execute in
    // the sequence in which they were queued.
 
    Vector getAlarmQueue() { return alarms ; }
 
 
+   // Method to return the CNF declaration order of an alarm.  The order
+   // table is built from the configuration alarm list on first use.
+
+   private int getDeclarationOrder(Alarm alarm)
+   {
+      if (declaration == null || !declaration.containsKey(alarm))
+      {
+         MainFrame mf = Kisekae.getMainFrame() ;
+         Configuration config = (mf != null) ? mf.getConfig() : null ;
+         Vector v = (config != null) ? config.getAlarms() : null ;
+         declaration = new Hashtable() ;
+         for (int i = 0 ; v != null && i < v.size() ; i++)
+            declaration.put(v.elementAt(i),Integer.valueOf(i)) ;
+      }
+      Integer n = (Integer) declaration.get(alarm) ;
+      return (n != null) ? n.intValue() : Integer.MAX_VALUE ;
+   }
+
+
+   // Method to shift all scheduled alarms by the time the timer was
+   // suspended.  Alarms do not advance while the timer is suspended.
+   // A uniform shift does not change the queue order.
+
+   private void shiftSchedule(long t)
+   {
+      synchronized (queuelock)
+      {
+         Iterator it = schedule.iterator() ;
+         while (it.hasNext())
+         {
+            Entry entry = (Entry) it.next() ;
+            entry.start += t ;
+            entry.due += t ;
+         }
+      }
+   }
+
+
+   // Method to requeue parked alarms that have since been enabled.  An
+   // alarm does not advance while it is disabled, so it is due after the
+   // time that remained when it was parked.  Parked entries hold this
+   // remaining time as their due time.
+
+   private void requeueParked(long now)
+   {
+      for (int i = parked.size()-1 ; i >= 0 ; i--)
+      {
+         Entry entry = (Entry) parked.elementAt(i) ;
+         if (scheduled.get(entry.alarm) != entry)
+         {
+            parked.removeElementAt(i) ;
+            continue ;
+         }
+         if (!entry.alarm.isEnabled()) continue ;
+         parked.removeElementAt(i) ;
+         entry.due = now + entry.due ;
+         entry.start = entry.due - entry.alarm.getInterval() ;
+         schedule.add(entry) ;
+      }
+   }
+
+
+   // Collect and fire the alarms that are due at the specified time.  The
+   // queue lock must be held.  If no alarms are due the time to wait until
+   // the earliest alarm is due is returned.  A wait time of 0 means there
+   // are no scheduled alarms.  If alarms were fired -1 is returned.
+
+   private long fireAlarms(long now)
+   {
+      requeueParked(now) ;
+      due.removeAllElements() ;
+      while (!schedule.isEmpty())
+      {
+         Entry entry = (Entry) schedule.peek() ;
+         if (scheduled.get(entry.alarm) != entry)
+         {
+            schedule.poll() ;
+            continue ;
+         }
+         Alarm alarm = entry.alarm ;
+         int delay = alarm.getInterval() ;
+
+         // Alarms that were stopped or that have already fired
+         // leave the schedule.
+
+         if (delay <= 0 || delay == Integer.MAX_VALUE)
+         {
+            schedule.poll() ;
+            scheduled.remove(alarm) ;
+            if (delay == 0) alarm.setInterval(-1,thread) ;
+            if (delay <= 0) alarms.remove(alarm) ;
+            continue ;
+         }
+
+         // The interval may have changed since the alarm was
+         // queued.  Reposition the entry if so.
+
+         if (entry.start + delay != entry.due)
+         {
+            schedule.poll() ;
+            entry.due = entry.start + delay ;
+            schedule.add(entry) ;
+            continue ;
+         }
+         if (entry.due > now) break ;
+         schedule.poll() ;
+
+         // Disabled alarms are parked until their enabling event
+         // completes.  We retain the time remaining.
+
+         if (!alarm.isEnabled())
+         {
+            entry.due = entry.due - now ;
+            parked.addElement(entry) ;
+            continue ;
+         }
+         due.addElement(entry) ;
+      }
+
+      if (due.isEmpty())
+      {
+         long sleep = 0 ;
+         if (!schedule.isEmpty())
+         {
+            sleep = ((Entry) schedule.peek()).due - now ;
+            if (sleep <= 0) sleep = 1 ;
+         }
+         if (!parked.isEmpty() && (sleep == 0 || sleep > defaultperiod))
+            sleep = defaultperiod ;
+         return sleep ;
+      }
+
+      // Fire the due alarms.  In general we want to retain the
+      // same sequence in which alarms were queued as sequential
+      // processing can be dependent on this sequence. But PlayFKiSS
+      // fires alarms in the CNF alarm order for identical firing
+      // times.
+
+      active = true ;
+      Vector fire = new Vector() ;
+      for (int i = 0 ; i < due.size() ; i++)
+      {
+         Entry entry = (Entry) due.elementAt(i) ;
+         scheduled.remove(entry.alarm) ;
+         entry.alarm.setTime(now - entry.start) ;
+         fire.addElement(entry.alarm) ;
+      }
+      if (fire.size() > 1)
+         Collections.sort(fire,new AlarmDeclarationOrder()) ;
+      for (int i = 0 ; i < fire.size() ; i++)
+      {
+         Alarm alarm = (Alarm) fire.elementAt(i) ;
+         synchronized (alarm)
+         {
+            if (!alarm.isEnabled()) continue ;
+            int delay = alarm.getInterval() ;
+            if (delay <= 0 || delay == Integer.MAX_VALUE) continue ;
+
+            // The timer activity will clear the alarm delay
+            // to terminate this alarm.
+
+            Thread activator = thread ;
+            Thread alarmactivator = alarm.getActivator() ;
+            if (alarmactivator != null && "endevent".equals(alarmactivator.getName()))
+               activator = alarmactivator ;
+            alarm.setInterval(Integer.MAX_VALUE,activator) ;
+            Vector v = alarm.getEvent("alarm") ;
+
+            // Do this only if alarms are not scheduled by a Timer
+
+            if (OptionsDialog.getTimerOn())
+               EventHandler.queueEvents(v,activator,alarm.getSource()) ;
+            count++ ;
+            SessionRecorder.tick(alarm) ;
+         }
+      }
+      return -1 ;
+   }
+
+
+   // Session replay methods.  A replay suspends the timer thread and steps
+   // the alarm schedule in virtual time.  Return the time at which the
+   // earliest scheduled alarm is due, or -1 if no alarm is scheduled.
+
+   long getNextDue()
+   {
+      synchronized (queuelock)
+      {
+         if (alarms == null) return -1 ;
+         requeueParked(KissClock.currentTimeMillis()) ;
+         Entry entry = (Entry) schedule.peek() ;
+         return (entry != null) ? entry.due : -1 ;
+      }
+   }
+
+   // Fire the alarms that are due at the current virtual time.  Returns
+   // the number of alarms fired.
+
+   int fireDue()
+   {
+      synchronized (queuelock)
+      {
+         if (alarms == null) return 0 ;
+         long n = count ;
+         fireAlarms(KissClock.currentTimeMillis()) ;
+         return (int) (count - n) ;
+      }
+   }
+
+
 	// The timer thread code.  This code runs until the activity is
-	// terminated or suspended.  A default period of 50 msec is used
-   // if an invalid period option is set.
+	// terminated or suspended.  The thread waits on the queue lock until
+   // the earliest alarm is due.  Queueing an alarm wakes the thread so
+   // that the wait time can be recomputed.
 
 	public void run()
 	{
@@ -346,7 +641,10 @@ final class AlarmTimer extends Thread
          {
          	if (alarms == null) break ;
 
-            // Suspend timer execution if requested.
+            // Suspend timer execution if requested.  Alarms do not
+            // advance while we are suspended.  The schedule is shifted by
+            // the time from the suspend request to the resume request,
+            // which may have both occurred while we were waiting.
 
 				synchronized (suspendlock)
 				{
@@ -359,11 +657,14 @@ final class AlarmTimer extends Thread
               		if (OptionsDialog.getDebugControl())
                      PrintLn.println(thread.getName() + " resumed.") ;
 					}
+               if (suspendshift > 0)
+                  shiftSchedule(suspendshift) ;
+               suspendshift = 0 ;
    			}
 
             // Do nothing if the timer is disabled.
 
-            if (!OptionsDialog.getTimerOn()) 
+            if (!OptionsDialog.getTimerOn())
             {
                wait = true ;
                sleep(period) ;
@@ -371,85 +672,23 @@ final class AlarmTimer extends Thread
                continue ;
             }
 
-   			// Lock the alarm to stop simultaneous updates.
+   			// Lock the queue to stop simultaneous updates.  Fire all
+            // alarms that are now due.  If none are due we wait until the
+            // earliest alarm is due and then recheck our suspend state.
 
             synchronized (queuelock)
             {
-               active = true ;
                if (alarms == null) break ;
-         
-               // In general we want to retain the same sequence in which alarms
-               // were queued as sequential processing can be dependent on this
-               // sequence. But PlayFKiSS fires alarms in the CNF alarm order 
-               // for identical firing times? 
-         
-               Collections.sort(alarms,new AlarmDeclarationOrder()) ;
-               for (int i = 0 ; i < alarms.size() ; i++)
-               {
-      				Alarm alarm = (Alarm) alarms.elementAt(i) ;
-      				synchronized (alarm)
-      				{
-                     if (!alarm.isEnabled()) continue ;
-      					int delay = alarm.getInterval() ;
-      					if (delay < 0) continue ;
-      					if (delay == 0)
-                     {
-      						alarm.setInterval(-1,thread) ;
-                        continue ;
-                     }
-
-      					// Alarm is active.  Fire the alarm when time equals
-      					// or exceeds the delay.
-
-      					long time = alarm.getTime() ;
-      					time = time + period ;
-      					alarm.setTime(time) ;
-
-      					// Now we have a consistent delay and time.  If the
-      					// time exceeds the delay, fire the alarm event.
-      					// The timer activity will clear the alarm delay
-      					// to terminate this alarm.
-
-      					if (time >= delay)
-      					{
-                        Thread activator = thread ;
-                        Thread alarmactivator = alarm.getActivator() ;
-                        if (alarmactivator != null && "endevent".equals(alarmactivator.getName()))
-                           activator = alarmactivator ;
-      						alarm.setInterval(Integer.MAX_VALUE,activator) ;
-      						Vector v = alarm.getEvent("alarm") ;
-                        // Do this only if alarms are not scheduled by a Timer 
-                        if (OptionsDialog.getTimerOn())
-         						EventHandler.queueEvents(v,activator,alarm.getSource()) ;
-                        count++ ;
-      					}
-                  }
-   				}
-               
-               // Remove alarms which are inactive.
-               
-               for (int i = 0 ; i < alarms.size() ; i++)
+               long sleep = fireAlarms(KissClock.currentTimeMillis()) ;
+               if (sleep >= 0)
                {
-      				Alarm alarm = (Alarm) alarms.elementAt(i) ;
-     					int delay = alarm.getInterval() ;
-                  if (delay < 0) removeAlarm(alarm) ;
+                  active = false ;
+                  wait = true ;
+                  queuelock.wait(sleep) ;
+                  wait = false ;
+                  continue ;
                }
             }
-
-     			// Sleep a bit now that we have initiated all alarms in this
-            // time cycle.  We terminate on receipt of an interrupt.
-
-            period = defaultperiod - overtime ;
-            if (period <= 0) period = 1 ;
-            long starttime = System.currentTimeMillis() ; 
-            wait = true ;
-            sleep(period) ;
-            wait = false ;
-            long endtime = System.currentTimeMillis() ; 
-            long diff = endtime - starttime ;
-            if (diff <= 0) diff = period = defaultperiod ;
-            overtime = diff - period ; 
-            period = defaultperiod ;
 			}
 			catch (InterruptedException e) { break ; }
 		}
@@ -459,6 +698,8 @@ final class AlarmTimer extends Thread
       thread = null ;
       active = false ;
       suspend = false ;
+      suspendtime = 0 ;
+      suspendshift = 0 ;
       wait = false ;
 	}
 }
@@ -0,0 +1,425 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* AssetCache class
+*
+* Purpose:
+*
+* This class is a persistent disk cache of decoded KiSS objects.  When a
+* cel or palette is first read from an archive its decoded form is written
+* to the cache.  When the set is opened again the decoded data is mapped
+* from the cache file and the archive entry is not decompressed or decoded.
+*
+* The cache is kept in a "decoded" directory under the program cache
+* directory.  Each archive has a directory named by the SHA-1 hash of the
+* archive contents, and each cached object is a file named by the hash of
+* its entry path and object kind.  An archive that changes has a new hash,
+* so its old entries are no longer found.  The archive hashes are kept in
+* an index by archive path, size and modification time so that an archive
+* is hashed only when it changes.
+*
+* A cache file is a fixed header followed by the object record.  The header
+* identifies the file format, the object kind, and the size and time of the
+* archive entry.  The record format is defined by the object that writes
+* it.  Files are written to a temporary name and renamed, so a partially
+* written file is never read.
+*
+* The cache size is limited by the "assetcache" option in megabytes.  When
+* the limit is exceeded the least recently used archive directories are
+* removed.  A size of zero disables the cache.
+*
+*/
+
+import java.io.* ;
+import java.nio.ByteBuffer ;
+import java.nio.MappedByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.security.MessageDigest ;
+import java.util.Arrays ;
+import java.util.Comparator ;
+import java.util.Enumeration ;
+import java.util.Properties ;
+
+
+final class AssetCache
+{
+   // Object kinds.
+
+   static final int CEL = 1 ;
+   static final int PALETTE = 2 ;
+
+   private static final int MAGIC = 0x4B444331 ;      // "KDC1"
+   private static final int VERSION = 1 ;
+   private static final int HEADER = 32 ;             // Header bytes
+   private static final String DIRECTORY = "decoded" ;
+   private static final String INDEX = "archives.properties" ;
+
+   private static Properties index = null ;           // Archive hashes
+   private static boolean pruned = false ;            // Size checked
+   private static long written = 0 ;                  // Bytes written
+   private static int hits = 0 ;                      // Records mapped
+   private static int misses = 0 ;                    // Records not found
+   private static int writes = 0 ;                    // Records written
+
+
+   // Return true if the cache is enabled.
+
+   static boolean isEnabled()
+   {
+      return (OptionsDialog.getAssetCacheSize() > 0 && Kisekae.getCachePath() != null) ;
+   }
+
+
+   // Return a mapped cache record for an archive entry.  The buffer is
+   // positioned at the start of the object record.  Null is returned if
+   // no valid record exists.
+
+   static ByteBuffer read(ArchiveEntry ze, int kind)
+   {
+      File f = getFile(ze,kind) ;
+      if (f == null) return null ;
+      if (!f.isFile()) { misses++ ; return null ; }
+
+      RandomAccessFile raf = null ;
+      try
+      {
+         raf = new RandomAccessFile(f,"r") ;
+         FileChannel fc = raf.getChannel() ;
+         long length = fc.size() ;
+         if (length < HEADER || length > Integer.MAX_VALUE) throw new IOException("invalid size") ;
+         MappedByteBuffer buf = fc.map(FileChannel.MapMode.READ_ONLY,0,length) ;
+         if (buf.getInt() != MAGIC) throw new IOException("invalid file") ;
+         if (buf.getInt() != VERSION) throw new IOException("invalid version") ;
+         if (buf.getInt() != kind) throw new IOException("invalid kind") ;
+         if (buf.getLong() != ze.getSize()) throw new IOException("entry size changed") ;
+         if (buf.getLong() != ze.getTime()) throw new IOException("entry time changed") ;
+         if (buf.getInt() != length - HEADER) throw new IOException("invalid length") ;
+         f.getParentFile().setLastModified(System.currentTimeMillis()) ;
+         hits++ ;
+         return buf.slice() ;
+      }
+      catch (IOException e)
+      {
+         misses++ ;
+         if (OptionsDialog.getDebugControl())
+            PrintLn.println("AssetCache: " + ze.getPath() + " not used, " + e.getMessage()) ;
+         f.delete() ;
+      }
+      finally
+      {
+         try { if (raf != null) raf.close() ; }
+         catch (IOException e) { }
+      }
+      return null ;
+   }
+
+
+   // Write a cache record for an archive entry.  The record is written
+   // from its start to its limit.
+
+   static void write(ArchiveEntry ze, int kind, ByteBuffer record)
+   {
+      if (record == null) return ;
+      File f = getFile(ze,kind) ;
+      if (f == null) return ;
+      File dir = f.getParentFile() ;
+      if (!dir.isDirectory() && !dir.mkdirs()) return ;
+
+      File temp = new File(dir,f.getName() + ".tmp") ;
+      FileOutputStream out = null ;
+      try
+      {
+         record.rewind() ;
+         ByteBuffer header = ByteBuffer.allocate(HEADER) ;
+         header.putInt(MAGIC) ;
+         header.putInt(VERSION) ;
+         header.putInt(kind) ;
+         header.putLong(ze.getSize()) ;
+         header.putLong(ze.getTime()) ;
+         header.putInt(record.remaining()) ;
+         header.flip() ;
+         out = new FileOutputStream(temp) ;
+         FileChannel fc = out.getChannel() ;
+         while (header.hasRemaining()) fc.write(header) ;
+         while (record.hasRemaining()) fc.write(record) ;
+         out.close() ;
+         out = null ;
+         f.delete() ;
+         if (!temp.renameTo(f)) throw new IOException("rename failed") ;
+         writes++ ;
+         written += f.length() ;
+      }
+      catch (IOException e)
+      {
+         if (OptionsDialog.getDebugControl())
+            PrintLn.println("AssetCache: " + ze.getPath() + " not written, " + e.getMessage()) ;
+         temp.delete() ;
+      }
+      finally
+      {
+         try { if (out != null) out.close() ; }
+         catch (IOException e) { }
+      }
+
+      // Trim the cache if this session has written a tenth of the limit.
+
+      if (written > OptionsDialog.getAssetCacheSize() / 10)
+      {
+         written = 0 ;
+         prune() ;
+      }
+   }
+
+
+   // Return the cache file for an archive entry.  Only entries read from
+   // archive files are cached.  Imported, updated and memory entries are
+   // not cached.
+
+   private static File getFile(ArchiveEntry ze, int kind)
+   {
+      if (ze == null || !isEnabled()) return null ;
+      if (ze.isImported() || ze.isUpdated() || ze.isMemoryFile()) return null ;
+      String key = getArchiveKey(ze.getZipFile()) ;
+      if (key == null) return null ;
+      String name = hash(kind + ":" + ze.getPath()) ;
+      if (name == null) return null ;
+      return new File(getDirectory(),key + File.separator + name + ".kdc") ;
+   }
+
+
+   // Return the cache directory.
+
+   private static File getDirectory()
+   { return new File(Kisekae.getCachePath(),DIRECTORY) ; }
+
+
+   // Return the content hash of an archive file.  Hashes are indexed by
+   // the archive path, size and modification time.  When an archive
+   // changes, its old index entry is replaced.
+
+   static synchronized String getArchiveKey(ArchiveFile zip)
+   {
+      if (!(zip instanceof LhaFile) && !(zip instanceof PkzFile)) return null ;
+      if (zip.getMemFile() != null) return null ;
+      String path = zip.getPath() ;
+      if (path == null) return null ;
+      File f = new File(path) ;
+      if (!f.isFile()) return null ;
+
+      if (index == null) loadIndex() ;
+      String base = f.getAbsolutePath() + "|" ;
+      String id = base + f.length() + "|" + f.lastModified() ;
+      String key = index.getProperty(id) ;
+      if (key != null) return key ;
+
+      key = hash(f) ;
+      if (key == null) return null ;
+      Enumeration e = index.propertyNames() ;
+      while (e.hasMoreElements())
+      {
+         String s = (String) e.nextElement() ;
+         if (s.startsWith(base)) index.remove(s) ;
+      }
+      index.setProperty(id,key) ;
+      saveIndex() ;
+      if (!pruned) prune() ;
+      return key ;
+   }
+
+
+   // Read and write the archive hash index.
+
+   private static void loadIndex()
+   {
+      index = new Properties() ;
+      File f = new File(getDirectory(),INDEX) ;
+      if (!f.isFile()) return ;
+      InputStream in = null ;
+      try
+      {
+         in = new FileInputStream(f) ;
+         index.load(in) ;
+      }
+      catch (IOException e) { index.clear() ; }
+      finally
+      {
+         try { if (in != null) in.close() ; }
+         catch (IOException e) { }
+      }
+   }
+
+   private static void saveIndex()
+   {
+      File dir = getDirectory() ;
+      if (!dir.isDirectory() && !dir.mkdirs()) return ;
+      OutputStream out = null ;
+      try
+      {
+         out = new FileOutputStream(new File(dir,INDEX)) ;
+         index.store(out,"UltraKiss decoded asset cache") ;
+      }
+      catch (IOException e)
+      {
+         if (OptionsDialog.getDebugControl())
+            PrintLn.println("AssetCache: index not saved, " + e.getMessage()) ;
+      }
+      finally
+      {
+         try { if (out != null) out.close() ; }
+         catch (IOException e) { }
+      }
+   }
+
+
+   // Remove the least recently used archive directories until the cache
+   // is within the size limit.  Archive directories are marked as used
+   // each time a record is read.
+
+   static synchronized void prune()
+   {
+      pruned = true ;
+      long limit = OptionsDialog.getAssetCacheSize() ;
+      File [] dirs = getDirectory().listFiles() ;
+      if (dirs == null || limit <= 0) return ;
+
+      long total = 0 ;
+      long [] sizes = new long[dirs.length] ;
+      for (int i = 0 ; i < dirs.length ; i++)
+      {
+         File [] files = dirs[i].listFiles() ;
+         if (files == null) continue ;
+         for (int j = 0 ; j < files.length ; j++) sizes[i] += files[j].length() ;
+         total += sizes[i] ;
+      }
+      if (total <= limit) return ;
+
+      final long [] times = new long[dirs.length] ;
+      Integer [] order = new Integer[dirs.length] ;
+      for (int i = 0 ; i < dirs.length ; i++)
+      {
+         times[i] = dirs[i].lastModified() ;
+         order[i] = Integer.valueOf(i) ;
+      }
+      Arrays.sort(order, new Comparator()
+      {
+         public int compare(Object o1, Object o2)
+         {
+            long t1 = times[((Integer) o1).intValue()] ;
+            long t2 = times[((Integer) o2).intValue()] ;
+            return (t1 < t2) ? -1 : ((t1 > t2) ? 1 : 0) ;
+         }
+      }) ;
+
+      for (int i = 0 ; i < order.length && total > limit ; i++)
+      {
+         File dir = dirs[order[i].intValue()] ;
+         if (!dir.isDirectory()) continue ;
+         File [] files = dir.listFiles() ;
+         if (files != null)
+            for (int j = 0 ; j < files.length ; j++) files[j].delete() ;
+         dir.delete() ;
+         total -= sizes[order[i].intValue()] ;
+         if (OptionsDialog.getDebugControl())
+            PrintLn.println("AssetCache: removed " + dir.getName()) ;
+      }
+   }
+
+
+   // Return the SHA-1 hash of a string or file as hexadecimal text.
+
+   private static String hash(String s)
+   {
+      try
+      {
+         MessageDigest md = MessageDigest.getInstance("SHA-1") ;
+         return toHex(md.digest(s.getBytes("UTF-8"))) ;
+      }
+      catch (Exception e) { return null ; }
+   }
+
+   static String hash(File f)
+   {
+      InputStream in = null ;
+      try
+      {
+         MessageDigest md = MessageDigest.getInstance("SHA-1") ;
+         in = new FileInputStream(f) ;
+         byte [] b = new byte[65536] ;
+         int n = 0 ;
+         while ((n = in.read(b)) > 0) md.update(b,0,n) ;
+         return toHex(md.digest()) ;
+      }
+      catch (Exception e) { return null ; }
+      finally
+      {
+         try { if (in != null) in.close() ; }
+         catch (IOException e) { }
+      }
+   }
+
+   private static String toHex(byte [] b)
+   {
+      StringBuffer sb = new StringBuffer(b.length*2) ;
+      for (int i = 0 ; i < b.length ; i++)
+      {
+         String s = Integer.toHexString(b[i] & 0xff) ;
+         if (s.length() < 2) sb.append('0') ;
+         sb.append(s) ;
+      }
+      return sb.toString() ;
+   }
+
+
+   // Return the cache statistics.
+
+   static String getStatistics()
+   {
+      return "AssetCache: " + hits + " hits, " + misses + " misses, "
+         + writes + " records written" ;
+   }
+}
@@ -82,7 +82,7 @@ public abstract class Audio extends KissObject
 	// Class attributes.  Sized for 256 audio objects.
    // Reentrant lock for players changes by concurrent stop/play activties
 
-	static private Hashtable key = new Hashtable(300,0.855f) ;
+	static private KeyTable key = new KeyTable(300) ;
 	static protected Vector players = new Vector() ;
    static protected final Lock lock = new ReentrantLock();
    static boolean stoppedmedia = false ;
@@ -187,13 +187,12 @@ public abstract class Audio extends KissObject
 	// Class methods
 	// -------------
 
-	static Hashtable getKeyTable() { return key ; }
+	static KeyTable getKeyTable() { return key ; }
 
-	// Hashtable keys are compound entities that contain a reference
-	// to a configuration.  Thus, multiple configurations can coexist
-	// in the static hash table.  When we clear a table we must remove
-	// only those entities that are associated with the specified
-	// file.
+	// Key table entries are grouped by configuration.  Thus, multiple
+	// configurations can coexist in the static key table.  When we clear
+	// a table we must remove only those entities that are associated with
+	// the specified file.
 
 	static void clearTable() 
    { 
@@ -204,12 +203,7 @@ public abstract class Audio extends KissObject
 	{
       players = new Vector() ;
 		if (cid == null) cid = new String("Unknown") ;
-		Enumeration e = key.keys() ;
-		while (e.hasMoreElements())
-		{
-			String hashkey = (String) e.nextElement() ;
-			if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-		}
+		key.clear(cid) ;
 	}
 
 
@@ -502,9 +502,7 @@ final class AudioMedia extends Audio
       
       Runnable runner = new Runnable()
       { public void run() { stop1(c,a,type) ; } } ;
-      Thread runthread = new Thread(runner) ;
-      runthread.setName("AudioMedia " + getName() + " stop");
-      runthread.start() ;
+      KissExecutor.serial(this,cid,"AudioMedia " + getName() + " stop",runner) ;
    }
    
    void stop1(Configuration c, Audio a, String type)
@@ -553,9 +553,7 @@ class AudioSound extends Audio
       playcount++ ;
       Runnable runner = new Runnable()
       { public void run() { play1() ; } } ;
-      Thread runthread = new Thread(runner) ;
-      runthread.setName("AudioSound play " + getName());
-      runthread.start() ;
+      KissExecutor.serial(this,cid,"AudioSound play " + getName(),runner) ;
    }
    
 	void play1()
@@ -763,9 +761,7 @@ class AudioSound extends Audio
       
       Runnable runner = new Runnable()
       { public void run() { stop1(c,a,type) ; } } ;
-      Thread runthread = new Thread(runner) ;
-      runthread.setName("AudioSound " + getName() + " stop");
-      runthread.start() ;
+      KissExecutor.serial(this,cid,"AudioSound " + getName() + " stop",runner) ;
    }
    
    void stop1(Configuration c, Audio a, String type)
@@ -54,6 +54,10 @@ package com.wmiles.kisekaeultrakiss.Kisekae ;
 * and other internal resources assigned.  We invoke this activity to close
 * unused audio objects on a periodic basis.
 *
+* The timer activity runs on the shared KissExecutor rather than on its own
+* thread.  The activity ends when there are no audio objects to monitor
+* and is restarted when new audio objects are added.
+*
 */
 
 
@@ -121,7 +125,17 @@ final class AudioTimer extends Thread
       if (audio.size() == 0) audio = null ;
 	   if (OptionsDialog.getDebugControl())
 		   PrintLn.println("Start audio timer.") ;
-      if (audio != null) start() ;
+      if (audio != null) launch() ;
+   }
+
+
+	// Method to run the timer activity on the shared FKiSS executor.  The
+   // timer is not cancelled with its configuration as the configuration
+   // stops the timer when it closes.
+
+	private void launch()
+   {
+      KissExecutor.execute(null,getName(),this) ;
    }
 
 
@@ -163,7 +177,7 @@ final class AudioTimer extends Thread
       if (thread == null && audio != null)
       {
          suspend = true ;
-         new Thread(this).start() ;
+         launch() ;
          MainFrame mf = Kisekae.getMainFrame() ;
          Configuration config = (mf != null) ? mf.getConfig() : null ;
          if (config != null) config.setAudioTimer(this) ;
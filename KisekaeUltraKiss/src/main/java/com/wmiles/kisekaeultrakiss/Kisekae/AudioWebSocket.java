@@ -151,9 +151,7 @@ final class AudioWebSocket extends AudioSound
       playcount++ ;
       Runnable runner = new Runnable()
       { public void run() { play1() ; } } ;
-      Thread runthread = new Thread(runner) ;
-      runthread.setName("AudioWebSocket play " + getName());
-      runthread.start() ;
+      KissExecutor.serial(this,cid,"AudioWebSocket play " + getName(),runner) ;
    }
    
 	void play1()
@@ -414,6 +414,7 @@ final class BmpCel extends Cel
          image = bi ;
          baseimage = image ;
          loaded = true ;
+         moved() ;
          imagewidth = w ;
          imageheight = h ;
 		}
@@ -503,6 +504,7 @@ final class BmpCel extends Cel
       baseoffset = c.getBaseOffset() ;
       offset.x = baseoffset.x + initialoffset.x ;
       offset.y = baseoffset.y + initialoffset.y ;
+      moved() ;
       palette = c.getPalette() ;
       transparentcolor = c.getTransparentColor() ;
       setLastModified(c.lastModified()) ;
@@ -230,6 +230,7 @@ final class CacheManager extends KissDialog
          File f = (File) o ;
          boolean b = f.delete() ;
          if (b) m++ ;
+         if (b) DownloadCache.remove(f) ;
       }
                   
       PrintLn.println("Cache is cleared, " + m + " files deleted out of " + n + " selected.") ;
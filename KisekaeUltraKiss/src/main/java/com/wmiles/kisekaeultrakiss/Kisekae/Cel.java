@@ -64,6 +64,8 @@ import java.io.* ;
 import java.awt.* ;
 import java.awt.image.* ;
 import java.util.Arrays ;
+import java.util.LinkedHashMap ;
+import java.util.Map ;
 import java.util.Vector ;
 import java.util.Hashtable ;
 import java.util.Iterator ;
@@ -78,7 +80,8 @@ abstract class Cel extends KissObject
 {
    // Class attributes.  Sized for 1000 cel objects.
 
-   static private Hashtable key = new Hashtable(1200,0.855f) ;
+   static private KeyTable key = new KeyTable(1200) ;
+   static private final int FILTEREDIMAGES = 8 ;	// Filtered images retained per cel
    private Component component = new Component() { } ;
 
    // Cel image attributes inherited by cel instances
@@ -87,6 +90,10 @@ abstract class Cel extends KissObject
    protected Image baseimage = null ;			// The cel base image
    protected Image scaledimage = null ;		// The cel scaled image
    protected Image filteredimage = null ;		// The cel filtered image
+   private Map filteredimages = null ;			// Filtered images by color model
+   private Image filteredsource = null ;		// Source of the filtered images
+   protected CelMask mask = null ;				// The cel opacity mask
+   protected CelIndex index = null ;			// The page spatial index
    protected Dimension size = null ;			// The cel dimensions
    protected Dimension scaledsize = null ;  	// The cel scaled dimensions
    protected Point offset = null ;				// The cel offset
@@ -142,6 +149,7 @@ abstract class Cel extends KissObject
    // Cel state attributes inherited by cel instances
 
    protected boolean loaded = false ;			// If true, data has been loaded
+   protected boolean headerloaded = false ;	// If true, header has been read
    protected boolean frominclude = false ;	// If true, loaded from include file 
    protected boolean visible = true ;			// If true, show cel
    protected boolean ghost = false ;			// If true, cel cannot be caught
@@ -182,23 +190,17 @@ abstract class Cel extends KissObject
    // Class methods
    // -------------
 
-   static Hashtable getKeyTable() { return key ; }
+   static KeyTable getKeyTable() { return key ; }
 
-   // Hashtable keys are compound entities that contain a reference
-   // to a configuration.  Thus, multiple configurations can coexist
-   // in the static hash table.  When we clear a table we must remove
-   // only those entities that are associated with the specified
-   // configuration identifier.
+   // Key table entries are grouped by configuration.  Thus, multiple
+   // configurations can coexist in the static key table.  When we clear
+   // a table we must remove only those entities that are associated with
+   // the specified configuration identifier.
 
    static void clearTable(Object cid)
    {
       if (cid == null) cid = new String("Unknown") ;
-      Enumeration e = key.keys() ;
-      while (e.hasMoreElements())
-      {
-         String hashkey = (String) e.nextElement() ;
-         if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-      }
+      key.clear(cid) ;
    }
 
 
@@ -379,10 +381,10 @@ abstract class Cel extends KissObject
    // location is updated to reflect its new position.
 
    void setPlacement(Point p)
-   { if (p != null) placement = p ; else placement = new Point() ; }
+   { if (p != null) placement = p ; else placement = new Point() ; moved() ; }
 
    void setPlacement(int x, int y)
-   { placement.x = x ; placement.y = y ; }
+   { placement.x = x ; placement.y = y ; moved() ; }
 
    // Set the cel offset.  This is the relative point from the logical
    // location of the group where the cel is drawn.
@@ -554,7 +556,7 @@ abstract class Cel extends KissObject
 
    // Set the cel transparency value.  O is transparent, 255 is opaque.
 
-   void setTransparency(int t) { transparency = t ; }
+   void setTransparency(int t) { transparency = t ; mask = null ; }
    void setTransparency(int t, boolean all, KissObject primary) 
    {
       setTransparency(t) ;
@@ -574,6 +576,7 @@ abstract class Cel extends KissObject
    void setTransparentIndex(int c)
    {
       transparentindex = c ;
+      mask = null ;
       Palette palette = getPalette() ;
       if (c < 0)
          transparentcolor = null ;
@@ -589,6 +592,7 @@ abstract class Cel extends KissObject
    void setBackgroundIndex(int c)
    {
       background = c ;
+      mask = null ;
       Palette palette = getPalette() ;
       if (c < 0)
          backgroundcolor = null ;
@@ -600,7 +604,7 @@ abstract class Cel extends KissObject
 
    // Set the cel location.  This is biased by the offset.
 
-   void setLocation(Point p) { location = new Point(p.x+offset.x,p.y+offset.y) ; }
+   void setLocation(Point p) { location = new Point(p.x+offset.x,p.y+offset.y) ; moved() ; }
 
    // The configuration file line number showing where this object was
    // first declared.  This is used for diagnostic output messages.
@@ -662,11 +666,11 @@ abstract class Cel extends KissObject
 
    // Set the cel background color.
 
-   void setBackgroundColor(Color c) { backgroundcolor = c ; }
+   void setBackgroundColor(Color c) { backgroundcolor = c ; mask = null ; }
 
    // Set the cel transparent color.
 
-   void setTransparentColor(Color c) { transparentcolor = c ; }
+   void setTransparentColor(Color c) { transparentcolor = c ; mask = null ; }
 
    // Set the cel size.  This is set to the image size on image load,
    // but the size can be set manually for video cels.  Size can also
@@ -676,6 +680,7 @@ abstract class Cel extends KissObject
    void setSize(Dimension d)
    {
       if (scaled) scaledsize = d ; else size = d ;
+      moved() ;
       if (group instanceof Group)
          ((Group) group).updateBoundingBox(this) ;
    }
@@ -688,6 +693,8 @@ abstract class Cel extends KissObject
       baseimage = img ;
       filteredimage = null ;
       scaledimage = null ;
+      mask = null ;
+      clearPaletteImages() ;
       if (this instanceof JavaCel) return ;
       Dimension d = new Dimension(0,0) ;
       if (img != null)
@@ -1350,6 +1357,10 @@ abstract class Cel extends KissObject
 
    boolean isLoaded() { return loaded ; }
 
+   // Return an indication if the cel geometry was read from the file header.
+
+   boolean isHeaderLoaded() { return headerloaded ; }
+
    // Return an indication if data was loaded from an include file.
 
    boolean isFromInclude() { return frominclude ; }
@@ -1430,6 +1441,7 @@ abstract class Cel extends KissObject
    {
       placement.x = x ;
       placement.y = y ;
+      moved() ;
    }
 
    // Drop the cel in a new location.
@@ -1439,6 +1451,7 @@ abstract class Cel extends KissObject
       location.x += placement.x ;
       location.y += placement.y ;
       unloadedmove = (!loaded) ;
+      moved() ;
    }
 
    // Reset the cel to its initial state.  This restores cel visibility,
@@ -1478,6 +1491,7 @@ abstract class Cel extends KissObject
       if (p2 == null) p2 = new Point(0,0) ;
       setOffset(new Point(p1.x+p2.x,p1.y+p2.y)) ;
       setAdjustedOffset(null) ;
+      moved() ;
    }
 
    // Reset the cel to animation state.
@@ -1553,6 +1567,7 @@ abstract class Cel extends KissObject
          offset.x = 0 ;
          offset.y = 0 ;
       }
+      moved() ;
    }
 
 
@@ -1966,6 +1981,46 @@ abstract class Cel extends KissObject
    abstract void load(Vector includefiles) ;
    abstract void loadCopy(Cel c) ;
 
+   // Load the cel geometry from the cel file header.  This establishes
+   // the cel size and offset without decoding the cel pixels, so that
+   // cels that are not loaded have an accurate bounding box.  The pixels
+   // are decoded when the cel is loaded.
+
+   void loadHeader(Vector includefiles)
+   {
+      if (loaded || headerloaded || error) return ;
+      if (this instanceof JavaCel || this instanceof Video) return ;
+      ArchiveEntry entry = ze ;
+      if (entry == null && zip != null) entry = zip.getEntry(file) ;
+      if (entry == null && zip != null && includefiles != null) entry = zip.getEntry(file,true) ;
+      if (entry == null)
+      {
+         String name = getRelativeName() ;
+         if (name != null) name = name.toUpperCase() ;
+         entry = searchIncludeList(includefiles,name) ;
+      }
+      CelHeader h = CelHeader.read(entry,extension) ;
+      if (h == null) return ;
+
+      Point initialoffset = getInitialOffset() ;
+      size.width = h.width ;
+      size.height = h.height ;
+      baseoffset.x = h.x ;
+      baseoffset.y = h.y ;
+      offset.x = h.x ;
+      offset.y = h.y ;
+      if (h.relative)
+      {
+         offset.x += initialoffset.x ;
+         offset.y += initialoffset.y ;
+      }
+      headerloaded = true ;
+      moved() ;
+      if (OptionsDialog.getDebugLoad())
+         PrintLn.println("Header: " + toString() + " " + size.width + "x" + size.height) ;
+   }
+
+
    // Unload the cel file.  This releases our image allocation.
 
    void unload()
@@ -1977,6 +2032,8 @@ abstract class Cel extends KissObject
       if (baseimage != null) baseimage.flush();
       if (scaledimage != null) scaledimage.flush();
       image = baseimage = scaledimage = null ;
+      mask = null ;
+      clearPaletteImages() ;
       if (OptionsDialog.getDebugLoad())
          PrintLn.println("Unload: " + toString());
    }
@@ -2042,6 +2099,41 @@ abstract class Cel extends KissObject
 
    void changePalette(Integer newpalette) { return ; }
 
+   // Return the cel image in the colors of the specified multipalette.
+   // The cel colors are not changed, so this can be used to draw the cel
+   // for a page that is not shown.  The image is at the current cel scale.
+   // The current image is returned if the cel does not change color for
+   // the multipalette.
+
+   Image getPaletteImage(int mp)
+   {
+      if (error || truecolor) return getImage() ;
+      Palette p = getPalette() ;
+      if (p == null) return getImage() ;
+      Object mpid = getPaletteGroupID() ;
+      if (mpid != null && !mpid.equals(Integer.valueOf(mp))) return getImage() ;
+      int n = p.getMultiPaletteCount() - 1 ;
+      if (mp > n) mp = n ;
+      if (mp < 0) return getImage() ;
+      ColorModel model = p.createColorModel(transparency,mp) ;
+      if (model == cm) return getImage() ;
+      Image img = getScaledImage() ;
+      if (img == null) img = getBaseImage() ;
+      if (img == null) return null ;
+      return getPaletteImage(img,model,mp) ;
+   }
+
+   // Construct the image for a multipalette color model.  The default
+   // behaviour is to filter the image.  This method should be overridden
+   // for cels that can draw their pixels with the color model directly.
+
+   Image getPaletteImage(Image img, ColorModel model, int mp)
+   {
+      Palette p = getPalette() ;
+      Color c = (p != null) ? p.getTransparentColor(mp) : null ;
+      return createPaletteImage(img,model,c) ;
+   }
+
 
    // Method to change the cel transparency.  The default behaviour is
    // to do nothing.  This method should be overridden for cels that
@@ -2080,6 +2172,12 @@ abstract class Cel extends KissObject
 
       x = (int) (x * sf1) ;
       y = (int) (y * sf1) ;
+      if (img instanceof BufferedImage)
+      {
+         BufferedImage bi = (BufferedImage) img ;
+         if (x >= bi.getWidth() || y >= bi.getHeight()) return -1 ;
+         return ((bi.getRGB(x,y) >> 24) & 255) ;
+      }
       int pixels[] = new int[1] ;
       PixelGrabber pg = new PixelGrabber(img,x,y,1,1,pixels,0,s.width) ;
       try { pg.grabPixels() ; }
@@ -2108,15 +2206,139 @@ abstract class Cel extends KissObject
       x = (int) (x * sf1) ;
       y = (int) (y * sf1) ;
       int pixels[] = new int[1] ;
-       PixelGrabber pg = new PixelGrabber(img,x,y,1,1,pixels,0,s.width) ;
-        try { pg.grabPixels() ; }
-        catch (InterruptedException e) { return -1 ; }
+      if (img instanceof BufferedImage)
+      {
+         BufferedImage bi = (BufferedImage) img ;
+         if (x >= bi.getWidth() || y >= bi.getHeight()) return -1 ;
+         pixels[0] = bi.getRGB(x,y) ;
+      }
+      else
+      {
+         PixelGrabber pg = new PixelGrabber(img,x,y,1,1,pixels,0,s.width) ;
+         try { pg.grabPixels() ; }
+         catch (InterruptedException e) { return -1 ; }
+      }
       rgb = pixels[0] & 0xffffff ;
       if (rgb == 1) rgb = 0 ;
       return rgb ;
    }
 
 
+   // Set the spatial index that holds this cel.  The index is set when a
+   // page cel list is indexed.
+
+   void setIndex(CelIndex ci) { index = ci ; }
+
+   // Return the spatial index that holds this cel.
+
+   CelIndex getIndex() { return index ; }
+
+   // Notify the spatial index that the cel bounding box may have changed.
+
+   void moved()
+   {
+      CelIndex ci = index ;
+      if (ci != null) ci.update(this) ;
+   }
+
+
+   // Function to return the cel opacity mask for the current image.  The
+   // mask is rebuilt if the image or the cel transparent or background
+   // colors have changed.  This function returns null if a cel color model
+   // is not defined.
+
+   CelMask getMask()
+   {
+      if (cm == null) return null ;
+      Image img = getImage() ;
+      if (img == null) return null ;
+      CelMask m = mask ;
+      if (m != null && m.isValid(img,transparentcolor,backgroundcolor)) return m ;
+      m = new CelMask(this,img) ;
+      mask = m ;
+      return m ;
+   }
+
+
+   // Function to determine if the specified point selects this cel.  A
+   // point selects the cel if the pixel is opaque or is not a transparent
+   // color.  Keyed tests ignore the pixel alpha and accept only pixels that
+   // are not a transparent color.
+
+   boolean isHit(int x, int y, boolean keyed)
+   {
+      Dimension s = getSize() ;
+      if (s == null) return false ;
+      if (x < 0 || x >= s.width) return false ;
+      if (y < 0 || y >= s.height) return false ;
+      CelMask m = getMask() ;
+      if (m == null) return false ;
+      float sf1 = (scaled) ? sf : 1.0f ;
+      x = (int) (x * sf1) ;
+      y = (int) (y * sf1) ;
+      return (keyed) ? m.isKeyedHit(x,y) : m.isHit(x,y) ;
+   }
+
+
+   // Function to determine if the specified point selects this cel by
+   // probing the current pixel.  This is used by cels whose pixels are
+   // not described by their image.  Transparent pixels are not accepted
+   // if the pixel is the cel transparent color.  GIF images appear to
+   // return the background color if this the transparent pixel.
+
+   boolean isPixelHit(int x, int y, boolean keyed)
+   {
+      int t = getAlpha(x,y) ;
+      if (t < 0) return false ;
+      if (t > 0 && !keyed) return true ;
+      if (isTruecolor()) return false ;
+      int rgb = getRGB(x,y) ;
+      if (rgb < 0) return false ;
+      Color tc = getTransparentColor() ;
+      if (tc != null && rgb == (tc.getRGB() & 0xffffff)) return false ;
+      if (this instanceof GifCel && tc != null)
+      {
+         Color bc = getBackgroundColor() ;
+         if (bc != null && rgb == (bc.getRGB() & 0xffffff)) return false ;
+      }
+      return true ;
+   }
+
+
+   // Function to determine if this cel touches another cel within the
+   // specified area.  Cels touch if they have non-transparent pixels that
+   // overlay one another.  The cel boxes locate each cel on the panel.
+
+   boolean touches(Rectangle box1, Cel c, Rectangle box2, Rectangle r)
+   {
+      if (c == null || r == null) return false ;
+      CelMask m1 = getMask() ;
+      CelMask m2 = c.getMask() ;
+      if (m1 == null || m2 == null) return false ;
+      int x1 = r.x - box1.x ;
+      int y1 = r.y - box1.y ;
+      int x2 = r.x - box2.x ;
+      int y2 = r.y - box2.y ;
+      if (!scaled && !c.isScaled())
+         return CelMask.touches(m1,x1,y1,m2,x2,y2,r.width,r.height) ;
+
+      // Scaled cels map each point to their image.
+
+      if (x1 < 0 || y1 < 0 || x2 < 0 || y2 < 0) return false ;
+      float sf1 = (scaled) ? sf : 1.0f ;
+      float sf2 = (c.isScaled()) ? c.getScaleFactor() : 1.0f ;
+      for (int y = 0 ; y < r.height ; y++)
+      {
+         for (int x = 0 ; x < r.width ; x++)
+         {
+            if (!m1.isTouch((int) ((x1+x) * sf1), (int) ((y1+y) * sf1))) continue ;
+            if (m2.isTouch((int) ((x2+x) * sf2), (int) ((y2+y) * sf2))) return true ;
+         }
+      }
+      return false ;
+   }
+
+
    // Function to return the current pixels in the specified area.
    // This function returns null if the rectangle area is outside
    // the cel bounding box.
@@ -2483,14 +2705,8 @@ abstract class Cel extends KissObject
 
          if (cm != basecm || transparency != 255 || isInitTransUpdated())
          {
-            ImageProducer base = image.getSource() ;
-            ImageProducer ip = new FilteredImageSource(base,
-               new PaletteFilter(cm,basecm,transparency,transparentcolor));
-            filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-            MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-            tracker.addImage(filteredimage,0) ;
-            try { tracker.waitForAll(500) ; }
-            catch (InterruptedException e) { }
+            filteredimage = createFilteredImage(image,
+               new PaletteFilter(cm,basecm,transparency,transparentcolor)) ;
          }
       }
 
@@ -2527,19 +2743,14 @@ abstract class Cel extends KissObject
          sw = (int) (sw / sf) ;
          sh = (int) (sh / sf) ;
          scaledsize = new Dimension(sw,sh) ;
+         moved() ;
 
          // Apply current colors and transparency.
 
          if (cm != basecm || transparency != 255 || isInitTransUpdated())
          {
-            ImageProducer base = scaledimage.getSource() ;
-            ImageProducer ip = new FilteredImageSource(base,
-               new PaletteFilter(cm,basecm,transparency,transparentcolor));
-            filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-            MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-            tracker.addImage(filteredimage,0) ;
-            try { tracker.waitForAll(500) ; }
-            catch (InterruptedException e) { }
+            filteredimage = createFilteredImage(scaledimage,
+               new PaletteFilter(cm,basecm,transparency,transparentcolor)) ;
          }
       }
       catch (OutOfMemoryError e)
@@ -2578,14 +2789,8 @@ abstract class Cel extends KissObject
 
          if (cm != basecm || transparency != 255 || isInitTransUpdated())
          {
-            ImageProducer base = image.getSource() ;
-            ImageProducer ip = new FilteredImageSource(base,
-               new PaletteFilter(cm,basecm,transparency,transparentcolor));
-            filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-            MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-            tracker.addImage(filteredimage,0) ;
-            try { tracker.waitForAll(500) ; }
-            catch (InterruptedException e) { }
+            filteredimage = createFilteredImage(image,
+               new PaletteFilter(cm,basecm,transparency,transparentcolor)) ;
          }
          return ;
       }
@@ -2606,19 +2811,14 @@ abstract class Cel extends KissObject
          sf = 1.0f ;
          scaled = true ;
          scaledsize = new Dimension(sw,sh) ;
+         moved() ;
 
          // Apply current colors and transparency.
 
          if (cm != basecm || transparency != 255 || isInitTransUpdated())
          {
-            ImageProducer base = scaledimage.getSource() ;
-            ImageProducer ip = new FilteredImageSource(base,
-               new PaletteFilter(cm,basecm,transparency,transparentcolor));
-            filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-            MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-            tracker.addImage(filteredimage,0) ;
-            try { tracker.waitForAll(500) ; }
-            catch (InterruptedException e) { }
+            filteredimage = createFilteredImage(scaledimage,
+               new PaletteFilter(cm,basecm,transparency,transparentcolor)) ;
          }
       }
       catch (OutOfMemoryError e)
@@ -2627,6 +2827,126 @@ abstract class Cel extends KissObject
       }
    }
    
+   // Function to construct a palette filtered copy of an image for the
+   // current color model, transparency and transparent color.  The copies
+   // for the most recently used color models are retained, so a cel that
+   // returns to a palette it has shown reuses the converted image and does
+   // not filter its pixels again.  Copies are retained for one source image
+   // only.  Retained copies are shared, so the caller must not draw into
+   // the returned image.
+
+   Image createPaletteImage(Image img)
+   {
+      return createPaletteImage(img,cm,transparentcolor) ;
+   }
+
+   // Function to construct a palette filtered copy of an image for the
+   // specified color model and transparent color.  The cel colors are not
+   // changed.
+
+   Image createPaletteImage(Image img, ColorModel model, Color c)
+   {
+      if (img == null) return null ;
+      ColorModel base = basecm ;
+      int t = transparency ;
+      synchronized (this)
+      {
+         Object [] o = (filteredimages != null && img == filteredsource)
+            ? (Object []) filteredimages.get(model) : null ;
+         if (o != null && o[0] == model && o[1] == base &&
+            ((Integer) o[2]).intValue() == t &&
+            ((c == null) ? o[3] == null : c.equals(o[3])))
+            return (Image) o[4] ;
+      }
+
+      // Filter the image outside of our lock.  Toolkit images are not
+      // retained as their pixels may not yet be complete.
+
+      Image fi = createFilteredImage(img,new PaletteFilter(model,base,t,c)) ;
+      if (!(fi instanceof BufferedImage)) return fi ;
+      synchronized (this)
+      {
+         if (filteredimages == null || img != filteredsource)
+         {
+            filteredimages = new LinkedHashMap(FILTEREDIMAGES*2,0.75f,true)
+            {
+               protected boolean removeEldestEntry(Map.Entry e)
+               { return size() > FILTEREDIMAGES ; }
+            } ;
+            filteredsource = img ;
+         }
+         Object [] o = new Object[5] ;
+         o[0] = model ;
+         o[1] = base ;
+         o[2] = Integer.valueOf(t) ;
+         o[3] = c ;
+         o[4] = fi ;
+         filteredimages.put(model,o) ;
+      }
+      return fi ;
+   }
+
+   // Release the retained palette filtered images.
+
+   synchronized void clearPaletteImages()
+   {
+      filteredimages = null ;
+      filteredsource = null ;
+   }
+
+
+   // Function to construct a filtered copy of an image.  The filter output
+   // is captured in a buffered image rather than a toolkit image.  Buffered
+   // images that are not accessed through their data arrays are managed by
+   // the graphics system and can be cached for fast drawing.  A toolkit
+   // image is returned if the filtered pixels cannot be obtained.
+
+   static Image createFilteredImage(Image img, ImageFilter filter)
+   {
+      if (img == null) return null ;
+      ImageProducer ip = img.getSource() ;
+      if (filter != null) ip = new FilteredImageSource(ip,filter) ;
+      Image fi = Toolkit.getDefaultToolkit().createImage(ip) ;
+      Image bi = createBufferedImage(fi) ;
+      if (bi != null) return bi ;
+      MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
+      tracker.addImage(fi,0) ;
+      try { tracker.waitForAll(500) ; }
+      catch (InterruptedException e) { }
+      return fi ;
+   }
+
+
+   // Function to construct an ARGB buffered image from an image.  The
+   // image pixels are produced directly into the image raster so that the
+   // image remains eligible for caching.  Returns null if the pixels cannot
+   // be obtained.
+
+   static BufferedImage createBufferedImage(Image img)
+   {
+      if (img == null) return null ;
+      PixelGrabber pg = new PixelGrabber(img,0,0,-1,-1,true) ;
+      try { if (!pg.grabPixels(2000)) return null ; }
+      catch (InterruptedException e) { return null ; }
+      int w = pg.getWidth() ;
+      int h = pg.getHeight() ;
+      if (w <= 0 || h <= 0) return null ;
+      if (!(pg.getPixels() instanceof int [])) return null ;
+      return createBufferedImage((int []) pg.getPixels(),w,h) ;
+   }
+
+
+   // Function to construct an ARGB buffered image from an array of default
+   // RGB color model pixels.
+
+   static BufferedImage createBufferedImage(int [] pixels, int w, int h)
+   {
+      BufferedImage bi = new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB) ;
+      bi.getRaster().setDataElements(0,0,w,h,pixels) ;
+      return bi ;
+   }
+
+
    // Create a BufferedImage of the desired size and draw the original 
    // image into it, scaling on the fly. Note that depending on whether 
    // your original image is opaque or non-opaque (that is, if it's 
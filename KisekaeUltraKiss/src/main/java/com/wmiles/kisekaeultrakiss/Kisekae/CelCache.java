@@ -0,0 +1,506 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* CelCache class
+*
+* Purpose:
+*
+* This class manages the memory used by loaded cel images for a
+* configuration.  Loaded cels are tracked in least recently used order with
+* an estimate of their image memory and a count of the pages shown that
+* used them.  When the total exceeds the cache budget, cels are unloaded.
+* Eviction considers the least recently used cels first and prefers those
+* used the least often.  Cels on the page on display are not unloaded.
+*
+* The cache also prefetches pages.  When a page is shown, the FKiSS events
+* that can run from the page are examined for changeset actions.  Events
+* reached through timer alarms and gosub or goto labels are followed.
+* The pages most often referenced are loaded on a background thread so that
+* a later page change does not need to decode the cels.
+*
+* All cel loads are serialized through the cache so that the panel and the
+* prefetch thread do not read the archive concurrently.
+*
+*/
+
+import java.awt.Image ;
+import java.awt.image.BufferedImage ;
+import java.awt.image.DataBuffer ;
+import java.util.Enumeration ;
+import java.util.Hashtable ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+import java.util.Vector ;
+
+
+final class CelCache implements Runnable
+{
+   private static final int PREFETCH = 2 ;      // Pages to prefetch
+   private static final int CANDIDATES = 8 ;    // Eviction candidates
+   private static final int REACH = 500 ;       // Objects searched for pages
+
+   private static int count = 0 ;               // Cache thread counter
+
+   private Configuration config = null ;        // The configuration
+   private LinkedHashMap entries = null ;       // Loaded cels in LRU order
+   private Hashtable prefetched = null ;        // Cels loaded by prefetch
+   private Vector predicted = new Vector() ;    // Predicted pages
+   private Object loadlock = new Object() ;     // Cel load lock
+   private Thread thread = null ;               // The prefetch thread
+   private Integer current = null ;             // The page on display
+   private Integer request = null ;             // The page to predict from
+   private long total = 0 ;                     // Estimated bytes loaded
+
+   // Cache statistics.
+
+   private long loads = 0 ;                     // Cels loaded
+   private long prefetches = 0 ;                // Cels loaded by prefetch
+   private long evictions = 0 ;                 // Cels unloaded
+
+
+   // A cache entry.
+
+   private class Entry
+   {
+      long bytes ;                              // Estimated image bytes
+      int hits ;                                // Pages shown using the cel
+   }
+
+
+   // Constructor.
+
+   CelCache(Configuration c)
+   {
+      config = c ;
+      entries = new LinkedHashMap(256,0.75f,true) ;
+      prefetched = new Hashtable() ;
+   }
+
+
+   // Start the prefetch thread.
+
+   synchronized void start()
+   {
+      if (thread != null) return ;
+      thread = new Thread(this) ;
+      thread.setName("CelCache-" + (++count)) ;
+      thread.setDaemon(true) ;
+      thread.setPriority(Thread.MIN_PRIORITY) ;
+      thread.start() ;
+   }
+
+
+   // Stop the prefetch thread and release the cache.  Cels are not unloaded.
+
+   void stop()
+   {
+      Thread t = null ;
+      synchronized (this)
+      {
+         t = thread ;
+         thread = null ;
+         request = null ;
+         entries.clear() ;
+         prefetched.clear() ;
+         predicted = new Vector() ;
+         total = 0 ;
+         notifyAll() ;
+      }
+      if (t != null) t.interrupt() ;
+   }
+
+
+   // Load a cel.  Loads are serialized so that archive reads do not
+   // overlap.  The cel is recorded in the cache.
+
+   void load(Cel c, Vector includefiles)
+   {
+      if (c == null) return ;
+      boolean loaded = false ;
+      synchronized (loadlock)
+      {
+         if (c.isLoaded()) return ;
+         c.load(includefiles) ;
+         loaded = c.isLoaded() ;
+      }
+      if (!loaded) return ;
+      synchronized (this)
+      {
+         loads++ ;
+         touch(c) ;
+      }
+   }
+
+
+   // Claim a cel loaded by prefetch.  The panel uses this to establish the
+   // group placement of cels that it did not load itself.  Returns true if
+   // the cel was loaded by prefetch and not yet claimed.
+
+   boolean claim(Cel c)
+   {
+      if (c == null) return false ;
+      return (prefetched.remove(c) != null) ;
+   }
+
+
+   // Record the use of a loaded cel.
+
+   private void touch(Cel c)
+   {
+      Entry entry = (Entry) entries.get(c) ;
+      if (entry == null)
+      {
+         entry = new Entry() ;
+         entry.bytes = getImageBytes(c) ;
+         entries.put(c,entry) ;
+         total += entry.bytes ;
+      }
+   }
+
+
+   // Note that a page is shown.  All loaded cels on the page are recorded
+   // as used, the cache is trimmed to the budget, and the pages reachable
+   // from this page are prefetched.
+
+   void pageShown(int pageset)
+   {
+      Vector cels = (config != null) ? config.getCels() : null ;
+      if (cels == null) return ;
+      Integer page = Integer.valueOf(pageset) ;
+      synchronized (this)
+      {
+         current = page ;
+         for (int i = 0 ; i < cels.size() ; i++)
+         {
+            Cel c = (Cel) cels.elementAt(i) ;
+            if (!c.isLoaded()) continue ;
+            if (!c.isOnSpecificPage(page)) continue ;
+            touch(c) ;
+            ((Entry) entries.get(c)).hits++ ;
+         }
+         request = page ;
+         notifyAll() ;
+      }
+      trim() ;
+   }
+
+
+   // Return true if a cel is on a predicted page.  The scene timer retains
+   // these cels.
+
+   boolean isRetained(Cel c)
+   {
+      Vector v = predicted ;
+      for (int i = 0 ; i < v.size() ; i++)
+         if (c.isOnSpecificPage((Integer) v.elementAt(i))) return true ;
+      return false ;
+   }
+
+
+   // Unload cels until the cache is within the budget.  Eviction candidates
+   // are the least recently used cels.  Of these the cel used the least
+   // often is unloaded first.
+
+   void trim()
+   {
+      long budget = OptionsDialog.getCacheBudget() ;
+      if (budget <= 0) return ;
+      while (true)
+      {
+         Cel c = null ;
+         synchronized (this)
+         {
+            if (total <= budget) return ;
+            Entry victim = null ;
+            int n = 0 ;
+            Iterator i = entries.entrySet().iterator() ;
+            while (i.hasNext() && n < CANDIDATES)
+            {
+               Map.Entry me = (Map.Entry) i.next() ;
+               Cel cel = (Cel) me.getKey() ;
+               Entry entry = (Entry) me.getValue() ;
+
+               // Forget cels that were unloaded elsewhere.
+
+               if (!cel.isLoaded())
+               {
+                  total -= entry.bytes ;
+                  prefetched.remove(cel) ;
+                  i.remove() ;
+                  continue ;
+               }
+               if (!isEvictable(cel)) continue ;
+               n++ ;
+               if (victim == null || entry.hits < victim.hits)
+               {
+                  victim = entry ;
+                  c = cel ;
+               }
+            }
+            if (c == null) return ;
+            entries.remove(c) ;
+            prefetched.remove(c) ;
+            total -= victim.bytes ;
+            evictions++ ;
+         }
+         synchronized (loadlock) { c.unload() ; }
+         if (OptionsDialog.getDebugLoad())
+            PrintLn.println("CelCache: unload " + c + ", " + getStatistics()) ;
+      }
+   }
+
+
+   // Return true if a cel can be unloaded.  This follows the rules used
+   // by the panel frame when cels are unloaded on a page change.
+
+   private boolean isEvictable(Cel c)
+   {
+      if (c.isUpdated()) return false ;
+      if (c.isImported()) return false ;
+      if (c.isOnAllPage()) return false ;
+      if (c.getFrameCount() > 1) return false ;
+      if (c instanceof JavaCel || c instanceof Video) return false ;
+      if (current != null && c.isOnSpecificPage(current)) return false ;
+      if (OptionsDialog.getPagesAreScenes() && c.isOnSpecificPage(Integer.valueOf(0))) return false ;
+      return true ;
+   }
+
+
+   // Return the estimated memory used by a cel image.
+
+   static long getImageBytes(Cel c)
+   {
+      Image img = c.getImage() ;
+      if (img instanceof BufferedImage)
+      {
+         DataBuffer db = ((BufferedImage) img).getRaster().getDataBuffer() ;
+         long n = (long) db.getSize() * db.getNumBanks() ;
+         return n * DataBuffer.getDataTypeSize(db.getDataType()) / 8 ;
+      }
+      int w = (img != null) ? img.getWidth(null) : 0 ;
+      int h = (img != null) ? img.getHeight(null) : 0 ;
+      if (w <= 0 || h <= 0) return 0 ;
+      return (long) w * h * 4 ;
+   }
+
+
+   // Predict the pages that can be shown next from the specified page.
+   // The FKiSS events of the page and of the objects on the page are
+   // searched for changeset actions.  Alarms and labels referenced by
+   // these events are searched in turn.  Pages are returned in order of
+   // the number of references.
+
+   Vector predictPages(int pageset)
+   {
+      Vector result = new Vector() ;
+      Object cid = (config != null) ? config.getID() : null ;
+      PageSet page = (PageSet) PageSet.getByKey(PageSet.getKeyTable(),cid,Integer.valueOf(pageset)) ;
+      if (page == null) return result ;
+
+      // Establish the starting objects.
+
+      Vector search = new Vector() ;
+      Hashtable visited = new Hashtable() ;
+      search.addElement(page) ;
+      Integer pg = Integer.valueOf(pageset) ;
+      Vector groups = page.getGroups() ;
+      for (int i = 0 ; i < groups.size() ; i++)
+      {
+         Group g = (Group) groups.elementAt(i) ;
+         if (!g.isOnPage(pg)) continue ;
+         search.addElement(g) ;
+         Vector cels = g.getCels() ;
+         if (cels != null) search.addAll(cels) ;
+      }
+
+      // Search the events.
+
+      Hashtable references = new Hashtable() ;
+      for (int i = 0 ; i < search.size() && visited.size() < REACH ; i++)
+      {
+         Object o = search.elementAt(i) ;
+         if (!(o instanceof KissObject) || visited.containsKey(o)) continue ;
+         visited.put(o,o) ;
+         Enumeration events = ((KissObject) o).getEvents() ;
+         while (events != null && events.hasMoreElements())
+         {
+            Vector v = (Vector) events.nextElement() ;
+            for (int j = 0 ; j < v.size() ; j++)
+            {
+               FKissEvent evt = (FKissEvent) v.elementAt(j) ;
+               Vector actions = evt.getActionList() ;
+               if (actions == null) continue ;
+               for (int k = 0 ; k < actions.size() ; k++)
+               {
+                  Object target = ((FKissAction) actions.elementAt(k)).getObject() ;
+                  if (target instanceof PageSet && target != page)
+                  {
+                     Integer n = (Integer) references.get(target) ;
+                     references.put(target,Integer.valueOf((n == null) ? 1 : n.intValue()+1)) ;
+                  }
+                  else if (target instanceof Alarm || target instanceof Module)
+                     search.addElement(target) ;
+               }
+            }
+         }
+      }
+
+      // Order the pages by reference count.
+
+      Enumeration e = references.keys() ;
+      while (e.hasMoreElements())
+      {
+         PageSet p = (PageSet) e.nextElement() ;
+         int n = ((Integer) references.get(p)).intValue() ;
+         int i = 0 ;
+         while (i < result.size())
+         {
+            PageSet q = (PageSet) result.elementAt(i) ;
+            if (((Integer) references.get(q)).intValue() < n) break ;
+            i++ ;
+         }
+         result.insertElementAt(p,i) ;
+      }
+      for (int i = 0 ; i < result.size() ; i++)
+         result.setElementAt(((PageSet) result.elementAt(i)).getIdentifier(),i) ;
+      return result ;
+   }
+
+
+   // The prefetch thread.  We wait for a page to be shown, predict the
+   // next pages, and load their cels.  A new page request abandons the
+   // current prefetch.
+
+   public void run()
+   {
+      Thread me = Thread.currentThread() ;
+      while (true)
+      {
+         Integer page = null ;
+         try
+         {
+            synchronized (this)
+            {
+               while (thread == me && request == null) wait() ;
+               if (thread != me) break ;
+               page = request ;
+               request = null ;
+            }
+
+            Vector v = predictPages(page.intValue()) ;
+            if (v.size() > PREFETCH) v.setSize(PREFETCH) ;
+            predicted = v ;
+            Vector cels = (config != null) ? config.getCels() : null ;
+            if (cels == null) continue ;
+            for (int i = 0 ; i < v.size() ; i++)
+            {
+               Object o = v.elementAt(i) ;
+               if (!(o instanceof Integer)) continue ;
+               if (!prefetch((Integer) o,cels,me)) break ;
+            }
+            trim() ;
+         }
+         catch (InterruptedException e)
+         {
+            synchronized (this) { if (thread != me) break ; }
+         }
+         catch (Exception e)
+         {
+            PrintLn.println("CelCache: prefetch exception " + e.toString()) ;
+         }
+      }
+      if (OptionsDialog.getDebugControl())
+         PrintLn.println(me.getName() + " terminated.  " + getStatistics()) ;
+   }
+
+
+   // Load the unloaded cels on a page.  Returns false if the prefetch was
+   // abandoned.
+
+   private boolean prefetch(Integer page, Vector cels, Thread me)
+      throws java.io.IOException
+   {
+      ArchiveFile zip = config.getZipFile() ;
+      if (zip == null) return false ;
+      Vector includefiles = config.getIncludeFiles() ;
+      for (int i = 0 ; i < cels.size() ; i++)
+      {
+         synchronized (this) { if (thread != me || request != null) return false ; }
+         Cel c = (Cel) cels.elementAt(i) ;
+         if (c.isLoaded()) continue ;
+         if (c instanceof JavaCel || c instanceof Video) continue ;
+         if (!c.isOnSpecificPage(page)) continue ;
+         synchronized (loadlock)
+         {
+            if (c.isLoaded()) continue ;
+            if (!zip.isOpen()) zip.open() ;
+            c.load(includefiles) ;
+            if (!c.isLoaded()) continue ;
+         }
+         prefetched.put(c,c) ;
+         synchronized (this)
+         {
+            prefetches++ ;
+            touch(c) ;
+         }
+         if (OptionsDialog.getDebugLoad())
+            PrintLn.println("CelCache: prefetch (page " + page + ") " + c) ;
+      }
+      return true ;
+   }
+
+
+   // Return a statistics summary.
+
+   synchronized String getStatistics()
+   {
+      return "Cached " + entries.size() + " cels, " + (total / 1024) + " KB, loads "
+         + loads + ", prefetched " + prefetches + ", unloaded " + evictions ;
+   }
+}
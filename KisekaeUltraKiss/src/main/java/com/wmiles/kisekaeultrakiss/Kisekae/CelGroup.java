@@ -74,7 +74,7 @@ class CelGroup extends KissObject
 {
 	// Class attributes.  Sized for 100 cel group objects.
 
-	static private Hashtable key = new Hashtable(120,0.8f) ;
+	static private KeyTable key = new KeyTable(120) ;
 
 	// Cel Group attributes
 
@@ -103,23 +103,17 @@ class CelGroup extends KissObject
 	// Class methods
 	// -------------
 
-	static Hashtable getKeyTable() { return key ; }
+	static KeyTable getKeyTable() { return key ; }
 
-	// Hashtable keys are compound entities that contain a reference
-	// to a configuration.  Thus, multiple configurations can coexist
-	// in the static hash table.  When we clear a table we must remove
-	// only those entities that are associated with the specified
-	// configuration identifier.
+	// Key table entries are grouped by configuration.  Thus, multiple
+	// configurations can coexist in the static key table.  When we clear
+	// a table we must remove only those entities that are associated with
+	// the specified configuration identifier.
 
 	static void clearTable(Object cid)
 	{
       if (cid == null) cid = new String("Unknown") ;
-		Enumeration e = key.keys() ;
-		while (e.hasMoreElements())
-		{
-			String hashkey = (String) e.nextElement() ;
-			if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-		}
+		key.clear(cid) ;
 	}
 
 
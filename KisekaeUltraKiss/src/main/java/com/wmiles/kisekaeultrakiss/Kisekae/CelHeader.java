@@ -0,0 +1,251 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* CelHeader class
+*
+* Purpose:
+*
+* This class reads the geometry of a cel from the header of its image
+* file.  Only the first bytes of the file are read, so the cel size and
+* offset can be established without decoding the cel pixels.  KiSS cels
+* report their width, height and offset.  GIF, PNG, BMP and
+* JPG images report their dimensions, and GIF images report the offset
+* of their first frame.
+*
+* The header values match the values that the cel load sets, so a cel
+* that is later loaded keeps the same geometry.
+*
+*/
+
+import java.io.* ;
+
+
+final class CelHeader
+{
+   private static final int HEADERBYTES = 4096 ;   // Bytes read from a file
+
+   int width = 0 ;                  // The image width
+   int height = 0 ;                 // The image height
+   int x = 0 ;                      // The image x offset
+   int y = 0 ;                      // The image y offset
+   boolean relative = true ;        // If true, add the initial offset
+
+
+   // Read the header for an archive entry.  The extension identifies the
+   // image format.  Null is returned if the format is not known or the
+   // header is not valid.
+
+   static CelHeader read(ArchiveEntry ze, String extension)
+   {
+      if (ze == null || extension == null) return null ;
+      if (!isKnown(extension)) return null ;
+      ArchiveFile zip = ze.getZipFile() ;
+      if (zip == null) return null ;
+
+      InputStream is = null ;
+      try
+      {
+         is = zip.getInputStream(ze) ;
+         if (is == null) return null ;
+         int n = 0, len = 0 ;
+         byte b[] = new byte[HEADERBYTES] ;
+         while (n < b.length && (len = is.read(b,n,b.length-n)) >= 0) n += len ;
+         return parse(b,n,extension) ;
+      }
+      catch (IOException e) { return null ; }
+      finally
+      {
+         try { if (is != null) is.close() ; }
+         catch (IOException e) { }
+      }
+   }
+
+
+   // Return true if the extension is a format that we can read.
+
+   static boolean isKnown(String extension)
+   {
+      return (".cel".equals(extension) || ".gif".equals(extension) ||
+         ".png".equals(extension) || ".bmp".equals(extension) ||
+         ".jpg".equals(extension) || ".jpeg".equals(extension)) ;
+   }
+
+
+   // Decode the header from the first n bytes of a file.
+
+   static CelHeader parse(byte [] b, int n, String extension)
+   {
+      CelHeader h = new CelHeader() ;
+      boolean valid = false ;
+      if (".cel".equals(extension)) valid = h.parseKiss(b,n) ;
+      else if (".gif".equals(extension)) valid = h.parseGif(b,n) ;
+      else if (".png".equals(extension)) valid = h.parsePng(b,n) ;
+      else if (".bmp".equals(extension)) valid = h.parseBmp(b,n) ;
+      else if (".jpg".equals(extension) || ".jpeg".equals(extension)) valid = h.parseJpg(b,n) ;
+      if (!valid || h.width <= 0 || h.height <= 0) return null ;
+      return h ;
+   }
+
+
+   // KiSS cels.  Version 1 cels have a 32 byte header with the size,
+   // offset and pixel bits.  Version 0 cels have a 4 byte size header,
+   // 4 bit pixels and no offset.  KiSS and GIF values are converted as
+   // the cel load converts them.
+
+   private boolean parseKiss(byte [] b, int n)
+   {
+      if (n < 16) return false ;
+      if ("KiSS".equals(new String(b,0,4)))
+      {
+         width = KissObject.fixByte(b[9],b[8]) ;
+         height = KissObject.fixByte(b[11],b[10]) ;
+         x = KissObject.fixByte(b[13],b[12]) ;
+         y = KissObject.fixByte(b[15],b[14]) ;
+         int bits = b[5] & 0xff ;
+         return (bits == 4 || bits == 8 || bits == 32) ;
+      }
+      width = KissObject.fixByte(b[1],b[0]) ;
+      height = KissObject.fixByte(b[3],b[2]) ;
+      relative = false ;
+      return (width <= 2000 && height <= 2000) ;
+   }
+
+
+   // GIF images.  The cel size is the logical screen size.  The offset
+   // is the position of the first image descriptor, which follows the
+   // global color table and any extension blocks.
+
+   private boolean parseGif(byte [] b, int n)
+   {
+      if (n < 13 || !"GIF".equals(new String(b,0,3))) return false ;
+      width = KissObject.fixByte(b[7],b[6]) ;
+      height = KissObject.fixByte(b[9],b[8]) ;
+      int i = 13 ;
+      if ((b[10] & 0x80) != 0) i += 3 * (1 << ((b[10] & 7) + 1)) ;
+      while (i < n)
+      {
+         int code = b[i] & 0xff ;
+         if (code == 0x2C)
+         {
+            if (i+4 < n)
+            {
+               x = KissObject.fixByte(b[i+2],b[i+1]) ;
+               y = KissObject.fixByte(b[i+4],b[i+3]) ;
+            }
+            break ;
+         }
+         if (code != 0x21) break ;
+         i += 2 ;
+         while (i < n && b[i] != 0) i += (b[i] & 0xff) + 1 ;
+         i++ ;
+      }
+      return true ;
+   }
+
+
+   // PNG images.  The IHDR chunk follows the 8 byte signature.
+
+   private boolean parsePng(byte [] b, int n)
+   {
+      if (n < 24) return false ;
+      if ((b[0] & 0xff) != 0x89 || !"PNG".equals(new String(b,1,3))) return false ;
+      if (!"IHDR".equals(new String(b,12,4))) return false ;
+      width = dword(b[16],b[17],b[18],b[19]) ;
+      height = dword(b[20],b[21],b[22],b[23]) ;
+      return true ;
+   }
+
+
+   // BMP images.  The bitmap info header follows the 14 byte file header.
+
+   private boolean parseBmp(byte [] b, int n)
+   {
+      if (n < 30 || b[0] != 'B' || b[1] != 'M') return false ;
+      width = dword(b[21],b[20],b[19],b[18]) ;
+      height = dword(b[25],b[24],b[23],b[22]) ;
+      return true ;
+   }
+
+
+   // JPG images.  The frame size is in the first start of frame segment.
+   // Segments are scanned until the frame is found or the header bytes
+   // are exhausted.
+
+   private boolean parseJpg(byte [] b, int n)
+   {
+      if (n < 4 || (b[0] & 0xff) != 0xFF || (b[1] & 0xff) != 0xD8) return false ;
+      int i = 2 ;
+      while (i+9 < n)
+      {
+         if ((b[i] & 0xff) != 0xFF) return false ;
+         int marker = b[i+1] & 0xff ;
+         if (marker == 0xFF) { i++ ; continue ; }
+         if (marker >= 0xC0 && marker <= 0xCF &&
+            marker != 0xC4 && marker != 0xC8 && marker != 0xCC)
+         {
+            height = word(b[i+5],b[i+6]) ;
+            width = word(b[i+7],b[i+8]) ;
+            return true ;
+         }
+         i += 2 + word(b[i+2],b[i+3]) ;
+      }
+      return false ;
+   }
+
+
+   // Return an unsigned 16 bit value from a high and low byte.  KiSS and
+   // GIF values use the signed conversion that the cel load uses.
+
+   private static int word(byte hi, byte lo)
+   { return ((hi & 0xff) << 8) | (lo & 0xff) ; }
+
+   // Return a 32 bit value from bytes in high to low order.
+
+   private static int dword(byte b1, byte b2, byte b3, byte b4)
+   { return ((b1 & 0xff) << 24) | ((b2 & 0xff) << 16) | ((b3 & 0xff) << 8) | (b4 & 0xff) ; }
+}
@@ -0,0 +1,285 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+/**
+* CelIndex class
+*
+* Purpose:
+*
+* This class is a spatial index of the cels on the current page.  The page
+* area is divided into a uniform grid of square cells and each cel is
+* recorded in every grid cell that its bounding box overlaps.  Cels that
+* extend beyond the page are recorded in the edge cells.  The index can
+* then find the cels under a point or within a box without scanning the
+* whole page cel list.
+*
+* The index is built from the panel cel list and reports cels by their
+* position in that list, which is their drawing order.  Cels notify the
+* index when they move or change size.
+*
+*/
+
+import java.awt.* ;
+import java.util.Arrays ;
+import java.util.Hashtable ;
+import java.util.Vector ;
+
+
+final class CelIndex
+{
+   private static final int CELLSIZE = 64 ;  // Grid cell size in pixels
+
+   private int [] list = null ;              // The indexed panel cel list
+   private Vector [] grid = null ;           // The grid cells
+   private Hashtable entries = null ;        // Entries keyed by cel
+   private int columns = 0 ;                 // Grid columns
+   private int rows = 0 ;                    // Grid rows
+
+
+   // An index entry.  The entry records the cel position in the panel
+   // cel list and the grid area it occupies.
+
+   private class Entry
+   {
+      Cel cel ;                              // The indexed cel
+      int position ;                         // Position in the cel list
+      int x0, y0, x1, y1 ;                   // Occupied grid area
+   }
+
+
+   // Constructor.  The index is built for the cel list of a page of the
+   // specified size.  Cel numbers in the list refer to the cel vector.
+
+   CelIndex(int [] celList, Vector cels, Dimension d)
+   {
+      list = celList ;
+      int w = (d != null && d.width > 0) ? d.width : CELLSIZE ;
+      int h = (d != null && d.height > 0) ? d.height : CELLSIZE ;
+      columns = (w + CELLSIZE - 1) / CELLSIZE ;
+      rows = (h + CELLSIZE - 1) / CELLSIZE ;
+      grid = new Vector[columns*rows] ;
+      entries = new Hashtable() ;
+      if (celList == null || cels == null) return ;
+
+      for (int i = 0 ; i < celList.length ; i++)
+      {
+         Cel c ;
+         int n = celList[i] ;
+         if (n < 0) continue ;
+         try { c = (Cel) cels.elementAt(n) ; }
+         catch (ArrayIndexOutOfBoundsException e) { continue ; }
+         Entry entry = new Entry() ;
+         entry.cel = c ;
+         entry.position = i ;
+         entries.put(c,entry) ;
+         insert(entry,c.getBoundingBox()) ;
+         c.setIndex(this) ;
+      }
+   }
+
+
+   // Return the cel list that this index was built from.
+
+   int [] getList() { return list ; }
+
+
+   // Release the index.  Indexed cels no longer report changes.
+
+   synchronized void clear()
+   {
+      Object [] cels = entries.keySet().toArray() ;
+      for (int i = 0 ; i < cels.length ; i++)
+      {
+         Cel c = (Cel) cels[i] ;
+         if (c.getIndex() == this) c.setIndex(null) ;
+      }
+      entries.clear() ;
+      for (int i = 0 ; i < grid.length ; i++) grid[i] = null ;
+   }
+
+
+   // Update the grid area for a cel that has moved or changed size.
+
+   synchronized void update(Cel c)
+   {
+      if (c == null) return ;
+      Entry entry = (Entry) entries.get(c) ;
+      if (entry == null) return ;
+      Rectangle r = c.getBoundingBox() ;
+      int x0 = column(r.x) ;
+      int y0 = row(r.y) ;
+      int x1 = column(r.x + r.width - 1) ;
+      int y1 = row(r.y + r.height - 1) ;
+      if (x0 == entry.x0 && y0 == entry.y0 && x1 == entry.x1 && y1 == entry.y1) return ;
+      remove(entry) ;
+      insert(entry,r) ;
+   }
+
+
+   // Return the cel list positions of the cels whose bounding box contains
+   // the specified point.  Positions are returned from the top cel down.
+
+   synchronized int [] getCelsAt(int x, int y)
+   {
+      Vector v = grid[row(y) * columns + column(x)] ;
+      if (v == null) return new int[0] ;
+      int n = 0 ;
+      int [] positions = new int[v.size()] ;
+      for (int i = 0 ; i < v.size() ; i++)
+      {
+         Entry entry = (Entry) v.elementAt(i) ;
+         Rectangle r = entry.cel.getBoundingBox() ;
+         if (!r.contains(x,y)) continue ;
+         positions[n++] = entry.position ;
+      }
+      return descending(positions,n) ;
+   }
+
+
+   // Return the cel list positions of the cels whose bounding box
+   // intersects the specified box.  Positions are returned from the top
+   // cel down.
+
+   synchronized int [] getCelsIn(Rectangle box)
+   {
+      if (box == null) return new int[0] ;
+      Hashtable found = new Hashtable() ;
+      int x0 = column(box.x) ;
+      int y0 = row(box.y) ;
+      int x1 = column(box.x + box.width - 1) ;
+      int y1 = row(box.y + box.height - 1) ;
+      for (int y = y0 ; y <= y1 ; y++)
+      {
+         for (int x = x0 ; x <= x1 ; x++)
+         {
+            Vector v = grid[y * columns + x] ;
+            if (v == null) continue ;
+            for (int i = 0 ; i < v.size() ; i++)
+            {
+               Entry entry = (Entry) v.elementAt(i) ;
+               if (found.containsKey(entry)) continue ;
+               if (!entry.cel.getBoundingBox().intersects(box)) continue ;
+               found.put(entry,entry) ;
+            }
+         }
+      }
+
+      int n = 0 ;
+      int [] positions = new int[found.size()] ;
+      Object [] o = found.keySet().toArray() ;
+      for (int i = 0 ; i < o.length ; i++)
+         positions[n++] = ((Entry) o[i]).position ;
+      return descending(positions,n) ;
+   }
+
+
+   // Record an entry in all grid cells that the box overlaps.
+
+   private void insert(Entry entry, Rectangle r)
+   {
+      entry.x0 = column(r.x) ;
+      entry.y0 = row(r.y) ;
+      entry.x1 = column(r.x + r.width - 1) ;
+      entry.y1 = row(r.y + r.height - 1) ;
+      for (int y = entry.y0 ; y <= entry.y1 ; y++)
+      {
+         for (int x = entry.x0 ; x <= entry.x1 ; x++)
+         {
+            int i = y * columns + x ;
+            if (grid[i] == null) grid[i] = new Vector() ;
+            grid[i].addElement(entry) ;
+         }
+      }
+   }
+
+
+   // Remove an entry from all grid cells that it occupies.
+
+   private void remove(Entry entry)
+   {
+      for (int y = entry.y0 ; y <= entry.y1 ; y++)
+      {
+         for (int x = entry.x0 ; x <= entry.x1 ; x++)
+         {
+            Vector v = grid[y * columns + x] ;
+            if (v != null) v.removeElement(entry) ;
+         }
+      }
+   }
+
+
+   // Return the grid column or row for a page coordinate.  Coordinates
+   // beyond the page map to the edge cells.
+
+   private int column(int x)
+   {
+      int n = (x < 0) ? 0 : x / CELLSIZE ;
+      return (n >= columns) ? columns - 1 : n ;
+   }
+
+   private int row(int y)
+   {
+      int n = (y < 0) ? 0 : y / CELLSIZE ;
+      return (n >= rows) ? rows - 1 : n ;
+   }
+
+
+   // Sort the first n positions from the top cel down.
+
+   private int [] descending(int [] positions, int n)
+   {
+      int [] result = new int[n] ;
+      System.arraycopy(positions,0,result,0,n) ;
+      Arrays.sort(result) ;
+      for (int i = 0, j = n-1 ; i < j ; i++, j--)
+      {
+         int t = result[i] ;
+         result[i] = result[j] ;
+         result[j] = t ;
+      }
+      return result ;
+   }
+}
@@ -0,0 +1,228 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+/**
+* CelMask class
+*
+* Purpose:
+*
+* This class is an opacity mask for a cel image.  The mask holds one bit
+* per image pixel for each of the hit tests used by the panel frame.  The
+* cel transparent and background colors are resolved when the mask is
+* built, so mouse hit tests and collision tests do not need to grab image
+* pixels.
+*
+* A mask is valid for the image and colors it was built from.  The cel
+* rebuilds its mask when the image, palette, or transparency changes.
+*
+*/
+
+import java.awt.* ;
+import java.awt.image.* ;
+
+
+final class CelMask
+{
+   private Image image = null ;           // The source image
+   private Color transparentcolor = null ;  // The source transparent color
+   private Color backgroundcolor = null ;   // The source background color
+   private int width = 0 ;                // The mask width
+   private int height = 0 ;               // The mask height
+   private int span = 0 ;                 // The words in a mask row
+   private long [] hit = null ;           // Mouse selectable pixels
+   private long [] keyed = null ;         // Selectable pixels on color only
+   private long [] touch = null ;         // Collision pixels
+
+
+   // Constructor.  The mask is built from the specified cel image.  If the
+   // image pixels cannot be obtained the mask is empty.
+
+   CelMask(Cel c, Image img)
+   {
+      image = img ;
+      transparentcolor = c.getTransparentColor() ;
+      backgroundcolor = c.getBackgroundColor() ;
+      int w = img.getWidth(null) ;
+      int h = img.getHeight(null) ;
+      if (w <= 0 || h <= 0) return ;
+
+      // Get the image pixels.
+
+      int [] pixels = null ;
+      if (img instanceof BufferedImage)
+         pixels = ((BufferedImage) img).getRGB(0,0,w,h,null,0,w) ;
+      else
+      {
+         pixels = new int[w*h] ;
+         PixelGrabber pg = new PixelGrabber(img,0,0,w,h,pixels,0,w) ;
+         try { if (!pg.grabPixels()) return ; }
+         catch (InterruptedException e) { return ; }
+      }
+
+      // Resolve the transparent and background colors.  Mouse tests ignore
+      // pixels of the transparent color, and GIF pixels of the background
+      // color, where RGB (0,0,1) is read as (0,0,0).  Collision tests
+      // ignore both colors where (0,0,0) is read as (0,0,1).
+
+      boolean truecolor = c.isTruecolor() ;
+      int tc = (transparentcolor != null) ? (transparentcolor.getRGB() & 0xffffff) : -1 ;
+      int bc = (backgroundcolor != null) ? (backgroundcolor.getRGB() & 0xffffff) : -1 ;
+      int gifbc = (c instanceof GifCel && transparentcolor != null) ? bc : -1 ;
+      int tctouch = (tc == 0) ? 1 : tc ;
+
+      width = w ;
+      height = h ;
+      span = (w + 63) >> 6 ;
+      hit = new long[span*h] ;
+      keyed = new long[span*h] ;
+      touch = new long[span*h] ;
+      for (int y = 0 ; y < h ; y++)
+      {
+         int row = y * span ;
+         for (int x = 0 ; x < w ; x++)
+         {
+            int pixel = pixels[y*w+x] ;
+            boolean opaque = ((pixel >> 24) & 255) > 0 ;
+            boolean colored = false ;
+            boolean touched = false ;
+            if (!truecolor)
+            {
+               int rgb = pixel & 0xffffff ;
+               int rgbhit = (rgb == 1) ? 0 : rgb ;
+               int rgbtouch = (rgb == 0) ? 1 : rgb ;
+               colored = (rgbhit != tc && rgbhit != gifbc) ;
+               touched = (rgbtouch != bc && rgbtouch != tctouch) ;
+            }
+            long bit = 1L << (x & 63) ;
+            int i = row + (x >> 6) ;
+            if (opaque || colored) hit[i] |= bit ;
+            if (colored) keyed[i] |= bit ;
+            if (opaque || touched) touch[i] |= bit ;
+         }
+      }
+   }
+
+
+   // Return true if this mask was built from the specified image and colors.
+
+   boolean isValid(Image img, Color tc, Color bc)
+   {
+      if (img != image) return false ;
+      if (tc == null ? transparentcolor != null : !tc.equals(transparentcolor)) return false ;
+      if (bc == null ? backgroundcolor != null : !bc.equals(backgroundcolor)) return false ;
+      return true ;
+   }
+
+
+   // Return the mask dimensions.
+
+   int getWidth() { return width ; }
+   int getHeight() { return height ; }
+
+
+   // Return true if the image pixel can be selected by the mouse.  Keyed
+   // tests accept only pixels that are not of a transparent color,
+   // regardless of their alpha.  Points outside the mask are not selected.
+
+   boolean isHit(int x, int y) { return isSet(hit,x,y) ; }
+   boolean isKeyedHit(int x, int y) { return isSet(keyed,x,y) ; }
+
+
+   // Return true if the image pixel participates in collisions.
+
+   boolean isTouch(int x, int y) { return isSet(touch,x,y) ; }
+
+
+   // Return true if two masks have overlapping collision pixels in a region.
+   // The region starts at (x1,y1) in the first mask and (x2,y2) in the
+   // second mask.  Rows are compared 64 pixels at a time.
+
+   static boolean touches(CelMask m1, int x1, int y1, CelMask m2, int x2, int y2, int w, int h)
+   {
+      if (m1 == null || m2 == null) return false ;
+      if (x1 < 0 || y1 < 0 || x2 < 0 || y2 < 0) return false ;
+      if (w > m1.width - x1) w = m1.width - x1 ;
+      if (w > m2.width - x2) w = m2.width - x2 ;
+      if (h > m1.height - y1) h = m1.height - y1 ;
+      if (h > m2.height - y2) h = m2.height - y2 ;
+      for (int y = 0 ; y < h ; y++)
+      {
+         for (int x = 0 ; x < w ; x += 64)
+         {
+            int n = (w - x < 64) ? w - x : 64 ;
+            long b1 = m1.getBits(m1.touch,x1+x,y1+y,n) ;
+            if (b1 == 0) continue ;
+            long b2 = m2.getBits(m2.touch,x2+x,y2+y,n) ;
+            if ((b1 & b2) != 0) return true ;
+         }
+      }
+      return false ;
+   }
+
+
+   // Return the bit for a pixel in a mask plane.
+
+   private boolean isSet(long [] plane, int x, int y)
+   {
+      if (plane == null) return false ;
+      if (x < 0 || x >= width) return false ;
+      if (y < 0 || y >= height) return false ;
+      return (plane[y*span + (x >> 6)] & (1L << (x & 63))) != 0 ;
+   }
+
+
+   // Return n bits (n <= 64) from a mask plane row starting at pixel x.
+
+   private long getBits(long [] plane, int x, int y, int n)
+   {
+      int i = y*span + (x >> 6) ;
+      int s = x & 63 ;
+      long bits = plane[i] >>> s ;
+      if (s > 0 && (x >> 6) + 1 < span) bits |= plane[i+1] << (64 - s) ;
+      if (n < 64) bits &= (1L << n) - 1 ;
+      return bits ;
+   }
+}
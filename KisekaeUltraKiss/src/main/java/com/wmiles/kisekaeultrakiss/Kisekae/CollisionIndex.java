@@ -0,0 +1,291 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* CollisionIndex class
+*
+* Purpose:
+*
+* This class maintains the collision state for the collide, apart, in, out,
+* stillin and stillout events of a configuration.  The objects named in
+* the collision events are registered when the events are attached during
+* the configuration load.  Each event parameter is resolved once to the
+* list of cels it names, including every occurrence of an ambiguous cel
+* name, or to the group or cel it names for the bounding box events.
+*
+* The index also caches the touch state of each pair of cels that has
+* been tested.  A cached state is reused while both cels keep the same
+* bounding box and opacity mask, so after a move only the pairs that
+* involve the moved objects are tested again.  The touch test itself uses
+* the cel opacity masks.
+*
+* The resolved lists are discarded if the configuration cel or group
+* count changes, as happens when FKiSS clones an object.
+*
+*/
+
+import java.awt.Rectangle ;
+import java.util.Hashtable ;
+import java.util.Vector ;
+
+
+final class CollisionIndex
+{
+   private Configuration config = null ;        // The configuration
+   private Hashtable lists = new Hashtable() ;  // Cel lists by parameter
+   private Hashtable objects = new Hashtable() ;  // Objects by parameter
+   private Hashtable pairs = new Hashtable() ;  // Pair states by cel
+   private int celcount = -1 ;                  // Cel count at resolution
+   private int groupcount = -1 ;                // Group count at resolution
+   private long tests = 0 ;                     // Mask tests performed
+   private long hits = 0 ;                      // Cached states reused
+
+   // A resolved cel list.  The type is 1 for a cel name, 2 for a group
+   // and 3 for a cel group.
+
+   static class CelList
+   {
+      int type = 0 ;
+      Cel [] cels = new Cel[0] ;
+   }
+
+   // The cached touch state of a cel pair.
+
+   private static class PairState
+   {
+      Rectangle r1 = null ;
+      Rectangle r2 = null ;
+      CelMask m1 = null ;
+      CelMask m2 = null ;
+      boolean touch = false ;
+   }
+
+   private static final Object NONE = new Object() ;
+
+
+   // Constructor
+
+   CollisionIndex(Configuration c) { config = c ; }
+
+
+   // Register the objects named in a collision event.  This resolves the
+   // event parameters so that the first collision test does not pay for
+   // the object lookups.
+
+   void register(FKissEvent event)
+   {
+      if (event == null) return ;
+      String name = (String) event.getIdentifier() ;
+      String s1 = event.getFirstParameter() ;
+      String s2 = event.getSecondParameter() ;
+      if ("apart".equals(name) || "collide".equals(name))
+      {
+         getCelList(s1) ;
+         getCelList(s2) ;
+      }
+      if ("in".equals(name) || "out".equals(name) ||
+          "stillin".equals(name) || "stillout".equals(name))
+      {
+         getObject(s1) ;
+         getObject(s2) ;
+      }
+   }
+
+
+   // Discard all resolved objects and cached pair states.
+
+   synchronized void clear()
+   {
+      lists.clear() ;
+      objects.clear() ;
+      pairs.clear() ;
+      celcount = -1 ;
+      groupcount = -1 ;
+   }
+
+
+   // Return the statistics for the pair state cache.
+
+   long getTests() { return tests ; }
+   long getHits() { return hits ; }
+
+
+   // Return the list of cels named by a collision event parameter.  The
+   // parameter can be a cel name, a group or a cel group.  Cel names can
+   // be ambiguous and the list then contains every cel with the name.
+
+   synchronized CelList getCelList(String s)
+   {
+      if (s == null) return null ;
+      validate() ;
+      CelList list = (CelList) lists.get(s) ;
+      if (list != null) return list ;
+
+      list = new CelList() ;
+      Vector v = null ;
+      Cel c = Cel.findCel(s,config,null) ;
+      if (c != null)
+      {
+         list.type = 1 ;
+         v = new Vector() ;
+         while (c != null)
+         {
+            v.addElement(c) ;
+            c = Cel.findNextCel(c,c.getRelativeName(),config) ;
+            if (v.contains(c)) break ;
+         }
+      }
+      else
+      {
+         Group g = Group.findGroup(s,config,null) ;
+         if (g != null)
+         {
+            list.type = 2 ;
+            v = g.getAllCels() ;
+         }
+         else
+         {
+            CelGroup cg = CelGroup.findCelGroup(s,config,null) ;
+            if (cg != null)
+            {
+               list.type = 3 ;
+               v = cg.getCels() ;
+            }
+         }
+      }
+
+      if (v != null)
+      {
+         list.cels = new Cel[v.size()] ;
+         v.copyInto(list.cels) ;
+      }
+      lists.put(s,list) ;
+      return list ;
+   }
+
+
+   // Return the group or cel or cel group named by a bounding box event
+   // parameter.
+
+   synchronized KissObject getObject(String s)
+   {
+      if (s == null) return null ;
+      validate() ;
+      Object o = objects.get(s) ;
+      if (o != null) return (o == NONE) ? null : (KissObject) o ;
+      o = Group.findGroup(s,config,null) ;
+      if (o == null) o = Cel.findCel(s,config,null) ;
+      if (o == null) o = CelGroup.findCelGroup(s,config,null) ;
+      if (!(o instanceof KissObject)) o = null ;
+      objects.put(s,(o != null) ? o : NONE) ;
+      return (KissObject) o ;
+   }
+
+
+   // Determine if two cels touch.  The cel boxes locate each cel on the
+   // panel.  The cached pair state is used if neither cel has moved or
+   // changed its image since the last test.
+
+   boolean touches(Cel c1, Rectangle r1, Cel c2, Rectangle r2)
+   {
+      CelMask m1 = c1.getMask() ;
+      CelMask m2 = c2.getMask() ;
+      PairState state = null ;
+      synchronized (this)
+      {
+         Hashtable h = (Hashtable) pairs.get(c1) ;
+         if (h == null)
+         {
+            h = new Hashtable() ;
+            pairs.put(c1,h) ;
+         }
+         state = (PairState) h.get(c2) ;
+         if (state == null)
+         {
+            state = new PairState() ;
+            h.put(c2,state) ;
+         }
+         else if (state.m1 == m1 && state.m2 == m2 &&
+            r1.equals(state.r1) && r2.equals(state.r2))
+         {
+            hits++ ;
+            return state.touch ;
+         }
+      }
+
+      Rectangle r = r1.intersection(r2) ;
+      boolean b = c1.touches(new Rectangle(r1),c2,new Rectangle(r2),r) ;
+      synchronized (this)
+      {
+         tests++ ;
+         state.r1 = new Rectangle(r1) ;
+         state.r2 = new Rectangle(r2) ;
+         state.m1 = m1 ;
+         state.m2 = m2 ;
+         state.touch = b ;
+      }
+      return b ;
+   }
+
+
+   // Discard the resolved objects if cels or groups have been added to or
+   // removed from the configuration.
+
+   private void validate()
+   {
+      Vector cels = config.getCels() ;
+      Vector groups = config.getGroups() ;
+      int n1 = (cels != null) ? cels.size() : 0 ;
+      int n2 = (groups != null) ? groups.size() : 0 ;
+      if (n1 == celcount && n2 == groupcount) return ;
+      lists.clear() ;
+      objects.clear() ;
+      pairs.clear() ;
+      celcount = n1 ;
+      groupcount = n2 ;
+   }
+}
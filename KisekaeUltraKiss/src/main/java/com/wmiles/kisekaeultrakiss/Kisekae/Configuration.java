@@ -71,6 +71,13 @@ import java.util.Collections ;
 import java.util.Hashtable ;
 import java.util.Date ;
 import java.util.Properties ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.ThreadPoolExecutor ;
+import java.util.concurrent.LinkedBlockingQueue ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.ThreadFactory ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.ExecutionException ;
 import javax.swing.Timer ;
 import java.net.URL ;
 import javax.swing.SwingUtilities;
@@ -82,7 +89,7 @@ final class Configuration extends KissObject
 
 	private static int count = 0 ;			// Count of class instances
 	private static long createtime = 0 ;	// Activation time
-	private static Hashtable key = new Hashtable(3,1.0f) ;
+	private static KeyTable key = new KeyTable(3) ;
    private static Hashtable propertypool = new Hashtable() ;
    private static String [] sectionheadings =
    { ";[Screen Section]", ";[Palette Section]", ";[Cel Section]",
@@ -122,6 +129,8 @@ final class Configuration extends KissObject
 	private AlarmTimer timer = null ;		// Primary alarm timer
    private GifTimer animator = null ;		// Primary cel animator
    private SceneTimer scenetimer = null ;	// Primary scene memory unload
+   private CelCache celcache = null ;     // Cel memory cache and prefetch
+   private CollisionIndex collisions = null ;  // Collision event objects
    private AudioTimer closetimer = null ;	// Primary audio memory unload
 	private EventHandler handler = null ;	// Primary event handler
 	private MediaFrame mediaframe = null ;	// Primary media player
@@ -580,6 +589,15 @@ final class Configuration extends KissObject
 	// Method to return our scene memory unload timer.
 
 	SceneTimer getSceneTimer() { return scenetimer ; }
+	CelCache getCelCache() { return celcache ; }
+
+	// Method to return our collision event index.
+
+	synchronized CollisionIndex getCollisionIndex()
+	{
+		if (collisions == null) collisions = new CollisionIndex(this) ;
+		return collisions ;
+	}
 
 	// Method to return our audio memory unload timer.
 
@@ -933,22 +951,16 @@ final class Configuration extends KissObject
 	// Class methods
 	// -------------
 
-	static Hashtable getKeyTable() { return key ; }
+	static KeyTable getKeyTable() { return key ; }
 
-	// Hashtable keys are compound entities that contain a reference
-	// to a configuration.  Thus, multiple configurations can coexist
-	// in the static hash table.  When we clear a table we must remove
-	// only those entities that are associated with the specified
-	// configuration identifier.
+	// Key table entries are grouped by configuration.  Thus, multiple
+	// configurations can coexist in the static key table.  When we clear
+	// a table we must remove only those entities that are associated with
+	// the specified configuration identifier.
 
 	static void clearTable(Object cid)
 	{
-		Enumeration e = key.keys() ;
-		while (e.hasMoreElements())
-		{
-			String hashkey = (String) e.nextElement() ;
-			if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-		}
+		key.clear(cid) ;
 	}
 
 
@@ -1878,7 +1890,10 @@ final class Configuration extends KissObject
 
 
 	// Method to load all files in the configuration.  Palette files must be
-   // loaded first, followed by the cel files and media files.
+   // loaded first, followed by the cel files and media files.  Palettes
+   // and cels are read, decompressed, and decoded on a bounded pool of
+   // worker threads.  All palettes complete before any cel starts as the
+   // cels require palettes for their color models.
 
 	void load()
 	{
@@ -1901,12 +1916,16 @@ final class Configuration extends KissObject
 
 		if (loader != null)
 			loader.initProgress(palettes.size()+cels.size()+sounds.size()+movies.size()) ;
+      ExecutorService pool = createLoadPool() ;
 		int i = 0 ;
+      boolean [] loadlist = new boolean[(palettes != null) ? palettes.size() : 0] ;
+      for (i = 0 ; i < loadlist.length ; i++) loadlist[i] = true ;
+      Future [] tasks = loadParallel(pool,palettes,loadlist) ;
+      i = 0 ;
 		while (palettes != null && i < palettes.size())
 		{
-         if (loader instanceof FileLoader && ((FileLoader) loader).stop) break ;
+         if (!waitForLoad(palettes,loadlist,tasks,i)) break ;
 			Palette p = (Palette) palettes.elementAt(i++) ;
-			p.load(includefiles) ;
 			loadbytes += p.getBytes() ;
 			if (loader != null) loader.updateProgress(1) ;
          int mp = p.getMultiPaletteCount() ;
@@ -1928,13 +1947,14 @@ final class Configuration extends KissObject
       Integer startpage = Integer.valueOf(i) ;
 
 		// Load cel files.  They require palettes for correct ColorModels.
-      // Imported or updated cels may not yet have been saved.
+      // Imported or updated cels may not yet have been saved.  We first
+      // determine which cels must be loaded and then load them in parallel.
 
 		i = 0 ;
+      loadlist = new boolean[(cels != null) ? cels.size() : 0] ;
 		while (cels != null && i < cels.size())
 		{
          boolean load = false ;
-         if (loader instanceof FileLoader && ((FileLoader) loader).stop) break ;
 			Cel c = (Cel) cels.elementAt(i++) ;
          
          // If we have a reference to an imported or updated cel, then load.
@@ -1952,7 +1972,21 @@ final class Configuration extends KissObject
          
          if (c.isOnSpecificPage(startpage) || OptionsDialog.getCacheImage()) load = true ; 
          if (c instanceof Video) load = true ; 
-         if (load) c.load(includefiles) ;
+         loadlist[i-1] = load ;
+      }
+      
+      tasks = loadParallel(pool,cels,loadlist) ;
+      i = 0 ;
+		while (cels != null && i < cels.size())
+		{
+         if (!waitForLoad(cels,loadlist,tasks,i)) break ;
+			Cel c = (Cel) cels.elementAt(i) ;
+         boolean load = loadlist[i++] ;
+
+         // Cels that are not loaded have their geometry read from the cel
+         // file header.  Their pixels are decoded when they are shown.
+
+         if (!load) c.loadHeader(includefiles) ;
          
          // Retain the progress state.
 
@@ -1961,6 +1995,7 @@ final class Configuration extends KissObject
          if (c.isTruecolor()) ckiss = true ;
 			if (loader != null) loader.updateProgress(1) ;
 		}
+      pool.shutdownNow() ;
 
 		// Load the audio files.   Video files are cels and were loaded
       // with the cels.
@@ -1977,6 +2012,115 @@ final class Configuration extends KissObject
 	}
 
 
+   // Create the worker pool for a parallel load.  The pool is bounded by
+   // the number of processors.  Worker threads are daemon threads that 
+   // expire when idle so that an abandoned load does not hold resources.
+
+   private ExecutorService createLoadPool()
+   {
+      int n = Runtime.getRuntime().availableProcessors() ;
+      if (n > 8) n = 8 ;
+      if (n < 1) n = 1 ;
+      final String name = "Load " + getID() ;
+      ThreadFactory factory = new ThreadFactory()
+      {
+         int count = 0 ;
+         public synchronized Thread newThread(Runnable r)
+         {
+            Thread t = new Thread(r, name + " Worker " + (++count)) ;
+            t.setDaemon(true) ;
+            t.setPriority(Thread.NORM_PRIORITY) ;
+            return t ;
+         }
+      } ;
+      ThreadPoolExecutor pool = new ThreadPoolExecutor(n,n,5,TimeUnit.SECONDS,
+         new LinkedBlockingQueue(),factory) ;
+      pool.allowCoreThreadTimeOut(true) ;
+      return pool ;
+   }
+
+
+   // Submit the selected objects in a list to the worker pool.  Objects 
+   // that share a file name are loaded in list order by one task, so that
+   // later objects load as a copy of the first object as they would in a 
+   // sequential load.  Video and component cels are not thread safe and 
+   // are loaded on our own thread when they are waited for.  The returned
+   // array holds the task for each list element, or null if the element
+   // is not loaded on the pool.
+
+   private Future [] loadParallel(ExecutorService pool, Vector list, boolean [] loadlist)
+   {
+      int n = (list != null) ? list.size() : 0 ;
+      Future [] tasks = new Future[n] ;
+      Hashtable groups = new Hashtable() ;
+      Vector order = new Vector() ;
+      for (int i = 0 ; i < n ; i++)
+      {
+         if (!loadlist[i]) continue ;
+         KissObject kiss = (KissObject) list.elementAt(i) ;
+         if (kiss instanceof Video || kiss instanceof JavaCel) continue ;
+         String name = kiss.getRelativeName() ;
+         name = (name != null) ? name.toUpperCase() : "" ;
+         Vector group = (Vector) groups.get(name) ;
+         if (group == null)
+         {
+            group = new Vector() ;
+            groups.put(name,group) ;
+            order.addElement(group) ;
+         }
+         group.addElement(Integer.valueOf(i)) ;
+      }
+
+      for (int j = 0 ; j < order.size() ; j++)
+      {
+         final Vector group = (Vector) order.elementAt(j) ;
+         final Vector objects = new Vector() ;
+         for (int k = 0 ; k < group.size() ; k++)
+            objects.addElement(list.elementAt(((Integer) group.elementAt(k)).intValue())) ;
+         Runnable runner = new Runnable()
+         {
+            public void run()
+            {
+               for (int k = 0 ; k < objects.size() ; k++)
+               {
+                  if (loader instanceof FileLoader && ((FileLoader) loader).stop) return ;
+                  KissObject kiss = (KissObject) objects.elementAt(k) ;
+                  kiss.load(includefiles) ;
+               }
+            }
+         } ;
+         Future task = pool.submit(runner) ;
+         for (int k = 0 ; k < group.size() ; k++)
+            tasks[((Integer) group.elementAt(k)).intValue()] = task ;
+      }
+      return tasks ;
+   }
+
+
+   // Wait for the load of the specified list element to complete.  Elements
+   // that were not submitted to the pool are loaded now.  We return false
+   // if the loader was stopped.
+
+   private boolean waitForLoad(Vector list, boolean [] loadlist, Future [] tasks, int i)
+   {
+      if (loader instanceof FileLoader && ((FileLoader) loader).stop) return false ;
+      Future task = (i < tasks.length) ? tasks[i] : null ;
+      try
+      {
+         if (task != null) task.get() ;
+         else if (loadlist[i]) ((KissObject) list.elementAt(i)).load(includefiles) ;
+      }
+      catch (InterruptedException e) { return false ; }
+      catch (ExecutionException e)
+      {
+         Throwable t = e.getCause() ;
+         PrintLn.println("Configuration: \"" + file + "\" (" + getID() + ")" + " load exception " + t) ;
+         if (t instanceof OutOfMemoryError) throw (OutOfMemoryError) t ;
+      }
+      return !(loader instanceof FileLoader && ((FileLoader) loader).stop) ;
+   }
+
+
 	// Method to scale the cel images to fit within the screen area.
 
 	void scale(int x, int y) throws Exception
@@ -2198,6 +2342,11 @@ final class Configuration extends KissObject
             attachEvent(event) ;
          }
 		}
+
+		// Compile the event actions now that all objects exist.  Literal
+		// object references are bound and the event skip targets are set.
+
+      compileEvents() ;
       
       // Perform syntax validation.
 
@@ -2206,6 +2355,22 @@ final class Configuration extends KissObject
 	}
 
 
+	// Compile all events.  Action parameters are resolved to variable slots
+   // and literal object references are bound to their objects.
+
+   void compileEvents()
+   {
+		Enumeration events = (handler == null) ? null : handler.getEvents() ;
+		while (events != null && events.hasMoreElements())
+		{
+			Vector v = (Vector) events.nextElement() ;
+			if (v == null) continue ;
+			for (int i = 0 ; i < v.size() ; i++)
+				((FKissEvent) v.elementAt(i)).compile() ;
+		}
+   }
+
+
 	// Most events apply to an object.  When the user does something such as
    // click an object or switch to a new page, the event actions for the object
    // must be processed.  We attach the event to the action object so that
@@ -2268,6 +2433,10 @@ final class Configuration extends KissObject
             }
 			}
 
+			// Collision event objects are registered with the collision index.
+
+			if (!detach) getCollisionIndex().register(event) ;
+
 			// Collision events that apply to a group or cel.  These events
 			// are symmetric. For cels, the event is attached to the group object
 			// to capture the cel collisions during group moves.
@@ -3055,6 +3224,12 @@ final class Configuration extends KissObject
    		scenetimer = new SceneTimer() ;
    		scenetimer.startTimer(cels) ;
       }
+
+      // Start the cel cache.  This limits cel image memory and prefetches
+      // the pages that can be reached from the page on display.
+
+      if (celcache == null) celcache = new CelCache(this) ;
+      celcache.start() ;
       
       // If we have audio objects start the audio close timer.
       
@@ -3169,12 +3344,22 @@ final class Configuration extends KissObject
    	if (animator != null) animator.stopTimer() ;
       if (scenetimer != null) scenetimer.stopTimer() ;
       if (closetimer != null) closetimer.stopTimer() ;
+      if (celcache != null) celcache.stop() ;
 		EventHandler.stopEventHandler() ;
       EventHandler.clearEventQueue() ;
       EventHandler.setPanelFrame(null);
       GifTimer.setPanelFrame(null);
       activated = false ;
 
+      // Cancel the blocking work started by our FKiSS actions.  Audio stop
+      // requests made below are new tasks and are not affected.
+
+      KissExecutor.cancel(getID()) ;
+
+      // Discard the collision state.  It refers to our cels and groups.
+
+      if (collisions != null) collisions.clear() ;
+
 		// Flush all image data.  This cleans up our memory allocation
 		// and seems to stop odd things from happening.  Note: this
       // causes GIF images to not display on a restart.
@@ -3202,6 +3387,7 @@ final class Configuration extends KissObject
       animator = null ;
       scenetimer = null ;
       closetimer = null ;
+      celcache = null ;
 
       // If restarting from memory we must re-establish initial object
       // states.  Internal objects must be removed from the configuration
@@ -3458,6 +3644,7 @@ final class Configuration extends KissObject
       timer = null ;          // Primary alarm timer
       animator = null ;       // Primary cel animator
       scenetimer = null ;     // Primary scene memory unload
+      celcache = null ;       // Cel memory cache and prefetch
       closetimer = null ;     // Primary audio close memory unload
       handler = null ;        // Primary event handler
       mediaframe = null ;     // Primary media player
@@ -0,0 +1,418 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* DownloadCache class
+*
+* Purpose:
+*
+* This class is the index of files downloaded to the program cache
+* directory.  INCLUDE files and URL data sets are cached by their URL.  The
+* index records the cache file name, size, content hash and the server
+* ETag and Last-Modified values for each URL, so a cached file is found
+* without listing the cache directory.
+*
+* A cached file is used if the server reports that it has not changed.
+* HTTP connections are revalidated with If-None-Match and If-Modified-Since
+* requests.  Other connections compare the reported modification time and
+* size.  The content hash is checked when a cached file is looked up if
+* the file modification time differs from the time of the last check.
+*
+* The index is kept in the "downloads.properties" file in the cache
+* directory.  The total size of the indexed files is limited by the
+* "downloadcache" option in megabytes.  When the limit is exceeded the
+* least recently used files are deleted.  Files are marked as used by
+* their modification time.
+*
+*/
+
+import java.io.* ;
+import java.net.HttpURLConnection ;
+import java.net.URL ;
+import java.net.URLConnection ;
+import java.util.Arrays ;
+import java.util.Comparator ;
+import java.util.Enumeration ;
+import java.util.Hashtable ;
+import java.util.Properties ;
+
+
+final class DownloadCache
+{
+   private static final String INDEX = "downloads.properties" ;
+
+   private static Hashtable urls = null ;             // Entries by URL
+   private static Hashtable names = null ;            // Entries by file name
+   private static long total = 0 ;                    // Indexed bytes
+
+
+   // An index entry.
+
+   private static class Entry
+   {
+      String url ;                              // The source URL
+      String name ;                             // The cache file name
+      long size ;                               // The file size
+      long modified ;                           // The server modified time
+      String etag ;                             // The server entity tag
+      String hash ;                             // The file content hash
+      long used ;                               // The last use time
+      long verified ;                           // The file time when hashed
+   }
+
+
+   // Return true if downloads are cached.
+
+   static boolean isEnabled()
+   {
+      return (OptionsDialog.getCacheInclude() && Kisekae.getCachePath() != null) ;
+   }
+
+
+   // Return the cached file for a URL.  Null is returned if the URL is not
+   // cached or the cached file is missing or its contents have changed.
+   // A changed file is deleted.  The file contents are hashed only if the
+   // file was modified since they were last checked.  The hash is computed
+   // outside of our lock.
+
+   static File lookup(URL url)
+   {
+      Entry entry = null ;
+      File f = null ;
+      synchronized (DownloadCache.class)
+      {
+         entry = getEntry(url) ;
+         if (entry == null) return null ;
+         f = getFile(entry) ;
+         if (!f.isFile() || f.length() != entry.size)
+         {
+            discard(entry,f) ;
+            return null ;
+         }
+         if (entry.hash == null || f.lastModified() == entry.verified) return f ;
+      }
+
+      long modified = f.lastModified() ;
+      boolean same = entry.hash.equals(AssetCache.hash(f)) ;
+      synchronized (DownloadCache.class)
+      {
+         if (urls == null || urls.get(entry.url) != entry) return null ;
+         if (same && f.length() == entry.size)
+         {
+            entry.verified = modified ;
+            saveIndex() ;
+            return f ;
+         }
+         PrintLn.println("URL File " + f.getPath() + " cache content changed.") ;
+         discard(entry,f) ;
+         return null ;
+      }
+   }
+
+
+   // Add revalidation requests for a cached URL to a connection.  This must
+   // be done before the connection is opened.
+
+   static synchronized void prepare(URL url, URLConnection c)
+   {
+      Entry entry = getEntry(url) ;
+      if (entry == null || c == null) return ;
+      if (!(c instanceof HttpURLConnection)) return ;
+      if (entry.etag != null) c.setRequestProperty("If-None-Match",entry.etag) ;
+      if (entry.modified > 0) c.setIfModifiedSince(entry.modified) ;
+   }
+
+
+   // Return true if the cached file for a URL is current.  The connection
+   // has been prepared for revalidation.  The cached file is marked as used.
+
+   static synchronized boolean isCurrent(URL url, URLConnection c) throws IOException
+   {
+      Entry entry = getEntry(url) ;
+      if (entry == null || c == null) return false ;
+      boolean current = false ;
+      long size = c.getContentLengthLong() ;
+      long modified = c.getLastModified() ;
+      String etag = c.getHeaderField("ETag") ;
+      int code = (c instanceof HttpURLConnection)
+         ? ((HttpURLConnection) c).getResponseCode() : HttpURLConnection.HTTP_OK ;
+
+      if (code == HttpURLConnection.HTTP_NOT_MODIFIED)
+         current = true ;
+      else if (code != HttpURLConnection.HTTP_OK)
+         current = false ;
+      else if (etag != null && entry.etag != null)
+         current = etag.equals(entry.etag) ;
+      else if (modified > 0 && entry.modified > 0)
+         current = (modified == entry.modified && (size < 0 || size == entry.size)) ;
+      else
+         current = (size == entry.size) ;
+      if (current) touch(entry,getFile(entry)) ;
+      return current ;
+   }
+
+
+   // Record a completed download of a URL to a file in the cache directory.
+   // The server validation values are taken from the connection.
+
+   static synchronized void record(URL url, File f, URLConnection c)
+   {
+      if (url == null || f == null || !isEnabled()) return ;
+      if (!f.isFile()) return ;
+      File dir = new File(Kisekae.getCachePath()).getAbsoluteFile() ;
+      if (!dir.equals(f.getAbsoluteFile().getParentFile())) return ;
+      if (urls == null) loadIndex() ;
+
+      Entry old = (Entry) urls.get(url.toExternalForm()) ;
+      if (old != null) remove(old) ;
+      old = (Entry) names.get(f.getName()) ;
+      if (old != null) remove(old) ;
+
+      Entry entry = new Entry() ;
+      entry.url = url.toExternalForm() ;
+      entry.name = f.getName() ;
+      entry.size = f.length() ;
+      entry.modified = (c != null) ? c.getLastModified() : 0 ;
+      entry.etag = (c != null) ? c.getHeaderField("ETag") : null ;
+      entry.hash = AssetCache.hash(f) ;
+      entry.used = f.lastModified() ;
+      entry.verified = entry.used ;
+      add(entry) ;
+      prune(entry) ;
+      saveIndex() ;
+   }
+
+
+   // Forget a cache file.  This is used when cache files are deleted.  If
+   // the index file is deleted the whole index is forgotten.
+
+   static synchronized void remove(File f)
+   {
+      if (f == null || urls == null) return ;
+      if (INDEX.equals(f.getName()))
+      {
+         urls = null ;
+         names = null ;
+         total = 0 ;
+         return ;
+      }
+      Entry entry = (Entry) names.get(f.getName()) ;
+      if (entry == null) return ;
+      remove(entry) ;
+      saveIndex() ;
+   }
+
+
+   // Return the index entry for a URL.
+
+   private static Entry getEntry(URL url)
+   {
+      if (url == null || !isEnabled()) return null ;
+      if (urls == null) loadIndex() ;
+      return (Entry) urls.get(url.toExternalForm()) ;
+   }
+
+
+   // Return the cache file for an entry.
+
+   private static File getFile(Entry entry)
+   { return new File(Kisekae.getCachePath(),entry.name) ; }
+
+
+   // Mark a cached file as used.  A file that was checked remains checked
+   // at its new modification time.
+
+   private static void touch(Entry entry, File f)
+   {
+      boolean verified = (f.lastModified() == entry.verified) ;
+      entry.used = System.currentTimeMillis() ;
+      f.setLastModified(entry.used) ;
+      if (verified) entry.verified = f.lastModified() ;
+   }
+
+
+   // Delete a cached file and forget its entry.
+
+   private static void discard(Entry entry, File f)
+   {
+      f.delete() ;
+      remove(entry) ;
+      saveIndex() ;
+   }
+
+
+   // Add and remove index entries.
+
+   private static void add(Entry entry)
+   {
+      urls.put(entry.url,entry) ;
+      names.put(entry.name,entry) ;
+      total += entry.size ;
+   }
+
+   private static void remove(Entry entry)
+   {
+      if (urls.get(entry.url) == entry) urls.remove(entry.url) ;
+      if (names.get(entry.name) == entry) names.remove(entry.name) ;
+      total -= entry.size ;
+   }
+
+
+   // Delete the least recently used files until the indexed files are
+   // within the size limit.  The specified entry is retained.
+
+   private static void prune(Entry retain)
+   {
+      long limit = OptionsDialog.getDownloadCacheSize() ;
+      if (limit <= 0 || total <= limit) return ;
+      Object [] entries = urls.values().toArray() ;
+      Arrays.sort(entries, new Comparator()
+      {
+         public int compare(Object o1, Object o2)
+         {
+            long t1 = ((Entry) o1).used ;
+            long t2 = ((Entry) o2).used ;
+            return (t1 < t2) ? -1 : ((t1 > t2) ? 1 : 0) ;
+         }
+      }) ;
+
+      for (int i = 0 ; i < entries.length && total > limit ; i++)
+      {
+         Entry entry = (Entry) entries[i] ;
+         if (entry == retain) continue ;
+         File f = getFile(entry) ;
+         if (f.exists() && !f.delete()) continue ;
+         remove(entry) ;
+         if (OptionsDialog.getDebugControl())
+            PrintLn.println("DownloadCache: removed " + f.getPath()) ;
+      }
+   }
+
+
+   // Read and write the index.  Each URL property holds the file name,
+   // size, modified time, content hash, entity tag and the file time when
+   // the hash was checked, separated by tabs.  Entries for missing files
+   // are dropped.
+
+   private static void loadIndex()
+   {
+      urls = new Hashtable() ;
+      names = new Hashtable() ;
+      total = 0 ;
+      Properties p = new Properties() ;
+      File f = new File(Kisekae.getCachePath(),INDEX) ;
+      if (!f.isFile()) return ;
+      InputStream in = null ;
+      try
+      {
+         in = new FileInputStream(f) ;
+         p.load(in) ;
+      }
+      catch (IOException e) { p.clear() ; }
+      finally
+      {
+         try { if (in != null) in.close() ; }
+         catch (IOException e) { }
+      }
+
+      Enumeration e = p.propertyNames() ;
+      while (e.hasMoreElements())
+      {
+         String url = (String) e.nextElement() ;
+         String [] parts = p.getProperty(url).split("\t",6) ;
+         if (parts.length < 5) continue ;
+         Entry entry = new Entry() ;
+         entry.url = url ;
+         entry.name = parts[0] ;
+         try
+         {
+            entry.size = Long.parseLong(parts[1]) ;
+            entry.modified = Long.parseLong(parts[2]) ;
+            entry.verified = (parts.length > 5) ? Long.parseLong(parts[5]) : 0 ;
+         }
+         catch (NumberFormatException ex) { continue ; }
+         entry.hash = (parts[3].length() > 0) ? parts[3] : null ;
+         entry.etag = (parts[4].length() > 0) ? parts[4] : null ;
+         File file = getFile(entry) ;
+         if (!file.isFile()) continue ;
+         entry.used = file.lastModified() ;
+         add(entry) ;
+      }
+   }
+
+   private static void saveIndex()
+   {
+      File dir = new File(Kisekae.getCachePath()).getAbsoluteFile() ;
+      if (!dir.isDirectory()) return ;
+      Properties p = new Properties() ;
+      Enumeration e = urls.elements() ;
+      while (e.hasMoreElements())
+      {
+         Entry entry = (Entry) e.nextElement() ;
+         p.setProperty(entry.url, entry.name + "\t" + entry.size + "\t" +
+            entry.modified + "\t" + ((entry.hash != null) ? entry.hash : "") +
+            "\t" + ((entry.etag != null) ? entry.etag : "") + "\t" + entry.verified) ;
+      }
+
+      OutputStream out = null ;
+      try
+      {
+         out = new FileOutputStream(new File(dir,INDEX)) ;
+         p.store(out,"UltraKiss download cache") ;
+      }
+      catch (IOException ex)
+      {
+         if (OptionsDialog.getDebugControl())
+            PrintLn.println("DownloadCache: index not saved, " + ex.getMessage()) ;
+      }
+      finally
+      {
+         try { if (out != null) out.close() ; }
+         catch (IOException ex) { }
+      }
+   }
+}
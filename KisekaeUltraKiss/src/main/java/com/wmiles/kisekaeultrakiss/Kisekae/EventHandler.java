@@ -63,7 +63,8 @@ import java.util.Hashtable ;
 import java.util.Comparator ;
 import javax.swing.JOptionPane ;
 import java.io.* ;
-import java.util.Collections;
+import java.util.Arrays ;
+import java.util.PriorityQueue ;
 
 final class EventHandler extends KissObject
 	implements Runnable
@@ -693,7 +694,8 @@ final class EventHandler extends KissObject
    private static int count = 0 ;                  // The handler count
    private static ThreadGroup threadgroup = null ;	// The event handler group
    private static Vector handlers = new Vector() ;	// The active handlers
-	private static Vector queue = new Vector() ;    // The event queue
+	private static PriorityQueue queue =            // The event queue
+      new PriorityQueue(64,new EventHandlerOrder()) ;
    private static final Object eventlock = new Object() ;  // The event lock
 	private static PanelFrame panel = null ;        // The drawing window
 	private static Object modal = null ;            // The modal event source
@@ -936,14 +938,29 @@ final class EventHandler extends KissObject
 
       synchronized (eventlock)
       {
-         Collections.sort(v, new EventHandlerOrder()) ;
+         // Compute the order key for each event.  If multiple events are
+         // not allowed only the first event in firing order is queued.
+
+         EventHandlerOrder order = new EventHandlerOrder() ;
+         Vector entries = new Vector(v.size()) ;
    		for (int i = 0 ; i < v.size() ; i++)
          {
             Object [] qentry = new Object[3]  ;
             qentry[0] = v.elementAt(i) ;
             qentry[1] = t ;
             qentry[2] = source ;
-			   queue.addElement(qentry) ;
+            EventHandlerOrder.Entry entry = EventHandlerOrder.createEntry(qentry) ;
+            if (OptionsDialog.getMultipleEvents() || entries.size() == 0)
+               entries.addElement(entry) ;
+            else if (order.compare(entry,entries.elementAt(0)) < 0)
+               entries.setElementAt(entry,0) ;
+         }
+
+   		for (int i = 0 ; i < entries.size() ; i++)
+         {
+            EventHandlerOrder.Entry entry = (EventHandlerOrder.Entry) entries.elementAt(i) ;
+            Object [] qentry = entry.qentry ;
+			   queue.add(entry) ;
       		if (OptionsDialog.getDebugEvent())
             {
                Object o = qentry[0] ;
@@ -961,7 +978,6 @@ final class EventHandler extends KissObject
                   stats.put(qentry[0],Long.valueOf(System.currentTimeMillis())) ;  // Java 1.5
                }
             }
-            if (!OptionsDialog.getMultipleEvents()) break ;
          }
          eventlock.notify() ;
       }
@@ -981,7 +997,7 @@ final class EventHandler extends KissObject
          qentry[0] = event ;
          qentry[1] = t ;
          qentry[2] = source ;
-		   queue.addElement(qentry) ;
+		   queue.add(EventHandlerOrder.createEntry(qentry)) ;
      		if (OptionsDialog.getDebugEvent())
          {
             Object o = qentry[0] ;
@@ -1003,8 +1019,9 @@ final class EventHandler extends KissObject
 
 
 	// Remove an event from the event handler queue.  The event object is a
-   // two element array that contains the FKissEvent and its invokation
-   // Thread.
+   // three element array that contains the FKissEvent, its invokation
+   // Thread and its source.  The queue is ordered on the key computed
+   // when the event was queued.
 
 	static Object dequeueEvent()
 	{
@@ -1012,9 +1029,9 @@ final class EventHandler extends KissObject
       synchronized (eventlock)
       {
 	   	if (queue.size() == 0) return null ;
-         Collections.sort(queue, new EventHandlerOrder());
-	   	o = queue.elementAt(0) ;
-	   	queue.removeElement(o) ;
+         EventHandlerOrder.Entry entry = (EventHandlerOrder.Entry) queue.poll() ;
+         if (FKissProfiler.isActive()) FKissProfiler.dequeued(entry) ;
+	   	o = entry.qentry ;
      		eventlock.notify() ;
       }
    	return o ;
@@ -1431,7 +1448,7 @@ final class EventHandler extends KissObject
    { 
       synchronized (eventlock) 
       { 
-         queue.removeAllElements() ; 
+         queue.clear() ; 
      		eventlock.notify() ;
       } 
    }
@@ -1513,10 +1530,20 @@ final class EventHandler extends KissObject
 	}
 
 
-   // Static method to return an enumeration of the queue contents.
+   // Static method to return an enumeration of the queue contents.  The
+   // contents are returned in firing order.
 
    static Enumeration getQueue()
-   { return (queue == null) ? null : queue.elements() ; }
+   {
+      if (queue == null) return null ;
+      Object [] entries = null ;
+      synchronized (eventlock) { entries = queue.toArray() ; }
+      Arrays.sort(entries,new EventHandlerOrder()) ;
+      Vector v = new Vector(entries.length) ;
+      for (int i = 0 ; i < entries.length ; i++)
+         v.addElement(((EventHandlerOrder.Entry) entries[i]).qentry) ;
+      return v.elements() ;
+   }
 
 
    // Static method to count the number of events on the queue.
@@ -54,6 +54,13 @@ package com.wmiles.kisekaeultrakiss.Kisekae ;
 * and are eligible for processing but the proper sequence for processing
 * has not been established.  
 * 
+* The order key for an event is computed once when the event is queued.
+* Alarm events are ordered against each other on their triggered time and
+* then on the alarm declaration order in the CNF.  Other events, such as
+* mouse and key events, have no firing time and keep their queue order
+* relative to all events.  Events with equal keys fire in the order they
+* were queued.
+*
 */
 
 
@@ -61,46 +68,106 @@ import java.util.* ;
 
 final class EventHandlerOrder implements Comparator
 {
+   private static long sequence = 0 ;           // Queue arrival sequence
+   private static Vector alarmlist = null ;     // The indexed alarm list
+   private static int alarmcount = 0 ;          // The indexed alarm count
+   private static Hashtable alarmindex = null ; // Declaration order by alarm
+
    private boolean ascending ;
-   private Vector alarmlist = null ;
+
+
+   // A queue entry.  The entry holds the EventHandler queue element and
+   // its order key.
+
+   static final class Entry
+   {
+      Object [] qentry ;                  // The queue element
+      boolean alarm ;                     // True if an alarm event
+      long time ;                         // Alarm triggered time
+      int declaration ;                   // Alarm declaration order
+      long sequence ;                     // Queue arrival sequence
+      long queued ;                       // Queue arrival nano time
+   }
 
    public EventHandlerOrder() { this(true) ; }
    public EventHandlerOrder(boolean ascending)
    {
       this.ascending = ascending ;
+   }
+
+
+   // Create a queue entry for a queue element.  The element is an array
+   // whose first element is the FKissEvent.  This is called while the
+   // EventHandler queue is locked.
+
+   static Entry createEntry(Object [] qentry)
+   {
+      Entry entry = new Entry() ;
+      entry.qentry = qentry ;
+      entry.sequence = sequence++ ;
+      entry.queued = System.nanoTime() ;
+      entry.declaration = -1 ;
+      entry.time = 0 ;
+      Object o = (qentry[0] instanceof FKissEvent)
+         ? ((FKissEvent) qentry[0]).getParentObject() : null ;
+      if (o instanceof Alarm)
+      {
+         entry.alarm = true ;
+         entry.time = ((Alarm) o).getTriggeredTime() ;
+         entry.declaration = getDeclaration((Alarm) o) ;
+      }
+      return entry ;
+   }
+
+
+   // Return the CNF declaration order of an alarm.  The alarm index is
+   // rebuilt when the configuration alarm list changes.
+
+   private static int getDeclaration(Alarm a)
+   {
       MainFrame mf = Kisekae.getMainFrame() ;
       Configuration config = (mf != null) ? mf.getConfig() : null ;
-      alarmlist = (config !=  null) ? config.getAlarms() : null ;
+      Vector v = (config !=  null) ? config.getAlarms() : null ;
+      if (v == null) return -1 ;
+      if (v != alarmlist || v.size() != alarmcount || alarmindex == null)
+      {
+         alarmindex = new Hashtable(v.size()*2+1) ;
+         for (int i = 0 ; i < v.size() ; i++)
+         {
+            Object o = v.elementAt(i) ;
+            if (!alarmindex.containsKey(o)) alarmindex.put(o,Integer.valueOf(i)) ;
+         }
+         alarmlist = v ;
+         alarmcount = v.size() ;
+      }
+      Integer n = (Integer) alarmindex.get(a) ;
+      return (n == null) ? -1 : n.intValue() ;
    }
 
+
    public int compare(Object o1, Object o2)
    {
-      // compare trigger times based on the event firing time and delays
-
-      Object [] qentry = new Object[3]  ;      
-      if (!(o1 instanceof Object [])) return 0 ;
-      if (!(o2 instanceof Object [])) return 0 ;
-      o1 = ((Object []) o1)[0]  ;
-      o2 = ((Object []) o2)[0]  ;
-      if (!(o1 instanceof FKissEvent)) return 0 ;
-      if (!(o2 instanceof FKissEvent)) return 0 ;
-      o1 = ((FKissEvent) o1).getParentObject() ;
-      o2 = ((FKissEvent) o2).getParentObject() ;
-      if (!(o1 instanceof Alarm)) return 0 ;
-      if (!(o2 instanceof Alarm)) return 0 ;
-      long n1 = ((Alarm) o1).getTriggeredTime() ;
-      long n2 = ((Alarm) o2).getTriggeredTime() ;
-      if (n1 < n2) return (ascending) ? -1 : 1 ;
-      if (n1 > n2) return (ascending) ? 1 : -1 ;
-      
+      // compare trigger times based on the event firing time and delays.
+      // Only alarm events have a firing time.  A pair that includes any
+      // other event is processed in queue order.
+
+      Entry e1 = (Entry) o1 ;
+      Entry e2 = (Entry) o2 ;
+      boolean alarms = e1.alarm && e2.alarm ;
+      int n = 0 ;
+      if (alarms && e1.time < e2.time) n = -1 ;
+      else if (alarms && e1.time > e2.time) n = 1 ;
+
       // for events in the queue process based on the alarm
       // declaration order in the CNF.  
-      
-      if (alarmlist == null) return 0 ;
-      n1 = alarmlist.indexOf(o1) ;
-      n2 = alarmlist.indexOf(o2) ;
-      if (n1 < n2) return (ascending) ? -1 : 1 ;
-      if (n1 > n2) return (ascending) ? 1 : -1 ;
-      return 0 ;
+
+      else if (alarms && e1.declaration >= 0 && e2.declaration >= 0 && e1.declaration != e2.declaration)
+         n = (e1.declaration < e2.declaration) ? -1 : 1 ;
+
+      // otherwise process in queue order.
+
+      else if (e1.sequence != e2.sequence)
+         n = (e1.sequence < e2.sequence) ? -1 : 1 ;
+      return (ascending) ? n : -n ;
    }
 }
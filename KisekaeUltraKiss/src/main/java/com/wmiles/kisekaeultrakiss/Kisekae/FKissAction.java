@@ -75,9 +75,12 @@ final class FKissAction extends KissObject
 {
    private static Vector groupsetpool = new Vector() ;
    private static int groupsetid = 0 ;
+   private static final Object GROUPORCEL = new Object() ; // Group or cel binding
 
    private String identifier = null ;		// Action name (map, unmap, ...)
    private Vector parameters = null ;		// Action parameter list
+   private FKissOperand [] operands = null ; // Compiled parameter list
+   private FKissOperand eventoperand = null ; // Compiled event parameter
    private Object object = null ;			// Action object (cel, group, ...)
    private Configuration config = null ;	// Current configuration
    private Object cid = null ;				// Configuration object id
@@ -160,7 +163,7 @@ final class FKissAction extends KissObject
 
    // Set the action parameter string vector
 
-   void addParameters(Vector v) { parameters = v ; }
+   void addParameters(Vector v) { parameters = v ; compileOperands() ; }
 
    // Set the action object reference.
 
@@ -249,6 +252,76 @@ final class FKissAction extends KissObject
 
    Vector getParameters() { return parameters ; }
 
+   // Return a compiled parameter.  Parameters are compiled when they are
+   // added.  If the parameter text has since been changed, for example by
+   // the FKiSS editor, the parameter is compiled again.
+
+   FKissOperand getOperand(int i)
+   {
+      String s = (String) parameters.elementAt(i) ;
+      FKissOperand [] ops = operands ;
+      if (ops == null || i >= ops.length) ops = compileOperands() ;
+      FKissOperand op = ops[i] ;
+      if (op != null && op.text == s) return op ;
+      op = new FKissOperand(s,variable) ;
+      ops[i] = op ;
+      return op ;
+   }
+
+   // Compile the action.  The parameters are compiled and literal object
+   // references are bound to their groups, cels, alarms and labels.  This
+   // is invoked by the configuration once all objects have been created.
+
+   void compile()
+   {
+      FKissOperand [] ops = compileOperands() ;
+      for (int i = 0 ; i < ops.length ; i++)
+      {
+         FKissOperand op = ops[i] ;
+         if (op == null || !op.isBindable() || op.text.length() == 0) continue ;
+         char c = op.text.charAt(0) ;
+         if (c == '#' || c == '!' || c == '\"') findGroupOrCel(op,event) ;
+      }
+
+      // Bind alarm and label identifiers.
+
+      int n = ops.length ;
+      switch (code)
+      {
+         case 4: case 5: case 6: case 7: case 8: case 9: case 106:
+            if (n > 1) findByKey(ops[1],Alarm.getKeyTable()) ;
+            break ;
+         case 22: case 26:
+            if (n > 0) findByKey(ops[0],Alarm.getKeyTable()) ;
+            break ;
+         case 31: case 32:
+            if (n > 0) findByKey(ops[0],Module.getKeyTable()) ;
+            break ;
+         case 33: case 34:
+            if (n > 2) findByKey(ops[1],Module.getKeyTable()) ;
+            if (n > 2) findByKey(ops[2],Module.getKeyTable()) ;
+            break ;
+      }
+      if (event != null && "alarm".equals(event.getIdentifier()))
+         findByKey(getEventOperand(),Alarm.getKeyTable()) ;
+   }
+
+   // Compile the parameter list.  Variable references are resolved to
+   // variable table slots and literal values are converted.
+
+   private FKissOperand [] compileOperands()
+   {
+      int n = (parameters != null) ? parameters.size() : 0 ;
+      FKissOperand [] ops = new FKissOperand[n] ;
+      for (int i = 0 ; i < n ; i++)
+      {
+         Object o = parameters.elementAt(i) ;
+         if (o instanceof String) ops[i] = new FKissOperand((String) o,variable) ;
+      }
+      operands = ops ;
+      return ops ;
+   }
+
    // Return the first object parameter.
 
    String getFirstParameter()
@@ -382,9 +455,7 @@ final class FKissAction extends KissObject
 
       if ("alarm".equals(event.getIdentifier()))
       {
-         o = evaluateParam((String) event.getFirstParameter()) ;
-         if (o instanceof String) o = ((String) o).toUpperCase() ;
-         Alarm alarm = (Alarm) Alarm.getByKey(Alarm.getKeyTable(),cid,o) ;
+         Alarm alarm = (Alarm) findByKey(getEventOperand(),Alarm.getKeyTable()) ;
          activator = (alarm != null) ? alarm.getActivator() : null ;
          if (activator == null) activator = thread ;
          
@@ -407,7 +478,7 @@ final class FKissAction extends KissObject
 
       if (code == 25 && OptionsDialog.getLongSoundMedia())
       {
-         o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+         o1 = variable.getValue(getOperand(0),event) ;
          if (!"".equals(o1)) 
          {
             // Identify the action object.
@@ -438,8 +509,7 @@ final class FKissAction extends KissObject
          {
             Runnable runner = new Runnable()
             { public void run() { mf.closeMedia() ; } } ;
-            Thread runthread = new Thread(runner) ;
-            runthread.start() ;
+            KissExecutor.execute(config.getID(),"MediaFrame close",runner) ;
          }
       }
      
@@ -456,7 +526,7 @@ final class FKissAction extends KissObject
          case 0:		// "altmap"
             if (parameters.size() < 1) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
             o = (kiss instanceof Cel) ? ((Cel) kiss).getGroup() : kiss ;
             if (panel != null && OptionsDialog.getMapCollide())
@@ -474,7 +544,7 @@ final class FKissAction extends KissObject
          case 1:		// "changecol"
             if (panel == null) break ;
             if (parameters.size() < 1) break ;
-            int color = (int) variable.getIntValue((String) parameters.elementAt(0),event) ;
+            int color = (int) variable.getIntValue(getOperand(0),event) ;
             if (config != null && color >= config.getPaletteGroupCount()) break ;
             panel.initcolor(Integer.valueOf(color)) ;
             panel.showpage() ;
@@ -487,7 +557,7 @@ final class FKissAction extends KissObject
          case 2:		// "changeset"
             if (panel == null) break ;
             if (parameters.size() < 1) break ;
-            int page = (int) variable.getIntValue((String) parameters.elementAt(0),event) ;
+            int page = (int) variable.getIntValue(getOperand(0),event) ;
             if (config != null && page >= config.getPageCount()) break ;
             PageSet pageset = panel.getPage() ;
             Integer pid = (pageset != null) ? (Integer) pageset.getIdentifier() : null ;
@@ -508,7 +578,7 @@ final class FKissAction extends KissObject
             Image img = null ;
             if (code == 20 && parameters.size() > 0)
             {
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
                if (kiss instanceof Cel)
                {
                   Cel cel = (Cel) kiss ;
@@ -517,7 +587,7 @@ final class FKissAction extends KissObject
                   // notify(image,hyperlink)
                   if (parameters.size() > 1 && img != null)
                   {
-                     o = variable.getValue((String) parameters.elementAt(1),event) ;
+                     o = variable.getValue(getOperand(1),event) ;
                      if (o != null) message += o.toString() ;                     
                   }
                }
@@ -529,7 +599,7 @@ final class FKissAction extends KissObject
             {
                for (i = 0 ; i < parameters.size() ; i++)
                {
-                  o = variable.getValue((String) parameters.elementAt(i),event) ;
+                  o = variable.getValue(getOperand(i),event) ;
                   if (o != null) message += o.toString() ;
                }
             }
@@ -571,7 +641,7 @@ final class FKissAction extends KissObject
 
             if (code == 20)
             {
-               if (panel == null) break ;
+               if (!isDialogAllowed(panel)) break ;
                final Image image = img ;
                final String notifymsg = new String(message) ;
                Runnable notify = new Runnable()
@@ -584,8 +654,7 @@ final class FKissAction extends KissObject
                      if (panel != null) panel.releaseMouse(true) ;
                   }
                } ;
-               if (!Kisekae.isBatch())
-                  javax.swing.SwingUtilities.invokeLater(notify);
+               javax.swing.SwingUtilities.invokeLater(notify);
                break ;
             }
 
@@ -597,7 +666,7 @@ final class FKissAction extends KissObject
          case 7:		// "ifnotfixed"
             if (parameters.size() < 3) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss instanceof Cel) 
             {
                o = ((Cel) kiss).getGroup() ;
@@ -609,10 +678,8 @@ final class FKissAction extends KissObject
             if (flex == null) flex = new Point(0,0) ;
             if (code == 4 && flex.y == 0) break ;
             if (code == 7 && flex.y != 0) break ;
-            String alarmid = evaluateParam((String) parameters.elementAt(1)) ;
-            if (alarmid instanceof String) alarmid = ((String) alarmid).toUpperCase() ;
-            alarm = (Alarm) Alarm.getByKey(Alarm.getKeyTable(),cid,alarmid) ;
-            int delay = variable.getIntValue((String) parameters.elementAt(2),event) ;
+            alarm = (Alarm) findByKey(getOperand(1),Alarm.getKeyTable()) ;
+            int delay = variable.getIntValue(getOperand(2),event) ;
             if (alarm != null) alarm.setInterval(delay,activator) ;
             event.setAlarmEnable(alarm) ;
             setAlarmArguments(alarm,parameters,3) ;
@@ -626,15 +693,13 @@ final class FKissAction extends KissObject
          case 8:		// "ifnotmapped"
             if (parameters.size() < 3) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
             boolean visible = kiss.isVisible() ;
             if (code == 5 && !visible) break ;
             if (code == 8 && visible) break ;
-            alarmid = evaluateParam((String) parameters.elementAt(1)) ;
-            if (alarmid instanceof String) alarmid = ((String) alarmid).toUpperCase() ;
-            alarm = (Alarm) Alarm.getByKey(Alarm.getKeyTable(),cid,alarmid) ;
-            delay = variable.getIntValue((String) parameters.elementAt(2),event) ;
+            alarm = (Alarm) findByKey(getOperand(1),Alarm.getKeyTable()) ;
+            delay = variable.getIntValue(getOperand(2),event) ;
             if (alarm != null) alarm.setInterval(delay,activator) ;
             event.setAlarmEnable(alarm) ;
             setAlarmArguments(alarm,parameters,3) ;
@@ -648,17 +713,15 @@ final class FKissAction extends KissObject
          case 9:		// "ifnotmoved"
             if (parameters.size() < 3) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof Group || kiss instanceof Cel)) break ;
             PageSet ps = (panel != null) ? panel.getPage() : null ;
             Point svbox = kiss.getInitialLocation(ps) ;
             Point location = kiss.getLocation() ;
             if (code == 6 && (location.x == svbox.x && location.y == svbox.y)) break ;
             if (code == 9 && !(location.x == svbox.x && location.y == svbox.y)) break ;
-            alarmid = evaluateParam((String) parameters.elementAt(1)) ;
-            if (alarmid instanceof String) alarmid = ((String) alarmid).toUpperCase() ;
-            alarm = (Alarm) Alarm.getByKey(Alarm.getKeyTable(),cid,alarmid) ;
-            delay = variable.getIntValue((String) parameters.elementAt(2),event) ;
+            alarm = (Alarm) findByKey(getOperand(1),Alarm.getKeyTable()) ;
+            delay = variable.getIntValue(getOperand(2),event) ;
             if (alarm != null) alarm.setInterval(delay,activator) ;
             event.setAlarmEnable(alarm) ;
             setAlarmArguments(alarm,parameters,3) ;
@@ -671,7 +734,7 @@ final class FKissAction extends KissObject
          case 10:		// "map"
             if (parameters.size() < 1) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
             o = (kiss instanceof Cel) ? ((Cel) kiss).getGroup() : kiss ;
             if (panel != null && OptionsDialog.getMapCollide())
@@ -693,11 +756,11 @@ final class FKissAction extends KissObject
             {
                if (parameters.size() < 3) break ;
                if (kiss == null)
-                  kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+                  kiss = findGroupOrCel(getOperand(0),event) ;
                if (!(kiss instanceof Group)) break ;
                Group group = (Group) kiss ;
-               n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
-               n2 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+               n1 = variable.getIntValue(getOperand(1),event) ;
+               n2 = variable.getIntValue(getOperand(2),event) ;
                group.setRestrictX(new Point(n1,n2)) ;
 
                // Move the group if necessary.  If we must move then it is the
@@ -765,11 +828,11 @@ final class FKissAction extends KissObject
             {
                if (parameters.size() < 3) break ;
                if (kiss == null)
-                  kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+                  kiss = findGroupOrCel(getOperand(0),event) ;
                if (!(kiss instanceof Group)) break ;
                Group group = (Group) kiss ;
-               n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
-               n2 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+               n1 = variable.getIntValue(getOperand(1),event) ;
+               n2 = variable.getIntValue(getOperand(2),event) ;
                group.setRestrictY(new Point(n1,n2)) ;
 
                // Move the group if necessary.
@@ -842,7 +905,7 @@ final class FKissAction extends KissObject
             if (panel == null) break ;
             if (parameters.size() < 1) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
 
             // Initialize.
@@ -924,8 +987,8 @@ final class FKissAction extends KissObject
             Rectangle r = new Rectangle(pko.getBoundingBox()) ;
             if (code == 17 /* movetorand */)
             {
-               x = Math.round((float) (Math.random() * panel.getPanelSize().width-r.width)) ;
-               y = Math.round((float) (Math.random() * panel.getPanelSize().height-r.height)) ;
+               x = Math.round((float) (KissClock.random() * panel.getPanelSize().width-r.width)) ;
+               y = Math.round((float) (KissClock.random() * panel.getPanelSize().height-r.height)) ;
                x = x - r.x + pko.getOffset().x ;
                y = y - r.y + pko.getOffset().y ;
             }
@@ -935,18 +998,18 @@ final class FKissAction extends KissObject
             else
             {
                if (parameters.size() < 3) break ;
-               n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
-               n2 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+               n1 = variable.getIntValue(getOperand(1),event) ;
+               n2 = variable.getIntValue(getOperand(2),event) ;
 
                // Movebyx and movebyy are relative offsets to a second object.
                // We must pick up the second object's base location.
 
                if (code == 12 || code == 13)
                {
-                  KissObject ko = findGroupOrCel((String) parameters.elementAt(1),event) ;
+                  KissObject ko = findGroupOrCel(getOperand(1),event) ;
                   if (!(ko instanceof Cel || ko instanceof Group))
                   {
-                     o = variable.getValue((String) parameters.elementAt(1),event) ;
+                     o = variable.getValue(getOperand(1),event) ;
                      throw new Exception("movebyx or movebyy object "
                         + (String) parameters.elementAt(1) + ", value " + o
                         + " not Cel or Group.") ;
@@ -958,7 +1021,7 @@ final class FKissAction extends KissObject
                // Moverandx and moverandy set random offsets to the current location.
 
                if (code == 14 || code == 15)
-                  x = y = Math.round((float) (Math.random() * (n2 - n1))) + n1 ;
+                  x = y = Math.round((float) (KissClock.random() * (n2 - n1))) + n1 ;
 
                // Moveto is an absolute movement and must include any offsets.
                // Cel moves are offset changes, so cel absolute movement must be
@@ -1265,7 +1328,7 @@ final class FKissAction extends KissObject
                int noconstrain = 0 ;
                if (parameters.size() > 3)
                {
-                  Object v = variable.getValue((String) parameters.elementAt(3),event) ;
+                  Object v = variable.getValue(getOperand(3),event) ;
                   if (v instanceof Integer && ((Integer) v).intValue() > 0) noconstrain = 1 ;
                   if (v instanceof String && "noconstrain".equals((String) v)) noconstrain = 1 ;
                   if (v instanceof String && "unconstrain".equals((String) v)) noconstrain = 1 ;
@@ -1332,7 +1395,7 @@ final class FKissAction extends KissObject
             // Determine if this is a stop request.
 
             s = (String) parameters.elementAt(0) ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             if ("".equals(o1)) { Audio.stop(config,audiotype) ;  break ; }
             if (OptionsDialog.getSoundSingle() && !OptionsDialog.getLongSoundMedia())
             {
@@ -1348,7 +1411,7 @@ final class FKissAction extends KissObject
 
             if (kiss == null)
             {
-               o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+               o1 = variable.getValue(getOperand(0),event) ;
                if (o1 instanceof String)
                {
                   s1 = ((String) o1).toUpperCase() ;
@@ -1409,7 +1472,7 @@ final class FKissAction extends KissObject
 
             n1 = 0 ;
             if (parameters.size() > 1)
-               n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+               n1 = variable.getIntValue(getOperand(1),event) ;
             a.setRepeat(n1) ;
             a.setType(audiotype) ;
             if (parameters.size() > 1 && n1 == 0)
@@ -1457,15 +1520,13 @@ final class FKissAction extends KissObject
             if (parameters.size() < 3) break ;
             if (kiss == null)
             {
-               alarmid = evaluateParam((String) parameters.elementAt(0)) ;
-               if (alarmid instanceof String) alarmid = ((String) alarmid).toUpperCase() ;
-               kiss = (Alarm) Alarm.getByKey(Alarm.getKeyTable(),cid,alarmid) ;
+               kiss = (Alarm) findByKey(getOperand(0),Alarm.getKeyTable()) ;
             }
             if (!(kiss instanceof Alarm)) break ;
             alarm = (Alarm) kiss ;
-            int min = variable.getIntValue((String) parameters.elementAt(1),event) ;
-            int variance = variable.getIntValue((String) parameters.elementAt(2),event) ;
-            delay = min + Math.round((float) (Math.random() * variance)) ;
+            int min = variable.getIntValue(getOperand(1),event) ;
+            int variance = variable.getIntValue(getOperand(2),event) ;
+            delay = min + Math.round((float) (KissClock.random() * variance)) ;
             alarm.setInterval(delay,activator) ;
             event.setAlarmEnable(kiss) ;
             setAlarmArguments(alarm,parameters,3) ;
@@ -1482,13 +1543,13 @@ final class FKissAction extends KissObject
          case 23:		// "setfix"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             
             if (kiss instanceof Group)
             {
                Group group = (Group) kiss ;
                flex = group.getFlex() ;
-               int fix = variable.getIntValue((String) parameters.elementAt(1),event) ;
+               int fix = variable.getIntValue(getOperand(1),event) ;
                int oldflex = flex.y ;
                flex.x = fix + 1 ;
                flex.y = fix ;
@@ -1550,7 +1611,7 @@ final class FKissAction extends KissObject
                Cel c = (Cel) kiss ;
                Integer flexnum = c.getFlex() ;
                if (flexnum == null) flexnum = Integer.valueOf(0) ;
-               int fix = variable.getIntValue((String) parameters.elementAt(1),event) ;
+               int fix = variable.getIntValue(getOperand(1),event) ;
                int oldflex = flexnum.intValue() ;
                flexnum = Integer.valueOf(fix) ;
                c.setFlex(flexnum) ;
@@ -1584,7 +1645,7 @@ final class FKissAction extends KissObject
 
          case 24:		// "shell"
             if (parameters.size() < 1) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             s1 = s1.toLowerCase() ;
             try
@@ -1600,7 +1661,7 @@ final class FKissAction extends KissObject
                   if (parameters.size() > 1) 
                   {
                      n1 = (p != null) ? p.waitFor() : -1 ;
-                     variable.setIntValue((String) parameters.elementAt(1),n1,event) ;
+                     variable.setIntValue(getOperand(1),n1,event) ;
                   }
                }
             }
@@ -1619,13 +1680,11 @@ final class FKissAction extends KissObject
             if (parameters.size() < 2) break ;
             if (kiss == null)
             {
-               alarmid = evaluateParam((String) parameters.elementAt(0)) ;
-               if (alarmid instanceof String) alarmid = ((String) alarmid).toUpperCase() ;
-               kiss = (Alarm) Alarm.getByKey(Alarm.getKeyTable(),cid,alarmid) ;
+               kiss = (Alarm) findByKey(getOperand(0),Alarm.getKeyTable()) ;
             }
             if (!(kiss instanceof Alarm)) break ;
             alarm = (Alarm) kiss ;
-            delay = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            delay = variable.getIntValue(getOperand(1),event) ;
             alarm.setInterval(delay,activator) ;
             event.setAlarmEnable(kiss) ;
             setAlarmArguments(alarm,parameters,2) ;
@@ -1642,12 +1701,12 @@ final class FKissAction extends KissObject
          case 27:		// "transparent"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
-            int t = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            int t = variable.getIntValue(getOperand(1),event) ;
             boolean bound = true ;
             if (parameters.size() > 2)
-               bound = (variable.getIntValue((String) parameters.elementAt(2),event) != 0) ;
+               bound = (variable.getIntValue(getOperand(2),event) != 0) ;
             kiss.changeTransparency(t,bound,(kiss instanceof Cel)) ;
             box = kiss.getAllBoundingBox() ;
             break ;
@@ -1658,7 +1717,7 @@ final class FKissAction extends KissObject
          case 28:		// "unmap"
             if (parameters.size() < 1) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
             o = (kiss instanceof Cel) ? ((Cel) kiss).getGroup() : kiss ;
             if (panel != null && OptionsDialog.getMapCollide())
@@ -1676,8 +1735,8 @@ final class FKissAction extends KissObject
          case 29:		// "viewport"
             if (panel == null) break ;
             if (parameters.size() < 2) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(0),event) ;
-            n2 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(0),event) ;
+            n2 = variable.getIntValue(getOperand(1),event) ;
             panel.changeviewport(n1,n2) ;
             box = new Rectangle(panel.getPanelSize()) ;
             break ;
@@ -1688,8 +1747,8 @@ final class FKissAction extends KissObject
          case 30:		// "windowsize"
             if (panel == null) break ;
             if (parameters.size() < 2) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(0),event) ;
-            n2 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(0),event) ;
+            n2 = variable.getIntValue(getOperand(1),event) ;
             panel.changewindow(n1,n2) ;
             box = new Rectangle(panel.getPanelSize()) ;
             break ;
@@ -1699,8 +1758,8 @@ final class FKissAction extends KissObject
             
          case 149: // "repeat(label,n,v)"
             if (parameters.size() < 2) break ;
-            String s0 = evaluateParam((String) parameters.elementAt(0)) ;
-            repeatlimit = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            String s0 = evaluateParam(getOperand(0)) ;
+            repeatlimit = variable.getIntValue(getOperand(1),event) ;
             if (parameters.size() < 3) repeatvbl = "@" + s0 ;
             else repeatvbl = (String) parameters.elementAt(2) ;
             repeatcount = variable.getIntValue(repeatvbl,event) ;
@@ -1713,16 +1772,12 @@ final class FKissAction extends KissObject
             if (code != 149)
             {
                if (parameters.size() < 3) break ;
-               n1 = variable.getIntValue((String) parameters.elementAt(0),event) ;
-               o2 = evaluateParam((String) parameters.elementAt(1)) ;
-               if (o2 instanceof String) o2 = ((String) o2).toUpperCase() ;
-               o3 = evaluateParam((String) parameters.elementAt(2)) ;
-               if (o3 instanceof String) o3 = ((String) o3).toUpperCase() ;
+               n1 = variable.getIntValue(getOperand(0),event) ;
                float percent = (float) (n1 / 100.) ;
-               if (Math.random() < percent)
-                  kiss = (Module) Module.getByKey(Module.getKeyTable(),cid,o2) ;
+               if (KissClock.random() < percent)
+                  kiss = (Module) findByKey(getOperand(1),Module.getKeyTable()) ;
                else
-                  kiss = (Module) Module.getByKey(Module.getKeyTable(),cid,o3) ;
+                  kiss = (Module) findByKey(getOperand(2),Module.getKeyTable()) ;
             }
 
          // Call a label event.  For literal label numbers the label module will
@@ -1734,9 +1789,7 @@ final class FKissAction extends KissObject
             if (parameters.size() < 1) break ;
             if (kiss == null)
             {
-               String labelid = evaluateParam((String) parameters.elementAt(0)) ;
-               if (labelid instanceof String) labelid = ((String) labelid).toUpperCase() ;
-               kiss = (Module) Module.getByKey(Module.getKeyTable(),cid,labelid) ;
+               kiss = (Module) findByKey(getOperand(0),Module.getKeyTable()) ;
             }
             if (!(kiss instanceof Module)) break ;
 
@@ -1771,7 +1824,7 @@ final class FKissAction extends KissObject
                   Vector arguments = labelevent.getParameters() ;
                   for (i = n1 ; i < parameters.size() ; i++)
                   {
-                     o1 = variable.getValue((String) parameters.elementAt(i),event) ;
+                     o1 = variable.getValue(getOperand(i),event) ;
                      if (n2 < arguments.size())
                      {
                         s = (String) arguments.elementAt(n2++) ;
@@ -1930,109 +1983,111 @@ final class FKissAction extends KissObject
 
          case 36:		// "let"
             if (parameters.size() < 1) break ;
-            o = (parameters.size() < 2) ? null : variable.getValue((String) parameters.elementAt(1),event) ;
-            variable.setValue((String) parameters.elementAt(0),o,event) ;
+            if (parameters.size() < 2)
+               variable.setValue(getOperand(0),null,event) ;
+            else
+               variable.copyValue(getOperand(0),getOperand(1),event) ;
             break;
 
          // Addition command.
 
          case 37:		// "add"
             if (parameters.size() < 3) break ;
-            n1 = variable.getConvertType((String) parameters.elementAt(1),event) ;
-            n2 = variable.getConvertType((String) parameters.elementAt(2),event) ;
+            n1 = variable.getConvertType(getOperand(1),event) ;
+            n2 = variable.getConvertType(getOperand(2),event) ;
             if (n1 == 3 || n2 == 3)
             {
-               d1 = variable.getDoubleValue((String) parameters.elementAt(1),event) ;
-               d2 = variable.getDoubleValue((String) parameters.elementAt(2),event) ;
-               variable.setDoubleValue((String) parameters.elementAt(0),d1+d2,event) ;
+               d1 = variable.getDoubleValue(getOperand(1),event) ;
+               d2 = variable.getDoubleValue(getOperand(2),event) ;
+               variable.setDoubleValue(getOperand(0),d1+d2,event) ;
                break;
             }
-            l1 = variable.getLongValue((String) parameters.elementAt(1),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(2),event) ;
-            variable.setLongValue((String) parameters.elementAt(0),l1+l2,event) ;
+            l1 = variable.getLongValue(getOperand(1),event) ;
+            l2 = variable.getLongValue(getOperand(2),event) ;
+            variable.setLongValue(getOperand(0),l1+l2,event) ;
             break;
 
          // Subtraction command.
 
          case 38:		// "sub"
             if (parameters.size() < 3) break ;
-            n1 = variable.getConvertType((String) parameters.elementAt(1),event) ;
-            n2 = variable.getConvertType((String) parameters.elementAt(2),event) ;
+            n1 = variable.getConvertType(getOperand(1),event) ;
+            n2 = variable.getConvertType(getOperand(2),event) ;
             if (n1 == 3 || n2 == 3)
             {
-               d1 = variable.getDoubleValue((String) parameters.elementAt(1),event) ;
-               d2 = variable.getDoubleValue((String) parameters.elementAt(2),event) ;
-               variable.setDoubleValue((String) parameters.elementAt(0),d1-d2,event) ;
+               d1 = variable.getDoubleValue(getOperand(1),event) ;
+               d2 = variable.getDoubleValue(getOperand(2),event) ;
+               variable.setDoubleValue(getOperand(0),d1-d2,event) ;
                break;
             }
-            l1 = variable.getLongValue((String) parameters.elementAt(1),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(2),event) ;
-            variable.setLongValue((String) parameters.elementAt(0),l1-l2,event) ;
+            l1 = variable.getLongValue(getOperand(1),event) ;
+            l2 = variable.getLongValue(getOperand(2),event) ;
+            variable.setLongValue(getOperand(0),l1-l2,event) ;
             break;
 
          // Multiplication command.
 
          case 39:		// "mul"
             if (parameters.size() < 3) break ;
-            n1 = variable.getConvertType((String) parameters.elementAt(1),event) ;
-            n2 = variable.getConvertType((String) parameters.elementAt(2),event) ;
+            n1 = variable.getConvertType(getOperand(1),event) ;
+            n2 = variable.getConvertType(getOperand(2),event) ;
             if (n1 == 3 || n2 == 3)
             {
-               d1 = variable.getDoubleValue((String) parameters.elementAt(1),event) ;
-               d2 = variable.getDoubleValue((String) parameters.elementAt(2),event) ;
-               variable.setDoubleValue((String) parameters.elementAt(0),d1*d2,event) ;
+               d1 = variable.getDoubleValue(getOperand(1),event) ;
+               d2 = variable.getDoubleValue(getOperand(2),event) ;
+               variable.setDoubleValue(getOperand(0),d1*d2,event) ;
                break;
             }
-            l1 = variable.getLongValue((String) parameters.elementAt(1),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(2),event) ;
-            variable.setLongValue((String) parameters.elementAt(0),l1*l2,event) ;
+            l1 = variable.getLongValue(getOperand(1),event) ;
+            l2 = variable.getLongValue(getOperand(2),event) ;
+            variable.setLongValue(getOperand(0),l1*l2,event) ;
             break;
 
          // Integer division command.
 
          case 40:		// "div"
             if (parameters.size() < 3) break ;
-            n1 = variable.getConvertType((String) parameters.elementAt(1),event) ;
-            n2 = variable.getConvertType((String) parameters.elementAt(2),event) ;
+            n1 = variable.getConvertType(getOperand(1),event) ;
+            n2 = variable.getConvertType(getOperand(2),event) ;
             if (n1 == 3 || n2 == 3)
             {
-               d1 = variable.getDoubleValue((String) parameters.elementAt(1),event) ;
-               d2 = variable.getDoubleValue((String) parameters.elementAt(2),event) ;
-               variable.setDoubleValue((String) parameters.elementAt(0),d1/d2,event) ;
+               d1 = variable.getDoubleValue(getOperand(1),event) ;
+               d2 = variable.getDoubleValue(getOperand(2),event) ;
+               variable.setDoubleValue(getOperand(0),d1/d2,event) ;
                break;
             }
-            l1 = variable.getLongValue((String) parameters.elementAt(1),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(2),event) ;
-            variable.setLongValue((String) parameters.elementAt(0),l1/l2,event) ;
+            l1 = variable.getLongValue(getOperand(1),event) ;
+            l2 = variable.getLongValue(getOperand(2),event) ;
+            variable.setLongValue(getOperand(0),l1/l2,event) ;
             break;
 
          // Division remainder command.
 
          case 41:		// "mod"
             if (parameters.size() < 3) break ;
-            l1 = variable.getLongValue((String) parameters.elementAt(1),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(2),event) ;
-            variable.setLongValue((String) parameters.elementAt(0),l1%l2,event) ;
+            l1 = variable.getLongValue(getOperand(1),event) ;
+            l2 = variable.getLongValue(getOperand(2),event) ;
+            variable.setLongValue(getOperand(0),l1%l2,event) ;
             break;
 
          // Random number from A to B command.
 
          case 42:		// "random"
             if (parameters.size() < 3) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
-            n2 = variable.getIntValue((String) parameters.elementAt(2),event) ;
-            n3 = Math.round((float) (Math.random() * (n2-n1))) + n1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n3,event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
+            n2 = variable.getIntValue(getOperand(2),event) ;
+            n3 = Math.round((float) (KissClock.random() * (n2-n1))) + n1 ;
+            variable.setIntValue(getOperand(0),n3,event) ;
             break;
 
          // Determine the x-coordinate of an object.  
 
          case 43:		// "letobjectx"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             n1 = kiss.getLocation().x ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             if (panel == null || !(kiss instanceof Group)) break ;
             
             // If the object happens to be the one dragged by the mouse 
@@ -2043,17 +2098,17 @@ final class FKissAction extends KissObject
             Rectangle box1 = kiss.getBoundingBox() ;
             Point offset = kiss.getOffset() ;
             n1 = box1.x - offset.x ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the y-coordinate of an object.
 
          case 44:		// "letobjecty"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             n1 = kiss.getLocation().y ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             if (panel == null || !(kiss instanceof Group)) break ;
             
             // If the object happens to be the one dragged by the mouse 
@@ -2064,38 +2119,38 @@ final class FKissAction extends KissObject
             box1 = kiss.getBoundingBox() ;
             offset = kiss.getOffset() ;
             n1 = box1.y - offset.y ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the x-offset of an object.  
 
          case 163:		// "letoffsetx"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             n1 = kiss.getOffset().x ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             if (panel == null || !(kiss instanceof Group)) break ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the y-offset of an object.
 
          case 164:		// "letoffsety"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             n1 = kiss.getOffset().y ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             if (panel == null || !(kiss instanceof Group)) break ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the flex value of a group or cel.
 
          case 45:		// "letfix"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             n1 = 0 ;
             if (kiss instanceof Group) 
                n1 = ((Group) kiss).getFlex().y ;
@@ -2105,7 +2160,7 @@ final class FKissAction extends KissObject
                if (celflex == null) celflex = Integer.valueOf(0) ;
                n1 = celflex.intValue() ;
             }
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the visibility of a cel or cel group.  The cel group
@@ -2113,7 +2168,7 @@ final class FKissAction extends KissObject
 
          case 46:		// "letmapped"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (kiss == null) break ;
             if (panel == null)
                n1 = kiss.isVisible() ? 1 : 0 ;
@@ -2123,7 +2178,7 @@ final class FKissAction extends KissObject
                pid = (pageset != null) ? (Integer) pageset.getIdentifier() : null ;
                n1 = kiss.getVisibleCelCount(pid) ;
             }
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the current page set.
@@ -2134,7 +2189,7 @@ final class FKissAction extends KissObject
             PageSet p = panel.getPage() ;
             if (p == null) break ;
             n1 = ((Integer) p.getIdentifier()).intValue() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the current multipalette in use.
@@ -2149,12 +2204,12 @@ final class FKissAction extends KissObject
             n1 = (multipalette == null) ? 0 : multipalette.intValue() ;
             if (parameters.size() > 1)
             {
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
                if (!(kiss instanceof Cel)) break ;
                n2 = ((Cel) kiss).getMultiPalette() ;
                n1 = (n2 == n1) ? 0 : n2 ;
             }
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the current mouse x-coordinate.
@@ -2163,7 +2218,7 @@ final class FKissAction extends KissObject
             if (parameters.size() < 1) break ;
             if (panel == null) break ;
             n1 = panel.getMouseX() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the current mouse y-coordinate.
@@ -2172,7 +2227,7 @@ final class FKissAction extends KissObject
             if (parameters.size() < 1) break ;
             if (panel == null) break ;
             n1 = panel.getMouseY() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the currently selected or last group object.  If the
@@ -2188,7 +2243,7 @@ final class FKissAction extends KissObject
                if (group == null) group = panel.getLastGroup() ;
                if (group == null) break ;
                n1 = ((Integer) group.getIdentifier()).intValue() ;
-               variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+               variable.setIntValue(getOperand(0),n1,event) ;
                break;
             }
 
@@ -2197,8 +2252,8 @@ final class FKissAction extends KissObject
             // set in the event.
 
             o = null ;
-            variable.setIntValue((String) parameters.elementAt(0),-1,event) ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            variable.setIntValue(getOperand(0),-1,event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (kiss == null) break ;
             Object [] collide = event.getCollide() ;
             if (collide == null) break ;
@@ -2210,7 +2265,7 @@ final class FKissAction extends KissObject
             {
                Group group = (Group) o ;
                n1 = ((Integer) group.getIdentifier()).intValue() ;
-               variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+               variable.setIntValue(getOperand(0),n1,event) ;
             }
             break ;
 
@@ -2222,7 +2277,7 @@ final class FKissAction extends KissObject
             s1 = (String) parameters.elementAt(1) ;
             s2 = (String) parameters.elementAt(2) ;
             n1 = (panel.checkTouch(s1,s2,null,null) == 1) ? 1 : 0 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine if two objects are inside one another.
@@ -2233,26 +2288,26 @@ final class FKissAction extends KissObject
             s1 = (String) parameters.elementAt(1) ;
             s2 = (String) parameters.elementAt(2) ;
             n1 = (panel.checkOverlap(s1,s2) == 1) ? 1 : 0 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine a cel's transparency.
 
          case 54:		// "lettransparent"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (kiss == null) break ;
             n1 = kiss.getTransparency() ;
             if (n1 >= 0) n1 = 255 - n1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // If equal.
 
          case 55:		// "ifequal"
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
-            o2 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
+            o2 = variable.getValue(getOperand(1),event) ;
             if (o1 == null && o2 instanceof Integer) o1 = Integer.valueOf(0) ;
             if (o2 == null && o1 instanceof Integer) o2 = Integer.valueOf(0) ;
             if (o1 == null && o2 instanceof Long) o1 = Long.valueOf(0) ;
@@ -2272,8 +2327,8 @@ final class FKissAction extends KissObject
 
          case 56:		// "ifnotequal"
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
-            o2 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
+            o2 = variable.getValue(getOperand(1),event) ;
             if (o1 == null && o2 instanceof Integer) o1 = Integer.valueOf(0) ;
             if (o2 == null && o1 instanceof Integer) o2 = Integer.valueOf(0) ;
             if (o1 == null && o2 instanceof Long) o1 = Long.valueOf(0) ;
@@ -2293,8 +2348,8 @@ final class FKissAction extends KissObject
 
          case 57:		// "ifgreaterthan"
             if (parameters.size() < 2) break ;
-            l1 = variable.getLongValue((String) parameters.elementAt(0),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(1),event) ;
+            l1 = variable.getLongValue(getOperand(0),event) ;
+            l2 = variable.getLongValue(getOperand(1),event) ;
             setSkipActions((l1 <= l2),identifier,currentthread) ;
             event.setIfLevel(event.getIfLevel() + 1);
             event.setElseIfLevel(0) ;
@@ -2304,8 +2359,8 @@ final class FKissAction extends KissObject
 
          case 58:		// "iflessthan"
             if (parameters.size() < 2) break ;
-            l1 = variable.getLongValue((String) parameters.elementAt(0),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(1),event) ;
+            l1 = variable.getLongValue(getOperand(0),event) ;
+            l2 = variable.getLongValue(getOperand(1),event) ;
             setSkipActions((l1 >= l2),identifier,currentthread) ;
             event.setIfLevel(event.getIfLevel() + 1);
             event.setElseIfLevel(0) ;
@@ -2336,11 +2391,11 @@ final class FKissAction extends KissObject
          case 61:		// "ghost"
             if (parameters.size() < 1) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
             n1 = 1 ;
             if (parameters.size() > 1)
-               n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+               n1 = variable.getIntValue(getOperand(1),event) ;
             if (OptionsDialog.getInvertGhost()) 
                kiss.setGhost(n1 == 0,OptionsDialog.getAllAmbiguous(),kiss) ;
             else
@@ -2352,68 +2407,68 @@ final class FKissAction extends KissObject
 
          case 62:		// "letobjectw"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             n1 = kiss.getBoundingBox().width ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the visible width of an object.
 
          case 77:		// "letwidth"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Group)) break ;
             p = (panel != null) ? panel.getPage() : null ;
             o = (p != null) ? p.getIdentifier() : null ;
             pid = (o instanceof Integer) ? (Integer) o : null ;
             Dimension d = ((Group) kiss).getVisibleSize(pid) ;
-            variable.setIntValue((String) parameters.elementAt(0),d.width,event) ;
+            variable.setIntValue(getOperand(0),d.width,event) ;
             break;
 
          // Determine the defined height of an object.
 
          case 63:		// "letobjecth"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             n1 = kiss.getBoundingBox().height ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the visible height of an object.
 
          case 78:		// "letheight"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Group)) break ;
             p = (panel != null) ? panel.getPage() : null ;
             o = (p != null) ? p.getIdentifier() : null ;
             pid = (o instanceof Integer) ? (Integer) o : null ;
             d = ((Group) kiss).getVisibleSize(pid) ;
-            variable.setIntValue((String) parameters.elementAt(0),d.height,event) ;
+            variable.setIntValue(getOperand(0),d.height,event) ;
             break;
 
          // Determine the initial x ordinate of an object on the current page.
 
          case 75:		// "letinitx"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             p = (panel != null) ? panel.getPage() : null ;
             n1 = kiss.getInitialLocation(p).x ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Determine the initial y ordinate of an object on the current page.
 
          case 76:		// "letinity"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Cel || kiss instanceof Group)) break ;
             p = (panel != null) ? panel.getPage() : null ;
             n1 = kiss.getInitialLocation(p).y ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // While (operand[[,operand2,condition]). Execute code only if not false.
@@ -2423,7 +2478,7 @@ final class FKissAction extends KissObject
 
          case 64:		// "while(operand[,operand2,condition)"
             if (parameters.size() < 1) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             String context = identifier + " " + (String) parameters.elementAt(0) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             if (s1.length() == 0) s1 = "0" ;
@@ -2440,11 +2495,11 @@ final class FKissAction extends KissObject
             n1 = 0 ;
             s3 = "" ;
             b = true ;
-            o2 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o2 = variable.getValue(getOperand(1),event) ;
             s2 = (o2 != null) ? o2.toString() : "" ;
             if (parameters.size() > 2)
             {
-               o3 = variable.getValue((String) parameters.elementAt(2),event) ;
+               o3 = variable.getValue(getOperand(2),event) ;
                s3 = (o3 != null) ? o3.toString() : "" ;
             }
                
@@ -2454,20 +2509,20 @@ final class FKissAction extends KissObject
                n1 = s1.compareTo(s2) ;
             else if (o1 instanceof Double || o2 instanceof Double)
             {
-               d1 = variable.getDoubleValue((String) parameters.elementAt(0),event) ;
-               d2 = variable.getDoubleValue((String) parameters.elementAt(1),event) ;
+               d1 = variable.getDoubleValue(getOperand(0),event) ;
+               d2 = variable.getDoubleValue(getOperand(1),event) ;
                n1 = (d1 < d2) ? -1 : (d1 == d2) ? 0 : 1 ;
             }
             else if (o1 instanceof Long || o2 instanceof Long)
             {
-               l1 = variable.getLongValue((String) parameters.elementAt(0),event) ;
-               l2 = variable.getLongValue((String) parameters.elementAt(1),event) ;
+               l1 = variable.getLongValue(getOperand(0),event) ;
+               l2 = variable.getLongValue(getOperand(1),event) ;
                n1 = (l1 < l2) ? -1 : (l1 == l2) ? 0 : 1 ;
             }
             else if (o1 instanceof Integer || o2 instanceof Integer)
             {
-               l1 = variable.getIntValue((String) parameters.elementAt(0),event) ;
-               l2 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+               l1 = variable.getIntValue(getOperand(0),event) ;
+               l2 = variable.getIntValue(getOperand(1),event) ;
                n1 = (l1 < l2) ? -1 : (l1 == l2) ? 0 : 1 ;
             }
                
@@ -2533,11 +2588,11 @@ final class FKissAction extends KissObject
             
             if (parameters.size() > 1) 
             {
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
                if (kiss == null) break ;
                n1 = kiss.getFrame() ;
                if (parameters.size() > 2)
-                  n1 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+                  n1 = variable.getIntValue(getOperand(2),event) ;
                cel = kiss.getCel(n1) ;
             }
             
@@ -2545,16 +2600,16 @@ final class FKissAction extends KissObject
             
             if (cel == null) break ;
             s1 = cel.getRelativeName() ;
-            if (s1 != null) variable.setValue((String) parameters.elementAt(0),s1,event) ;
+            if (s1 != null) variable.setValue(getOperand(0),s1,event) ;
             break;
 
          // Determine a cel or object comment text.
 
          case 68:		// "letcomment"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             s1 = kiss.getBaseComment() ;
-            variable.setValue((String) parameters.elementAt(0),s1,event) ;
+            variable.setValue(getOperand(0),s1,event) ;
             break;
 
          // Concatenate multiple strings.
@@ -2564,10 +2619,10 @@ final class FKissAction extends KissObject
             StringBuffer sb = new StringBuffer("") ;
             for (i = 1 ; i < parameters.size() ; i++)
             {
-               o = variable.getValue((String) parameters.elementAt(i),event) ;
+               o = variable.getValue(getOperand(i),event) ;
                if (o != null) sb.append(o) ;
             }
-            variable.setValue((String) parameters.elementAt(0),sb.toString(),event) ;
+            variable.setValue(getOperand(0),sb.toString(),event) ;
             break;
 
          // Substring a string.  If the End parameter is not specified
@@ -2575,16 +2630,16 @@ final class FKissAction extends KissObject
 
          case 70:		// "substr(S,SourceString,Start,End)"
             if (parameters.size() < 3) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             if (o1 == null) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+            n1 = variable.getIntValue(getOperand(2),event) ;
             n2 = -1 ;
             if (parameters.size() > 3)
-               n2 = variable.getIntValue((String) parameters.elementAt(3),event) ;
+               n2 = variable.getIntValue(getOperand(3),event) ;
             s1 = o1.toString() ;
             if (n1 < 0 || n1 > s1.length()) n1 = s1.length() ;
             if (n2 < n1 || n2 > s1.length()) n2 = s1.length() ;
-            variable.setValue((String) parameters.elementAt(0),s1.substring(n1,n2),event) ;
+            variable.setValue(getOperand(0),s1.substring(n1,n2),event) ;
             break;
 
          // Animate a cel.  If no cel name is specified, set the timer
@@ -2592,10 +2647,10 @@ final class FKissAction extends KissObject
 
          case 71:		// "animate"
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             if ("".equals(o1)) { GifTimer.setEnabled(n1 != 0) ;  break ; }
-            kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+            kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
             kiss.setAnimate(n1,OptionsDialog.getAllAmbiguous(),kiss) ;
             break;
@@ -2604,11 +2659,11 @@ final class FKissAction extends KissObject
 
          case 72:		// "for(variable, start, end, increment)"
             if (parameters.size() < 3) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(0),event) ;
-            n2 = variable.getIntValue((String) parameters.elementAt(1),event) ;
-            n3 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+            n1 = variable.getIntValue(getOperand(0),event) ;
+            n2 = variable.getIntValue(getOperand(1),event) ;
+            n3 = variable.getIntValue(getOperand(2),event) ;
             n4 = (parameters.size() < 4) ? ((n3 >= n2) ? 1 : -1)
-               : variable.getIntValue((String) parameters.elementAt(3),event) ;
+               : variable.getIntValue(getOperand(3),event) ;
 
             // Initialize or increment.
 
@@ -2626,7 +2681,7 @@ final class FKissAction extends KissObject
 
             // Set the iteration variable value.
 
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Next (variable)  Repeat the loop until we skip.
@@ -2667,7 +2722,7 @@ final class FKissAction extends KissObject
 
             // Are we stopping all movies?
 
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             if ("".equals(o1)) { Video.stop(config) ;  break ; }
 
             // Identify the action object.
@@ -2682,7 +2737,7 @@ final class FKissAction extends KissObject
 
                n1 = 0 ;
                if (parameters.size() > 1)
-                 n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+                 n1 = variable.getIntValue(getOperand(1),event) ;
                v.setRepeat(n1) ;
                v.play() ;
                kiss = Cel.findNextCel(v,v.getName(),config) ;
@@ -2694,22 +2749,22 @@ final class FKissAction extends KissObject
 
          case 79:		// "letframe"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (kiss == null) break ;
             if (parameters.size() == 2 || panel == null)
                n1 = kiss.getFrame() ;
             else
                n1 = kiss.getFrame(panel.getCel()) ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set the cel group frame. 
             
          case 80:		// "setframe(object,n)"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+            kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             kiss.setFrame(n1) ;
             box = kiss.getBoundingBox() ;
             break;
@@ -2718,9 +2773,9 @@ final class FKissAction extends KissObject
 
          case 81:		// "attach"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+            kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof Group)) break ;
-            parent = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            parent = findGroupOrCel(getOperand(1),event) ;
             if (!(parent instanceof Group)) break ;
             parent.attach(kiss) ;
             kiss.setGlue(false) ;
@@ -2730,7 +2785,7 @@ final class FKissAction extends KissObject
 
          case 82:		// "detach"
             if (parameters.size() < 1) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+            kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof Group)) break ;
             kiss.detach() ;
             break;
@@ -2739,9 +2794,9 @@ final class FKissAction extends KissObject
 
          case 83:		// "glue"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+            kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof Group)) break ;
-            parent = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            parent = findGroupOrCel(getOperand(1),event) ;
             if (!(parent instanceof Group)) break ;
             parent.attach(kiss) ;
             kiss.setGlue(true) ;
@@ -2751,36 +2806,36 @@ final class FKissAction extends KissObject
 
          case 84:		// "letchild"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Group)) break ;
             KissObject child = kiss.getFirstChild() ;
             Object attachid = (child == null) ? null : child.getIdentifier() ;
             n1 = (attachid instanceof Integer) ? ((Integer) attachid).intValue() : -1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Returns the number of the parent object. 
 
          case 85:		// "letparent"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Group)) break ;
             parent = kiss.getParent() ;
             attachid = (parent == null) ? null : parent.getIdentifier() ;
             n1 = (attachid instanceof Integer) ? ((Integer) attachid).intValue() : -1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Returns the number of the next child object.
 
          case 86:		// "letsibling"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Group)) break ;
             child = kiss.getNextChild() ;
             attachid = (child == null) ? null : child.getIdentifier() ;
             n1 = (attachid instanceof Integer) ? ((Integer) attachid).intValue() : -1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Search a list for the last key typed and return its index position.
@@ -2792,13 +2847,13 @@ final class FKissAction extends KissObject
             if (panel == null) break ;
             s1 = panel.getActiveKeyChar() ;
             if (!OptionsDialog.getRetainKey()) s1 = panel.getKeyChar() ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s2 = (o1 == null) ? "" : o1.toString() ;
             s1 = translateKey(s1) ;
             s2 = translateKey(s2) ;
             n1 = s2.indexOf(s1) + 1 ;
             if (s1.length() == 0) n1 = 0 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break ;
 
          // Search a list for the last key combination typed and return its
@@ -2810,7 +2865,7 @@ final class FKissAction extends KissObject
             if (panel == null) break ;
             s1 = panel.getActiveKeyCombination() ;
             if (!OptionsDialog.getRetainKey()) s1 = panel.getKeyCombination() ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s2 = (o1 == null) ? "" : o1.toString() ;
             s1 = translateKey(s1) ;
             s2 = translateKey(s2) ;
@@ -2820,7 +2875,7 @@ final class FKissAction extends KissObject
                int j = s2.indexOf(s1.charAt(i)) ;
                if (j >= 0) n1 += (1 << j) ;
             }
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break ;
 
          // Returns the last typed character.
@@ -2828,7 +2883,7 @@ final class FKissAction extends KissObject
          case 89:		// "letkeychar"
             if (parameters.size() < 1) break ;
             if (panel == null) break ;
-            variable.setValue((String) parameters.elementAt(0),panel.getKeyChar(),event) ;
+            variable.setValue(getOperand(0),panel.getKeyChar(),event) ;
             break ;
 
          // Returns the last typed virtual character code.
@@ -2836,7 +2891,7 @@ final class FKissAction extends KissObject
          case 90:		// "letkeycode"
             if (parameters.size() < 1) break ;
             if (panel == null) break ;
-            variable.setIntValue((String) parameters.elementAt(0),panel.getKeyCode(),event) ;
+            variable.setIntValue(getOperand(0),panel.getKeyCode(),event) ;
             break ;
 
          // Returns the last typed modifier string.
@@ -2844,7 +2899,7 @@ final class FKissAction extends KissObject
          case 91:		// "letkeymodifier"
             if (parameters.size() < 1) break ;
             if (panel == null) break ;
-            variable.setValue((String) parameters.elementAt(0),panel.getKeyModifier(),event) ;
+            variable.setValue(getOperand(0),panel.getKeyModifier(),event) ;
             break ;
 
          // Returns the last typed string.
@@ -2852,7 +2907,7 @@ final class FKissAction extends KissObject
          case 92:		// "letkeystring"
             if (parameters.size() < 1) break ;
             if (panel == null) break ;
-            variable.setValue((String) parameters.elementAt(0),panel.getKeyString(),event) ;
+            variable.setValue(getOperand(0),panel.getKeyString(),event) ;
             break ;
 
 
@@ -2866,7 +2921,7 @@ final class FKissAction extends KissObject
                break ;
             }
             if (parameters.size() < 1) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             if (!(o1 instanceof String)) break ;
             s1 = ((String) o1).toUpperCase() ;
             mf = (config == null) ? null : config.getMediaFrame() ;
@@ -2883,8 +2938,7 @@ final class FKissAction extends KissObject
                   MediaFrame mf1 = mf ;
                   Runnable runner = new Runnable()
                   { public void run() { mf1.stop() ; } } ;
-                  Thread runthread = new Thread(runner) ;
-                  runthread.start() ;
+                  KissExecutor.execute(config.getID(),"MediaFrame stop",runner) ;
                   if (config != null) config.setMediaFrame(null) ;
                }
                else
@@ -2925,13 +2979,13 @@ final class FKissAction extends KissObject
             n3 = 0 ;     // x position
             n4 = 0 ;     // y position
             if (parameters.size() > 1)
-               n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+               n1 = variable.getIntValue(getOperand(1),event) ;
             if (parameters.size() > 2)
-               n2 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+               n2 = variable.getIntValue(getOperand(2),event) ;
             if (parameters.size() > 3)
-               n3 = variable.getIntValue((String) parameters.elementAt(3),event) ;
+               n3 = variable.getIntValue(getOperand(3),event) ;
             if (parameters.size() > 4)
-               n4 = variable.getIntValue((String) parameters.elementAt(4),event) ;
+               n4 = variable.getIntValue(getOperand(4),event) ;
             
             // If we are a background sound transitioned to the MediaPlayer
             // and the MediaPlayer option id set to repeat sounds, then set 
@@ -2992,8 +3046,8 @@ final class FKissAction extends KissObject
             setSkipActions(b,event.getSkipContext(currentthread),n1,currentthread) ;
             if (b) { event.setElseIfLevel(event.getElseIfLevel() + 1) ; break ; }
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
-            o2 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
+            o2 = variable.getValue(getOperand(1),event) ;
             if (o1 == null && o2 instanceof Integer) o1 = Integer.valueOf(0) ;
             if (o2 == null && o1 instanceof Integer) o2 = Integer.valueOf(0) ;
             if (o1 == null && o2 instanceof Long) o1 = Long.valueOf(0) ;
@@ -3018,8 +3072,8 @@ final class FKissAction extends KissObject
             setSkipActions(b,event.getSkipContext(currentthread),n1,currentthread) ;
             if (b) { event.setElseIfLevel(event.getElseIfLevel() + 1) ; break ; }
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
-            o2 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
+            o2 = variable.getValue(getOperand(1),event) ;
             if (o1 == null && o2 instanceof Integer) o1 = Integer.valueOf(0) ;
             if (o2 == null && o1 instanceof Integer) o2 = Integer.valueOf(0) ;
             if (o1 == null && o2 instanceof Long) o1 = Long.valueOf(0) ;
@@ -3044,8 +3098,8 @@ final class FKissAction extends KissObject
             setSkipActions(b,event.getSkipContext(currentthread),n1,currentthread) ;
             if (b) { event.setElseIfLevel(event.getElseIfLevel() + 1) ; break ; }
             if (parameters.size() < 2) break ;
-            l1 = variable.getLongValue((String) parameters.elementAt(0),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(1),event) ;
+            l1 = variable.getLongValue(getOperand(0),event) ;
+            l2 = variable.getLongValue(getOperand(1),event) ;
             setSkipActions((l1 <= l2),event.getSkipContext(currentthread),event.getIfLevel()-1,currentthread) ;
             if (!(l1 <= l2)) event.setElseIfLevel(event.getElseIfLevel() + 1) ;
             break;
@@ -3060,8 +3114,8 @@ final class FKissAction extends KissObject
             setSkipActions(b,event.getSkipContext(currentthread),n1,currentthread) ;
             if (b) { event.setElseIfLevel(event.getElseIfLevel() + 1) ; break ; }
             if (parameters.size() < 2) break ;
-            l1 = variable.getLongValue((String) parameters.elementAt(0),event) ;
-            l2 = variable.getLongValue((String) parameters.elementAt(1),event) ;
+            l1 = variable.getLongValue(getOperand(0),event) ;
+            l2 = variable.getLongValue(getOperand(1),event) ;
             setSkipActions((l1 >= l2),event.getSkipContext(currentthread),event.getIfLevel()-1,currentthread) ;
             if (!(l1 >= l2)) event.setElseIfLevel(event.getElseIfLevel() + 1) ;
             break;
@@ -3072,7 +3126,7 @@ final class FKissAction extends KissObject
             Group newgroup = null ;
             Integer groupnumber = null ;
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Group)) break ;
             if (config == null) break ;
 
@@ -3140,7 +3194,7 @@ final class FKissAction extends KissObject
             // Set the variable to the new group number.
 
             n1 = (groupnumber != null) ? groupnumber.intValue() : 0 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             if (panel != null && panel.isVisible())
             {
                if (!("set".equals(event.getIdentifier()) ||
@@ -3157,7 +3211,7 @@ final class FKissAction extends KissObject
 
          case 99:		// "destroy"
             if (parameters.size() < 1) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+            kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof Group)) break ;
             Group group = (Group) kiss ;
             o1 = kiss.getClone() ;
@@ -3214,11 +3268,11 @@ final class FKissAction extends KissObject
 
          case 100:		// "letlevel(Variable,Object)"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (kiss == null) break ;
             o = kiss.getLevel() ;
             n1 = (o instanceof Integer) ? ((Integer) o).intValue() : 0 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set the object draw level.  This must force a full redraw on
@@ -3226,9 +3280,9 @@ final class FKissAction extends KissObject
 
          case 101:		// "setlevel(Object,Variable)"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+            kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             kiss.setLevel(Integer.valueOf(n1)) ;
             box = kiss.getBoundingBox() ;
             if (panel != null) panel.setRedraw(true) ;
@@ -3238,18 +3292,18 @@ final class FKissAction extends KissObject
 
          case 102:		// "indexof(N,String,Substring,[Case])"
             if (parameters.size() < 3) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
-            o2 = variable.getValue((String) parameters.elementAt(2),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
+            o2 = variable.getValue(getOperand(2),event) ;
             if (o1 == null || o2 == null) break ;
             
             n3 = 1 ;
             s1 = o1.toString() ;
             s2 = o2.toString() ;
             if (parameters.size() > 3)
-               n3 = variable.getIntValue((String) parameters.elementAt(3),event) ;
+               n3 = variable.getIntValue(getOperand(3),event) ;
             String st1 = (n3 == 0) ? s1.toUpperCase() : s1 ;
             String st2 = (n3 == 0) ? s2.toUpperCase() : s2 ;
-            variable.setIntValue((String) parameters.elementAt(0),st1.indexOf(st2),event) ;
+            variable.setIntValue(getOperand(0),st1.indexOf(st2),event) ;
             break;
 
          // Replaces a substring in a string.  Substring1 in String is replaced
@@ -3257,9 +3311,9 @@ final class FKissAction extends KissObject
 
          case 103:		// "replacestr(Result,String,Substring1,Substring2[,Count,Case])"
             if (parameters.size() < 4) break ;
-            o2 = variable.getValue((String) parameters.elementAt(1),event) ;
-            o3 = variable.getValue((String) parameters.elementAt(2),event) ;
-            o4 = variable.getValue((String) parameters.elementAt(3),event) ;
+            o2 = variable.getValue(getOperand(1),event) ;
+            o3 = variable.getValue(getOperand(2),event) ;
+            o4 = variable.getValue(getOperand(3),event) ;
             if (o2 == null || o3 == null || o4 == null) break ;
 
             // Initialize.  Watch for case sensitive comparisons.
@@ -3271,9 +3325,9 @@ final class FKissAction extends KissObject
             s3 = o3.toString() ;
             s4 = o4.toString() ;
             if (parameters.size() > 4)
-               n2 = variable.getIntValue((String) parameters.elementAt(4),event) ;
+               n2 = variable.getIntValue(getOperand(4),event) ;
             if (parameters.size() > 5)
-               n3 = variable.getIntValue((String) parameters.elementAt(5),event) ;
+               n3 = variable.getIntValue(getOperand(5),event) ;
             st1 = (n3 == 0) ? s2.toUpperCase() : s2 ;
             st2 = (n3 == 0) ? s3.toUpperCase() : s3 ;
             s1 = s2 ;
@@ -3293,7 +3347,7 @@ final class FKissAction extends KissObject
 
             // Set result.  No find returns unchanged result string.
             
-            variable.setValue((String) parameters.elementAt(0),s1,event) ;
+            variable.setValue(getOperand(0),s1,event) ;
             break;
 
          // Return the time left on a timer before expiry.  If the alarm is
@@ -3304,9 +3358,7 @@ final class FKissAction extends KissObject
             if (parameters.size() < 2) break ;
             if (kiss == null)
             {
-               alarmid = evaluateParam((String) parameters.elementAt(1)) ;
-               if (alarmid instanceof String) alarmid = ((String) alarmid).toUpperCase() ;
-               kiss = (Alarm) Alarm.getByKey(Alarm.getKeyTable(),cid,alarmid) ;
+               kiss = (Alarm) findByKey(getOperand(1),Alarm.getKeyTable()) ;
             }
             if (!(kiss instanceof Alarm)) break ;
             alarm = (Alarm) kiss ;
@@ -3314,7 +3366,7 @@ final class FKissAction extends KissObject
             n1 = (delay > 0) ? delay - ((int) alarm.getTime()) : 0 ;
             if (n1 < OptionsDialog.getTimerPeriod()) n1 = 0 ;
             if (delay < 0 && alarm.getTime() == 0) n1 = -1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break ;
 
          // Set the multipalette for a cel, group, or cel group.
@@ -3322,9 +3374,9 @@ final class FKissAction extends KissObject
          case 107:	// "setpal(cel/object/celgroup,multipalette)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             kiss.fixPaletteGroup(Integer.valueOf(n1)) ;
             box = kiss.getBoundingBox() ;
             break ;
@@ -3334,11 +3386,11 @@ final class FKissAction extends KissObject
 
          case 108:	// "letkcf(variable,cel/object/celgroup)"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (kiss == null) break ;
             o = kiss.getPaletteID() ;
             n1 = (o instanceof Integer) ? ((Integer) o).intValue() : -1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set the ordinal palette (kcf number) for a cel, group, or cel group.
@@ -3346,9 +3398,9 @@ final class FKissAction extends KissObject
          case 109:	// "setkcf(cel/object/celgroup,palette)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (kiss == null) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             kiss.changePaletteID(Integer.valueOf(n1)) ;
             box = kiss.getBoundingBox() ;
             break ;
@@ -3358,9 +3410,9 @@ final class FKissAction extends KissObject
          case 110:	// "viewer(command,args,...)"
             if (parameters.size() < 1) break ;
             if (panel == null) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
-            o2 = (parameters.size() >= 2) ? variable.getValue((String) parameters.elementAt(1),event) : null ;
-            o3 = (parameters.size() >= 3) ? variable.getValue((String) parameters.elementAt(2),event) : null ;
+            o1 = variable.getValue(getOperand(0),event) ;
+            o2 = (parameters.size() >= 2) ? variable.getValue(getOperand(1),event) : null ;
+            o3 = (parameters.size() >= 3) ? variable.getValue(getOperand(2),event) : null ;
             final String vs1 = (o1 != null) ? o1.toString() : "" ;
             final String vs2 = (o2 != null) ? o2.toString() : "" ;
             final String vs3 = (o3 != null) ? o3.toString() : "" ;
@@ -3387,7 +3439,7 @@ final class FKissAction extends KissObject
                s = OptionsDialog.getOption(vs2) ;
                if ("true".equals(s)) s = "1" ;
                if ("false".equals(s)) s = "0" ;
-               variable.setValue((String) parameters.elementAt(2),s,event) ;
+               variable.setValue(getOperand(2),s,event) ;
                break ;
             }
 
@@ -3508,8 +3560,11 @@ final class FKissAction extends KissObject
                            urlloader.callback.addActionListener(mm) ;
                            urlloader.setAutoLoad(true) ;
                            mm.setUrlLoader(urlloader) ;
-                           Thread loadthread = new Thread(urlloader) ;
-                           loadthread.start() ;                           
+
+                           // The load replaces this configuration so it is 
+                           // not cancelled when this configuration closes.
+
+                           KissExecutor.execute(null,"UrlLoader " + openpath,urlloader) ;
                         }
                         
                         // If it is not a URL, then it is a file.  
@@ -3540,8 +3595,7 @@ final class FKissAction extends KissObject
                      urlloader.callback.addActionListener(mm) ;
                      urlloader.setAutoLoad(true) ;
                      mm.setUrlLoader(urlloader) ;
-                     Thread loadthread = new Thread(urlloader) ;
-                     loadthread.start() ;
+                     KissExecutor.execute(null,"UrlLoader " + vs2,urlloader) ;
                   }
                   else if ("openarchive".equalsIgnoreCase(vs1))
                   {
@@ -3568,8 +3622,7 @@ final class FKissAction extends KissObject
                            urlloader.callback.addActionListener(mm) ;
                            mm.setUrlLoader(urlloader) ;
                            mm.setOpenPath(url) ;
-                           Thread loadthread = new Thread(urlloader) ;
-                           loadthread.start() ;   
+                           KissExecutor.execute(null,"UrlLoader " + url,urlloader) ;
                         }
                         catch (MalformedURLException e)
                         { 
@@ -3689,13 +3742,13 @@ final class FKissAction extends KissObject
                      UserMenu usermenu = new UserMenu(mf) ;
                      for (int i = 1 ; i < parameters.size() ; )
                      {
-                        Object o1 = variable.getValue((String) parameters.elementAt(i),event) ;
+                        Object o1 = variable.getValue(getOperand(i),event) ;
                         if (!(o1 instanceof String)) { i++ ; continue ; }
                         String s = (String) o1 ;
                         i = i + 1 ;
                         if (i < parameters.size())
                         {
-                           Object o2 = findGroupOrCel((String) parameters.elementAt(i),event) ;
+                           Object o2 = findGroupOrCel(getOperand(i),event) ;
                            if (!(o2 instanceof Group)) continue ;
                            usermenu.addMenu(s,(Group) o2) ;
                            i = i + 1 ;
@@ -3714,7 +3767,7 @@ final class FKissAction extends KissObject
                   }
                   else if ("seticon".equalsIgnoreCase(vs1))
                   {
-                     Object o2 = findGroupOrCel((String) parameters.elementAt(1),event) ;
+                     Object o2 = findGroupOrCel(getOperand(1),event) ;
                      if (o2 instanceof Cel)
                      {
                         Cel c = (Cel) o2 ;
@@ -3771,7 +3824,7 @@ final class FKissAction extends KissObject
                               String s = (String) eventparameters.elementAt(j) ;
                               s = Variable.getStringLiteralValue(s) ;
                               if (s.startsWith("@")) break ;
-                              Object o = evaluateParam((String) parameters.elementAt(j+3)) ;
+                              Object o = evaluateParam(getOperand(j+3)) ;
                               if (!(o instanceof String))
                                  { signaturematch = false ; break ; }
                               if (!s.equalsIgnoreCase(o.toString()))
@@ -3812,10 +3865,10 @@ final class FKissAction extends KissObject
 
          case 111:		// "strlen(N,String)"
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 == null) ? "" : o1.toString() ;
             n1 = s1.length() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Get the text value of a component.
@@ -3823,10 +3876,10 @@ final class FKissAction extends KissObject
          case 112:		// "getText(vbl,component)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             s1 = ((JavaCel) kiss).getText() ;
-            variable.setValue((String) parameters.elementAt(0),s1,event) ;
+            variable.setValue(getOperand(0),s1,event) ;
             break;
 
          // Set the text value of a component.
@@ -3834,9 +3887,9 @@ final class FKissAction extends KissObject
          case 113:		// "setText(component,vbl)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             ((JavaCel) kiss).setText(s1) ;
             if (kiss.isVisible()) box = kiss.getBoundingBox() ;
@@ -3847,10 +3900,10 @@ final class FKissAction extends KissObject
          case 114:		// "getSelected(vbl,component)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             n1 = ((JavaCel) kiss).getSelected() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set the page of a text pane.
@@ -3858,9 +3911,9 @@ final class FKissAction extends KissObject
          case 162:		// "setPage(component,vbl)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             ((JavaCel) kiss).setPage(s1) ;
             if (kiss.isVisible()) box = kiss.getBoundingBox() ;
@@ -3871,9 +3924,9 @@ final class FKissAction extends KissObject
          case 115:		// "setSelected(component,vbl)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             ((JavaCel) kiss).setSelected(o1) ;
             break;
 
@@ -3882,11 +3935,11 @@ final class FKissAction extends KissObject
          case 116:		// "getValueAt(vbl,component,index)"
             if (parameters.size() < 3) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+            n1 = variable.getIntValue(getOperand(2),event) ;
             s1 = ((JavaCel) kiss).getValueAt(n1) ;
-            variable.setValue((String) parameters.elementAt(0),s1,event) ;
+            variable.setValue(getOperand(0),s1,event) ;
             break;
 
          // Set the value of a list item.
@@ -3894,10 +3947,10 @@ final class FKissAction extends KissObject
          case 117:		// "setValueAt(component,index,vbl)"
             if (parameters.size() < 3) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(2),event) ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(2),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             ((JavaCel) kiss).setValueAt(s1,n1) ;
             break;
@@ -3907,9 +3960,9 @@ final class FKissAction extends KissObject
          case 118:		// "addItem(component,vbl)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             ((JavaCel) kiss).addItem(s1) ;
             break;
@@ -3919,9 +3972,9 @@ final class FKissAction extends KissObject
          case 119:		// "removeItem(component,vbl)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             ((JavaCel) kiss).removeItem(s1) ;
             break;
@@ -3931,10 +3984,10 @@ final class FKissAction extends KissObject
          case 120:		// "getSelectedIndex(vbl,component)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             n1 = ((JavaCel) kiss).getSelectedIndex() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set the index of a selected list item.
@@ -3942,9 +3995,9 @@ final class FKissAction extends KissObject
          case 121:		// "setSelectedIndex(component,vbl)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             ((JavaCel) kiss).setSelectedIndex(n1) ;
             break;
 
@@ -3953,10 +4006,10 @@ final class FKissAction extends KissObject
          case 122:		// "getSelectedValue(vbl,component)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             s1 = ((JavaCel) kiss).getSelectedValue() ;
-            variable.setValue((String) parameters.elementAt(0),s1,event) ;
+            variable.setValue(getOperand(0),s1,event) ;
             break;
 
          // Set the value of a selected list item.
@@ -3964,9 +4017,9 @@ final class FKissAction extends KissObject
          case 123:		// "setSelectedValue(component,vbl)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             ((JavaCel) kiss).setSelectedValue(s1) ;
             break;
@@ -3976,11 +4029,11 @@ final class FKissAction extends KissObject
          case 126:		// "getIndexOf(vbl,component,value)"
             if (parameters.size() < 3) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(2),event) ;
+            o1 = variable.getValue(getOperand(2),event) ;
             n1 = (o1 != null) ? ((JavaCel) kiss).getIndexOf(o1.toString()) : -1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set a list global adjustment state.
@@ -3988,7 +4041,7 @@ final class FKissAction extends KissObject
          case 127:		// "removeAll(component)"
             if (parameters.size() < 1) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             ((JavaCel) kiss).removeAll() ;
             break;
@@ -3998,10 +4051,10 @@ final class FKissAction extends KissObject
          case 128:		// "getItemCount(vbl,component)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             n1 = ((JavaCel) kiss).getItemCount() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Get the enable state of a component.
@@ -4009,10 +4062,10 @@ final class FKissAction extends KissObject
          case 129:		// "getEnabled(integer,component)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             n1 = ((JavaCel) kiss).getEnabled() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set the enable state of a component.
@@ -4020,9 +4073,9 @@ final class FKissAction extends KissObject
          case 130:		// "setEnabled(component,integer)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel)) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getIntValue(getOperand(1),event) ;
             ((JavaCel) kiss).setEnabled(n1 != 0) ;
             if (kiss.isVisible()) box = kiss.getBoundingBox() ;
             break;
@@ -4032,10 +4085,10 @@ final class FKissAction extends KissObject
          case 131:		// "getNextSelectedIndex(vbl,component)"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel)) break ;
             n1 = ((JavaCel) kiss).getNextSelectedIndex() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Set the attributes of a component. The string parameter must
@@ -4045,14 +4098,14 @@ final class FKissAction extends KissObject
          case 132:		// "setAttributes(component,string[,temporary])"
             if (parameters.size() < 2) break ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             if (!(kiss instanceof JavaCel || kiss instanceof Video)) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             if (!(o1 instanceof String)) break ;
             
             boolean temp = true ;
             if (parameters.size() > 2) 
-               temp = (variable.getIntValue((String) parameters.elementAt(2),event) == 0) ;
+               temp = (variable.getIntValue(getOperand(2),event) == 0) ;
             if (kiss instanceof JavaCel)
                ((JavaCel) kiss).setAttributes(o1.toString(),temp) ;
             if (kiss instanceof Video)
@@ -4068,7 +4121,7 @@ final class FKissAction extends KissObject
             if (parameters.size() < 2) break ;
             s1 = "" ;
             if (kiss == null)
-               kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+               kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof JavaCel || kiss instanceof Video)) break ;
             
             if (parameters.size() < 3) 
@@ -4077,7 +4130,7 @@ final class FKissAction extends KissObject
                   s1 = ((JavaCel) kiss).getAttributes() ;
                if (kiss instanceof Video)
                   s1 = ((Video) kiss).getAttributes() ;
-               variable.setValue((String) parameters.elementAt(0),s1,event) ;
+               variable.setValue(getOperand(0),s1,event) ;
             }
             else
             {
@@ -4085,7 +4138,7 @@ final class FKissAction extends KissObject
                   s1 = ((JavaCel) kiss).getAttribute((String) parameters.elementAt(2)) ;
                if (kiss instanceof Video)
                   s1 = ((Video) kiss).getAttribute((String) parameters.elementAt(2)) ;
-               variable.setValue((String) parameters.elementAt(0),s1,event) ;
+               variable.setValue(getOperand(0),s1,event) ;
             }
             break;
 
@@ -4105,9 +4158,9 @@ final class FKissAction extends KissObject
             try
             {
                if (parameters.size() < 3) break ;
-               o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+               o1 = variable.getValue(getOperand(1),event) ;
                s1 = (o1 instanceof String) ? (String) o1 : null ;
-               o2 = variable.getValue((String) parameters.elementAt(2),event) ;
+               o2 = variable.getValue(getOperand(2),event) ;
                s2 = (o2 instanceof String) ? (String) o2 : "r" ;
                if (s1 == null) break ;
                String refname = s1 ;
@@ -4212,7 +4265,7 @@ final class FKissAction extends KissObject
 
                if (parameters.size() >= 4)
                {
-                  n3 = variable.getIntValue((String) parameters.elementAt(3),event) ;
+                  n3 = variable.getIntValue(getOperand(3),event) ;
                   if (n3 != 0)
                   {
                      s = text.getText() ;
@@ -4230,14 +4283,14 @@ final class FKissAction extends KissObject
 
             // Return the file size.
 
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // Read from an external file.
 
          case 134:		// "read(status,file,string,line)"
             if (parameters.size() < 4) break ;
-            variable.setIntValue((String) parameters.elementAt(0),-1,event) ;
+            variable.setIntValue(getOperand(0),-1,event) ;
             s3 = (String) parameters.elementAt(1) ;
             TextObject text = TextObject.findTextObject(s3,config,null) ;
             if (text == null) break ;
@@ -4253,7 +4306,7 @@ final class FKissAction extends KissObject
                   ta = (JTextArea) textcomp ;
                if (textcomp instanceof JTextPane)
                   ta = new JTextArea(((JTextPane) textcomp).getText()) ;
-               n2 = variable.getIntValue((String) parameters.elementAt(3),event) ;
+               n2 = variable.getIntValue(getOperand(3),event) ;
                int start = ta.getLineStartOffset(n2) ;
                int end = ta.getLineEndOffset(n2) ;
                n1 = end - start ;
@@ -4261,33 +4314,33 @@ final class FKissAction extends KissObject
                n2 = s2.length() ;
             }
             catch (Exception e) { n1 = -1 ; s2 = "" ; }
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
-            variable.setValue((String) parameters.elementAt(2),s2,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
+            variable.setValue(getOperand(2),s2,event) ;
             break;
 
          // Write to an external file.
 
          case 135:		// "write(status,file,string)"
             if (parameters.size() < 3) break ;
-            variable.setIntValue((String) parameters.elementAt(0),-1,event) ;
+            variable.setIntValue(getOperand(0),-1,event) ;
             s2 = (String) parameters.elementAt(1) ;
             text = TextObject.findTextObject(s2,config,null) ;
             if (text == null) break ;
 
             // Write a line to the text object.
 
-            o1 = variable.getValue((String) parameters.elementAt(2),event) ;
+            o1 = variable.getValue(getOperand(2),event) ;
             if (o1 == null) break ;
             s1 = o1.toString() ;
             text.append(s1) ;
-            variable.setIntValue((String) parameters.elementAt(0),s1.length(),event) ;
+            variable.setIntValue(getOperand(0),s1.length(),event) ;
             break;
 
          // Close an external file.
 
          case 136:		// "close(status,file,[commit,encode])"
             if (parameters.size() < 2) break ;
-            variable.setIntValue((String) parameters.elementAt(0),-1,event) ;
+            variable.setIntValue(getOperand(0),-1,event) ;
             s2 = (String) parameters.elementAt(1) ;
             text = TextObject.findTextObject(s2,config,null) ;
             if (text == null) break ;
@@ -4302,7 +4355,7 @@ final class FKissAction extends KissObject
             {
                if (parameters.size() >= 4)
                {
-                  n = variable.getIntValue((String) parameters.elementAt(3),event) ;
+                  n = variable.getIntValue(getOperand(3),event) ;
                   if (n != 0)
                   {
                      s = text.getText() ;
@@ -4338,7 +4391,7 @@ final class FKissAction extends KissObject
                   PrintLn.println("[" + Thread.currentThread().getName() + "] " + "FKissAction: write " + text.getPath() + " " + e);
                }
             }
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             TextObject.removeKey(TextObject.getKeyTable(),cid,refname.toUpperCase());
             break;
 
@@ -4346,11 +4399,11 @@ final class FKissAction extends KissObject
 
          case 137:		// "edit(status,file,command,arg1,arg2,...)"
             if (parameters.size() < 3) break ;
-            variable.setIntValue((String) parameters.elementAt(0),-1,event) ;
+            variable.setIntValue(getOperand(0),-1,event) ;
             s1 = (String) parameters.elementAt(1) ;
             text = TextObject.findTextObject(s1,config,null) ;
             if (text == null) break ;
-            o2 = variable.getValue((String) parameters.elementAt(2),event) ;
+            o2 = variable.getValue(getOperand(2),event) ;
             s2 = (o2 instanceof String) ? (String) o2 : "" ;
             n1 = -1 ;
 
@@ -4360,7 +4413,7 @@ final class FKissAction extends KissObject
             {
                for (i = 3 ; i < parameters.size() ; i++)
                {
-                  o3 = variable.getValue((String) parameters.elementAt(i),event) ;
+                  o3 = variable.getValue(getOperand(i),event) ;
                   s1 = o3.toString() ;
                   text.append(s1) ;
               }
@@ -4369,34 +4422,34 @@ final class FKissAction extends KissObject
             else if ("replace".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 5) break ;
-               o3 = variable.getValue((String) parameters.elementAt(3),event) ;
-               o4 = variable.getValue((String) parameters.elementAt(4),event) ;
+               o3 = variable.getValue(getOperand(3),event) ;
+               o4 = variable.getValue(getOperand(4),event) ;
                n1 = text.replace(o3,o4) ;
             }
             else if ("replaceall".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 5) break ;
-               o3 = variable.getValue((String) parameters.elementAt(3),event) ;
-               o4 = variable.getValue((String) parameters.elementAt(4),event) ;
+               o3 = variable.getValue(getOperand(3),event) ;
+               o4 = variable.getValue(getOperand(4),event) ;
                n1 = text.replaceall(o3,o4) ;
             }
             else if ("delete".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 4) break ;
-               o3 = variable.getValue((String) parameters.elementAt(3),event) ;
+               o3 = variable.getValue(getOperand(3),event) ;
                n1 = text.delete(o3) ;
             }
             else if ("gettext".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 4) break ;
                s1 = text.getText() ;
-               variable.setValue((String) parameters.elementAt(3),s1,event) ;
+               variable.setValue(getOperand(3),s1,event) ;
                n1 = s1.length() ;
             }
             else if ("settext".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 4) break ;
-               o3 = variable.getValue((String) parameters.elementAt(3),event) ;
+               o3 = variable.getValue(getOperand(3),event) ;
                if (o3 instanceof String) text.setText(o3.toString()) ;
                n1 = text.getBytes() ;
             }
@@ -4404,38 +4457,38 @@ final class FKissAction extends KissObject
             {
                if (parameters.size() < 4) break ;
                s1 = text.getBody() ;
-               variable.setValue((String) parameters.elementAt(3),s1,event) ;
+               variable.setValue(getOperand(3),s1,event) ;
                n1 = s1.length() ;
             }
             else if ("find".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 4) break ;
-               o3 = variable.getValue((String) parameters.elementAt(3),event) ;
+               o3 = variable.getValue(getOperand(3),event) ;
                n1 = text.find(o3) ;
             }
             else if ("findline".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 4) break ;
-               o3 = variable.getValue((String) parameters.elementAt(3),event) ;
+               o3 = variable.getValue(getOperand(3),event) ;
                n1 = text.findLine(o3) ;
             }
             else if ("getline".equalsIgnoreCase(s2))
             {
                if (parameters.size() < 4) break ;
-               o3 = variable.getValue((String) parameters.elementAt(3),event) ;
+               o3 = variable.getValue(getOperand(3),event) ;
                n1 = text.getLine(o3) ;
             }
 
             // Return the document size.
 
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // A generic environment command.
 
          case 138:	// "environment(vbl,command,[v1,v2,...])"
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString() : "" ;
             s = null ;  n = 0 ; o = null ;
 
@@ -4443,20 +4496,20 @@ final class FKissAction extends KissObject
             {
                if ("getdate".equalsIgnoreCase(s1))
                {
-                  Calendar date = Calendar.getInstance() ;
+                  Calendar date = KissClock.getCalendar() ;
                   if (parameters.size() > 2)
                   {
-                     o1 = variable.getValue((String) parameters.elementAt(2),event) ;
+                     o1 = variable.getValue(getOperand(2),event) ;
                      if (o1 instanceof Calendar) date = (Calendar) o1 ;
                   }
                   s = DateFormat.getDateInstance().format(date.getTime()) ;
                }
                if ("gettime".equalsIgnoreCase(s1))
                {
-                  Calendar date = Calendar.getInstance() ;
+                  Calendar date = KissClock.getCalendar() ;
                   if (parameters.size() > 2)
                   {
-                     o1 = variable.getValue((String) parameters.elementAt(2),event) ;
+                     o1 = variable.getValue(getOperand(2),event) ;
                      if (o1 instanceof Calendar) date = (Calendar) o1 ;
                   }
                   s = new SimpleDateFormat("HH:mm:ss").format(date.getTime()) ;
@@ -4491,12 +4544,12 @@ final class FKissAction extends KissObject
 
                else if ("calendar".equalsIgnoreCase(s1) && parameters.size() > 2)
                {
-                  o2 = variable.getValue((String) parameters.elementAt(2),event) ;
+                  o2 = variable.getValue(getOperand(2),event) ;
                   s2 = (o2 != null) ? o2.toString() : "" ;
-                  Calendar date = Calendar.getInstance() ;
+                  Calendar date = KissClock.getCalendar() ;
                   if (parameters.size() > 3)
                   {
-                     o1 = variable.getValue((String) parameters.elementAt(3),event) ;
+                     o1 = variable.getValue(getOperand(3),event) ;
                      if (o1 instanceof Calendar) date = (Calendar) o1 ;
                   }
 
@@ -4507,9 +4560,9 @@ final class FKissAction extends KissObject
                   {
                      if (parameters.size() > 5)
                      {
-                        n1 = variable.getIntValue((String) parameters.elementAt(3),event) ;
-                        n2 = variable.getIntValue((String) parameters.elementAt(4),event) ;
-                        n3 = variable.getIntValue((String) parameters.elementAt(5),event) ;
+                        n1 = variable.getIntValue(getOperand(3),event) ;
+                        n2 = variable.getIntValue(getOperand(4),event) ;
+                        n3 = variable.getIntValue(getOperand(5),event) ;
                         date.set(n1,n2,n3) ;
                      }
                      o = date ;
@@ -4543,19 +4596,19 @@ final class FKissAction extends KissObject
 
                   if ("setyear".equalsIgnoreCase(s2) && parameters.size() > 4)
                   {
-                     n = variable.getIntValue((String) parameters.elementAt(4),event) ;
+                     n = variable.getIntValue(getOperand(4),event) ;
                      date.set(Calendar.YEAR,n) ;
                      o = date ;
                   }
                   if ("setmonth".equalsIgnoreCase(s2) && parameters.size() > 4)
                   {
-                     n = variable.getIntValue((String) parameters.elementAt(4),event) ;
+                     n = variable.getIntValue(getOperand(4),event) ;
                      date.set(Calendar.MONTH,n) ;
                      o = date ;
                   }
                   if ("setdate".equalsIgnoreCase(s2) && parameters.size() > 4)
                   {
-                     n = variable.getIntValue((String) parameters.elementAt(4),event) ;
+                     n = variable.getIntValue(getOperand(4),event) ;
                      date.set(Calendar.DAY_OF_MONTH,n) ;
                      o = date ;
                   }
@@ -4567,11 +4620,11 @@ final class FKissAction extends KissObject
             // an internal object.
 
             if (o != null)
-               variable.setValue((String) parameters.elementAt(0),o,event) ;
+               variable.setValue(getOperand(0),o,event) ;
             else if (s != null)
-               variable.setValue((String) parameters.elementAt(0),s,event) ;
+               variable.setValue(getOperand(0),s,event) ;
             else
-               variable.setIntValue((String) parameters.elementAt(0),n,event) ;
+               variable.setIntValue(getOperand(0),n,event) ;
             break ;
 
          // Show a confirm dialog.  This is similar to a Notify command
@@ -4583,12 +4636,21 @@ final class FKissAction extends KissObject
             if (panel == null) break ;
             if (Kisekae.isBatch()) break ;
 
+            // Without a display the dialog is not shown and the confirmation
+            // state is the state of a dialog closed without an answer.
+
+            if (!isDialogAllowed(panel))
+            {
+               variable.setIntValue(getOperand(0),0,event) ;
+               break ;
+            }
+
             message = "" ;
             if (variable != null)
             {
                for (i = 1 ; i < parameters.size() ; i++)
                {
-                  o = variable.getValue((String) parameters.elementAt(i),event) ;
+                  o = variable.getValue(getOperand(i),event) ;
                   if (o != null) message += o.toString() ;
                }
             }
@@ -4612,7 +4674,7 @@ final class FKissAction extends KissObject
             // Set the return value and continue.
 
             n = confirm.getConfirmValue() ;
-            variable.setIntValue((String) parameters.elementAt(0),n,event);
+            variable.setIntValue(getOperand(0),n,event);
             event.setConfirmWait(false) ;
             break ;
 
@@ -4622,7 +4684,7 @@ final class FKissAction extends KissObject
          case 140:	// "setmodal([vbl])"
             kiss = null ;
             if (parameters.size() > 0)
-               kiss = findGroupOrCel((String) parameters.elementAt(0),event) ;
+               kiss = findGroupOrCel(getOperand(0),event) ;
             EventHandler.setModal(kiss);
             break ;
 
@@ -4651,7 +4713,7 @@ final class FKissAction extends KissObject
             if (parameters.size() == 0) break ;
             EventHandler handler = config.getEventHandler() ;
             if (handler == null) break ;
-            o1 = evaluateParam((String) parameters.elementAt(0)) ;
+            o1 = evaluateParam(getOperand(0)) ;
             Vector events = handler.getEvent(o1) ;
             if (events == null) break ;
 
@@ -4670,7 +4732,7 @@ final class FKissAction extends KissObject
                   s = (String) eventparameters.elementAt(j) ;
                   s = Variable.getStringLiteralValue(s) ;
                   if (s.startsWith("@")) break ;
-                  o = evaluateParam((String) parameters.elementAt(j+1)) ;
+                  o = evaluateParam(getOperand(j+1)) ;
                   if (!(o instanceof String))
                      { signaturematch = false ; break ; }
                   if (!s.equalsIgnoreCase(o.toString()))
@@ -4686,7 +4748,7 @@ final class FKissAction extends KissObject
          case 143:	// "paint([delay])"
             if (panel == null) break ;
             n1 = (parameters.size() == 0) ? 0 :
-               variable.getIntValue((String) parameters.elementAt(0),event) ;
+               variable.getIntValue(getOperand(0),event) ;
             panel.setRedraw(true) ;
             panel.redraw(new Rectangle()) ;
             if (n1 == 0) break ;
@@ -4698,10 +4760,10 @@ final class FKissAction extends KissObject
 
          case 144:	// "wait(variable[,delay])"
             if (parameters.size() < 1) break ;
-            Object lock = variable.getValue((String) parameters.elementAt(0),event) ;
+            Object lock = variable.getValue(getOperand(0),event) ;
             if (lock == null) break ;
             n1 = (parameters.size() < 2) ? 0 :
-               variable.getIntValue((String) parameters.elementAt(1),event) ;
+               variable.getIntValue(getOperand(1),event) ;
             try
             {
                synchronized (lock)
@@ -4719,7 +4781,7 @@ final class FKissAction extends KissObject
 
          case 145:	// "signal(variable)"
             if (parameters.size() < 1) break ;
-            lock = variable.getValue((String) parameters.elementAt(0),event) ;
+            lock = variable.getValue(getOperand(0),event) ;
             if (lock == null) break ;
             synchronized (lock) { lock.notifyAll() ; }
             break ;
@@ -4728,7 +4790,7 @@ final class FKissAction extends KissObject
 
          case 146:	// "sleep(delay)"
             if (parameters.size() < 1) break ;
-            n1 = variable.getIntValue((String) parameters.elementAt(0),event) ;
+            n1 = variable.getIntValue(getOperand(0),event) ;
             try { Thread.currentThread().sleep(n1) ; }
             catch (InterruptedException e) { }
             break ;
@@ -4745,13 +4807,13 @@ final class FKissAction extends KissObject
 
          case 148:	// "sqrt()"
             if (parameters.size() < 2) break ;
-            n1 = variable.getConvertType((String) parameters.elementAt(1),event) ;
-            d1 = variable.getDoubleValue((String) parameters.elementAt(1),event) ;
+            n1 = variable.getConvertType(getOperand(1),event) ;
+            d1 = variable.getDoubleValue(getOperand(1),event) ;
             d2 = Math.sqrt(d1) ;
             if (n1 == 3)
-               variable.setDoubleValue((String) parameters.elementAt(0),d2,event) ;
+               variable.setDoubleValue(getOperand(0),d2,event) ;
             else
-               variable.setIntValue((String) parameters.elementAt(0),(int) d2,event) ;
+               variable.setIntValue(getOperand(0),(int) d2,event) ;
             break ;
             
          // Establish a default property pool.
@@ -4759,7 +4821,7 @@ final class FKissAction extends KissObject
          case 150:	// "valuepool(poolname)"
             if (parameters.size() < 1) break ;
             if (config == null) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             if (o1 == null) break ;
             config.setPool(o1.toString()) ;
             break ;
@@ -4768,19 +4830,19 @@ final class FKissAction extends KissObject
 
          case 151:	// "loadvalue(variable,poolname.property)"
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             if (o1 == null) break ;
             o2 = getPoolValue(o1.toString()) ;
-            variable.setValue((String) parameters.elementAt(0),o2,event) ;
+            variable.setValue(getOperand(0),o2,event) ;
             break ;
             
          // Save a value in a variable pool.
 
          case 152:	// "savevalue(poolname.property,value)"
             if (parameters.size() < 2) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             if (o1 == null) break ;
-            o2 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o2 = variable.getValue(getOperand(1),event) ;
             setPoolValue(o1.toString(),o2) ;
             break ;
             
@@ -4788,7 +4850,7 @@ final class FKissAction extends KissObject
 
          case 153:	// "deletevalue(property)"
             if (parameters.size() < 1) break ;
-            o1 = variable.getValue((String) parameters.elementAt(0),event) ;
+            o1 = variable.getValue(getOperand(0),event) ;
             if (o1 == null) break ;
             setPoolValue(o1.toString(),null) ;
             break ;
@@ -4805,7 +4867,7 @@ final class FKissAction extends KissObject
             if (parameters.size() < 1) break ;
             if (config == null) break ;
             n1 = config.getPageCount() ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break ;
 
          // letmaxcolor command.
@@ -4821,7 +4883,7 @@ final class FKissAction extends KissObject
                int multipalettes = p1.getMultiPaletteCount() ;
                if (multipalettes > n1) n1 = multipalettes ;
             }
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break ;
 
          // Return the math function of a number. A floating point value is set
@@ -4830,13 +4892,13 @@ final class FKissAction extends KissObject
          case 158:	// "math(variable,function,operand1,operand2,...)"
             if (parameters.size() < 2) break ;
             double d0 = 0 ; d1 = 0 ; d2 = 0 ;
-            o1 = variable.getValue((String) parameters.elementAt(1),event) ;
+            o1 = variable.getValue(getOperand(1),event) ;
             s1 = (o1 != null) ? o1.toString().toLowerCase() : "" ;
-            n1 = variable.getType((String) parameters.elementAt(2),event) ;
+            n1 = variable.getType(getOperand(2),event) ;
             if (parameters.size() > 2) 
-               d1 = variable.getDoubleValue((String) parameters.elementAt(2),event) ;
+               d1 = variable.getDoubleValue(getOperand(2),event) ;
             if (parameters.size() > 3) 
-               d2 = variable.getDoubleValue((String) parameters.elementAt(3),event) ;
+               d2 = variable.getDoubleValue(getOperand(3),event) ;
             if ("abs".equals(s1)) d0 = Math.abs(d1) ;
             else if ("acos".equals(s1)) d0 = Math.acos(d1) ;
             else if ("asin".equals(s1)) d0 = Math.asin(d1) ;
@@ -4849,7 +4911,7 @@ final class FKissAction extends KissObject
             else if ("max".equals(s1)) d0 = Math.max(d1,d2) ;
             else if ("min".equals(s1)) d0 = Math.min(d1,d2) ;
             else if ("pow".equals(s1)) d0 = Math.pow(d1,d2) ;
-            else if ("random".equals(s1)) d0 = Math.random() ;
+            else if ("random".equals(s1)) d0 = KissClock.random() ;
             else if ("rint".equals(s1)) d0 = Math.rint(d1) ;
             else if ("round".equals(s1)) d0 = Math.round(d1) ;
             else if ("sin".equals(s1)) d0 = Math.sin(d1) ;
@@ -4860,9 +4922,9 @@ final class FKissAction extends KissObject
             else break ;
             n1 = (int) d0 ;
             if (n1 != d0)
-               variable.setDoubleValue((String) parameters.elementAt(0),d0,event) ;
+               variable.setDoubleValue(getOperand(0),d0,event) ;
             else
-               variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+               variable.setIntValue(getOperand(0),n1,event) ;
             break ;
 
          // Format a decimal number command.
@@ -4871,14 +4933,14 @@ final class FKissAction extends KissObject
             if (parameters.size() < 2) break ;
             n1 = n2 = n3 = n4 = -1 ;
             if (parameters.size() > 2) 
-               n1 = variable.getIntValue((String) parameters.elementAt(2),event) ;
+               n1 = variable.getIntValue(getOperand(2),event) ;
             if (parameters.size() > 3) 
-               n2 = variable.getIntValue((String) parameters.elementAt(3),event) ;
+               n2 = variable.getIntValue(getOperand(3),event) ;
             if (parameters.size() > 4) 
-               n3 = variable.getIntValue((String) parameters.elementAt(4),event) ;
+               n3 = variable.getIntValue(getOperand(4),event) ;
             if (parameters.size() > 5) 
-               n4 = variable.getIntValue((String) parameters.elementAt(5),event) ;
-            d1 = variable.getDoubleValue((String) parameters.elementAt(1),event) ;
+               n4 = variable.getIntValue(getOperand(5),event) ;
+            d1 = variable.getDoubleValue(getOperand(1),event) ;
             NumberFormat nf = NumberFormat.getInstance() ;
             nf.setGroupingUsed(false) ;
             if (n1 >= 0) nf.setMaximumFractionDigits(n1) ;
@@ -4886,7 +4948,7 @@ final class FKissAction extends KissObject
             if (n3 >= 0) nf.setMaximumIntegerDigits(n3) ;
             if (n4 >= 0) nf.setMinimumIntegerDigits(n4) ;
             o = nf.format(d1) ;
-            variable.setValue((String) parameters.elementAt(0),o,event) ;
+            variable.setValue(getOperand(0),o,event) ;
             break ;
             
 
@@ -4894,12 +4956,12 @@ final class FKissAction extends KissObject
 
          case 160:	// "letcloned(variable,object)"
             if (parameters.size() < 2) break ;
-            kiss = findGroupOrCel((String) parameters.elementAt(1),event) ;
+            kiss = findGroupOrCel(getOperand(1),event) ;
             if (!(kiss instanceof Group)) break ;
             o1 = kiss.getClone() ;
             o2 = (o1 instanceof Group) ? ((Group) o1).getIdentifier() : null ;
             n1 = (o2 instanceof Integer) ? ((Integer) o2).intValue() : -1 ;
-            variable.setIntValue((String) parameters.elementAt(0),n1,event) ;
+            variable.setIntValue(getOperand(0),n1,event) ;
             break;
 
          // letaudio command.
@@ -4909,7 +4971,7 @@ final class FKissAction extends KissObject
             if (config == null) break ;
             s = Audio.getLastAudio() ;
             if (s == null) s = "unknown" ;
-            variable.setValue((String) parameters.elementAt(0),s,event) ;
+            variable.setValue(getOperand(0),s,event) ;
             break ;
          }
       }
@@ -4982,18 +5044,69 @@ final class FKissAction extends KissObject
 
 
    // Function to parse an event Group or Cel or Cel Group parameter.
+   // Literal parameters are bound to the object found.  Cels that share
+   // their name with other cels are found by page and are not bound.
 
-   private KissObject findGroupOrCel(String s, FKissEvent event)
+   private KissObject findGroupOrCel(FKissOperand op, FKissEvent event)
    {
-      if (s == null) return null ;
+      if (op == null || op.text == null) return null ;
+      long count = getGroupOrCelCount() ;
+      FKissOperand.Binding b = op.getBinding(GROUPORCEL,count) ;
+      if (b != null) return (KissObject) b.object ;
+      String s = op.text ;
       Object o = Group.findGroup(s,config,event) ;
       if (o == null) o = Cel.findCel(s,config,event) ;
       if (o == null) o = CelGroup.findCelGroup(s,config,event) ;
       if (o == null) o = variable.getValue(s.toUpperCase(),event) ;
-      if (!(o instanceof KissObject)) return null ;
+      if (!(o instanceof KissObject)) o = null ;
+      if (op.isBindable() && !isAmbiguous(o)) op.bind(GROUPORCEL,count,o) ;
       return (KissObject) o ;
    }
 
+   // Return the combined modification count of the group, cel and cel
+   // group tables.  Group or cel bindings are current while this is the
+   // same.
+
+   private static long getGroupOrCelCount()
+   {
+      return (long) Group.getKeyTable().getModCount() +
+         (long) Cel.getKeyTable().getModCount() +
+         (long) CelGroup.getKeyTable().getModCount() ;
+   }
+
+   // Return true if the object is a cel whose name references more than
+   // one cel.
+
+   private boolean isAmbiguous(Object o)
+   {
+      if (!(o instanceof Cel)) return false ;
+      Cel c = (Cel) o ;
+      String path = c.getPath() ;
+      String name = c.getName() ;
+      if (path != null && KissObject.hasDuplicateKey(Cel.getKeyTable(),cid,path.toUpperCase())) return true ;
+      if (name != null && KissObject.hasDuplicateKey(Cel.getKeyTable(),cid,"Import "+name.toUpperCase())) return true ;
+      return false ;
+   }
+
+
+   // Function to find a KiSS object by a key parameter, such as an alarm
+   // or label identifier.  The key is the parameter value if it is a
+   // variable, otherwise it is the parameter.  Literal parameters are bound
+   // to the object found.
+
+   private Object findByKey(FKissOperand op, KeyTable key)
+   {
+      if (op == null || key == null) return null ;
+      long count = key.getModCount() ;
+      FKissOperand.Binding b = op.getBinding(key,count) ;
+      if (b != null) return b.object ;
+      String id = evaluateParam(op) ;
+      if (id != null) id = id.toUpperCase() ;
+      Object o = KissObject.getByKey(key,cid,id) ;
+      if (op.isBindable()) op.bind(key,count,o) ;
+      return o ;
+   }
+
 
    // Function to adjust a cel location offset due to a cel relocation.
    // Cels are relocated if cels are moved to a new location.  The new
@@ -5082,15 +5195,30 @@ final class FKissAction extends KissObject
    // is a variable then this function returns the variable value, otherwise
    // it returns the actual parameter.
 
-   private String evaluateParam(String s)
+   private String evaluateParam(FKissOperand op)
    {
-      if (variable == null) return s ;
-      Object o = variable.getValue(s,event) ;
-      String value = (o != null) ? o.toString() : s ;
+      if (op == null) return null ;
+      if (variable == null) return op.text ;
+      Object o = variable.getValue(op,event) ;
+      String value = (o != null) ? o.toString() : op.text ;
       return value ;
    }
 
 
+   // Return the compiled event parameter.  Alarm event actions reference
+   // the alarm through the event parameter.
+
+   private FKissOperand getEventOperand()
+   {
+      String s = event.getFirstParameter() ;
+      FKissOperand op = eventoperand ;
+      if (op != null && op.text == s) return op ;
+      op = new FKissOperand(s,variable) ;
+      eventoperand = op ;
+      return op ;
+   }
+
+
    // Establish any alarm arguments.  These are provided on
    // the timer statement and referenced as local parameters
    // by the alarm event code. We have to be careful and
@@ -5110,7 +5238,7 @@ final class FKissAction extends KissObject
          Vector arguments = alarmevent.getParameters() ;
          for (int i = n ; i < parameters.size() ; i++)
          {
-            Object o = variable.getValue((String) parameters.elementAt(i),event) ;
+            Object o = variable.getValue(getOperand(i),event) ;
             argvalues.addElement(o) ;
          }
          for (int i = n ; i < parameters.size() ; i++)
@@ -5257,6 +5385,18 @@ final class FKissAction extends KissObject
    }
    
    
+   // Method to determine if a dialog can be shown.  Dialogs need a display
+   // and a main frame.  A headless panel, such as a session replay panel,
+   // has no main frame.
+
+   private boolean isDialogAllowed(PanelFrame panel)
+   {
+      if (panel == null || Kisekae.isBatch()) return false ;
+      if (panel.getMainFrame() == null) return false ;
+      return !GraphicsEnvironment.isHeadless() ;
+   }
+
+
    // Method to translate component literal names for the case when
    // components were renamed.
    
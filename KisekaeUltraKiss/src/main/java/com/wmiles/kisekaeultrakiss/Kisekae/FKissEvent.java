@@ -101,6 +101,10 @@ final class FKissEvent extends KissObject
 	private Vector parameters = null ;	   // Event parameters
 	private Vector visibility = null ;	   // Parameter visibility
 	private Vector actions = null ;		   // Action list for the event
+	private Object [] actionarray = null ;	// Compiled action list array
+	private int [] skipif = null ;			// Next action to end an if skip
+	private int [] skipwhile = null ;		// Next action to end a while skip
+	private int [] skipfor = null ;			// Next action to end a for skip
 	private Vector alarmlist = null ;	   // Alarms keyed during event actions
    private Vector objectfired = null ;    // Object fired during collisions
    private KissObject parent = null ;     // Parent object to this event
@@ -114,8 +118,6 @@ final class FKissEvent extends KissObject
    private Thread currentthread = null ;  // Current execution thread
    private Object returnvalue = null ;    // Event return value
    private Object [] collide = null ;     // Actual collision objects
-   private Object [] collision1 = null ;  // Collision cel packet 1
-   private Object [] collision2 = null ;  // Collision cel packet 2
    private Thread firethread = null ;     // Thread from fireEvent call
    private Object firesource = null ;     // Source from fireEvent call
 	private boolean state = false ;		   // Action state for the event
@@ -189,7 +191,22 @@ final class FKissEvent extends KissObject
 
 	// The action vector holds all the action objects for this event.
 
-	void addActions(Vector v) { actions = v ; }
+	void addActions(Vector v)
+   {
+      actions = v ;
+      clearActionArray() ;
+   }
+
+	// Discard the compiled action array.  The array is rebuilt on the next
+	// event firing.
+
+	synchronized void clearActionArray()
+	{
+		actionarray = null ;
+		skipif = null ;
+		skipwhile = null ;
+		skipfor = null ;
+	}
 
 	// Events can be enabled or disabled.  This is a global variable for the
 	// FKiSS event class so if any event is disabled no event will fire.
@@ -336,10 +353,10 @@ final class FKissEvent extends KissObject
       temporary = b ;
       if (temporary)
       {
-         Hashtable variable = (Hashtable) variabledepth.get(Long.valueOf(depth)) ;
+         VariableTable variable = (VariableTable) variabledepth.get(Long.valueOf(depth)) ;
          if (variable == null)
          {
-            variable = new Hashtable(220,0.8f) ;
+            variable = new VariableTable((this.variable != null) ? this.variable.getLocalSymbols() : null) ;
             variabledepth.put(Long.valueOf(depth),variable) ;
          }
       }
@@ -436,11 +453,6 @@ final class FKissEvent extends KissObject
 
    void setCollide(Object [] o) { collide = o ; }
 
-   // Set the collision cel list for checkTouch processing.
-
-   void setCollision1(Object [] o) { collision1 = o ; }
-   void setCollision2(Object [] o) { collision2 = o ; }
-
    // Set the parameter visibility for checkTouch processing.
 
    void setVisible(boolean b, String s) 
@@ -516,9 +528,20 @@ final class FKissEvent extends KissObject
 
 	// Return the local event variable table.
 
-	Hashtable getVariableTable()
+	VariableTable getVariableTable()
+   {
+      return (VariableTable) variabledepth.get(Long.valueOf(depth)) ;
+   }
+
+	// Return the local event variable table for a variable reference.  The
+	// event is marked as having temporary variables.
+
+	VariableTable getLocalTable()
    {
-      return (Hashtable) variabledepth.get(Long.valueOf(depth)) ;
+      VariableTable table = getVariableTable() ;
+      if (table != null) { temporary = true ; return table ; }
+      setTemporary(true) ;
+      return getVariableTable() ;
    }
 
 	// Return the event action state.  The event state is used for
@@ -736,9 +759,75 @@ final class FKissEvent extends KissObject
 
    Vector getActionList() { return actions ; }
 
-   // Return an array of the event actions.
+   // Return an array of the event actions.  The array is compiled once and
+   // shared by all firings of the event, so it must not be modified.  With
+   // the array we find, for every action, the next action that can end a
+   // skip in each skip context.  Skipped if blocks resume at the next if,
+   // elseif, else or endif statement so that nesting is tracked, skipped
+   // while loops resume at the next endwhile, and skipped for loops at the
+   // next next statement.  These are the only actions that doAction()
+   // will process while skipping.
+
+   synchronized Object [] getActionArray()
+   {
+      if (actions == null) return null ;
+      if (actionarray != null && actionarray.length == actions.size())
+         return actionarray ;
+      Object [] a = actions.toArray() ;
+      int n = a.length ;
+      int [] ifs = new int[n] ;
+      int [] whiles = new int[n] ;
+      int [] fors = new int[n] ;
+      int nextif = n ;
+      int nextwhile = n ;
+      int nextfor = n ;
+      for (int i = n-1 ; i >= 0 ; i--)
+      {
+         FKissAction action = (a[i] instanceof FKissAction) ? (FKissAction) a[i] : null ;
+         if (EventHandler.isIfAction(action) || EventHandler.isElseEndAction(action))
+            nextif = i ;
+         int code = (action != null) ? action.getCode() : -1 ;
+         if (code == 65) nextwhile = i ;
+         if (code == 73) nextfor = i ;
+         ifs[i] = nextif ;
+         whiles[i] = nextwhile ;
+         fors[i] = nextfor ;
+      }
+      actionarray = a ;
+      skipif = ifs ;
+      skipwhile = whiles ;
+      skipfor = fors ;
+      return actionarray ;
+   }
 
-   Object [] getActionArray() { return (actions == null) ? null : actions.toArray() ; }
+   // Compile the event.  The action array and skip targets are computed
+   // and each action is compiled.  This is invoked by the configuration
+   // once all objects have been created.
+
+   void compile()
+   {
+      getActionArray() ;
+      Enumeration e = getActions() ;
+      while (e != null && e.hasMoreElements())
+      {
+         Object o = e.nextElement() ;
+         if (o instanceof FKissAction) ((FKissAction) o).compile() ;
+      }
+   }
+
+   // Return the sequence number of the next action to process when skipping
+   // actions in the specified context.  Actions before this are ignored by
+   // doAction().  The action array must be the current compiled array.
+
+   synchronized int getSkipTarget(Object [] a, int sequence, String context)
+   {
+      if (a == null || a != actionarray || context == null) return sequence ;
+      if (sequence < 0 || sequence >= a.length) return sequence ;
+      if (context.startsWith("if")) return skipif[sequence] ;
+      if (context.startsWith("while")) return skipwhile[sequence] ;
+      if (context.startsWith("for")) return skipfor[sequence] ;
+      return sequence ;
+   }
 
 	// Return the current action being processed.
 
@@ -748,11 +837,6 @@ final class FKissEvent extends KissObject
 
    Object [] getCollide() { return collide ; }
 
-   // Return the collision cel list for checkTouch processing.
-
-   Object [] getCollision1() { return collision1 ; }
-   Object [] getCollision2() { return collision2 ; }
-
    // Required KissObject method to write a representation of this object.
 
 	int write(FileWriter fw, OutputStream out, String type) throws IOException
@@ -773,9 +857,19 @@ final class FKissEvent extends KissObject
 	// The thread argument is used to associate this event to a specific
 	// event thread.  The event thread is used to distinguish between user
 	// initiated events and animation Timer events during Alarm processing.
+	// When the FKiSS profiler is active the event is timed as a profiler
+	// frame.
 
 	synchronized Rectangle fireEvent(final PanelFrame panel, final Thread thread, final Object source)
 	{
+      if (!FKissProfiler.isActive()) return fire(panel,thread,source) ;
+      FKissProfiler.enterEvent(this) ;
+      try { return fire(panel,thread,source) ; }
+      finally { FKissProfiler.exitEvent(this) ; }
+   }
+
+	private Rectangle fire(final PanelFrame panel, final Thread thread, final Object source)
+	{
       // If we are modal, only process events from the modal source.  Events
       // without a source such as keyboard events or set initialization events
       // or label events are processed.  Alarm events are also processed.
@@ -831,7 +925,8 @@ final class FKissEvent extends KissObject
 
 		FKissEvent event = this ;
 		createtime = Configuration.getTimestamp() ;
-		starttime = System.currentTimeMillis() ;
+		starttime = KissClock.currentTimeMillis() ;
+      long realstart = System.currentTimeMillis() ;
 //		starttime = System.nanoTime() ;  // Java 1.5
       currentthread = Thread.currentThread() ;
       actionsprocessed = 0 ;
@@ -885,6 +980,15 @@ final class FKissEvent extends KissObject
     			while (a != null && sequence < a.length)
    			{
                if (EventHandler.getStop()) terminate = true ;
+
+               // If we are skipping code move directly to the next action
+               // that can end the skip.  Intervening actions are ignored.
+
+               if (event.getSkip(currentthread))
+               {
+                  sequence = event.getSkipTarget(a,sequence,event.getSkipContext(currentthread)) ;
+                  if (sequence >= a.length) break ;
+               }
     				action = (FKissAction) a[sequence++] ;
                if (terminate) break ;
 
@@ -920,7 +1024,15 @@ final class FKissEvent extends KissObject
                // consisting of the action bounding box, exception name,
                // exception return object, and count of statements processed.
 
-   				Object [] result = action.doAction(panel,thread,currentthread,eventstate) ;
+               Object [] result = null ;
+               if (!FKissProfiler.isActive())
+      				result = action.doAction(panel,thread,currentthread,eventstate) ;
+               else
+               {
+                  FKissProfiler.enterAction(action) ;
+                  try { result = action.doAction(panel,thread,currentthread,eventstate) ; }
+                  finally { FKissProfiler.exitAction(action) ; }
+               }
                actionbox = (result == null) ? null : (Rectangle) result[0] ;
                exception = (result == null) ? null : (String) result[1] ;
                actionsprocessed += (result == null) ? 0 : ((Long) result[3]).intValue() ;
@@ -989,7 +1101,7 @@ final class FKissEvent extends KissObject
   						event = (FKissEvent) result[2] ;
                   if (event != null)
                   {
-   						event.setStartTime(System.currentTimeMillis()) ;
+   						event.setStartTime(KissClock.currentTimeMillis()) ;
 //   						event.setStartTime(System.nanoTime()) ;  // Java 1.5
      						event.setIfLevel(0) ;
                      event.setElseIfLevel(0) ;
@@ -1114,7 +1226,7 @@ final class FKissEvent extends KissObject
          if ("alarm".equals(getIdentifier()))
          {
             depth++ ;
-            Hashtable locals = getVariableTable() ;
+            VariableTable locals = getVariableTable() ;
             depth-- ;
             if (locals != null) variabledepth.put(Long.valueOf(depth),locals) ;
          }
@@ -1242,7 +1354,7 @@ final class FKissEvent extends KissObject
 
       // Accumulate the event performance statistics.
 
-      runtime += (System.currentTimeMillis() - starttime) ;
+      runtime += (System.currentTimeMillis() - realstart) ;
 //    runtime = (System.nanoTime() - starttime) ;  // Java 1.5
       totalactions += actionsprocessed ;
       invocations++ ;
@@ -1284,9 +1396,9 @@ final class FKissEvent extends KissObject
       
 		if (SwingUtilities.isEventDispatchThread())
       {
-         Thread t = new Thread()
+         Runnable runner = new Runnable()
          { public void run() { fireEvent(panel,firethread,firesource) ; } } ;
-         t.start() ;
+         KissExecutor.execute(cid,"FKissEvent breakpoint " + getName(),runner) ;
          terminate = true ;
          return ;
 		}
@@ -1297,7 +1409,7 @@ final class FKissEvent extends KissObject
          {
             AlarmTimer.suspendTimer(true) ;
             EventHandler.suspendEventHandler(true) ;
-        		if (panel != null) panel.redraw(box) ;
+        		if (panel != null) panel.redrawNow(box) ;
             boolean initialbreak = breakenabled ;
 
             // Capture the breakpoint event.
@@ -2635,6 +2635,7 @@ final class FKissFrame extends KissFrame
 
          handler.addEvent(e) ;
          config.attachEvent(e) ;
+         e.compile() ;
       }
 
       // Recreate the event tree.
@@ -3150,7 +3151,7 @@ final class FKissFrame extends KissFrame
 
          // Add local variables.
 
-         Hashtable local = (event != null) ? event.getVariableTable() : null ;
+         VariableTable local = (event != null) ? event.getVariableTable() : null ;
          if (local != null)
          {
             enum1 = local.keys() ;
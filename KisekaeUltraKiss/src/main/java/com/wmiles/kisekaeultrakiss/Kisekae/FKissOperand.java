@@ -0,0 +1,263 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* FKissOperand class
+*
+* Purpose:
+*
+* This class is a parsed FKiSS action parameter.  Action parameters are
+* compiled when the action is parsed so that variable references resolve
+* to a variable table slot and numeric literals are converted once.
+* During event processing the Variable class reads and writes the slot
+* directly without a variable name lookup.
+*
+* A parameter has two interpretations.  As a variable name it is the
+* target of a set operation or the source of a numeric value.  As a value
+* it may also be a string or character literal, or a group specifier that
+* is prefixed with '#' or '!'.  Both interpretations are resolved.
+*
+* Indirect references prefixed with '$' depend on the value of another
+* variable and are not resolved.  These, and any parameter that cannot be
+* resolved, are processed by the Variable class from the parameter text.
+* The resolution assumes the variable case sensitivity option that was in
+* effect when the parameter was compiled.  If the option changes the
+* parameter text is used.
+*
+* A literal parameter that references an object such as a group, cel,
+* alarm or label is bound to the object when the configuration compiles
+* its events, or when the parameter is first evaluated.  The binding
+* records the modification count of the object tables that were searched
+* and is discarded if objects are since added or removed.
+*
+*/
+
+
+final class FKissOperand
+{
+   // Reference kinds.
+
+   static final int DYNAMIC = 0 ;    // Resolve from the parameter text
+   static final int GLOBAL = 1 ;     // Global variable slot
+   static final int LOCAL = 2 ;      // Local event variable slot
+   static final int LITERAL = 3 ;    // Literal value
+
+   String text = null ;              // The parameter text
+   boolean variablecase = false ;    // Case sensitivity when compiled
+
+   // The parameter as a variable name.
+
+   int kind = DYNAMIC ;              // Name reference kind
+   int slot = -1 ;                   // Name variable slot
+   String name = null ;              // Name as stored in the table
+
+   // The parameter as a numeric literal for numeric access.
+
+   int numtype = 0 ;                 // 0 = none, 1 = int, 2 = long, 3 = double
+   int ivalue = 0 ;                  // Integer literal value
+   long lvalue = 0 ;                 // Long literal value
+   double dvalue = 0 ;               // Double literal value
+
+   // The parameter as a value.
+
+   int vkind = DYNAMIC ;             // Value reference kind
+   int vslot = -1 ;                  // Value variable slot
+   int vtype = -1 ;                  // Literal type, or -1 if not known
+   Object value = null ;             // Literal value
+
+   // The parameter as an object reference.
+
+   private volatile Binding binding = null ; // Bound object
+
+
+   // Constructor.  The parameter text is compiled against the global and
+   // local symbol tables of the configuration variables.
+
+   FKissOperand(String s, Variable variable)
+   {
+      text = s ;
+      variablecase = OptionsDialog.getVariableCase() ;
+      if (s == null || variable == null) return ;
+      VariableTable.Symbols global = variable.getGlobalSymbols() ;
+      VariableTable.Symbols local = variable.getLocalSymbols() ;
+
+      // Resolve the variable name.
+
+      String v = (variablecase) ? s : s.toUpperCase() ;
+      if (v.length() > 0 && v.charAt(0) != '$')
+      {
+         name = v ;
+         kind = (v.charAt(0) == '@') ? LOCAL : GLOBAL ;
+         slot = (kind == LOCAL) ? local.getSlot(v) : global.getSlot(v) ;
+         Object o = parseNumber(v) ;
+         numtype = getNumberType(o) ;
+         if (o instanceof Integer) ivalue = ((Integer) o).intValue() ;
+         if (o instanceof Long) lvalue = ((Long) o).longValue() ;
+         if (o instanceof Double) dvalue = ((Double) o).doubleValue() ;
+      }
+
+      // Resolve the value.  Quoted text is a string literal.
+
+      if (s.length() == 0) { vkind = LITERAL ; vtype = 0 ; value = s ; return ; }
+      char c = s.charAt(0) ;
+      if (c == '\"' || c == '\'')
+      {
+         vtype = 4 ;
+         int i = s.lastIndexOf(c) ;
+         if (i <= 0) return ;
+         vkind = LITERAL ;
+         value = s.substring(1,i) ;
+         if (c == '\'')
+         {
+            String t = ((String) value).toLowerCase() ;
+            if ("\\n".equals(t)) value = "" + '\n' ;
+            if ("\\r".equals(t)) value = "" + '\r' ;
+         }
+         return ;
+      }
+
+      // Group specifiers reference the group name or number.
+
+      if (v.charAt(0) == '#' || v.charAt(0) == '!')
+      	v = v.substring(1) ;
+      if (v.length() == 0 || v.charAt(0) == '$') return ;
+      Object o = parseNumber(v) ;
+      if (o != null)
+      {
+         vkind = LITERAL ;
+         vtype = getNumberType(o) ;
+         value = o ;
+         return ;
+      }
+      vkind = (v.charAt(0) == '@') ? LOCAL : GLOBAL ;
+      vslot = (vkind == LOCAL) ? local.getSlot(v) : global.getSlot(v) ;
+   }
+
+
+   // Return true if the compiled resolution is current for the variable
+   // case sensitivity option.
+
+   boolean isCurrent() { return variablecase == OptionsDialog.getVariableCase() ; }
+
+
+   // Return true if the operand is a literal value that can be bound to an
+   // object.
+
+   boolean isBindable() { return vkind == LITERAL && isCurrent() ; }
+
+   // Bind the operand to an object.  The table identifies the object search
+   // and the count is the search table modification count.
+
+   void bind(Object table, long count, Object o)
+   {
+      binding = new Binding(table,count,o) ;
+   }
+
+   // Return the bound object binding if it is current for the object search
+   // and table modification count, otherwise null.  The binding object may
+   // be null if the search found no object.
+
+   Binding getBinding(Object table, long count)
+   {
+      Binding b = binding ;
+      if (b == null || b.table != table || b.count != count) return null ;
+      if (!isCurrent()) return null ;
+      return b ;
+   }
+
+
+   // Return the numeric value of a literal.  The value is an Integer, Long,
+   // or Double object of the narrowest type that parses the text.  Null is
+   // returned if the text is not a numeric literal.
+
+   static Object parseNumber(String v)
+   {
+      if (v == null || v.length() == 0) return null ;
+      char c = v.charAt(0) ;
+      if (!(c == '-' || Character.isDigit(c))) return null ;
+      try {	return Integer.valueOf(Integer.parseInt(v)) ; }
+      catch (NumberFormatException e) { }
+      try {	return Long.valueOf(Long.parseLong(v)) ; }
+      catch (NumberFormatException e) { }
+      try {	return Double.valueOf(Double.parseDouble(v)) ; }
+      catch (NumberFormatException e) { }
+      return null ;
+   }
+
+   // Return the variable type code for a numeric object.
+
+   private static int getNumberType(Object o)
+   {
+      if (o instanceof Integer) return 1 ;
+      if (o instanceof Long) return 2 ;
+      if (o instanceof Double) return 3 ;
+      return 0 ;
+   }
+
+
+   // The toString method returns the parameter text.
+
+   public String toString() { return text ; }
+
+
+   // Inner class to describe an object binding.  Bindings are replaced,
+   // never modified, so they can be read without locking.
+
+   static final class Binding
+   {
+      final Object table ;             // Object search identifier
+      final long count ;               // Table modification count
+      final Object object ;            // Bound object
+
+      Binding(Object table, long count, Object o)
+      {
+         this.table = table ;
+         this.count = count ;
+         this.object = o ;
+      }
+   }
+}
@@ -0,0 +1,497 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* FKissProfiler class
+*
+* Purpose:
+*
+* This class is a set-wide FKiSS profiler.  When profiling is active every
+* event firing and every action statement is timed on its own thread.  The
+* elapsed time of a frame less the time of the frames nested within it is
+* its self time.  Statistics are accumulated for each event, each action,
+* each action code and each CNF source line, and the nested frame paths are
+* accumulated as collapsed stacks suitable for flame graph tools.
+*
+* The profiler also records how long events waited on the EventHandler
+* queue and how late alarm events were dequeued relative to their trigger
+* time.  These are kept as histograms with power of two millisecond buckets.
+*
+* Profiling is controlled through sampling windows.  Start and stop may be
+* repeated to accumulate several windows.  Reset discards all statistics.
+* When profiling is stopped the FKiSS event and action paths pay only the
+* cost of testing the active flag.
+*
+*/
+
+import java.io.* ;
+import java.util.* ;
+
+final class FKissProfiler
+{
+   static final int BUCKETS = 16 ;              // Histogram bucket count
+
+   private static volatile boolean active = false ; // True if sampling
+   private static long windowstart = 0 ;        // Open window start time
+   private static long windowtime = 0 ;         // Closed window total time
+   private static Hashtable events = new Hashtable() ;  // Stats by event
+   private static Hashtable actions = new Hashtable() ; // Stats by action
+   private static Hashtable stacks = new Hashtable() ;  // Self time by path
+   private static long [] queuewait = new long[BUCKETS] ; // Queue wait times
+   private static long [] lateness = new long[BUCKETS] ;  // Alarm lateness
+   private static Object lock = new Object() ;  // Statistics lock
+
+   // The active frame stack for each thread.
+
+   private static ThreadLocal frames = new ThreadLocal()
+   {
+      protected Object initialValue() { return new Vector() ; }
+   } ;
+
+
+   // The accumulated statistics for one event or action.  Total time is
+   // only accumulated on the outermost frame of a recursive call so that
+   // the time is not counted twice.
+
+   static final class Stat
+   {
+      Object key ;                     // The event or action
+      String name ;                    // The frame name
+      String code ;                    // The action code or event name
+      int line ;                       // The CNF source line
+      long count ;                     // Invocation count
+      long total ;                     // Total time in nanoseconds
+      long self ;                      // Self time in nanoseconds
+      int depth ;                      // Active recursion depth
+   }
+
+   // An active frame on a thread stack.
+
+   private static final class Frame
+   {
+      Stat stat ;                      // The frame statistics
+      String path ;                    // The collapsed stack path
+      long start ;                     // Frame start time
+      long child ;                     // Nested frame time
+   }
+
+
+   // Profiling control.  Starting opens a new sampling window, stopping
+   // closes the window.
+
+   static boolean isActive() { return active ; }
+
+   static void start()
+   {
+      synchronized (lock)
+      {
+         if (active) return ;
+         windowstart = System.nanoTime() ;
+         active = true ;
+      }
+      PrintLn.println("FKissProfiler: profiling started.") ;
+   }
+
+   static void stop()
+   {
+      synchronized (lock)
+      {
+         if (!active) return ;
+         active = false ;
+         windowtime += System.nanoTime() - windowstart ;
+      }
+      PrintLn.println("FKissProfiler: profiling stopped.") ;
+   }
+
+   static void reset()
+   {
+      synchronized (lock)
+      {
+         events = new Hashtable() ;
+         actions = new Hashtable() ;
+         stacks = new Hashtable() ;
+         queuewait = new long[BUCKETS] ;
+         lateness = new long[BUCKETS] ;
+         windowtime = 0 ;
+         windowstart = System.nanoTime() ;
+      }
+   }
+
+   // Return the sampled time in milliseconds over all windows.
+
+   static long getWindowTime()
+   {
+      synchronized (lock)
+      {
+         long t = windowtime ;
+         if (active) t += System.nanoTime() - windowstart ;
+         return t / 1000000 ;
+      }
+   }
+
+
+   // Frame entry and exit.  Every enter must be paired with an exit on the
+   // same thread.  Callers test isActive() before entry and always exit a
+   // frame they entered, even if profiling has since stopped.
+
+   static void enterEvent(FKissEvent event)
+   {
+      Stat stat = null ;
+      synchronized (lock)
+      {
+         stat = (Stat) events.get(event) ;
+         if (stat == null)
+         {
+            stat = new Stat() ;
+            stat.key = event ;
+            stat.name = frameName(event.getName()) ;
+            stat.code = stat.name ;
+            stat.line = event.getLine() ;
+            events.put(event,stat) ;
+         }
+      }
+      enter(stat) ;
+   }
+
+   static void enterAction(FKissAction action)
+   {
+      Stat stat = null ;
+      synchronized (lock)
+      {
+         stat = (Stat) actions.get(action) ;
+         if (stat == null)
+         {
+            stat = new Stat() ;
+            stat.key = action ;
+            Object o = action.getIdentifier() ;
+            stat.code = (o != null) ? o.toString() : "?" ;
+            stat.line = action.getLine() ;
+            stat.name = stat.code + ":" + stat.line ;
+            actions.put(action,stat) ;
+         }
+      }
+      enter(stat) ;
+   }
+
+   static void exitEvent(FKissEvent event) { exit() ; }
+   static void exitAction(FKissAction action) { exit() ; }
+
+   private static void enter(Stat stat)
+   {
+      Vector v = (Vector) frames.get() ;
+      Frame parent = (v.size() > 0) ? (Frame) v.lastElement() : null ;
+      Frame frame = new Frame() ;
+      frame.stat = stat ;
+      frame.path = (parent != null) ? parent.path + ";" + stat.name : stat.name ;
+      synchronized (lock) { stat.depth++ ; }
+      frame.start = System.nanoTime() ;
+      v.addElement(frame) ;
+   }
+
+   private static void exit()
+   {
+      long now = System.nanoTime() ;
+      Vector v = (Vector) frames.get() ;
+      if (v.size() == 0) return ;
+      Frame frame = (Frame) v.remove(v.size()-1) ;
+      Frame parent = (v.size() > 0) ? (Frame) v.lastElement() : null ;
+      long elapsed = now - frame.start ;
+      long self = elapsed - frame.child ;
+      if (self < 0) self = 0 ;
+      if (parent != null) parent.child += elapsed ;
+
+      synchronized (lock)
+      {
+         Stat stat = frame.stat ;
+         stat.depth-- ;
+         if (!active) return ;
+         stat.count++ ;
+         stat.self += self ;
+         if (stat.depth == 0) stat.total += elapsed ;
+         long [] n = (long []) stacks.get(frame.path) ;
+         if (n == null) stacks.put(frame.path,(n = new long[1])) ;
+         n[0] += self ;
+      }
+   }
+
+
+   // Record an EventHandler queue entry as it is dequeued.  The queue wait
+   // is the time since the entry was queued.  For alarm events the lateness
+   // is the time since the alarm was triggered.
+
+   static void dequeued(EventHandlerOrder.Entry entry)
+   {
+      if (!active || entry == null) return ;
+      long wait = (System.nanoTime() - entry.queued) / 1000000 ;
+      long late = -1 ;
+      Object o = (entry.qentry[0] instanceof FKissEvent)
+         ? ((FKissEvent) entry.qentry[0]).getParentObject() : null ;
+      if (o instanceof Alarm)
+         late = Math.max(0,KissClock.currentTimeMillis() - entry.time) ;
+      synchronized (lock)
+      {
+         queuewait[bucket(wait)]++ ;
+         if (late >= 0) lateness[bucket(late)]++ ;
+      }
+   }
+
+   // Histogram bucket 0 holds times under 1 ms.  Bucket n holds times from
+   // 2^(n-1) ms to less than 2^n ms.  The last bucket holds everything else.
+
+   static int bucket(long ms)
+   {
+      int n = 0 ;
+      while (ms > 0 && n < BUCKETS-1) { ms >>= 1 ; n++ ; }
+      return n ;
+   }
+
+   static String bucketLabel(int n)
+   {
+      if (n == 0) return "<1" ;
+      if (n == 1) return "1" ;
+      if (n == BUCKETS-1) return ">=" + (1L << (n-1)) ;
+      return (1L << (n-1)) + "-" + ((1L << n) - 1) ;
+   }
+
+
+   // Statistics snapshots.  Events and actions are returned as copies
+   // sorted on descending self time.  Action codes and CNF lines are
+   // aggregated from the action statistics.
+
+   static Vector getEventStats() { return snapshot(events,false,false) ; }
+   static Vector getActionStats() { return snapshot(actions,false,false) ; }
+   static Vector getCodeStats() { return snapshot(actions,true,false) ; }
+   static Vector getLineStats() { return snapshot(actions,false,true) ; }
+
+   private static Vector snapshot(Hashtable table, boolean bycode, boolean byline)
+   {
+      Hashtable merged = new Hashtable() ;
+      Vector v = new Vector() ;
+      synchronized (lock)
+      {
+         Enumeration e = table.elements() ;
+         while (e.hasMoreElements())
+         {
+            Stat s = (Stat) e.nextElement() ;
+            if (s.count == 0) continue ;
+            Object key = s.key ;
+            if (bycode) key = s.code ;
+            if (byline) key = Integer.valueOf(s.line) ;
+            Stat m = (Stat) merged.get(key) ;
+            if (m == null)
+            {
+               m = new Stat() ;
+               m.key = key ;
+               m.name = (bycode) ? s.code : (byline) ? ("line " + s.line) : s.name ;
+               m.code = s.code ;
+               m.line = (bycode) ? -1 : s.line ;
+               merged.put(key,m) ;
+               v.addElement(m) ;
+            }
+            m.count += s.count ;
+            m.total += s.total ;
+            m.self += s.self ;
+         }
+      }
+      Collections.sort(v,new Comparator()
+      {
+         public int compare(Object o1, Object o2)
+         {
+            long n1 = ((Stat) o1).self ;
+            long n2 = ((Stat) o2).self ;
+            return (n1 > n2) ? -1 : (n1 < n2) ? 1 : 0 ;
+         }
+      }) ;
+      return v ;
+   }
+
+   static long [] getQueueWait()
+   { synchronized (lock) { return queuewait.clone() ; } }
+
+   static long [] getLateness()
+   { synchronized (lock) { return lateness.clone() ; } }
+
+
+   // Return a text report of the top entries in each ranking.
+
+   static String getReport(int top)
+   {
+      StringBuffer sb = new StringBuffer() ;
+      sb.append("FKiSS profile, " + getWindowTime() + " ms sampled") ;
+      sb.append((active) ? " (active)\n" : "\n") ;
+      appendRanking(sb,"Events",getEventStats(),top) ;
+      appendRanking(sb,"Action codes",getCodeStats(),top) ;
+      appendRanking(sb,"CNF lines",getLineStats(),top) ;
+      appendHistogram(sb,"EventHandler queue wait (ms)",getQueueWait()) ;
+      appendHistogram(sb,"Alarm lateness (ms)",getLateness()) ;
+      return sb.toString() ;
+   }
+
+   private static void appendRanking(StringBuffer sb, String title, Vector v, int top)
+   {
+      sb.append("\n" + title + " by self time\n") ;
+      sb.append(pad("self ms",10) + pad("total ms",10) + pad("count",10) + "  name\n") ;
+      for (int i = 0 ; i < v.size() && i < top ; i++)
+      {
+         Stat s = (Stat) v.elementAt(i) ;
+         sb.append(pad(ms(s.self),10)) ;
+         sb.append(pad(ms(s.total),10)) ;
+         sb.append(pad(Long.toString(s.count),10)) ;
+         sb.append("  " + s.name + "\n") ;
+      }
+      if (v.size() > top) sb.append("  ... " + (v.size() - top) + " more\n") ;
+   }
+
+   private static void appendHistogram(StringBuffer sb, String title, long [] h)
+   {
+      sb.append("\n" + title + "\n") ;
+      for (int i = 0 ; i < h.length ; i++)
+      {
+         if (h[i] == 0) continue ;
+         sb.append(pad(bucketLabel(i),10) + pad(Long.toString(h[i]),10) + "\n") ;
+      }
+   }
+
+   private static String pad(String s, int n)
+   {
+      StringBuffer sb = new StringBuffer() ;
+      for (int i = s.length() ; i < n ; i++) sb.append(' ') ;
+      sb.append(s) ;
+      return sb.toString() ;
+   }
+
+   private static String ms(long ns)
+   {
+      long n = ns / 1000 ;
+      String s = Long.toString(n / 1000) + "." ;
+      n = n % 1000 ;
+      if (n < 100) s += "0" ;
+      if (n < 10) s += "0" ;
+      return s + n ;
+   }
+
+
+   // Write the statistics as CSV.  Each row is a kind, name, code, line,
+   // count, total and self time.  Histogram rows hold the bucket label and
+   // the bucket count.
+
+   static void writeCSV(Writer w) throws IOException
+   {
+      PrintWriter pw = new PrintWriter(w) ;
+      pw.println("kind,name,code,line,count,total_ms,self_ms") ;
+      writeRows(pw,"event",getEventStats()) ;
+      writeRows(pw,"action",getActionStats()) ;
+      writeRows(pw,"code",getCodeStats()) ;
+      writeRows(pw,"line",getLineStats()) ;
+      long [] h = getQueueWait() ;
+      for (int i = 0 ; i < h.length ; i++)
+         pw.println("queuewait," + quote(bucketLabel(i)) + ",,,"  + h[i] + ",,") ;
+      h = getLateness() ;
+      for (int i = 0 ; i < h.length ; i++)
+         pw.println("lateness," + quote(bucketLabel(i)) + ",,," + h[i] + ",,") ;
+      pw.flush() ;
+      if (pw.checkError()) throw new IOException("CSV write failed") ;
+   }
+
+   private static void writeRows(PrintWriter pw, String kind, Vector v)
+   {
+      for (int i = 0 ; i < v.size() ; i++)
+      {
+         Stat s = (Stat) v.elementAt(i) ;
+         String line = (s.line >= 0) ? Integer.toString(s.line) : "" ;
+         pw.println(kind + "," + quote(s.name) + "," + quote(s.code) + "," +
+            line + "," + s.count + "," + ms(s.total) + "," + ms(s.self)) ;
+      }
+   }
+
+   private static String quote(String s)
+   {
+      if (s == null) return "" ;
+      if (s.indexOf(',') < 0 && s.indexOf('"') < 0) return s ;
+      StringBuffer sb = new StringBuffer("\"") ;
+      for (int i = 0 ; i < s.length() ; i++)
+      {
+         char c = s.charAt(i) ;
+         if (c == '"') sb.append('"') ;
+         sb.append(c) ;
+      }
+      sb.append('"') ;
+      return sb.toString() ;
+   }
+
+
+   // Write the collapsed stacks.  Each line is a semicolon separated frame
+   // path followed by the self time in microseconds.
+
+   static void writeCollapsed(Writer w) throws IOException
+   {
+      Vector v = new Vector() ;
+      synchronized (lock)
+      {
+         Enumeration e = stacks.keys() ;
+         while (e.hasMoreElements())
+         {
+            String path = (String) e.nextElement() ;
+            long [] n = (long []) stacks.get(path) ;
+            if (n[0] >= 1000) v.addElement(path + " " + (n[0] / 1000)) ;
+         }
+      }
+      Collections.sort(v) ;
+      PrintWriter pw = new PrintWriter(w) ;
+      for (int i = 0 ; i < v.size() ; i++) pw.println((String) v.elementAt(i)) ;
+      pw.flush() ;
+      if (pw.checkError()) throw new IOException("Stack write failed") ;
+   }
+
+   // Frame names cannot contain the path separator or line breaks.
+
+   private static String frameName(String s)
+   {
+      if (s == null) return "?" ;
+      return s.replace(';',',').replace('\n',' ').replace('\r',' ') ;
+   }
+}
@@ -64,8 +64,6 @@ import javax.swing.border.*;
 import javax.swing.SwingUtilities ;
 import javax.swing.text.* ;
 import java.util.Vector ;
-import java.util.Collections ;
-import java.util.Comparator ;
 import java.net.* ;
 import java.io.* ;
 
@@ -622,55 +620,19 @@ final class FileLoader extends KissFrame
       PrintLn.println("Download INCLUDE file " + url.toExternalForm()) ;
 
       // Determine if the file exists in our download cache directory.
-      // Check based on filename and last date modified.  Natural sort
-      // is ascending so search backwards to get latest date if duplicate
-      // cached files exist.
+      // The download cache index locates the file by its URL.
 
       boolean incache = false ;
       String cachepath = Kisekae.getCachePath() ;
       File directory = (cachepath != null) ? new File(cachepath) : null ;
       if (!OptionsDialog.getCacheInclude()) directory = null ;
-      if (directory != null)
+      File cached = (directory != null) ? DownloadCache.lookup(url) : null ;
+      if (cached != null)
       {
-         Vector v = new Vector() ;
-         File [] files = directory.listFiles() ;
-         if (files == null) 
-         {
-            files = new File [0] ;
-            directory = null ;
-         }
-         
-         for (int i = 0 ; i < files.length ; i++)
-         {
-            long date = files[i].lastModified() ;
-            String name = files[i].getName() ;
-            v.add(name+"\t"+date) ;
-         }
-         
-         Collections.sort(v, new Comparator(){
-            public int compare(Object a, Object b)
-            {
-               String [] parts1 = ((String) a).split("\t") ;
-               String [] parts2 = ((String) b).split("\t") ;
-               if (parts1.length > 1 && parts2.length > 1)
-                  return (parts1[1].compareTo(parts2[1])) ;
-               return 0 ;              
-            }
-         }) ;
-          
-         for (int i = v.size()-1 ; i >= 0 ; i--)
-         {
-            if (((String) v.elementAt(i)).startsWith("UltraKiss-"+file))
-            {
-               String key = (String) v.elementAt(i) ;
-               String [] parts = key.split("\t") ;
-               f = new File(cachepath+parts[0]) ;
-               pathname = f.getPath() ;
-               incache = true ;
-               PrintLn.println("URL File " + pathname + " located in cache.") ;
-               break ;
-            }
-         }
+         f = cached ;
+         pathname = f.getPath() ;
+         incache = true ;
+         PrintLn.println("URL File " + pathname + " located in cache.") ;
       }
 
    	// Setup the result object.  If we are running in the sandbox we
@@ -718,13 +680,15 @@ final class FileLoader extends KissFrame
          String connid = Kisekae.getConnectionID() ;
          if (connid != null)
             c.setRequestProperty("Authorization", "Basic " + connid);
+         if (incache) DownloadCache.prepare(url,c) ;
          int size = c.getContentLength() ;
          initProgress(size) ;
       
          // Open the stream and read the data.  Read the stream if not cached  
-         // or the content size differs from cached file size.
+         // or the cached file is not current.
       
-         if (!incache || (size > 0 && size != f.length()))
+         if (incache && !DownloadCache.isCurrent(url,c)) incache = false ;
+         if (!incache)
          {
             String s = (size / 1024) + "K" ;
             String s1 = Kisekae.getCaptions().getString("TransferText") ;
@@ -762,6 +726,15 @@ final class FileLoader extends KissFrame
                   updateProgress(2048) ;
                }
             }
+
+            // Index a complete download in the download cache.
+
+            if (os instanceof FileOutputStream && !stop)
+            {
+               os.close() ;
+               os = null ;
+               if (size < 0 || f.length() == size) DownloadCache.record(url,f,c) ;
+            }
          }
       }
       catch (FileNotFoundException e)
@@ -770,7 +743,10 @@ final class FileLoader extends KissFrame
          if (f != null)
          {
             if (f.delete()) 
+            {
                PrintLn.println("Cache file deleted: " + f.getPath()) ;   
+               DownloadCache.remove(f) ;
+            }
             else
                PrintLn.println("Cache file not deleted: " + f.getPath()) ;   
          }
@@ -1074,14 +1050,14 @@ final class FileLoader extends KissFrame
 		if (OptionsDialog.getDebugLoad()) PrintLn.println("Load: " + s) ;
  	}
 
-	void showText(String s)
+	synchronized void showText(String s)
 	{
       appendText(s + "\n") ;
 		if (OptionsDialog.getDebugLoad()) PrintLn.println("Load: " + s) ;
 	}
 
 	void showError(String s) { showError(s,null) ; }
-	void showError(String s, String highlite)
+	synchronized void showError(String s, String highlite)
 	{
 		errors = errors + 1 ;
       if (errors == 101) showText("More than 100 errors, errors are suppressed.") ;
@@ -1119,7 +1095,7 @@ final class FileLoader extends KissFrame
 	}
 
 	void showWarning(String s) { showWarning(s,null) ; }
-	void showWarning(String s, String highlite)
+	synchronized void showWarning(String s, String highlite)
 	{
       warnings = warnings + 1 ;
       if (warnings == 51) showText("More than 50 warnings, warnings are suppressed.") ;
@@ -785,6 +785,7 @@ final class GifCel extends Cel
 
          animate = (frames.size() > 1) ;
 			loaded = true ;
+			moved() ;
 		}
 
 		// Watch for I/O errors.
@@ -895,6 +896,7 @@ final class GifCel extends Cel
       baseoffset = c.getBaseOffset() ;
       offset.x = baseoffset.x + initialoffset.x ;
       offset.y = baseoffset.y + initialoffset.y ;
+      moved() ;
 		truecolor = c.isTruecolor() ;
       encoding = c.getEncoding() ;
       animate = c.getAnimate() ;
@@ -1164,6 +1166,13 @@ final class GifCel extends Cel
 	}
 
 
+	// Return the cel image in the colors of a multipalette.  Palette
+	// changes are made to the animation frames, so a GIF cel is always
+	// drawn in its current colors.
+
+	Image getPaletteImage(int mp) { return getImage() ; }
+
+
 	// Method to change the cel transparency.  The change is relative
 	// to the current transparency.
 
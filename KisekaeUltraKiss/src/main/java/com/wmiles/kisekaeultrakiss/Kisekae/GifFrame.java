@@ -794,12 +794,7 @@ final class GifFrame
          if (transparency != 255)
          {
             PaletteFilter pf = new PaletteFilter(cm,basecm,transparency,transparentcolor);
-        		ImageProducer ip = new FilteredImageSource(image.getSource(),pf) ;
-        		filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-            MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-            tracker.addImage(filteredimage,0) ;
-            try { tracker.waitForAll(500) ; }
-            catch (InterruptedException e) { }
+        		filteredimage = Cel.createFilteredImage(image,pf) ;
          }
 		}
 
@@ -900,18 +895,8 @@ final class GifFrame
 
 		// Construct an image filter.
 
-		ImageProducer base = img.getSource() ;
       PaletteFilter pf = new PaletteFilter(cm,basecm,transparency,transparentcolor);
-		ImageProducer ip = new FilteredImageSource(base,pf) ;
-		filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-
-      // Not sure why we require the media tracker, but cases exist where
-      // the image does not display.
-
-		MediaTracker mt = new MediaTracker(Kisekae.getKisekae()) ;
-		mt.addImage(filteredimage,frame) ;
-		try { mt.waitForAll(500) ; }
-		catch (InterruptedException e) { }
+		filteredimage = Cel.createFilteredImage(img,pf) ;
    }
 
 
@@ -973,18 +958,8 @@ final class GifFrame
 
 		// Construct an image filter.
 
-		ImageProducer base = img.getSource() ;
       PaletteFilter pf = new PaletteFilter(cm,basecm,transparency,transparentcolor);
-      ImageProducer ip = new FilteredImageSource(base,pf) ;
-      filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-
-      // Not sure why the mediatracker is required, but without this the
-      // image does not always display.
-
-		MediaTracker mt = new MediaTracker(Kisekae.getKisekae()) ;
-		mt.addImage(filteredimage,0) ;
-		try { mt.waitForAll(500) ; }
-		catch (InterruptedException e) { }
+      filteredimage = Cel.createFilteredImage(img,pf) ;
 	}
 
 
@@ -333,6 +333,61 @@ final class GifTimer extends Thread
 
    long getCount() { return count ; }
 
+   // Method to animate one object.  We animate only visible cels on the
+   // current page.  The animation bounding box is accumulated in box.
+
+   private void animate(Object o, int period)
+   {
+      if (!(o instanceof KissObject)) return ;
+      KissObject c = (KissObject) o ;
+      if (!c.getAnimate()) return ;
+      if (c.getFrameCount() <= 1) return ;
+      if (!c.isVisible()) return ;
+      PageSet p = (panel == null) ? null : panel.getPage() ;
+      Integer page = (p == null) ? null : (Integer) p.getIdentifier() ;
+      if (!c.isOnPage(page)) return ;
+      int maxloop = c.getLoopLimit() ;
+      int loop = c.getLoopCount() ;
+      if (maxloop < 0 && loop > 0) return ;
+      if (maxloop > 0 && loop >= maxloop) return ;
+      int delay = c.getInterval() ;
+      long time = c.getTime() ;
+      time = time + period ;
+      c.setTime(time) ;
+
+      // If the time exceeds the delay, perform the animation.
+      // The cel will switch to the next frame and set a new
+      // animation delay value for this frame.  We construct
+      // a combined bounding box for all actions.
+
+      if (time >= delay)
+      {
+         c.setTime(0) ;
+         try { c.setNextFrame() ; }
+         catch (Exception e) { PrintLn.println(e.getMessage()) ; }
+         Rectangle r = c.getBoundingBox() ;
+         if (box == null) box = r ;
+         if (r != null) box = box.union(r) ;
+      }
+   }
+
+
+   // Session replay method.  A replay suspends the timer thread and steps
+   // the animations through one time cycle in virtual time.
+
+   void step(int period)
+   {
+      if (!enabled || gifs == null) return ;
+      for (int i = 0 ; i < gifs.size() ; i++)
+         animate(gifs.elementAt(i),period) ;
+      if (panel != null && box != null)
+      {
+         panel.redraw(box) ;
+         count++ ;
+      }
+      box = null ;
+   }
+
 
 
 	// The timer thread code.  This code runs until the activity
@@ -374,43 +429,11 @@ final class GifTimer extends Thread
                   if (restart) break ;
    				}
 
-   				// Access the object to determine the animation period.
-               // We animate only visible cels on the current page.
+   				// Animate the object.
 
                active = true ;
                if (!enabled) continue ;
-               Object o = gifs.elementAt(i) ;
-               if (!(o instanceof KissObject)) continue ;
-					KissObject c = (KissObject) o ;
-               if (!c.getAnimate()) continue ;
-					if (c.getFrameCount() <= 1) continue ;
-		         if (!c.isVisible()) continue ;
-					PageSet p = (panel == null) ? null : panel.getPage() ;
-			      Integer page = (p == null) ? null : (Integer) p.getIdentifier() ;
-					if (!c.isOnPage(page)) continue ;
-               int maxloop = c.getLoopLimit() ;
-               int loop = c.getLoopCount() ;
-               if (maxloop < 0 && loop > 0) continue ;
-               if (maxloop > 0 && loop >= maxloop) continue ;
-  					int delay = c.getInterval() ;
-  					long time = c.getTime() ;
-  					time = time + period ;
-  					c.setTime(time) ;
-
-  					// If the time exceeds the delay, perform the animation.
-  					// The cel will switch to the next frame and set a new
-               // animation delay value for this frame.  We construct
-               // a combined bounding box for all actions.
-
-  					if (time >= delay)
-  					{
-               	c.setTime(0) ;
-               	try { c.setNextFrame() ; }
-                  catch (Exception e) { PrintLn.println(e.getMessage()) ; }
-						Rectangle r = c.getBoundingBox() ;
-						if (box == null) box = r ;
-						if (r != null) box = box.union(r) ;
-   				}
+               animate(gifs.elementAt(i),period) ;
             }
 
      			// Sleep a bit now that we have initiated all animations in this
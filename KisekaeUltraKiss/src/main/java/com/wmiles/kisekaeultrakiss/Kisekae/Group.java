@@ -67,7 +67,7 @@ final class Group extends KissObject
 {
 	// Class attributes.  Sized for 512 group objects.
 
-	static private Hashtable key = new Hashtable(600,0.855f) ;
+	static private KeyTable key = new KeyTable(600) ;
 
 	// Group attributes
 
@@ -138,22 +138,16 @@ final class Group extends KissObject
 	// Class methods
 	// -------------
 
-	static Hashtable getKeyTable() { return key ; }
+	static KeyTable getKeyTable() { return key ; }
 
-	// Hashtable keys are compound entities that contain a reference
-	// to a configuration.  Thus, multiple configurations can coexist
-	// in the static hash table.  When we clear a table we must remove
-	// only those entities that are associated with the specified
-	// file.
+	// Key table entries are grouped by configuration.  Thus, multiple
+	// configurations can coexist in the static key table.  When we clear
+	// a table we must remove only those entities that are associated with
+	// the specified file.
 
 	static void clearTable(Object cid)
 	{
-		Enumeration e = key.keys() ;
-		while (e.hasMoreElements())
-		{
-			String hashkey = (String) e.nextElement() ;
-			if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-		}
+		key.clear(cid) ;
 	}
 
 	// Function to find a Group object by parameter name.   We accept
@@ -526,6 +520,11 @@ final class Group extends KissObject
          else if (y1 > restricty.y) placement.y = restricty.y - r.y ;
       }
 
+      // Cels that share our placement have moved.
+
+      for (int i = 0 ; cels != null && i < cels.size() ; i++)
+         ((Cel) cels.elementAt(i)).moved() ;
+
       // Set the placement value for all contained groups.
 
       for (int i = 0 ; i < groups.size() ; i++)
@@ -957,7 +956,7 @@ final class Group extends KissObject
       for (int i = 0 ; i < cels.size() ; i++)
       {
          Cel c = (Cel) cels.elementAt(i) ;
-         if (!c.isLoaded()) continue ;
+         if (!c.isLoaded() && !c.isHeaderLoaded()) continue ;
          if (c.isInternal()) continue ;
          c.setLocation(new Point(0,0)) ;
 
@@ -2639,6 +2639,12 @@ final class JavaCel extends Cel
    }
 
 
+	// Function to determine if the specified point selects the component.
+   // Input components are selectable throughout so the pixel is probed.
+
+	boolean isHit(int x, int y, boolean keyed) { return isPixelHit(x,y,keyed) ; }
+
+
 	// Function to return the current pixel at the specified point.  This
    // function returns -1 if the point is outside the cel. This returns
    // only the RGB value.
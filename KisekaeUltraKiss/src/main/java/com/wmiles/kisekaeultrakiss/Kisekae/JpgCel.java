@@ -319,6 +319,7 @@ final class JpgCel extends Cel
          }
 
          loaded = true ;
+         moved() ;
          imagewidth = w ;
          imageheight = h ;
 		}
@@ -394,6 +395,7 @@ final class JpgCel extends Cel
       baseoffset = c.getBaseOffset() ;
       offset.x = baseoffset.x + initialoffset.x ;
       offset.y = baseoffset.y + initialoffset.y ;
+      moved() ;
 		cm = basecm = c.getBaseColorModel() ;
       transparentcolor = c.getTransparentColor() ;
       setLastModified(c.lastModified()) ;
@@ -531,14 +533,7 @@ final class JpgCel extends Cel
 			// Construct an image filter.
 
          transparentcolor = p.getTransparentColor(multipalette) ;
-			ImageProducer base = img.getSource() ;
-			ImageProducer ip = new FilteredImageSource(base,
-         	new PaletteFilter(cm,basecm,transparency,transparentcolor));
-			filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-         MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-         tracker.addImage(filteredimage,0) ;
-         try { tracker.waitForAll(500) ; }
-         catch (InterruptedException e) { }
+			filteredimage = createPaletteImage(img) ;
 		}
 	}
 
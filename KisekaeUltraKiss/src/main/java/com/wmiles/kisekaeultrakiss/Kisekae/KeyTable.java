@@ -0,0 +1,268 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* KeyTable class
+*
+* Purpose:
+*
+* This class is the object registry for a KiSS object type.  Objects are
+* registered by configuration identifier and object identifier.  The
+* table keeps a separate map of objects for each configuration, so that
+* multiple configurations can coexist in the registry and a configuration
+* can be cleared without touching the others.
+*
+* Lookups do not lock the table and do not construct key strings.  Object
+* identifiers that are whole numbers or the text of an integer number are
+* stored under the Integer value, so an object registered by number is
+* found by its number text and the reverse.  Other identifiers are
+* compared by their string value.
+*
+* An identifier can reference more than one object.  Duplicates are held
+* in a Vector attached to the identifier.  Duplicate lists are replaced,
+* never modified, so that a list obtained from the table can be read
+* without locking.
+*
+* The table counts its modifications.  Callers that retain the result of
+* a lookup can compare the count to determine if the result is current.
+*
+*/
+
+import java.util.Enumeration ;
+import java.util.Iterator ;
+import java.util.Vector ;
+import java.util.concurrent.ConcurrentHashMap ;
+
+
+final class KeyTable
+{
+   private static final String UNKNOWN = "Unknown" ;
+
+   private ConcurrentHashMap tables = null ;   // Object maps by configuration
+   private int capacity = 0 ;                  // Initial object map size
+   private volatile int modcount = 0 ;         // Modification count
+
+
+   // Constructor.  The capacity is the expected number of objects for a
+   // configuration.
+
+   KeyTable(int n)
+   {
+      capacity = (n > 0) ? n : 16 ;
+      tables = new ConcurrentHashMap(4) ;
+   }
+
+
+   // Return the object map for a configuration.
+
+   private ConcurrentHashMap getTable(Object cid, boolean create)
+   {
+      if (cid == null) cid = UNKNOWN ;
+      cid = getKey(cid) ;
+      ConcurrentHashMap t = (ConcurrentHashMap) tables.get(cid) ;
+      if (t != null || !create) return t ;
+      t = new ConcurrentHashMap(capacity) ;
+      tables.put(cid,t) ;
+      return t ;
+   }
+
+
+   // Return the map key for an identifier.  Whole numbers and integer
+   // number text are keyed by their Integer value, whatever their boxed
+   // type.  Other identifiers are keyed by their string value, with the
+   // same rule for number text.
+
+   static Object getKey(Object id)
+   {
+      if (id instanceof Integer) return id ;
+      if (id instanceof Long || id instanceof Short || id instanceof Byte)
+      {
+         long value = ((Number) id).longValue() ;
+         if (value == (int) value) return Integer.valueOf((int) value) ;
+      }
+      String s = id.toString() ;
+      int n = s.length() ;
+      if (n == 0 || n > 11) return s ;
+      int i = (s.charAt(0) == '-') ? 1 : 0 ;
+      if (i == n) return s ;
+      if (s.charAt(i) == '0' && n > i+1) return s ;
+      if (i == 1 && s.charAt(1) == '0') return s ;
+      long value = 0 ;
+      for ( ; i < n ; i++)
+      {
+         char c = s.charAt(i) ;
+         if (c < '0' || c > '9') return s ;
+         value = value * 10 + (c - '0') ;
+      }
+      if (s.charAt(0) == '-') value = -value ;
+      if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) return s ;
+      return Integer.valueOf((int) value) ;
+   }
+
+
+   // Return the object or duplicate list for an identifier.
+
+   Object get(Object cid, Object id)
+   {
+      if (id == null) return null ;
+      ConcurrentHashMap t = getTable(cid,false) ;
+      return (t == null) ? null : t.get(getKey(id)) ;
+   }
+
+
+   // Register an object.  If the identifier already references other
+   // objects a duplicate list is created or extended.  An object is not
+   // added twice for the same identifier.
+
+   synchronized void add(Object cid, Object id, Object o)
+   {
+      if (id == null || o == null) return ;
+      ConcurrentHashMap t = getTable(cid,true) ;
+      Object k = getKey(id) ;
+      Object entry = t.get(k) ;
+      if (entry == o) return ;
+      modcount++ ;
+      if (entry == null)
+      {
+         t.put(k,o) ;
+         return ;
+      }
+      Vector v = null ;
+      if (entry instanceof Vector)
+      {
+         if (((Vector) entry).contains(o)) return ;
+         v = new Vector((Vector) entry) ;
+      }
+      else
+      {
+         v = new Vector() ;
+         v.addElement(entry) ;
+      }
+      v.addElement(o) ;
+      t.put(k,v) ;
+   }
+
+
+   // Remove all objects registered for an identifier.
+
+   synchronized Object remove(Object cid, Object id)
+   {
+      if (id == null) return null ;
+      ConcurrentHashMap t = getTable(cid,false) ;
+      if (t == null) return null ;
+      modcount++ ;
+      return t.remove(getKey(id)) ;
+   }
+
+
+   // Remove one object registered for an identifier.  Other duplicates
+   // remain registered.
+
+   synchronized void remove(Object cid, Object id, Object o)
+   {
+      if (id == null || o == null) return ;
+      ConcurrentHashMap t = getTable(cid,false) ;
+      if (t == null) return ;
+      Object k = getKey(id) ;
+      Object entry = t.get(k) ;
+      modcount++ ;
+      if (entry == o)
+         t.remove(k) ;
+      else if (entry instanceof Vector)
+      {
+         Vector v = new Vector((Vector) entry) ;
+         if (!v.removeElement(o)) return ;
+         if (v.size() == 0) t.remove(k) ;
+         else if (v.size() == 1) t.put(k,v.elementAt(0)) ;
+         else t.put(k,v) ;
+      }
+   }
+
+
+   // Remove all objects registered for a configuration.
+
+   synchronized void clear(Object cid)
+   {
+      if (cid == null) cid = UNKNOWN ;
+      modcount++ ;
+      tables.remove(getKey(cid)) ;
+   }
+
+
+   // Remove all objects.
+
+   synchronized void clear() { modcount++ ; tables.clear() ; }
+
+
+   // Return the modification count.  The count changes whenever an object
+   // is registered or removed.
+
+   int getModCount() { return modcount ; }
+
+
+   // Return the number of identifiers registered.
+
+   int size()
+   {
+      int n = 0 ;
+      Iterator i = tables.values().iterator() ;
+      while (i.hasNext()) n += ((ConcurrentHashMap) i.next()).size() ;
+      return n ;
+   }
+
+
+   // Return an enumeration of all registered entries for all
+   // configurations.  An entry is an object or a duplicate list.
+
+   Enumeration elements()
+   {
+      Vector v = new Vector() ;
+      Iterator i = tables.values().iterator() ;
+      while (i.hasNext()) v.addAll(((ConcurrentHashMap) i.next()).values()) ;
+      return v.elements() ;
+   }
+}
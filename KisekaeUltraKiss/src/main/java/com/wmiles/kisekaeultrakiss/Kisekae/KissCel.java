@@ -57,10 +57,13 @@ package com.wmiles.kisekaeultrakiss.Kisekae ;
 
 
 import java.io.* ;
+import java.nio.ByteBuffer ;
 import java.awt.* ;
 import java.awt.image.* ;
 import java.awt.Graphics2D ;
 import java.util.Vector ;
+import java.util.Map ;
+import java.util.LinkedHashMap ;
 import javax.swing.* ;
 
 final class KissCel extends Cel
@@ -73,6 +76,13 @@ final class KissCel extends Cel
 	private int bytes = 0 ;						// The file size in bytes
 	private String encoding = null ;			// The Kiss encoding type
 
+   // Palette cel pixel data.  The raster holds the palette index of each
+   // pixel and is shared by all images of the cel, whatever the palette.
+
+   private static final int PALETTEIMAGES = 8 ;	// Images retained per cel
+   private WritableRaster raster = null ;   	// Indexed pixel data
+   private Map paletteimages = null ;       	// Images by palette
+
    // Internal flag to capture missing palette faults
 
    private boolean nopalette = false ;		// True if no palette specified
@@ -102,6 +112,10 @@ final class KissCel extends Cel
 
 	String getEncoding() { return (encoding == null) ? "unknown" : encoding ; }
 
+	// Return the indexed pixel data for a palette cel.
+
+	WritableRaster getRaster() { return raster ; }
+
 	// Return the associated palette.  This is referenced from the cel palette
    // integer identifier if the palette was defined when the configuration was
    // read. Otherwise we access the palette object that was defined for an
@@ -167,11 +181,12 @@ final class KissCel extends Cel
 	void load(Vector includefiles)
 	{
 		InputStream is = null ;				// The data I/O stream
-		MemoryImageSource m = null ;		// The cel memory source
       String name = getRelativeName() ;
       if (name != null) name = name.toUpperCase() ;
       scaledimage = null ;
       filteredimage = null ;
+      raster = null ;
+      paletteimages = null ;
       
 		// Load the file if another copy of the cel has not already been
 		// loaded.  If we have previously read the file use the prior
@@ -282,6 +297,11 @@ final class KissCel extends Cel
                ((includename != null) ? (" (" + includename + ")") : "")) ;
          }
 
+			// Use the decoded cel from the asset cache if it exists.
+
+         ByteBuffer cached = AssetCache.read(ze,AssetCache.CEL) ;
+         if (cached != null && loadCached(cached)) return ;
+
 			// Create the file input stream.
 
 			is = (zip == null) ? null : zip.getInputStream(ze) ;
@@ -375,102 +395,27 @@ final class KissCel extends Cel
 				}
 			}
 
-			// Create a base color model and an image for this cel.  If the
-         // palette does not exist then a direct color model is created.
+			// Save the decoded cel in the asset cache.
 
-			if (truecolor)
-			{
-				cm = basecm = Palette.getDirectColorModel() ;
-				m = new MemoryImageSource(w,h,cm,tcel,0,w) ;
-				image = Toolkit.getDefaultToolkit().createImage(m) ;
-         
-           // Kludge for Apple systems.
-           // Convert the image to an ARGB buffered image.
-/*         
-           if (OptionsDialog.getAppleMac()) 
-           {
-               BufferedImage bi = new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB_PRE) ;
-               bi.setRGB(0,0,w,h,tcel,0,w) ;
-               image = bi ;
-            }
-*/            
-            if (transparency != 255) changeTransparency(0) ;
-            pid = null ;
-			}
-
-         // Palette type cels use an index color model.  If no palette was
-         // specified and this is a palette cel then we would default to
-         // Palette file 0, which must be our initial palette.
-
-			if (!truecolor)
-			{
-				Palette p = getPalette() ;
-				if (p != null)
-				{
-			      Object mpid = getPaletteGroupID() ;
-			      if (mpid instanceof Integer) multipalette = ((Integer) mpid).intValue() ;
-					cm = basecm = p.createColorModel(transparency,multipalette) ;
-					m = new MemoryImageSource(w,h,cm,cel,0,w) ;
-	 				image = Toolkit.getDefaultToolkit().createImage(m) ;
-               transparentcolor = p.getTransparentColor(multipalette) ;
-   				backgroundcolor = p.getBackgroundColor(multipalette) ;
-               setColorsUsed(p.getColorCount()) ;
-               setPaletteID(p.getIdentifier()) ;
-               if (getInitPaletteID() == null) setInitPaletteID(p.getIdentifier()) ;
-               transparentindex = 0 ;
-               background = 0 ;
-         
-              // Kludge for Apple systems.
-              // Convert the image to an ARGB buffered image.
-/*         
-              if (OptionsDialog.getAppleMac()) 
-              {
-                  int [] rgbarray = new int[w*h] ;
-                  BufferedImage bi = new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB_PRE) ;
-                  for (int i = 0 ; i < w*h ; i++) 
-                  {
-                     int j = ((int) cel[i]) & 0xff ;
-                     rgbarray[i] = cm.getRGB(j) ; 
-                  }
-                  bi.setRGB(0,0,w,h,rgbarray,0,w) ;
-                  image = bi ;
-               }
-*/
-            }
-			   else
-            {
-            	nopalette = true ;
-   				throw new KissException("invalid palette") ;
-            }
-			}
-         
-         // If we are a 4 bit 16 color cel with an odd width then we need to
-         // crop our image as it was constructed 1 pixel too wide.
-         
-         if (bits == 4 && size.width == w-1)
+         if (AssetCache.isEnabled())
          {
-            size.width = w = w-1 ;
-            if (image instanceof BufferedImage)
-               image = ((BufferedImage) image).getSubimage(0,0,w,h) ;
-            else
-            {
-               ImageProducer ip = image.getSource() ;
-               ip = new FilteredImageSource(ip, new CropImageFilter(0,0,w,h)) ;
-               image = Toolkit.getDefaultToolkit().createImage(ip) ;
-               MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-               tracker.addImage(image,0) ;
-               try { tracker.waitForAll(500) ; }
-               catch (InterruptedException e) { }
-            }
+            int n1 = (truecolor) ? w*h*4 : w*h ;
+            ByteBuffer record = ByteBuffer.allocate(36 + n1) ;
+            record.putInt("KiSS version 1".equals(encoding) ? 1 : 0) ;
+            record.putInt(size.width) ;
+            record.putInt(size.height) ;
+            record.putInt(baseoffset.x) ;
+            record.putInt(baseoffset.y) ;
+            record.putInt(bits) ;
+            record.putInt(start) ;
+            record.putInt(w) ;
+            record.putInt(h) ;
+            if (truecolor) record.asIntBuffer().put(tcel) ;
+            else record.put(cel) ;
+            AssetCache.write(ze,AssetCache.CEL,record) ;
          }
 
-			// Check for a valid image.
-
-			if (image == null) throw new KissException("unsupported graphics format") ;
-         baseimage = image ;
-         imagewidth = w ;
-         imageheight = h ;
-         loaded = true ;
+         createImage(cel,tcel,w,h) ;
 		}
 
 		// Watch for KiSS errors.
@@ -550,6 +495,171 @@ final class KissCel extends Cel
 	}
 
 
+	// Load the cel from a decoded asset cache record.  The record holds
+   // the cel header values and the unpacked pixels.  Returns false if the
+   // record is not valid, in which case the cel is decoded from its file.
+
+	private boolean loadCached(ByteBuffer buf) throws KissException
+	{
+      if (buf.remaining() < 36) return false ;
+      int version = buf.getInt() ;
+      int width = buf.getInt() ;
+      int height = buf.getInt() ;
+      int x = buf.getInt() ;
+      int y = buf.getInt() ;
+      int pixelbits = buf.getInt() ;
+      int pixelstart = buf.getInt() ;
+      int w = buf.getInt() ;
+      int h = buf.getInt() ;
+      if (w < 0 || h < 0) return false ;
+      boolean tc = (pixelbits == 32) ;
+      if (buf.remaining() != ((tc) ? w*h*4 : w*h)) return false ;
+
+      byte cel[] = null ;
+      int tcel[] = null ;
+      if (tc)
+      {
+         tcel = new int[w*h] ;
+         buf.asIntBuffer().get(tcel) ;
+      }
+      else
+      {
+         cel = new byte[w*h] ;
+         buf.get(cel) ;
+      }
+
+      encoding = (version == 1) ? "KiSS version 1" : "KiSS version 0" ;
+      size.width = width ;
+      size.height = height ;
+      baseoffset.x = offset.x = x ;
+      baseoffset.y = offset.y = y ;
+      if (version == 1)
+      {
+         Point initialoffset = getInitialOffset() ;
+         offset.x += initialoffset.x ;
+         offset.y += initialoffset.y ;
+      }
+      bits = pixelbits ;
+      start = pixelstart ;
+      truecolor = tc ;
+      createImage(cel,tcel,w,h) ;
+      return true ;
+	}
+
+
+	// Create the cel image from the unpacked pixels.  True color cels have
+   // integer pixels.  Palette cels have byte palette index pixels.
+
+	private void createImage(byte cel[], int tcel[], int w, int h) throws KissException
+	{
+		MemoryImageSource m = null ;		// The cel memory source
+
+		// Create a base color model and an image for this cel.  If the
+      // palette does not exist then a direct color model is created.
+
+		if (truecolor)
+		{
+			cm = basecm = Palette.getDirectColorModel() ;
+			image = createBufferedImage(tcel,w,h) ;
+      
+        // Kludge for Apple systems.
+        // Convert the image to an ARGB buffered image.
+/*         
+        if (OptionsDialog.getAppleMac()) 
+        {
+            BufferedImage bi = new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB_PRE) ;
+            bi.setRGB(0,0,w,h,tcel,0,w) ;
+            image = bi ;
+         }
+*/            
+         if (transparency != 255) changeTransparency(0) ;
+         pid = null ;
+		}
+
+      // Palette type cels use an index color model.  If no palette was
+      // specified and this is a palette cel then we would default to
+      // Palette file 0, which must be our initial palette.
+
+		if (!truecolor)
+		{
+			Palette p = getPalette() ;
+			if (p != null)
+			{
+		      Object mpid = getPaletteGroupID() ;
+		      if (mpid instanceof Integer) multipalette = ((Integer) mpid).intValue() ;
+				cm = basecm = p.createColorModel(transparency,multipalette) ;
+            DataBufferByte db = new DataBufferByte(cel,cel.length) ;
+            raster = Raster.createInterleavedRaster(db,w,h,w,1,new int[] {0},null) ;
+            image = getPaletteImage(cm,multipalette) ;
+            if (image == null)
+            {
+               raster = null ;
+					m = new MemoryImageSource(w,h,cm,cel,0,w) ;
+	 				image = Toolkit.getDefaultToolkit().createImage(m) ;
+            }
+            transparentcolor = p.getTransparentColor(multipalette) ;
+				backgroundcolor = p.getBackgroundColor(multipalette) ;
+            setColorsUsed(p.getColorCount()) ;
+            setPaletteID(p.getIdentifier()) ;
+            if (getInitPaletteID() == null) setInitPaletteID(p.getIdentifier()) ;
+            transparentindex = 0 ;
+            background = 0 ;
+      
+           // Kludge for Apple systems.
+           // Convert the image to an ARGB buffered image.
+/*         
+           if (OptionsDialog.getAppleMac()) 
+           {
+               int [] rgbarray = new int[w*h] ;
+               BufferedImage bi = new BufferedImage(w,h,BufferedImage.TYPE_INT_ARGB_PRE) ;
+               for (int i = 0 ; i < w*h ; i++) 
+               {
+                  int j = ((int) cel[i]) & 0xff ;
+                  rgbarray[i] = cm.getRGB(j) ; 
+               }
+               bi.setRGB(0,0,w,h,rgbarray,0,w) ;
+               image = bi ;
+            }
+*/
+         }
+		   else
+         {
+         	nopalette = true ;
+				throw new KissException("invalid palette") ;
+         }
+		}
+      
+      // If we are a 4 bit 16 color cel with an odd width then we need to
+      // crop our image as it was constructed 1 pixel too wide.
+      
+      if (bits == 4 && size.width == w-1)
+      {
+         size.width = w = w-1 ;
+         if (raster != null)
+         {
+            raster = raster.createWritableChild(0,0,w,h,0,0,null) ;
+            paletteimages = null ;
+            image = getPaletteImage(cm,multipalette) ;
+         }
+         else if (image instanceof BufferedImage)
+            image = ((BufferedImage) image).getSubimage(0,0,w,h) ;
+         else
+            image = createFilteredImage(image,new CropImageFilter(0,0,w,h)) ;
+      }
+
+		// Check for a valid image.
+
+		if (image == null) throw new KissException("unsupported graphics format") ;
+      baseimage = image ;
+      imagewidth = w ;
+      imageheight = h ;
+      loaded = true ;
+
+      // The cel size is now known.  Update the page spatial index.
+      moved() ;
+	}
+
+
 	// Load a copy of the cel data from the specified cel.  The copy can
    // use a different palette file and have a different transparency.
    // The copy is unscaled.
@@ -563,6 +673,8 @@ final class KissCel extends Cel
 		image = baseimage = c.getBaseImage() ;
       scaledimage = null ;
       filteredimage = null ;
+      raster = (c instanceof KissCel) ? ((KissCel) c).getRaster() : null ;
+      paletteimages = null ;
 		if (image == null) return ;
       imagewidth = image.getWidth(null) ;
       imageheight = image.getHeight(null) ;
@@ -580,6 +692,7 @@ final class KissCel extends Cel
       baseoffset = c.getBaseOffset() ;
       offset.x = baseoffset.x + initialoffset.x ;
       offset.y = baseoffset.y + initialoffset.y ;
+      moved() ;
 		truecolor = c.isTruecolor() ;
       encoding = c.getEncoding() ;
 		cm = basecm = c.getBaseColorModel() ;
@@ -626,14 +739,11 @@ final class KissCel extends Cel
          cm = Palette.getDirectColorModel() ;
 
 		// Establish the correct palette colors and transparency level.
+      // Palette cels rebind their pixel data to the new color model.
 
-		ImageProducer ip = image.getSource() ;
-		ip = new FilteredImageSource(ip, new PaletteFilter(cm,basecm,transparency,transparentcolor)) ;
-		filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-      MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-      tracker.addImage(filteredimage,0) ;
-      try { tracker.waitForAll(500) ; }
-      catch (InterruptedException e) { }
+      filteredimage = (isRasterImage(image)) ? getPaletteImage(cm,multipalette) : null ;
+      if (filteredimage != null) return ;
+		filteredimage = createPaletteImage(image) ;
 		return ;
 	}
 
@@ -782,21 +892,38 @@ final class KissCel extends Cel
          if (img == null) img = getBaseImage() ;
          if (img == null) return ;
 
-			// Construct an image filter.
+			// Rebind the pixel data to the new color model if we are not
+			// scaled, otherwise construct an image filter.
 
          transparentcolor = p.getTransparentColor(newmp) ;
-			ImageProducer base = img.getSource() ;
-			ImageProducer ip = new FilteredImageSource(base,
-         	new PaletteFilter(cm,basecm,transparency,transparentcolor));
-			filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-         MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-         tracker.addImage(filteredimage,0) ;
-         try { tracker.waitForAll(500) ; }
-         catch (InterruptedException e) { }
+         if (img == baseimage && isRasterImage(img))
+         {
+            Image pi = getPaletteImage(cm,newmp) ;
+            if (pi != null)
+            {
+               filteredimage = pi ;
+               return ;
+            }
+         }
+			filteredimage = createPaletteImage(img) ;
 		}
 	}
 
 
+	// Construct the image for a multipalette color model.  Our indexed
+	// pixel data is rebound to the color model if we are not scaled.
+
+	Image getPaletteImage(Image img, ColorModel model, int mp)
+	{
+		if (img == baseimage && isRasterImage(img))
+		{
+			Image pi = getPaletteImage(model,mp) ;
+			if (pi != null) return pi ;
+		}
+		return super.getPaletteImage(img,model,mp) ;
+	}
+
+
 	// Method to change the cel transparency.  The change is relative
 	// to the current transparency.  We create a new color model for
 	// palette cels.  The relative change uses the KiSS model of transparency.
@@ -869,6 +996,59 @@ final class KissCel extends Cel
 	}
 
 
+	// Unload the cel file.  This releases our pixel data.
+
+	void unload()
+   {
+      raster = null ;
+      paletteimages = null ;
+      super.unload() ;
+   }
+
+
+	// Return true if the image draws our indexed pixel data.  Images set
+	// through editing do not.
+
+	private boolean isRasterImage(Image img)
+   {
+      if (raster == null) return false ;
+      if (!(img instanceof BufferedImage)) return false ;
+      return ((BufferedImage) img).getRaster() == raster ;
+   }
+
+
+	// Return an image of our indexed pixel data drawn with the specified
+	// palette color model.  No pixels are copied, the image shares our
+	// raster.  The images for the most recently used palettes are retained
+	// so that palette cycling reuses the same image objects.  Null is
+	// returned if we do not have indexed pixel data for the color model.
+
+	private synchronized Image getPaletteImage(ColorModel cm, int mp)
+   {
+      if (raster == null) return null ;
+      if (!(cm instanceof IndexColorModel)) return null ;
+      if (!cm.isCompatibleRaster(raster)) return null ;
+      if (paletteimages == null)
+      {
+         paletteimages = new LinkedHashMap(PALETTEIMAGES*2,0.75f,true)
+         {
+            protected boolean removeEldestEntry(Map.Entry e)
+            { return size() > PALETTEIMAGES ; }
+         } ;
+      }
+
+      Integer key = Integer.valueOf((transparency<<8)+mp) ;
+      Object [] o = (Object []) paletteimages.get(key) ;
+      if (o != null && o[0] == cm) return (Image) o[1] ;
+      BufferedImage bi = new BufferedImage((IndexColorModel) cm,raster,false,null) ;
+      o = new Object[2] ;
+      o[0] = cm ;
+      o[1] = bi ;
+      paletteimages.put(key,o) ;
+      return bi ;
+   }
+
+
 	// Function to display a syntax error message.
 
 	void showError(String s)
@@ -0,0 +1,129 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* KissClock class
+*
+* Purpose:
+*
+* This class is the time and chance source for FKiSS processing.  Alarm
+* scheduling, event ordering, FKiSS date and time functions and FKiSS
+* random numbers all come from this class.
+*
+* Normally the clock is the system clock and random numbers are drawn from
+* an unseeded generator.  For session recording the random generator is
+* seeded so that the session can be reproduced.  For session replay the
+* clock is switched to virtual time.  Virtual time only moves when the
+* replay advances it, so timers run as fast as the events can be processed
+* and the results do not depend on the speed of the machine.
+*
+*/
+
+import java.util.Calendar ;
+import java.util.Random ;
+
+
+final class KissClock
+{
+   private static volatile boolean virtual = false ;  // True if virtual time
+   private static volatile long time = 0 ;            // The virtual time
+   private static Random random = new Random() ;      // FKiSS random source
+
+
+   // Return true if the clock is running on virtual time.
+
+   static boolean isVirtual() { return virtual ; }
+
+
+   // Return the current time in milliseconds.
+
+   static long currentTimeMillis()
+   { return (virtual) ? time : System.currentTimeMillis() ; }
+
+
+   // Return a calendar set to the current time.
+
+   static Calendar getCalendar()
+   {
+      Calendar c = Calendar.getInstance() ;
+      if (virtual) c.setTimeInMillis(time) ;
+      return c ;
+   }
+
+
+   // Switch to virtual time starting at the specified time.
+
+   static synchronized void setVirtual(long t)
+   {
+      time = t ;
+      virtual = true ;
+   }
+
+
+   // Switch back to the system clock.
+
+   static synchronized void setReal() { virtual = false ; }
+
+
+   // Advance the virtual time.  Virtual time never moves backwards.
+
+   static synchronized void setTime(long t)
+   {
+      if (t > time) time = t ;
+   }
+
+
+   // Seed the random number generator.
+
+   static synchronized void setSeed(long seed) { random = new Random(seed) ; }
+
+
+   // Return a random number in the range 0 to 1.  This is the FKiSS
+   // replacement for Math.random().
+
+   static synchronized double random() { return random.nextDouble() ; }
+}
@@ -0,0 +1,383 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+
+/**
+* KissExecutor class
+*
+* Purpose:
+*
+* This class runs the short blocking activities that FKiSS processing
+* starts, such as sound playback and stop requests, media player stops,
+* URL loads and breakpoint continuation.  These activities previously
+* created a new platform thread for every request.
+*
+* All tasks run on one shared executor.  If the Java runtime supports
+* virtual threads each task runs on its own virtual thread.  Otherwise
+* tasks run on a cached pool of daemon threads that expire when idle.
+*
+* Tasks can be submitted on a serial lane.  Tasks on the same lane run one
+* at a time in submission order, so that a play request followed by a stop
+* request for the same object cannot be reordered.  Tasks are associated
+* with a configuration identifier and can be cancelled when the
+* configuration closes.  Cancellation discards tasks that have not yet
+* started and interrupts tasks that are running.
+*
+* Classes outside this package, such as the WebSocket endpoint, can run
+* tasks on a serial lane that is not associated with a configuration.
+*
+*/
+
+import java.lang.reflect.Method ;
+import java.util.Hashtable ;
+import java.util.LinkedList ;
+import java.util.Vector ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.RejectedExecutionException ;
+import java.util.concurrent.SynchronousQueue ;
+import java.util.concurrent.ThreadFactory ;
+import java.util.concurrent.ThreadPoolExecutor ;
+import java.util.concurrent.TimeUnit ;
+
+
+public final class KissExecutor
+{
+   private static final Object NONE = new Object() ; // Key for no configuration
+
+   private static ExecutorService executor = null ;  // The shared executor
+   private static boolean virtual = false ;          // True if virtual threads
+   private static Hashtable tasks = new Hashtable() ; // Tasks by configuration
+   private static Hashtable lanes = new Hashtable() ; // Serial lanes by key
+   private static long submitted = 0 ;               // Tasks submitted
+   private static long cancelled = 0 ;               // Tasks cancelled
+
+
+   // Return the shared executor.  The executor is created on first use.
+   // Virtual threads are used if the runtime provides them.  We look up
+   // the factory method by reflection as we compile for earlier releases.
+
+   static synchronized ExecutorService getExecutor()
+   {
+      if (executor != null) return executor ;
+      try
+      {
+         Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor") ;
+         executor = (ExecutorService) m.invoke(null) ;
+         virtual = true ;
+      }
+      catch (Exception e) { executor = null ; }
+
+      if (executor == null)
+      {
+         ThreadFactory factory = new ThreadFactory()
+         {
+            int count = 0 ;
+            public synchronized Thread newThread(Runnable r)
+            {
+               Thread t = new Thread(r, "KissExecutor Worker " + (++count)) ;
+               t.setDaemon(true) ;
+               t.setPriority(Thread.NORM_PRIORITY) ;
+               return t ;
+            }
+         } ;
+         executor = new ThreadPoolExecutor(0,Integer.MAX_VALUE,30,TimeUnit.SECONDS,
+            new SynchronousQueue(),factory) ;
+         virtual = false ;
+      }
+
+      if (OptionsDialog.getDebugControl())
+         PrintLn.println("KissExecutor: started, " + ((virtual) ? "virtual threads" : "thread pool")) ;
+      return executor ;
+   }
+
+
+   // Return true if tasks run on virtual threads.
+
+   static boolean isVirtual() { getExecutor() ; return virtual ; }
+
+   // Return the task counts.
+
+   static long getSubmitted() { return submitted ; }
+   static long getCancelled() { return cancelled ; }
+
+
+   // Run a task.  The task is associated with the specified configuration
+   // identifier, which may be null if the task must survive the close of
+   // the configuration.  Tasks submitted through this method are not
+   // ordered with respect to each other.
+
+   static Task execute(Object cid, String name, Runnable r)
+   {
+      Task task = new Task(cid,name,r) ;
+      track(task) ;
+      if (!submit(task)) untrack(task) ;
+      return task ;
+   }
+
+
+   // Run a task on a serial lane.  Tasks on the same lane key run one at a
+   // time in the order that they were submitted.  The lane key is normally
+   // the object that the task acts upon.
+
+   public static void serial(Object key, String name, Runnable r)
+   {
+      serial(key,null,name,r) ;
+   }
+
+   static Task serial(Object key, Object cid, String name, Runnable r)
+   {
+      if (key == null) return execute(cid,name,r) ;
+      Task task = new Task(cid,name,r) ;
+      track(task) ;
+      Lane lane = null ;
+      boolean start = false ;
+      synchronized (lanes)
+      {
+         lane = (Lane) lanes.get(key) ;
+         if (lane == null)
+         {
+            lane = new Lane(key) ;
+            lanes.put(key,lane) ;
+         }
+         lane.queue.add(task) ;
+         if (!lane.running)
+         {
+            lane.running = true ;
+            start = true ;
+         }
+      }
+      if (start && !submit(lane))
+      {
+         synchronized (lanes) { lane.running = false ; lanes.remove(key) ; }
+         untrack(task) ;
+      }
+      return task ;
+   }
+
+
+   // Cancel all tasks for a configuration.  Tasks that have not started are
+   // discarded and running tasks are interrupted.  New tasks may still be
+   // submitted for the configuration after cancellation, for example to
+   // stop its sounds as it closes.
+
+   static void cancel(Object cid)
+   {
+      Vector v = null ;
+      synchronized (tasks)
+      {
+         v = (Vector) tasks.remove((cid == null) ? NONE : cid) ;
+      }
+      if (v == null) return ;
+      // All tasks are marked before any are interrupted so that a serial
+      // lane cannot start a later task while we are cancelling.
+
+      int n = 0 ;
+      for (int i = 0 ; i < v.size() ; i++)
+      {
+         Task task = (Task) v.elementAt(i) ;
+         if (task.cancel()) n++ ;
+      }
+      for (int i = 0 ; i < v.size() ; i++)
+         ((Task) v.elementAt(i)).interrupt() ;
+      synchronized (tasks) { cancelled += n ; }
+      if (n > 0 && OptionsDialog.getDebugControl())
+         PrintLn.println("KissExecutor: cancelled " + n + " tasks for configuration (" + cid + ")") ;
+   }
+
+
+   // Submit a runnable to the shared executor.  Returns false if the
+   // executor rejected the runnable.
+
+   private static boolean submit(Runnable r)
+   {
+      try
+      {
+         getExecutor().execute(r) ;
+         return true ;
+      }
+      catch (RejectedExecutionException e)
+      {
+         PrintLn.println("KissExecutor: task rejected, " + e.toString()) ;
+         return false ;
+      }
+   }
+
+
+   // Track a task against its configuration.
+
+   private static void track(Task task)
+   {
+      synchronized (tasks)
+      {
+         Vector v = (Vector) tasks.get(task.cid) ;
+         if (v == null)
+         {
+            v = new Vector() ;
+            tasks.put(task.cid,v) ;
+         }
+         v.addElement(task) ;
+         submitted++ ;
+      }
+   }
+
+   // Release a task that has completed.
+
+   private static void untrack(Task task)
+   {
+      synchronized (tasks)
+      {
+         Vector v = (Vector) tasks.get(task.cid) ;
+         if (v == null) return ;
+         v.removeElement(task) ;
+         if (v.isEmpty()) tasks.remove(task.cid) ;
+      }
+   }
+
+
+   // Inner class to describe a task.  A task runs at most once.  The task
+   // thread is renamed for the duration of the run so that debug output
+   // identifies the activity.
+
+   static class Task implements Runnable
+   {
+      private Object cid = null ;            // Configuration identifier
+      private String name = null ;           // Task name
+      private Runnable runner = null ;       // Task activity
+      private Thread thread = null ;         // Running thread
+      private boolean cancelled = false ;    // True if cancelled
+      private boolean started = false ;      // True if started
+
+      Task(Object cid, String name, Runnable r)
+      {
+         this.cid = (cid == null) ? NONE : cid ;
+         this.name = name ;
+         this.runner = r ;
+      }
+
+      // Return true if the task was cancelled.
+
+      synchronized boolean isCancelled() { return cancelled ; }
+
+      // Cancel the task.  Returns true if the task had not completed.
+
+      synchronized boolean cancel()
+      {
+         if (cancelled || (started && thread == null)) return false ;
+         cancelled = true ;
+         return true ;
+      }
+
+      // Interrupt the task if it is running and was cancelled.
+
+      synchronized void interrupt()
+      {
+         if (cancelled && thread != null) thread.interrupt() ;
+      }
+
+      public void run()
+      {
+         Thread me = Thread.currentThread() ;
+         synchronized (this)
+         {
+            if (cancelled || started) return ;
+            started = true ;
+            thread = me ;
+         }
+         String threadname = me.getName() ;
+         try
+         {
+            if (name != null) me.setName(name) ;
+            runner.run() ;
+         }
+         catch (Throwable e)
+         {
+            PrintLn.println("KissExecutor: " + name + " exception, " + e.toString()) ;
+            e.printStackTrace() ;
+         }
+         finally
+         {
+            synchronized (this) { thread = null ; }
+            Thread.interrupted() ;
+            me.setName(threadname) ;
+            untrack(this) ;
+         }
+      }
+   }
+
+
+   // Inner class to describe a serial lane.  The lane runs its queued tasks
+   // in order on one executor thread and then releases the thread.
+
+   static class Lane implements Runnable
+   {
+      private Object key = null ;               // Lane key
+      private LinkedList queue = new LinkedList() ; // Waiting tasks
+      private boolean running = false ;         // True if draining
+
+      Lane(Object key) { this.key = key ; }
+
+      public void run()
+      {
+         while (true)
+         {
+            Task task = null ;
+            synchronized (lanes)
+            {
+               if (queue.isEmpty())
+               {
+                  running = false ;
+                  lanes.remove(key) ;
+                  return ;
+               }
+               task = (Task) queue.removeFirst() ;
+            }
+            task.run() ;
+         }
+      }
+   }
+}
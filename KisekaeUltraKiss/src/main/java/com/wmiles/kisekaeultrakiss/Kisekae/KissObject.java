@@ -157,75 +157,35 @@ abstract class KissObject
 
 
 	// Set the object by key.  We can have duplicates.  If more than
-	// one object is referenced by the same key value then we build a
-	// list of objects and attach the list to the key.
+	// one object is referenced by the same key value then the key table
+	// builds a list of objects and attaches the list to the key.  We will
+	// not add ourselves to the list if we are already attached to this key.
 
-	void setKey(Hashtable key, Object cid, Object id)
+	void setKey(KeyTable key, Object cid, Object id)
 	{
 		if (key == null || id == null) return ;
-      if (cid == null) cid = new String("Unknown") ;
-		String hashkey = cid.toString() + " " + id.toString() ;
-		Object o = key.remove(hashkey) ;
-		if (o == null)
-		{
-			key.put(hashkey,this) ;
-			return ;
-		}
-
-		// We have a duplicate.  Create or update the duplicate list.
-      // We will not add ourselves to the list if we are already attached
-      // to this key.
-
-		if (o instanceof Vector)
-      {
-      	Vector v = (Vector) o ;
-			if (!(v.contains(this))) v.addElement(this) ;
-      }
-		else if (this != o)
-		{
-			Vector v = new Vector() ;
-			v.addElement(o) ;
-			v.addElement(this) ;
-			o = v ;
-		}
-
-		// Store the duplicate list by key.
-
-		key.put(hashkey,o) ;
+		key.add(cid,id,this) ;
 	}
 
 
 	// Remove the object key.  This will remove the key value from the
-   // hashtable.  This deletes all references to the object and all
+   // key table.  This deletes all references to the object and all
    // duplicates.
 
-	static void removeKey(Hashtable key, Object cid, Object id)
+	static void removeKey(KeyTable key, Object cid, Object id)
 	{
 		if (key == null || id == null) return ;
-      if (cid == null) cid = new String("Unknown") ;
-		String hashkey = cid.toString() + " " + id.toString() ;
-		Object o = key.remove(hashkey) ;
+		key.remove(cid,id) ;
 	}
 
 
-	// Remove the object.  This will remove the object from the hashtable.
+	// Remove the object.  This will remove the object from the key table.
    // This deletes only this reference to the object.
 
-	static void removeObject(Hashtable key, Object cid, Object id, Object object)
+	static void removeObject(KeyTable key, Object cid, Object id, Object object)
 	{
 		if (key == null || id == null || object == null) return ;
-      if (cid == null) cid = new String("Unknown") ;
-		String hashkey = cid.toString() + " " + id.toString() ;
-		Object o = key.get(hashkey) ;
-      if (o == object)
-         key.remove(hashkey) ;
-      else if (o instanceof Vector)
-      {
-         Vector v = (Vector) o ;
-         if (v.contains(object)) v.removeElement(object) ;
-         if (v.size() == 0) key.remove(hashkey) ;
-         if (v.size() == 1) key.put(hashkey,v.elementAt(0)) ;
-      }
+		key.remove(cid,id,object) ;
 	}
 
 
@@ -235,12 +195,10 @@ abstract class KissObject
 	// instances. This method returns the next object following this
 	// object in the duplicate list.
 
-	Object getNextByKey(Hashtable key, Object cid, Object id)
+	Object getNextByKey(KeyTable key, Object cid, Object id)
 	{
 		if (key == null || id == null) return null ;
-      if (cid == null) cid = new String("Unknown") ;
-		String hashkey = cid.toString() + " " + id.toString() ;
-		Object o = key.get(hashkey) ;
+		Object o = key.get(cid,id) ;
 		if (!(o instanceof Vector)) return null ;
 
 		// We have a duplicate list attached to this key.  Find
@@ -433,11 +391,17 @@ abstract class KissObject
    // Search for an element entry in a set of INCLUDE files.  The include
    // list will either contain File objects for unreferenced entries or
    // ArchiveFiles for referenced entries.  If an include file does not
-   // exist it is removed from the include list.
+   // exist it is removed from the include list.  The list is shared by
+   // objects that load concurrently, so the search is synchronized on it.
 
    ArchiveEntry searchIncludeList(Vector v, String name)
    {
       if (v == null) return null ;
+      synchronized (v) { return searchIncludeList1(v,name) ; }
+   }
+
+   private ArchiveEntry searchIncludeList1(Vector v, String name)
+   {
       MainFrame mf = Kisekae.getMainFrame() ;
       Configuration c = (mf != null) ? mf.getConfig() : null ;
       boolean b = (c != null) ? c.isAppended() : false ;
@@ -931,28 +895,10 @@ abstract class KissObject
 
 	// Return the object by key.
 
-	static Object getByKey(Hashtable key, Object cid, Object id)
+	static Object getByKey(KeyTable key, Object cid, Object id)
 	{
 		if (key == null || id == null) return null ;
-      if (cid == null) cid = new String("Unknown") ;
-		String hashkey = cid.toString() + " " + id.toString() ;
-		Object o = key.get(hashkey) ;
-
-      // Check for alternate file separator if no find.
-
-      if (o == null)
-      {
-         if (hashkey.indexOf('/') >= 0)
-         {
-            hashkey.replace('/','\\') ;
-            o = key.get(hashkey) ;
-         }
-         else if (hashkey.indexOf('\\') >= 0)
-         {  
-            hashkey.replace('\\','/') ;
-            o = key.get(hashkey) ;
-         }  
-      }
+		Object o = key.get(cid,id) ;
 		if (!(o instanceof Vector)) return o ;
 
 		// We have a duplicate list attached to this key.  In general everything
@@ -977,12 +923,10 @@ abstract class KissObject
 	// Return if the object has duplicate keys.  Note that internal
    // objects are not considered duplicated.
 
-	static boolean hasDuplicateKey(Hashtable key, Object cid, Object id)
+	static boolean hasDuplicateKey(KeyTable key, Object cid, Object id)
 	{
 		if (key == null || id == null) return false ;
-      if (cid == null) cid = new String("Unknown") ;
-		String hashkey = cid.toString() + " " + id.toString() ;
-		Object o = key.get(hashkey) ;
+		Object o = key.get(cid,id) ;
 		if (!(o instanceof Vector)) return false ;
 
       // Check the duplicate list for internal elements.
@@ -0,0 +1,275 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* LhaBenchmark class
+*
+* Purpose:
+*
+* This class is a command line utility to measure LZH decoding throughput.
+* Each LZH archive found in the specified files and directories is opened
+* and every entry is read through the archive input stream, which includes
+* the compressed reads, the decoder and the CRC checks.  The archives are
+* decoded a number of times to warm up the virtual machine and then the
+* timed runs are reported.  Throughput is shown for each archive and in
+* total for each compression method.
+*
+* With no paths the benchmark uses test/FreeCell.lzh and the sets in
+* test/Tutorials relative to the current directory.
+*
+* Usage:
+*
+*    java -cp UltraKiss.jar com.wmiles.kisekaeultrakiss.Kisekae.LhaBenchmark
+*       [-w warmup] [-n runs] [path ...]
+*
+*/
+
+import java.io.* ;
+import java.util.Enumeration ;
+import java.util.Hashtable ;
+import java.util.Vector ;
+
+
+final class LhaBenchmark
+{
+   private static final String [] DEFAULTS = { "test/FreeCell.lzh", "test/Tutorials" } ;
+
+   private Vector archives = new Vector() ;      // The archive paths
+   private Hashtable methodbytes = null ;        // Bytes by method
+   private Hashtable methodtime = null ;         // Nanoseconds by method
+   private byte [] buffer = new byte[8192] ;     // Read buffer
+
+
+   // Main entry point.
+
+   public static void main(String [] args)
+   {
+      int warmup = 3 ;
+      int runs = 5 ;
+      Vector paths = new Vector() ;
+      try
+      {
+         for (int i = 0 ; i < args.length ; i++)
+         {
+            if ("-w".equals(args[i]) && i+1 < args.length)
+               warmup = Integer.parseInt(args[++i]) ;
+            else if ("-n".equals(args[i]) && i+1 < args.length)
+               runs = Integer.parseInt(args[++i]) ;
+            else
+               paths.addElement(args[i]) ;
+         }
+      }
+      catch (NumberFormatException e)
+      {
+         System.out.println("Usage: LhaBenchmark [-w warmup] [-n runs] [path ...]") ;
+         return ;
+      }
+      if (paths.size() == 0)
+         for (int i = 0 ; i < DEFAULTS.length ; i++) paths.addElement(DEFAULTS[i]) ;
+      if (runs < 1) runs = 1 ;
+
+      LhaBenchmark benchmark = new LhaBenchmark() ;
+      for (int i = 0 ; i < paths.size() ; i++)
+         benchmark.find(new File((String) paths.elementAt(i))) ;
+      if (benchmark.archives.size() == 0)
+      {
+         System.out.println("LhaBenchmark: no LZH archives found") ;
+         return ;
+      }
+      benchmark.run(warmup,runs) ;
+   }
+
+
+   // Add the LZH archives in a file or directory tree.  Entries are
+   // visited in name order so runs are repeatable.
+
+   private void find(File f)
+   {
+      if (f.isDirectory())
+      {
+         String [] list = f.list() ;
+         if (list == null) return ;
+         java.util.Arrays.sort(list) ;
+         for (int i = 0 ; i < list.length ; i++)
+            find(new File(f,list[i])) ;
+         return ;
+      }
+      String s = f.getName().toLowerCase() ;
+      if (f.isFile() && (s.endsWith(".lzh") || s.endsWith(".lha")))
+         archives.addElement(f.getPath()) ;
+   }
+
+
+   // Decode all archives for the warmup runs and then for the timed runs.
+   // The best run for each archive is reported, and the method totals
+   // are the sums over these best runs.
+
+   private void run(int warmup, int runs)
+   {
+      System.out.println("LhaBenchmark: " + archives.size() + " archives, "
+         + warmup + " warmup, " + runs + " runs") ;
+      for (int i = 0 ; i < warmup ; i++)
+         for (int j = 0 ; j < archives.size() ; j++)
+            decode((String) archives.elementAt(j)) ;
+
+      long totalbytes = 0 ;
+      long totaltime = 0 ;
+      Hashtable allbytes = new Hashtable() ;
+      Hashtable alltime = new Hashtable() ;
+      for (int j = 0 ; j < archives.size() ; j++)
+      {
+         String path = (String) archives.elementAt(j) ;
+         long best = Long.MAX_VALUE ;
+         long bytes = 0 ;
+         Hashtable bestbytes = null ;
+         Hashtable besttime = null ;
+         for (int i = 0 ; i < runs ; i++)
+         {
+            methodbytes = new Hashtable() ;
+            methodtime = new Hashtable() ;
+            long start = System.nanoTime() ;
+            bytes = decode(path) ;
+            long time = System.nanoTime() - start ;
+            if (time >= best) continue ;
+            best = time ;
+            bestbytes = methodbytes ;
+            besttime = methodtime ;
+         }
+         methodbytes = null ;
+         methodtime = null ;
+         if (bytes < 0) continue ;
+         add(allbytes,bestbytes) ;
+         add(alltime,besttime) ;
+         totalbytes += bytes ;
+         totaltime += best ;
+         System.out.println(format(new File(path).getName(),bytes,best)) ;
+      }
+
+      System.out.println() ;
+      Enumeration e = allbytes.keys() ;
+      while (e.hasMoreElements())
+      {
+         String method = (String) e.nextElement() ;
+         long bytes = ((Long) allbytes.get(method)).longValue() ;
+         long time = ((Long) alltime.get(method)).longValue() ;
+         System.out.println(format(method,bytes,time)) ;
+      }
+      System.out.println(format("Total",totalbytes,totaltime)) ;
+   }
+
+
+   // Read all entries of an archive.  Returns the uncompressed bytes read
+   // or -1 if the archive could not be read.
+
+   private long decode(String path)
+   {
+      LhaFile archive = null ;
+      long total = 0 ;
+      try
+      {
+         archive = new LhaFile(null,path) ;
+         Vector contents = archive.getContents() ;
+         for (int i = 0 ; i < contents.size() ; i++)
+         {
+            LhaEntry entry = (LhaEntry) contents.elementAt(i) ;
+            if ("-lhd-".equals(entry.getMethodText())) continue ;
+            long start = System.nanoTime() ;
+            InputStream in = archive.getInputStream(entry) ;
+            if (in == null) continue ;
+            long bytes = 0 ;
+            int n = 0 ;
+            while ((n = in.read(buffer,0,buffer.length)) > 0) bytes += n ;
+            in.close() ;
+            total += bytes ;
+            if (methodbytes == null) continue ;
+            String method = entry.getMethodText() ;
+            accumulate(methodbytes,method,bytes) ;
+            accumulate(methodtime,method,System.nanoTime() - start) ;
+         }
+      }
+      catch (IOException e)
+      {
+         System.out.println("LhaBenchmark: " + path + " " + e.getMessage()) ;
+         total = -1 ;
+      }
+      finally
+      {
+         try { if (archive != null) archive.close() ; }
+         catch (IOException e) { }
+      }
+      return total ;
+   }
+
+
+   // Accumulate a value in a table.
+
+   private void accumulate(Hashtable t, String key, long n)
+   {
+      Long v = (Long) t.get(key) ;
+      t.put(key,Long.valueOf((v == null) ? n : v.longValue() + n)) ;
+   }
+
+   private void add(Hashtable t, Hashtable values)
+   {
+      if (values == null) return ;
+      Enumeration e = values.keys() ;
+      while (e.hasMoreElements())
+      {
+         String key = (String) e.nextElement() ;
+         accumulate(t,key,((Long) values.get(key)).longValue()) ;
+      }
+   }
+
+   // Format a result line.
+
+   private String format(String name, long bytes, long nanos)
+   {
+      double ms = nanos / 1000000.0 ;
+      double mbs = (nanos > 0) ? (bytes / 1048576.0) / (nanos / 1000000000.0) : 0 ;
+      return String.format("%-32s %12d bytes %10.2f ms %9.1f MB/s",name,bytes,ms,mbs) ;
+   }
+}
@@ -106,15 +106,50 @@ final class LhaCrc16
 		}
 	}
 
+	// Slice-by-8 tables.  Table k gives the CRC of a byte followed by k
+	// zero bytes, so eight bytes can be processed with eight lookups.
+
+	private static final int slicetable[][] = new int[8][256] ;
+
+	static
+	{
+		for (int i = 0; i < 256; i++)
+			slicetable[0][i] = crctable[i] ;
+		for (int k = 1; k < 8; k++)
+			for (int i = 0; i < 256; i++)
+			{
+				int r = slicetable[k-1][i] ;
+				slicetable[k][i] = (r >>> 8) ^ crctable[r & 0xFF] ;
+			}
+	}
+
 	public static int calcCRC(byte b[]) 
 	{
-		int val;
-		int crc = 0;
-		for (int i = 0; i < b.length; i++) 
+		return update(0, b, 0, b.length) & 0xffff;
+	}
+
+	// Update a CRC with len bytes.  Blocks of eight bytes are processed
+	// with the slice-by-8 tables.
+
+	static int update(int crc, byte b[], int off, int len)
+	{
+		int t0[] = slicetable[0], t1[] = slicetable[1] ;
+		int t2[] = slicetable[2], t3[] = slicetable[3] ;
+		int t4[] = slicetable[4], t5[] = slicetable[5] ;
+		int t6[] = slicetable[6], t7[] = slicetable[7] ;
+		crc &= 0xffff ;
+		int end = off + len ;
+		while (end - off >= 8)
 		{
-			crc = crctable[(crc ^ (b[i])) & 0xFF] ^ (crc >> 8);
+			crc = t7[(b[off] ^ crc) & 0xFF] ^ t6[(b[off+1] ^ (crc >>> 8)) & 0xFF]
+				^ t5[b[off+2] & 0xFF] ^ t4[b[off+3] & 0xFF]
+				^ t3[b[off+4] & 0xFF] ^ t2[b[off+5] & 0xFF]
+				^ t1[b[off+6] & 0xFF] ^ t0[b[off+7] & 0xFF] ;
+			off += 8 ;
 		}
-		return crc & 0xffff;
+		while (off < end)
+			crc = t0[(crc ^ b[off++]) & 0xFF] ^ (crc >>> 8) ;
+		return crc ;
 	}
 	
 	static int nextCRC(int crc, int ch) 
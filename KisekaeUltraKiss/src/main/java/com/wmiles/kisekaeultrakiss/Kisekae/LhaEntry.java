@@ -341,6 +341,21 @@ class LhaEntry extends ArchiveEntry
       return null ;
 	}
 
+
+	// Reads compressed file data starting at the specified offset within
+   // the entry data.  The file is shared by all entries of the archive so
+   // the caller must serialize reads.  Returns -1 at the end of the data.
+
+	int readCompressed(long pos, byte [] b, int off, int len) throws IOException
+	{
+		if (in == null && memfile == null) return -1 ;
+		if (pos >= packsize) return -1 ;
+		if (len > packsize - pos) len = (int) (packsize - pos) ;
+		seek(datapointer + pos) ;
+      if (in != null) return in.read(b,off,len) ;
+      return memfile.read(b,off,len) ;
+	}
+
 	// Return an input stream to read this element in uncompressed form.
 
 	public InputStream getInputStream() throws IOException
@@ -581,6 +596,7 @@ class LhaEntry extends ArchiveEntry
 
 		Calendar calendar = Calendar.getInstance() ;
 		calendar.set(year,month-1,day,hour,min,sec) ;
+		calendar.set(Calendar.MILLISECOND,0) ;
 		Date d = calendar.getTime() ;
 		longtime = d.getTime() ;
 		return (longtime) ;
@@ -157,61 +157,28 @@ final class LhaFile extends ArchiveFile
 
 
 	// Returns an input stream for reading the uncompressed contents of
-	// the specified LHA file entry.
+	// the specified LHA file entry.  The entry is decoded as the stream
+   // is read.  Stored entries may be copied to zip archives without
+   // compression and the zip entry requires the CRC-32 before the data
+   // is written, so this is computed from the stored data.
 
 	InputStream getInputStream(ArchiveEntry le) throws IOException
 	{
       if (!isOpen()) return null ;
       if (!(le instanceof LhaEntry)) return null ;
-		byte[] buf = null ;
-		ByteArrayOutputStream out = null ;
-		InputStream in = ((LhaEntry) le).getCompressedInputStream() ;
-
-		// Uncompress the data.  We uncompress all the data to a memory buffer
-      // and then return an input stream that can be used to read the contents
-      // of the buffer.
-
       try
       {
-   		switch (((LhaEntry) le).getMethod())
-   		{
-   		case LhaEntry.LH0:
-  				buf = new byte[(int) le.getSize()] ;
-            in.read(buf, 0, (int) le.getSize()) ;
-            ((LhaEntry) le).setCrc32(computeCRC32(buf)) ;
-				in.close() ;
-				return new ByteArrayInputStream(buf) ;
-			case LhaEntry.LH1:
-				out = new ByteArrayOutputStream((int) le.getSize()) ;
-				new Lzhuf().decode(in,out) ;
-				buf = out.toByteArray() ;
-            ((LhaEntry) le).setCrc32(computeCRC32(buf)) ;
-				in.close() ;
-				out.close() ;
-				return new ByteArrayInputStream(buf) ;
-   		case LhaEntry.LH5:
-   		case LhaEntry.LH6:
-   		case LhaEntry.LH7:
-   			out = new ByteArrayOutputStream((int) le.getSize()) ;
-   			(new Lhhuf((int) le.getSize(),((LhaEntry) le).getMethod())).decode(in,out) ;
-   			buf = out.toByteArray() ;
-            ((LhaEntry) le).setCrc32(computeCRC32(buf)) ;
-   			in.close() ;
-   			out.close() ;
-   			return new ByteArrayInputStream(buf) ;
-
-   		default:
-   			throw new ZipException("LHA unimplemented method: "
-            	+ ((LhaEntry) le).getMethodText());
-   		}
+         LhaEntry entry = (LhaEntry) le ;
+         if (entry.getMethod() == LhaEntry.LH0 && entry.getCrc32() < 0)
+            entry.setCrc32(computeCRC32(entry)) ;
+         InputStream in = new LhaInflaterInputStream(this,entry) ;
+         return new BufferedInputStream(in,4096) ;
       }
 
       // Catch general Exceptions and prefix by element name.
 
       catch (Exception e)
       {
-         if (in != null) in.close() ;
-         if (out != null) out.close() ;
          String name = (le != null) ? le.getName() : null ;
          name = (name == null) ? "" : name + " " ;
          throw new IOException(name + e.getMessage()) ;
@@ -219,6 +186,18 @@ final class LhaFile extends ArchiveFile
 	}
 
 
+	// Read a block of the compressed contents of an entry.  The archive
+   // file is shared by all entries and is positioned for each read, so
+   // only one entry may read at a time.  The decompression can then run 
+   // concurrently with reads of other entries.
+
+	synchronized int readCompressed(LhaEntry le, long pos, byte [] b, int off, int len) 
+      throws IOException
+	{
+      return le.readCompressed(pos,b,off,len) ;
+	}
+
+
 	// Returns an output stream for writing the compressed contents of
 	// the specified LHA file.
 
@@ -268,4 +247,21 @@ final class LhaFile extends ArchiveFile
       crc32.update(buf, 0, buf.length) ;
       return crc32.getValue() ;
    }
+
+
+	// Calculate the CRC32 of the stored data of an LHA entry.
+
+	long computeCRC32(LhaEntry le) throws IOException
+	{ 
+      Checksum crc32 = new CRC32() ;
+      byte [] buf = new byte[8192] ;
+      long pos = 0 ;
+      int n = 0 ;
+      while ((n = readCompressed(le,pos,buf,0,buf.length)) > 0)
+      {
+         crc32.update(buf, 0, n) ;
+         pos += n ;
+      }
+      return crc32.getValue() ;
+   }
 }
@@ -0,0 +1,249 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* LhaInflaterInputStream class
+*
+* Purpose:
+*
+* This class is an input stream that reads the uncompressed contents of an
+* LHA archive entry.  The entry is decoded on demand as the stream is read.
+* Compressed data is read from the archive in blocks, and the decoder holds
+* only its dictionary window, so the memory used does not depend on the
+* size of the entry.
+*
+* The LHA CRC-16 is computed as the data is read and is compared with the
+* entry header when the end of the entry is reached.  As with the LHA
+* archiver, a mismatch is reported but the data is not rejected, as some
+* distributed sets have incorrect header CRC values.  The CRC-32 of the
+* uncompressed data is also computed and is set in the entry.
+*
+*/
+
+import java.io.* ;
+import java.util.zip.CRC32 ;
+import java.util.zip.ZipException ;
+
+
+final class LhaInflaterInputStream extends InputStream
+{
+   private static final int BUFSIZE = 8192 ;    // Compressed read block size
+
+   private LhaFile archive = null ;             // The source archive
+   private LhaEntry entry = null ;              // The entry being read
+   private InputStream in = null ;              // The compressed data
+   private Lzhuf lzhuf = null ;                 // LH1 decoder
+   private Lhhuf lhhuf = null ;                 // LH5, LH6, LH7 decoder
+   private int method = 0 ;                     // Compression method
+   private long size = 0 ;                      // Uncompressed size
+   private long count = 0 ;                     // Bytes returned
+   private int crc16 = 0 ;                      // LHA CRC of bytes returned
+   private CRC32 crc32 = null ;                 // CRC-32 of bytes returned
+   private boolean closed = false ;             // True if stream closed
+   private boolean checked = false ;            // True if CRC checked
+   private byte [] single = new byte[1] ;       // Single byte reads
+
+
+   // Constructor.
+
+   LhaInflaterInputStream(LhaFile archive, LhaEntry entry) throws IOException
+   {
+      this.archive = archive ;
+      this.entry = entry ;
+      method = entry.getMethod() ;
+      size = entry.getSize() ;
+      crc32 = new CRC32() ;
+      in = new PackedInputStream() ;
+
+      switch (method)
+      {
+      case LhaEntry.LH0:
+         break ;
+      case LhaEntry.LH1:
+         lzhuf = new Lzhuf() ;
+         lzhuf.decodeStart(in) ;
+         break ;
+      case LhaEntry.LH5:
+      case LhaEntry.LH6:
+      case LhaEntry.LH7:
+         lhhuf = new Lhhuf((int) size,method) ;
+         lhhuf.decode_init(in) ;
+         break ;
+      default:
+         throw new ZipException("LHA unimplemented method: " + entry.getMethodText()) ;
+      }
+   }
+
+
+   // Read a byte.
+
+   public int read() throws IOException
+   {
+      int n = read(single,0,1) ;
+      return (n <= 0) ? -1 : (single[0] & 0xff) ;
+   }
+
+
+   // Read up to len bytes.  Data is decoded as required.  Decoder errors
+   // are reported with the entry name.
+
+   public int read(byte [] b, int off, int len) throws IOException
+   {
+      if (closed) throw new IOException("LHA stream closed") ;
+      if (off < 0 || len < 0 || len > b.length - off)
+         throw new IndexOutOfBoundsException() ;
+      if (len == 0) return 0 ;
+      long remaining = size - count ;
+      if (remaining <= 0) { finish() ; return -1 ; }
+      if (len > remaining) len = (int) remaining ;
+
+      int n = -1 ;
+      try
+      {
+         if (lzhuf != null) n = lzhuf.decode(b,off,len) ;
+         else if (lhhuf != null) n = lhhuf.decode(b,off,len) ;
+         else n = in.read(b,off,len) ;
+      }
+      catch (IOException e) { throw error(e.getMessage()) ; }
+      catch (RuntimeException e) { throw error(e.toString()) ; }
+      if (n <= 0) throw error("LHA unexpected end of data") ;
+
+      // Update the checksums.
+
+      crc16 = LhaCrc16.update(crc16,b,off,n) ;
+      crc32.update(b,off,n) ;
+      count += n ;
+      if (count >= size) finish() ;
+      return n ;
+   }
+
+
+   // Return the bytes remaining in the entry.
+
+   public int available() throws IOException
+   {
+      if (closed) return 0 ;
+      long remaining = size - count ;
+      return (remaining > Integer.MAX_VALUE) ? Integer.MAX_VALUE : (int) remaining ;
+   }
+
+
+   // Close the stream.  The archive file remains open.
+
+   public void close() throws IOException
+   {
+      closed = true ;
+      lzhuf = null ;
+      lhhuf = null ;
+      in = null ;
+   }
+
+
+   // Verify the CRC at the end of the entry and set the CRC-32 in the
+   // entry.
+
+   private void finish()
+   {
+      if (checked) return ;
+      checked = true ;
+      entry.setCrc32(crc32.getValue()) ;
+      int crc = entry.getCrc16() & 0xffff ;
+      if (crc == (crc16 & 0xffff)) return ;
+      PrintLn.println("LhaFile: " + entry.getName() + " CRC error, expected "
+         + Integer.toHexString(crc) + " found " + Integer.toHexString(crc16 & 0xffff)
+         + " in " + archive.getPath()) ;
+   }
+
+
+   // Construct an exception prefixed by the element name.
+
+   private IOException error(String s)
+   {
+      String name = entry.getName() ;
+      name = (name == null) ? "" : name + " " ;
+      return new ZipException(name + s) ;
+   }
+
+
+   // An inner class to read the compressed entry data.  The data is read
+   // from the archive in blocks as it is required.  The archive file is
+   // shared, so each block is read with the archive locked.
+
+   class PackedInputStream extends InputStream
+   {
+      private byte [] buf = new byte[BUFSIZE] ;
+      private long position = 0 ;
+      private int next = 0 ;
+      private int end = 0 ;
+
+      public int read() throws IOException
+      {
+         if (next >= end && !fill()) return -1 ;
+         return buf[next++] & 0xff ;
+      }
+
+      public int read(byte [] b, int off, int len) throws IOException
+      {
+         if (len == 0) return 0 ;
+         if (next >= end && !fill()) return -1 ;
+         int n = Math.min(len,end-next) ;
+         System.arraycopy(buf,next,b,off,n) ;
+         next += n ;
+         return n ;
+      }
+
+      private boolean fill() throws IOException
+      {
+         int n = archive.readCompressed(entry,position,buf,0,buf.length) ;
+         if (n <= 0) return false ;
+         position += n ;
+         next = 0 ;
+         end = n ;
+         return true ;
+      }
+   }
+}
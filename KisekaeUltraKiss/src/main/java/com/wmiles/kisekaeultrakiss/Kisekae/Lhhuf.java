@@ -140,19 +140,10 @@ final class Lhhuf
 	private final  int fwrite_crc(byte b[], int start, int count, OutputStream out)
 		throws IOException 
 	{
-		int i = 0;
-		int ch;
-		while (count-- != 0) 
-		{
-			// PrintLn.println(">" + b[start]);
-			out.write(ch = b[start++]);
-			//	updatecrc(ch);
-			crc = LhaCrc16.crctable[(crc ^ (ch)) & 0xFF] ^ (crc >> CHAR_BIT);
-
-			i++;
-		}
-		size += i;
-		return i;
+		out.write(b, start, count);
+		crc = LhaCrc16.update(crc, b, start, count);
+		size += count;
+		return count;
 	}
 	
 	int size;
@@ -178,16 +169,17 @@ final class Lhhuf
 	private int hash1, hash2;
 	private int dicbit ;
 	
-	// Working storage.  As this is static storage, only one LHHUF
-	// object can be used at one time.
+	// Working storage.  The text array is the dictionary window.  The
+	// tree arrays are required only for encoding.  Each LHHUF object has
+	// its own storage so that entries can be decoded concurrently.
 	
-	private static byte text[] = new byte[(1 << MAX_DICBIT - 2) * 2 + MAXMATCH] ;
-	private static int level[] = new int[((1 << MAX_DICBIT - 2) + UCHAR_MAX + 1)] ;
-	private static int childcount[] = new int[((1 << MAX_DICBIT - 2) + UCHAR_MAX + 1)] ;
-	private static short position[] = new short[((1 << MAX_DICBIT - 2) + UCHAR_MAX + 1)] ;
-	private static int parent[] = new int[(1 << MAX_DICBIT - 2) * 2] ;
-	private static int prev[] = new int[(1 << MAX_DICBIT - 2) * 2] ;
-	private static int next[] = new int[3 * (1 << MAX_DICBIT - 2) + ((1 << MAX_DICBIT - 2) / 512 + 1) * UCHAR_MAX + 1] ;
+	private byte text[] = null ;
+	private int level[] = null ;
+	private int childcount[] = null ;
+	private short position[] = null ;
+	private int parent[] = null ;
+	private int prev[] = null ;
+	private int next[] = null ;
   
 	private int encoded_origsize, compsize, count, crc;
 	private boolean unpackable;
@@ -197,9 +189,9 @@ final class Lhhuf
 		init(origsize,method);
 	}
 	
-	// There is a large memory requirement for the LHHUF arrays.
-	// This takes some time to allocate.  We use static arrays to 
-	// reduce the memory management overhead.
+	// There is a large memory requirement for the LHHUF encoding
+	// arrays.  These are allocated when encoding begins, so a decoder
+	// only allocates its dictionary window.
 	
 	private final  void init(int origsize, int method)
 	{
@@ -213,7 +205,10 @@ final class Lhhuf
     
 		max_hash_val = 3 * dicsiz + (dicsiz / 512 + 1) * UCHAR_MAX;
 		//    PrintLn.println(max_hash_val);
-    
+	}
+  
+	private final  void init_encode()
+	{
 		text = new byte[dicsiz * 2 + maxmatch];
 		level = new int[(dicsiz + UCHAR_MAX + 1)];
 		childcount = new int[(dicsiz + UCHAR_MAX + 1)];
@@ -480,6 +475,7 @@ final class Lhhuf
 
 		compsize = count = 0;
 		crc = 0; unpackable = false;
+		init_encode();
 		init_slide();
 		encode_start();
 		dicsiz1 = dicsiz - 1;
@@ -1326,37 +1322,49 @@ final class Lhhuf
 
 	private int subbitbuf, bitcount;
 
+	/* Decoder input.  Compressed bytes are read from the input stream
+	   in blocks into inbuf.  Bits are held in a 64 bit reservoir and
+	   bitbuf is the next 16 bits of the reservoir. */
+	private byte inbuf[] = null;
+	private int inpos, inend;
+	private long bitreg;
+	private int bitleft;
+
 	/* Shift bitbuf n bits left, read n bits */
 	private final void fillbuf(int n) throws IOException
 	{
-		while (n > bitcount) 
+		bitleft -= n;
+		if (bitleft < 16)
 		{
-			n -= bitcount;
-			bitbuf = (bitbuf << bitcount) + (subbitbuf >>> (CHAR_BIT - bitcount));
-			if (compsize != 0)
-				compsize--;
-			int ch = in.read();
-			if (ch < 0) { eof = true; ch = 0; }
-         int progress = ++bytes - lastbytes ;
-         if (fw != null && progress > 1024) 
-         {
-             fw.updateProgress(progress) ;
-             lastbytes = bytes ;
-         }
-			//	    PrintLn.println(ch);
-			subbitbuf = ch;
-	//	  }
-	//	  else {
-	//	    subbitbuf = 0;
-	//	  }
-			bitcount = CHAR_BIT;
+			while (bitleft <= 56)
+			{
+				if (inpos >= inend && !readbuf()) 
+				{
+					bitreg <<= CHAR_BIT;
+					eof = true;
+				}
+				else
+					bitreg = (bitreg << CHAR_BIT) | (inbuf[inpos++] & 0xff);
+				bitleft += CHAR_BIT;
+			}
 		}
-		bitcount -= n;
-		bitbuf = (bitbuf << n) + (subbitbuf >>> (CHAR_BIT - n));
-		bitbuf &= 0xffff;
-		subbitbuf <<= n;
-		subbitbuf &= 0xff;
-		//	PrintLn.println(bitbuf);
+		bitbuf = (int) (bitreg >>> (bitleft - 16)) & 0xffff;
+	}
+
+	/* Read the next block of compressed input */
+	private final boolean readbuf() throws IOException
+	{
+		int n = in.read(inbuf, 0, inbuf.length);
+		if (n <= 0) { inpos = inend = 0; return false; }
+		inpos = 0;
+		inend = n;
+		int progress = (bytes += n) - lastbytes ;
+		if (fw != null && progress > 1024) 
+		{
+			fw.updateProgress(progress) ;
+			lastbytes = bytes ;
+		}
+		return true;
 	}
 
 
@@ -1428,9 +1436,11 @@ final class Lhhuf
 
 	private final void init_getbits() throws IOException
 	{
+		if (inbuf == null) inbuf = new byte[4096];
+		inpos = inend = 0;
 		bitbuf = 0;
-		subbitbuf = 0;
-		bitcount = 0;
+		bitreg = 0;
+		bitleft = 2 * CHAR_BIT;
 		fillbuf(2 * CHAR_BIT);
 	}
 
@@ -1460,64 +1470,95 @@ final class Lhhuf
 	}
 	
 	private int loc;
+	private int copypos, copyleft;
   
 	final void decode(InputStream in, OutputStream out) throws IOException
 	{
-		this.in = in;
 		this.out = out;
+		decode_init(in);
+		byte b[] = new byte[dicsiz];
+		int n;
+		while ((n = decode(b, 0, b.length)) > 0)
+			fwrite_crc(b, 0, n, out);
+	}
 
-		int i, j, k, c, dicsiz1, offset;
-		//      PrintLn.println("decode");
-
+	// Incremental decoding.  The text array is a ring buffer of the
+	// dictionary size.  Each decode call returns up to len bytes.  A
+	// match that does not fit is held and completed on the next call.
+	// Returns -1 when the original size has been decoded.
+	
+	final void decode_init(InputStream in) throws IOException
+	{
+		this.in = in;
 		crc = 0;
 		prev_char = -1;
 		dicsiz = 1 << dicbit;
 		text = new byte[dicsiz];
 		memset(text, 0, ' ', dicsiz);
 		decode_start();
-		dicsiz1 = dicsiz - 1;
-		offset = 0x100 - 3;
 		count = 0;
 		loc = 0;
-//		for (;;) 
-		while (count < origsize)
-		{
-			c = decode_c();
-			//        PrintLn.println(loc + "=" + c);
+		copyleft = 0;
+	}
+	
+	final int decode(byte b[], int off, int len) throws IOException
+	{
+		int c, n = 0;
+		int dicsiz1 = dicsiz - 1;
+		int offset = 0x100 - 3;
 
-			if (c <= UCHAR_MAX) 
-			{
-//				if (eof) break;
-				text[loc++] = (byte)c;
-				if (loc == dicsiz) 
-				{
-					fwrite_crc(text, 0, dicsiz, out);
-					loc = 0;
-				}
-				count++;
-			}
-			else 
+		while (n < len)
+		{
+			if (copyleft == 0)
 			{
-				j = c - offset;
-				i = (loc - decode_p() - 1) & dicsiz1;
-				count += j;
-				for (k = 0; k < j; k++) 
+				if (count >= origsize) break;
+				c = decode_c();
+				if (c <= UCHAR_MAX) 
 				{
-					c = textbuf((i + k) & dicsiz1);
-					text[loc++] = (byte)c;
-					if (loc == dicsiz) 
-					{
-						fwrite_crc(text, 0, dicsiz, out);
-						loc = 0;
-					}
+					text[loc] = (byte)c;
+					loc = (loc + 1) & dicsiz1;
+					b[off + n++] = (byte)c;
+					count++;
+					continue;
 				}
-//				if (eof) break;
+				copyleft = c - offset;
+				copypos = (loc - decode_p() - 1) & dicsiz1;
+				count += copyleft;
 			}
+			n += copymatch(b, off + n, len - n);
 		}
-		if (loc != 0) 
+		return (n == 0 && len > 0) ? -1 : n;
+	}
+
+	// Copy up to len bytes of the pending match to the ring buffer and
+	// to the output.  Where the source and destination runs do not wrap
+	// and do not overlap the match is copied as a block.
+
+	private final int copymatch(byte b[], int off, int len)
+	{
+		int k = (copyleft < len) ? copyleft : len;
+		int dicsiz1 = dicsiz - 1;
+		int distance = (loc - copypos) & dicsiz1;
+		if (copypos + k <= dicsiz && loc + k <= dicsiz && distance >= k)
 		{
-			fwrite_crc(text, 0, loc, out);
+			System.arraycopy(text, copypos, text, loc, k);
+			System.arraycopy(text, loc, b, off, k);
+			copypos = (copypos + k) & dicsiz1;
+			loc = (loc + k) & dicsiz1;
+		}
+		else
+		{
+			for (int i = 0; i < k; i++)
+			{
+				byte ch = text[copypos];
+				copypos = (copypos + 1) & dicsiz1;
+				text[loc] = ch;
+				loc = (loc + 1) & dicsiz1;
+				b[off + i] = ch;
+			}
 		}
+		copyleft -= k;
+		return k;
 	}
 	
 	private boolean eof;
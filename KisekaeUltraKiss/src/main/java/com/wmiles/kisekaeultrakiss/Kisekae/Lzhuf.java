@@ -656,6 +656,31 @@ final class Lzhuf
 	};
 
 
+	/* Decoder input.  Compressed bytes are read from the input stream
+	   in blocks.  At the end of the input zero bytes are returned and
+	   eof is set. */
+	private byte inbuf[] = null;
+	private int inpos, inend;
+
+	private final int nextByte () throws IOException
+	{
+		if (inpos >= inend)
+		{
+			if (inbuf == null) inbuf = new byte[4096];
+			int n = in.read(inbuf, 0, inbuf.length);
+			if (n <= 0) { eof = true; return 0; }
+			inpos = 0;
+			inend = n;
+			int progress = (bytes += n) - lastbytes ;
+			if (fw != null && progress > 1024) 
+			{
+				fw.updateProgress(progress) ;
+				lastbytes = bytes ;
+			}
+		}
+		return inbuf[inpos++] & 0xff;
+	}
+
 	/* get one bit */
 	/* returning in Bit 0 */
 	private final int getBit () throws IOException
@@ -665,14 +690,7 @@ final class Lzhuf
 
 		if (getlen <= 8)
 		{
-			c = in.read();
-         int progress = ++bytes - lastbytes ;
-         if (fw != null && progress > 1024) 
-         {
-             fw.updateProgress(progress) ;
-             lastbytes = bytes ;
-         }
-			if ((int)c < 0) { c = 0; eof = true; }
+			c = nextByte();
 			dx |= c << (8 - getlen);
 			getlen += 8;
 		}
@@ -690,14 +708,7 @@ final class Lzhuf
 
 		if (getlen <= 8) 
 		{
-			c = in.read();
-         int progress = ++bytes - lastbytes ;
-         if (fw != null && progress > 1024) 
-         {
-             fw.updateProgress(progress) ;
-             lastbytes = bytes ;
-         }
-			if ((int)c < 0) { c = 0; eof = true; }
+			c = nextByte();
 			dx |= c << (8 - getlen);
 			getlen += 8;
 		}
@@ -724,14 +735,7 @@ final class Lzhuf
 		int c;
 		if (getlen <= 8)
 		{
-			c = in.read();
-         int progress = ++bytes - lastbytes ;
-         if (fw != null && progress > 1024) 
-         {
-             fw.updateProgress(progress) ;
-             lastbytes = bytes ;
-         }
-			if ((int)c < 0) { c = 0; eof = true; }
+			c = nextByte();
 			dx |= c << (8 - getlen);
 			getlen += 8;
 		}
@@ -747,12 +751,22 @@ final class Lzhuf
 		c = son[R];
 
 		/* trace from root to leaf,
-		got bit is 0 to small(son[]), 1 to large (son[]+1) son node */
+		got bit is 0 to small(son[]), 1 to large (son[]+1) son node.
+		The bit buffer is held in locals for the walk. */
+		int dx = getbuf, n = getlen;
 		while (c < T) 
 		{
-			c += getBit();
-			c = son[c];
+			if (n <= 8)
+			{
+				dx |= nextByte() << (8 - n);
+				n += 8;
+			}
+			c = son[c + ((dx >>> 15) & 1)];
+			dx <<= 1;
+			n--;
 		}
+		getbuf = dx;
+		getlen = n;
 		c -= T;
 		update(c);
 		return c;
@@ -774,42 +788,67 @@ final class Lzhuf
 	
 	private boolean eof;
 	
-	final void decode (InputStream in, OutputStream out) throws IOException
-	{
-		this.in = in;
-		this.out = out;
+	// Incremental decoding.  The text buffer is a ring buffer of size N.
+	// Each decode call returns up to len bytes.  A match that does not fit
+	// is held and completed on the next call.  Returns -1 at the end of
+	// the compressed data.
 
-		int  i, j, k, r, c, count;
+	private int loc, copypos, copyleft;
 
+	final void decodeStart (InputStream in)
+	{
+		this.in = in;
+		inpos = inend = 0;
 		startHuff();
-		for (i = 0; i < N - F; i++)
+		for (int i = 0; i < N - F; i++)
 			text_buf[i] = (byte) ' ';
-		r = N - F;
-		for (count = 0;; ) 
+		loc = N - F;
+		copyleft = 0;
+		eof = false;
+	}
+
+	final int decode (byte b[], int off, int len) throws IOException
+	{
+		int c, n = 0;
+
+		while (n < len) 
 		{
-			c = decodeChar();
-			if (eof) break;
-			if (c < 256) 
+			if (copyleft == 0)
 			{
-				out.write (c);
-				text_buf[r++] = (byte)c;
-				r &= (N - 1);
-				count++;
-			} 
-			else 
-			{
-				i = (r - decodePosition() - 1) & (N - 1);
-				j = c - 255 + THRESHOLD;
-				for (k = 0; k < j; k++) 
+				if (eof) break;
+				c = decodeChar();
+				if (eof) break;
+				if (c < 256) 
 				{
-					c = text_buf((i + k) & (N - 1));
-					out.write (c);
-					text_buf[r++] = (byte)c;
-					r &= (N - 1);
-					count++;
-				}
+					b[off + n++] = (byte)c;
+					text_buf[loc++] = (byte)c;
+					loc &= (N - 1);
+					continue;
+				} 
+				copypos = (loc - decodePosition() - 1) & (N - 1);
+				copyleft = c - 255 + THRESHOLD;
+			}
+			while (copyleft > 0 && n < len)
+			{
+				byte ch = text_buf[copypos++];
+				copypos &= (N - 1);
+				b[off + n++] = ch;
+				text_buf[loc++] = ch;
+				loc &= (N - 1);
+				copyleft--;
 			}
 		}
+		return (n == 0 && len > 0) ? -1 : n;
+	}
+	
+	final void decode (InputStream in, OutputStream out) throws IOException
+	{
+		this.out = out;
+		decodeStart(in);
+		byte b[] = new byte[N];
+		int n;
+		while ((n = decode(b, 0, b.length)) > 0)
+			out.write(b, 0, n);
 	}
    
    void setFileWriter(FileWriter f) { fw = f ; }
@@ -701,6 +701,7 @@ final public class MainFrame extends KissFrame
 			showStatus("Activating \"" + config.getName() + "\" (" + config.getID() + ")" + " ...") ;
 			PrintLn.println("Activating \"" + config.getName() + "\" (" + config.getID() + ")") ;
          traceFKiss(mainmenu.tracefkiss.isSelected()) ;
+         SessionRecorder.begin(config) ;
 			config.activate(panel) ;
 			callback.doClick() ;
          
@@ -902,6 +903,7 @@ final public class MainFrame extends KissFrame
 
 		if (config != null)
 		{
+         if (!restart) SessionRecorder.stop(config,panel) ;
 			showStatus("Closing \"" + config.getName() + "\" (" + config.getID() + ")" + " ...") ;
 			EventHandler handler = config.getEventHandler() ;
 			if (handler != null && !restart && handler.isActive())
@@ -1051,7 +1053,7 @@ final public class MainFrame extends KissFrame
       }
    	if (toolBar != null) toolBar.updateButtons(null,0,0) ;
       
-      Hashtable ht = Configuration.getKeyTable() ;
+      KeyTable ht = Configuration.getKeyTable() ;
       Enumeration e = ht.elements() ;
       while (e.hasMoreElements())
       {
@@ -99,6 +99,16 @@ final class MemFile
       return (int) (buffer[(int) offset++] & 0xff) ;
    }
 
+   public int read(byte [] b, int off, int len) throws IOException
+   {
+      if (buffer == null) throw new IOException("no memory buffer") ;
+      if (offset >= buffer.length) return -1 ;
+      int n = (int) Math.min(len, buffer.length - offset) ;
+      System.arraycopy(buffer,(int) offset,b,off,n) ;
+      offset += n ;
+      return n ;
+   }
+
    public byte readByte() throws IOException
    {
       if (buffer == null) throw new IOException("no memory buffer") ;
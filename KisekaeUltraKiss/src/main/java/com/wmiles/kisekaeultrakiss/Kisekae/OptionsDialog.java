@@ -207,6 +207,9 @@ final public class OptionsDialog extends KissDialog
    private static String gifperiod = "100" ;
    private static String sceneperiod = "1000" ;
    private static String audioperiod = "30000" ;
+   private static String cachebudget = "256" ;
+   private static String assetcache = "512" ;
+   private static String downloadcache = "1024" ;
    private static String stickyflex = "10" ;
    private static String maxflex = "100" ;
    private static String maxlock = "32767" ;
@@ -379,6 +382,9 @@ final public class OptionsDialog extends KissDialog
    private static String initgifperiod = new String(gifperiod) ;
    private static String initsceneperiod = new String(sceneperiod) ;
    private static String initaudioperiod = new String(audioperiod) ;
+   private static String initcachebudget = new String(cachebudget) ;
+   private static String initassetcache = new String(assetcache) ;
+   private static String initdownloadcache = new String(downloadcache) ;
    private static String initstickyflex = new String(stickyflex) ;
    private static String initmaxflex = new String(maxflex) ;
    private static String initmaxlock = new String(maxlock) ;
@@ -2453,6 +2459,39 @@ final public class OptionsDialog extends KissDialog
       return -1 ;
    }
 
+	// The cel cache budget is specified in megabytes.  It is returned in
+	// bytes.  A budget of zero or less is unlimited.
+
+	static public long getCacheBudget()
+   {
+      if (cachebudget == null) return 0 ;
+      try { return (Long.parseLong(cachebudget.trim()) * 1024L * 1024L) ; }
+      catch (Exception e) { }
+      return 0 ;
+   }
+
+	// The decoded asset cache size is specified in megabytes.  It is
+	// returned in bytes.  A size of zero or less disables the cache.
+
+	static public long getAssetCacheSize()
+   {
+      if (assetcache == null) return 0 ;
+      try { return (Long.parseLong(assetcache.trim()) * 1024L * 1024L) ; }
+      catch (Exception e) { }
+      return 0 ;
+   }
+
+	// The download cache size is specified in megabytes.  It is
+	// returned in bytes.  A size of zero or less does not limit the cache.
+
+	static public long getDownloadCacheSize()
+   {
+      if (downloadcache == null) return 0 ;
+      try { return (Long.parseLong(downloadcache.trim()) * 1024L * 1024L) ; }
+      catch (Exception e) { }
+      return 0 ;
+   }
+
 	static public int getAudioPeriod()
    {
       if (audioperiod == null) return -1 ;
@@ -2780,6 +2819,15 @@ final public class OptionsDialog extends KissDialog
 	static public void setAudioPeriod(String s)
    { audioperiod = Variable.getStringLiteralValue(s) ; }
 
+	static public void setCacheBudget(String s)
+   { cachebudget = Variable.getStringLiteralValue(s) ; }
+
+	static public void setAssetCache(String s)
+   { assetcache = Variable.getStringLiteralValue(s) ; }
+
+	static public void setDownloadCache(String s)
+   { downloadcache = Variable.getStringLiteralValue(s) ; }
+
 	static public void setMaxFlex(String s)
    { maxflex = Variable.getStringLiteralValue(s) ; }
 
@@ -3076,6 +3124,9 @@ final public class OptionsDialog extends KissDialog
       else if ("gifperiod".equalsIgnoreCase(option)) setGifPeriod(value) ;
       else if ("sceneperiod".equalsIgnoreCase(option)) setScenePeriod(value) ;
       else if ("audioperiod".equalsIgnoreCase(option)) setAudioPeriod(value) ;
+      else if ("cachebudget".equalsIgnoreCase(option)) setCacheBudget(value) ;
+      else if ("assetcache".equalsIgnoreCase(option)) setAssetCache(value) ;
+      else if ("downloadcache".equalsIgnoreCase(option)) setDownloadCache(value) ;
       else if ("stickyflex".equalsIgnoreCase(option)) setStickyFlex(value) ;
       else if ("maxflex".equalsIgnoreCase(option)) setMaxFlex(value) ;
       else if ("maxlock".equalsIgnoreCase(option)) setMaxLock(value) ;
@@ -3232,6 +3283,9 @@ final public class OptionsDialog extends KissDialog
       else if ("gifperiod".equalsIgnoreCase(option)) s += getGifPeriod() ;
       else if ("sceneperiod".equalsIgnoreCase(option)) s += getScenePeriod() ;
       else if ("audioperiod".equalsIgnoreCase(option)) s += getAudioPeriod() ;
+      else if ("cachebudget".equalsIgnoreCase(option)) s += cachebudget ;
+      else if ("assetcache".equalsIgnoreCase(option)) s += assetcache ;
+      else if ("downloadcache".equalsIgnoreCase(option)) s += downloadcache ;
       else if ("stickyflex".equalsIgnoreCase(option)) s += getStickyFlex() ;
       else if ("maxflex".equalsIgnoreCase(option)) s += getMaxFlex() ;
       else if ("maxlock".equalsIgnoreCase(option)) s += getMaxLock() ;
@@ -3819,6 +3873,9 @@ final public class OptionsDialog extends KissDialog
       gifperiod = initgifperiod ;
       sceneperiod = initsceneperiod ;
       audioperiod = initaudioperiod ;
+      cachebudget = initcachebudget ;
+      assetcache = initassetcache ;
+      downloadcache = initdownloadcache ;
       stickyflex = initstickyflex ;
       maxflex = initmaxflex ;
       maxlock = initmaxlock ;
@@ -3963,6 +4020,9 @@ final public class OptionsDialog extends KissDialog
       initgifperiod = new String(gifperiod) ;
       initsceneperiod = new String(sceneperiod) ;
       initaudioperiod = new String(audioperiod) ;
+      initcachebudget = new String(cachebudget) ;
+      initassetcache = new String(assetcache) ;
+      initdownloadcache = new String(downloadcache) ;
       initstickyflex = new String(stickyflex) ;
       initmaxflex = new String(maxflex) ;
       initmaxlock = new String(maxlock) ;
@@ -4199,6 +4259,9 @@ final public class OptionsDialog extends KissDialog
       gifperiod = "100" ;
       sceneperiod = "1000" ;
       audioperiod = "30000" ;
+      cachebudget = "256" ;
+      assetcache = "512" ;
+      downloadcache = "1024" ;
       stickyflex = "10" ;
       maxflex = "100" ;
       maxlock = "32767" ;
@@ -4532,6 +4595,9 @@ final public class OptionsDialog extends KissDialog
       gifperiod = toString1(p.getProperty("gifperiod"),gifperiod) ;
       sceneperiod = toString1(p.getProperty("sceneperiod"),sceneperiod) ;
       audioperiod = toString1(p.getProperty("audioperiod"),audioperiod) ;
+      cachebudget = toString1(p.getProperty("cachebudget"),cachebudget) ;
+      assetcache = toString1(p.getProperty("assetcache"),assetcache) ;
+      downloadcache = toString1(p.getProperty("downloadcache"),downloadcache) ;
       stickyflex = toString1(p.getProperty("stickyflex"),stickyflex) ;
       maxflex = toString1(p.getProperty("maxflex"),maxflex) ;
       maxlock = toString1(p.getProperty("maxlock"),maxlock) ;
@@ -4722,6 +4788,9 @@ final public class OptionsDialog extends KissDialog
       p.put("gifperiod",toString2(gifperiod)) ;
       p.put("sceneperiod",toString2(sceneperiod)) ;
       p.put("audioperiod",toString2(audioperiod)) ;
+      p.put("cachebudget",toString2(cachebudget)) ;
+      p.put("assetcache",toString2(assetcache)) ;
+      p.put("downloadcache",toString2(downloadcache)) ;
       p.put("stickyflex",toString2(stickyflex)) ;
       p.put("maxflex",toString2(maxflex)) ;
       p.put("maxlock",toString2(maxlock)) ;
@@ -5143,6 +5212,7 @@ final public class OptionsDialog extends KissDialog
                      File f = files[i] ;
                      boolean b = f.delete() ;
                      if (b) m++ ;
+                     if (b) DownloadCache.remove(f) ;
                   }
                   
                   PrintLn.println("Cache is cleared, " + m + " files deleted out of " + n) ;
@@ -6538,6 +6608,9 @@ final public class OptionsDialog extends KissDialog
 	   if (!gifperiod.equals(initgifperiod)) writeLine(out,"; gifperiod = \"" + gifperiod + "\"") ;
 	   if (!sceneperiod.equals(initsceneperiod)) writeLine(out,"; sceneperiod = \"" + sceneperiod + "\"") ;
 	   if (!audioperiod.equals(initaudioperiod)) writeLine(out,"; audioperiod = \"" + audioperiod + "\"") ;
+	   if (!cachebudget.equals(initcachebudget)) writeLine(out,"; cachebudget = \"" + cachebudget + "\"") ;
+	   if (!assetcache.equals(initassetcache)) writeLine(out,"; assetcache = \"" + assetcache + "\"") ;
+	   if (!downloadcache.equals(initdownloadcache)) writeLine(out,"; downloadcache = \"" + downloadcache + "\"") ;
 	   if (!stickyflex.equals(initstickyflex)) writeLine(out,"; stickyflex = \"" + stickyflex + "\"") ;
 	   if (!maxflex.equals(initmaxflex)) writeLine(out,"; maxflex = \"" + maxflex + "\"") ;
 	   if (!maxlock.equals(initmaxlock) && !b) writeLine(out,"; maxlock = \"" + maxlock + "\"") ;
@@ -0,0 +1,340 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* PageRenderer class
+*
+* Purpose:
+*
+* This class renders a configuration page to an offscreen image.  It does
+* not require a panel frame, a main frame, or the AWT event thread, thus
+* it can be used to create page thumbnails and image exports on systems
+* running without a display.
+*
+* Pages are drawn the same way as the panel frame draws them.  The page cel
+* list is ordered by cel level and declaration order, the page background
+* is established from the page border color or the palette background, and
+* each cel draws itself with its own transparency.  Cels are drawn in the
+* page multipalette colors from an image constructed for the draw.
+*
+* Objects are drawn at their recorded positions for the page.  The objects
+* themselves are not moved and their colors are not changed, so rendering
+* a page does not disturb the page that is currently shown.  Cels that have
+* no image are not loaded by the renderer.  Java component cels and video
+* cels are not drawn.
+*
+*/
+
+import java.awt.* ;
+import java.awt.image.BufferedImage ;
+import java.util.Collections ;
+import java.util.Hashtable ;
+import java.util.Vector ;
+
+
+final class PageRenderer
+{
+   private Configuration config = null ;     // The configuration to render
+
+
+   // Constructor.
+
+   PageRenderer(Configuration c) { config = c ; }
+
+
+   // Return the configuration.
+
+   Configuration getConfiguration() { return config ; }
+
+
+   // Render a page at the configuration size.  Returns null if the page
+   // does not exist.
+
+   BufferedImage render(int pageset) { return render(pageset,null,1.0f) ; }
+
+
+   // Render a page scaled to fit within the specified width and height.
+   // The page aspect ratio is retained.
+
+   BufferedImage render(int pageset, int width, int height)
+   {
+      Dimension d = getSize() ;
+      if (d == null || width <= 0 || height <= 0) return null ;
+      float sx = ((float) width) / d.width ;
+      float sy = ((float) height) / d.height ;
+      return render(pageset,null,Math.min(sx,sy)) ;
+   }
+
+
+   // Render a page into an image.  If the target image is not null and is
+   // large enough it is reused, otherwise a new image is created.  The
+   // scale factor is applied to the configuration size.
+
+   BufferedImage render(int pageset, BufferedImage target, float scale)
+   {
+      if (config == null || scale <= 0.0f) return null ;
+      Dimension d = getSize() ;
+      if (d == null) return null ;
+      int w = Math.max(1,Math.round(d.width * scale)) ;
+      int h = Math.max(1,Math.round(d.height * scale)) ;
+      BufferedImage image = target ;
+      if (image == null || image.getWidth() < w || image.getHeight() < h)
+         image = new BufferedImage(w,h,BufferedImage.TYPE_INT_RGB) ;
+
+      Object cid = config.getID() ;
+      PageSet page = (PageSet) PageSet.getByKey(PageSet.getKeyTable(),cid,Integer.valueOf(pageset)) ;
+      if (page == null) return null ;
+
+      Graphics2D g2 = image.createGraphics() ;
+      try
+      {
+         g2.setClip(0,0,w,h) ;
+         if (scale != 1.0f) g2.scale(scale,scale) ;
+         draw(g2,page,pageset,new Rectangle(0,0,d.width,d.height)) ;
+      }
+      finally { g2.dispose() ; }
+      return image ;
+   }
+
+
+   // Draw a page.  Cels with a different multipalette are drawn from an
+   // image in the page colors.  Cels that are scaled for the panel draw at
+   // their scaled size, so the scale is removed before they are drawn.
+
+   private void draw(Graphics2D g2, PageSet page, int pageset, Rectangle area)
+   {
+      Vector cels = config.getCels() ;
+      if (cels == null) return ;
+      int [] celList = createCelList(cels,page,pageset) ;
+      Integer multipalette = page.getMultiPalette() ;
+      int mp = (multipalette != null) ? multipalette.intValue() : 0 ;
+
+      // Fill the background.
+
+      g2.setColor(getBackground(page,mp)) ;
+      g2.fillRect(area.x,area.y,area.width,area.height) ;
+
+      // Compute the displacement of each group from its current location
+      // to its recorded position on the page.
+
+      Hashtable displacement = getDisplacements(page,pageset) ;
+
+      // Draw the cels from the lowest priority to the highest.
+
+      try
+      {
+         for (int i = 0 ; i < celList.length ; i++)
+         {
+            Cel c = (Cel) cels.elementAt(celList[i]) ;
+            if (c instanceof JavaCel || c instanceof Video) continue ;
+            if (!(c.getLevel() instanceof Integer)) continue ;
+            if (c.getImage() == null) continue ;
+
+            // Position the cel on the page.
+
+            Point p = (Point) displacement.get(c.getGroup()) ;
+            int dx = (p != null) ? p.x : 0 ;
+            int dy = (p != null) ? p.y : 0 ;
+            Rectangle box = new Rectangle(area) ;
+            box.translate(-dx,-dy) ;
+            if (!c.isDrawable(box)) continue ;
+            Graphics2D gc = (Graphics2D) g2.create() ;
+            gc.translate(dx,dy) ;
+            float sf = (c.isScaled()) ? c.getScaleFactor() : 1.0f ;
+            if (sf > 0.0f && sf != 1.0f) gc.scale(1.0/sf,1.0/sf) ;
+
+            // Draw the cel in the page colors.
+
+            Image img = (c.getCnfmpid()) ? null : c.getPaletteImage(mp) ;
+            if (img == null || img == c.getImage())
+               c.draw(gc,box) ;
+            else
+               drawImage(gc,c,img,box,sf) ;
+            gc.dispose() ;
+         }
+      }
+      catch (Exception e)
+      {
+         PrintLn.println("PageRenderer: exception on page " + pageset + ", " + e.toString()) ;
+      }
+   }
+
+
+   // Draw a cel image in place of the cel.  The image is drawn at the cel
+   // position with the cel transparency in the same way as the cel draws
+   // its own image.
+
+   private void drawImage(Graphics2D g2, Cel c, Image img, Rectangle box, float sf)
+   {
+      Rectangle celBox = c.getBoundingBox() ;
+      Rectangle r = box.intersection(celBox) ;
+      if (r.width < 0 || r.height < 0) return ;
+      int x = (int) (r.x * sf) ;
+      int y = (int) (r.y * sf) ;
+      int w = (int) Math.ceil(r.width * sf) ;
+      int h = (int) Math.ceil(r.height * sf) ;
+      Graphics2D gc = (Graphics2D) g2.create(x,y,w,h) ;
+      gc.translate(-x,-y) ;
+      int transparency = c.getTransparency() ;
+      if (transparency < 255)
+      {
+         float t = transparency / 255.0f ;
+         if (t > 1) t = 1 ; else if (t < 0) t = 0 ;
+         gc.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER,t)) ;
+      }
+      gc.drawImage(img,(int) (celBox.x * sf),(int) (celBox.y * sf),null) ;
+      gc.dispose() ;
+   }
+
+
+   // Return the page background color.  This is the palette file zero
+   // background color for the multipalette, or the page or configuration
+   // border color if there is no palette.
+
+   private Color getBackground(PageSet page, int mp)
+   {
+      Palette palette = config.getPalette(0) ;
+      if (palette != null && mp < palette.getMultiPaletteCount())
+         return palette.getColor(mp,palette.getBackgroundIndex()) ;
+      Integer rgbcolor = page.getBorderColor() ;
+      if (rgbcolor != null) return new Color(rgbcolor.intValue()) ;
+      Color c = config.getBorderColor() ;
+      return (c != null) ? c : Color.black ;
+   }
+
+
+   // Return the displacement of each group on the page from its current
+   // location to its recorded page position.  Groups without a recorded
+   // position are placed at the origin.
+
+   private Hashtable getDisplacements(PageSet page, int pageset)
+   {
+      Hashtable displacement = new Hashtable() ;
+      Integer pg = Integer.valueOf(pageset) ;
+      Vector positions = page.getPositions() ;
+      Vector groups = page.getGroups() ;
+      for (int i = 0 ; i < groups.size() ; i++)
+      {
+         Group g = (Group) groups.elementAt(i) ;
+         if (!g.isOnPage(pg)) continue ;
+         int id = ((Integer) g.getIdentifier()).intValue() ;
+         Point p = (positions != null && id < positions.size())
+            ? (Point) positions.elementAt(id) : null ;
+         if (p == null) p = new Point(0,0) ;
+         Rectangle box = g.getBoundingBox() ;
+         Point offset = g.getOffset() ;
+         int dx = p.x - (box.x - offset.x) ;
+         int dy = p.y - (box.y - offset.y) ;
+         if (dx != 0 || dy != 0) displacement.put(g,new Point(dx,dy)) ;
+      }
+      return displacement ;
+   }
+
+
+   // Return the configuration page size.
+
+   private Dimension getSize()
+   {
+      Dimension d = (config != null) ? config.getSize() : null ;
+      if (d == null || d.width <= 0 || d.height <= 0) return null ;
+      return d ;
+   }
+
+
+   // Create the cel display list for a page.  Cels are listed in drawing
+   // order, which is the reverse of their level and declaration order.
+   // Video cels are last in the list so they are drawn on top of all
+   // normal cels.  List entries are indexes into the cel vector.
+
+   static int [] createCelList(Vector cels, PageSet page, int pageset)
+   {
+      if (cels == null || page == null) return new int [0] ;
+      Integer pg = Integer.valueOf(pageset) ;
+
+      // Invert the configuration cel list so that lower index duplicate level
+      // cels appear at the top of the working list.
+
+      Vector sortedcels = (Vector) cels.clone() ;
+      Collections.reverse(sortedcels) ;
+
+      // Sort the working list by z-level.  The sort retains original order
+      // for duplicate values.
+
+      Collections.sort(sortedcels,new LevelComparator()) ;
+
+      // Construct the page cel list.  Isolate video cels.
+
+      Vector videoList = new Vector() ;
+      Vector celList = new Vector(cels.size()) ;
+      for (int i = sortedcels.size()-1 ; i >= 0 ; i--)
+      {
+         Cel c = (Cel) sortedcels.elementAt(i) ;
+         if (c.isOnPage(pg))
+         {
+            Object o = c.getGroup() ;
+            if (!(o instanceof Group)) continue ;
+            if (!(page.contains((Group) o))) continue ;
+            if (c instanceof Video)
+               videoList.addElement(Integer.valueOf(cels.indexOf(c))) ;
+            else
+               celList.addElement(Integer.valueOf(cels.indexOf(c))) ;
+         }
+      }
+
+      // Video cels are last in the list so they are drawn on top of all
+      // normal cels, followed by all remaining cels.
+
+      celList.addAll(videoList) ;
+      int [] celnumbers = new int [celList.size()] ;
+      for (int i = 0 ; i < celList.size() ; i++)
+      {
+         Object o = celList.elementAt(i) ;
+         celnumbers[i] = (o instanceof Integer) ? ((Integer) o).intValue() : -1 ;
+      }
+      return celnumbers ;
+   }
+}
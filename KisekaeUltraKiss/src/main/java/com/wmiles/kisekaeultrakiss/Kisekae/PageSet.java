@@ -75,22 +75,16 @@ final class PageSet extends KissObject
 {
 	// Class attributes.  Sized for 100 page set or scene objects.
 	
-	static private Hashtable key = new Hashtable(100,1f) ;
+	static private KeyTable key = new KeyTable(100) ;
 	
-	// Hashtable keys are compound entities that contain a reference
-	// to a configuration.  Thus, multiple configurations can coexist 
-	// in the static hash table.  When we clear a table we must remove
-	// only those entities that are associated with the specified
-	// configuration identifier.  
+	// Key table entries are grouped by configuration.  Thus, multiple
+	// configurations can coexist in the static key table.  When we clear
+	// a table we must remove only those entities that are associated with
+	// the specified configuration identifier.
 	
 	static void clearTable(Object cid) 
 	{
-		Enumeration e = key.keys() ;
-		while (e.hasMoreElements())
-		{
-			String hashkey = (String) e.nextElement() ;
-			if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-		}
+		key.clear(cid) ;
 	}
 	
 	// Page Set attributes
@@ -118,7 +112,7 @@ final class PageSet extends KissObject
 	// Class methods
 	// -------------
 	
-	static Hashtable getKeyTable() { return key ; }
+	static KeyTable getKeyTable() { return key ; }
 	
 	
 	// Object state change methods
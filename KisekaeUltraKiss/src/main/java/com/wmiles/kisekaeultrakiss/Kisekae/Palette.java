@@ -65,6 +65,7 @@ package com.wmiles.kisekaeultrakiss.Kisekae ;
 */
 
 import java.io.* ;
+import java.nio.ByteBuffer ;
 import java.awt.image.* ;
 import java.awt.Color ;
 import java.awt.Point ;
@@ -80,7 +81,7 @@ final class Palette extends KissObject
 {
 	// Class attributes.  Sized for 16 palette objects.
 
-	static private Hashtable key = new Hashtable(20,0.8f) ;
+	static private KeyTable key = new KeyTable(20) ;
    static private ColorModel dcm = /* bits,red,green,blue,alpha */
 		new DirectColorModel(32,255<<16,255<<8,255<<0,255<<24) ;
 
@@ -163,23 +164,17 @@ final class Palette extends KissObject
 	// Class methods
 	// -------------
 
-	static Hashtable getKeyTable() { return key ; }
+	static KeyTable getKeyTable() { return key ; }
 
-	// Hashtable keys are compound entities that contain a reference
-	// to a configuration.  Thus, multiple configurations can coexist
-	// in the static hash table.  When we clear a table we must remove
-	// only those entities that are associated with the specified
-	// configuration identifier.
+	// Key table entries are grouped by configuration.  Thus, multiple
+	// configurations can coexist in the static key table.  When we clear
+	// a table we must remove only those entities that are associated with
+	// the specified configuration identifier.
 
 	static void clearTable(Object cid)
 	{
       if (cid == null) cid = new String("Unknown") ;
-		Enumeration e = key.keys() ;
-		while (e.hasMoreElements())
-		{
-			String hashkey = (String) e.nextElement() ;
-			if (hashkey.startsWith(cid.toString())) key.remove(hashkey) ;
-		}
+		key.clear(cid) ;
 	}
 
 	// A convenience method to return a direct color model.
@@ -740,6 +735,14 @@ final class Palette extends KissObject
                   ((includename != null) ? (" (" + includename + ")") : "")) ;
             }
 
+				// Use the decoded palette from the asset cache if it exists.
+
+            ByteBuffer cached = AssetCache.read(ze,AssetCache.PALETTE) ;
+            if (cached != null) loadCached(cached) ;
+			}
+
+			if (!isLoaded() && ".kcf".equals(extension))
+			{
 				// Create the file input stream.
 
 				is = (zip == null) ? null : zip.getInputStream(ze) ;     
@@ -751,6 +754,24 @@ final class Palette extends KissObject
 				b = new byte[bytes] ;
 				while (n < bytes && (len = is.read(b,n,bytes-n)) >= 0) n += len ;
             decode(b) ;
+
+            // Save the decoded palette in the asset cache.
+
+            if (isLoaded() && AssetCache.isEnabled())
+            {
+               ByteBuffer record = ByteBuffer.allocate(24 + 4*size) ;
+               record.putInt("KiSS version 1".equals(encoding) ? 1 : 0) ;
+               record.putInt(colors) ;
+               record.putInt(groups) ;
+               record.putInt(bits) ;
+               record.putInt(offset) ;
+               record.putInt(size) ;
+               record.put(alpha,0,size) ;
+               record.put(red,0,size) ;
+               record.put(green,0,size) ;
+               record.put(blue,0,size) ;
+               AssetCache.write(ze,AssetCache.PALETTE,record) ;
+            }
 			}
 
          // We may be loading a .PAL text file.
@@ -1088,6 +1109,42 @@ final class Palette extends KissObject
    }
 
 
+   // Function to load a decoded KCF palette from an asset cache record.
+   // The record holds the palette header values and the color arrays.
+   // If the record is not valid the palette is not loaded.
+
+   private void loadCached(ByteBuffer buf)
+   {
+      if (buf.remaining() < 24) return ;
+      int version = buf.getInt() ;
+      int c = buf.getInt() ;
+      int g = buf.getInt() ;
+      int n = buf.getInt() ;
+      int o = buf.getInt() ;
+      int s = buf.getInt() ;
+      if (n == 0 || s < 0 || buf.remaining() != 4*s) return ;
+      encoding = (version == 1) ? "KiSS version 1" : "KiSS version 0" ;
+      colors = c ;
+      groups = g ;
+      bits = n ;
+      offset = o ;
+      size = s ;
+      alpha = new byte[size] ;
+      red = new byte[size] ;
+      green = new byte[size] ;
+      blue = new byte[size] ;
+      buf.get(alpha) ;
+      buf.get(red) ;
+      buf.get(green) ;
+      buf.get(blue) ;
+      background = new int[1] ;
+		transparent = new int[1] ;
+      background[0] = 0 ;
+      transparent[0] = 0 ;
+      loaded = true ;
+   }
+
+
    // Function to decode a compressed KCF file.
 	// Decode the file format.  Although it is not encouraged, it is
    // possible to save a .PAL text palette file as a .KCF file.  If
@@ -71,6 +71,7 @@ import java.net.URL ;
 import javax.swing.* ;
 import javax.swing.event.* ;
 import javax.swing.undo.* ;
+import com.wmiles.kisekaeultrakiss.WebSocket.JettyWebSocketEndpoint ;
 
 
 final class PanelFrame extends JPanel
@@ -128,6 +129,12 @@ final class PanelFrame extends JPanel
    private Image baseImage = null ;			// The image, excluding drag cels
    private Graphics fullgc = null ;			// Graphics context for full image
    private Graphics basegc = null ;			// Graphics context for base image
+   private Image lowerImage = null ;      // Drag layer beneath the group
+   private Image upperImage = null ;      // Drag layer above the group
+   private Graphics lowergc = null ;      // Graphics context for lower layer
+   private Graphics uppergc = null ;      // Graphics context for upper layer
+   private Group layergroup = null ;      // The group the layers are for
+   private int layercels = 0 ;            // The group cel count for layers
    private Vector printimage = null ;     // The set of printable page images
    private Rectangle imageArea = null ;   // The area of our image buffers
    private Thread flickerthread = null ;  // The flicker of selection boxes
@@ -167,9 +174,15 @@ final class PanelFrame extends JPanel
    private Cel lastcel = null ;				// The last selected cel
    private Group lastgroup = null ;			// The last selected group
    private int [] celList = null ;			// The list of cels on this page
+   private CelIndex celindex = null ;     // The spatial index of celList
+   private RenderScheduler scheduler = null ;  // The redraw scheduler
    private int [] baseList = null ;			// The list of cels excluding group
    private Rectangle box = null ;			// The mouse drawing bounding box
    private Rectangle priorbox = null ;		// The previous drag bounding box
+   private Rectangle dragdamage = null ;  // Redraw area while dragging
+   private int [] lowerList = null ;      // Cels drawn beneath the group
+   private int [] middleList = null ;     // Group cels and interleaved cels
+   private int [] upperList = null ;      // Cels drawn above the group
    private Rectangle scrollbox = null ;	// The scrollable object bounding box
    private Rectangle restrictbox = null ;	// The restriction drag bounding box
    private Point flexvalue = null ;			// Our current group sticky value
@@ -472,7 +485,7 @@ final class PanelFrame extends JPanel
 
       // Update our interface.
 
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       showpage() ;
    }
 
@@ -507,7 +520,7 @@ final class PanelFrame extends JPanel
 
       // Update our interface.
 
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       showpage() ;
    }
 
@@ -729,6 +742,7 @@ final class PanelFrame extends JPanel
                Group g = (Group) o ;
                g.removeCel((Cel) kiss) ;                   
                if (g.getCelCount() == 0) groups.remove(g) ;
+               config.getCollisionIndex().clear() ;
             }            
 
             // Establish the parent group context.  Remove the group from the
@@ -806,8 +820,8 @@ final class PanelFrame extends JPanel
       // If this is not an internal cut, redraw the page.
 
       if (internal) return ;
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       showpage() ;
    }
 
@@ -863,7 +877,7 @@ final class PanelFrame extends JPanel
 
       // Update our menu state.
 
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -1027,6 +1041,7 @@ final class PanelFrame extends JPanel
                      c1.setKey(c1.getKeyTable(),config.getID(),"Import "+c1.getName().toUpperCase()) ;
                   cels.addElement(c1) ;
                   g.addCel(c1) ;
+                  config.getCollisionIndex().clear() ;
                   c1.saveState(cid,"initial") ;
                   if (OptionsDialog.getDebugEdit())
                      PrintLn.println("Edit: paste create " + c1 + " on page " + page) ;
@@ -1223,6 +1238,7 @@ final class PanelFrame extends JPanel
             {
                Group g = (Group) o ;
                g.addCel(c) ;
+               config.getCollisionIndex().clear() ;
                g.rebuildBoundingBox() ;
                g.eliminateOffset() ;
                g.setUpdated(true) ;
@@ -1312,8 +1328,8 @@ final class PanelFrame extends JPanel
 
       if (internal) return ;
       loadCels(pageset,false) ;
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       showpage() ;
    }
 
@@ -1382,7 +1398,7 @@ final class PanelFrame extends JPanel
 
       // Update our menu state.
 
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       showpage() ;
    }
 
@@ -1440,7 +1456,7 @@ final class PanelFrame extends JPanel
 
       // Update our menu state.
 
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       showpage() ;
    }
 
@@ -1557,7 +1573,7 @@ final class PanelFrame extends JPanel
       // Update our menu state.
 
       config.setUpdated(true) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       showpage() ;
    }
 
@@ -1599,7 +1615,7 @@ final class PanelFrame extends JPanel
       // Update our menu state.
 
       OptionsDialog.setTempEditEnable(true) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       repaint() ;
    }
 
@@ -1650,7 +1666,7 @@ final class PanelFrame extends JPanel
       // Update our menu state.
 
       OptionsDialog.setTempEditEnable(true) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       repaint() ;
    }
 
@@ -1679,8 +1695,8 @@ final class PanelFrame extends JPanel
 
       // Update our menu state.
 
-      parent.updateMenu() ;
-      parent.showStatus(null) ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.showStatus(null) ;
       repaint() ;
    }
 
@@ -1719,8 +1735,8 @@ final class PanelFrame extends JPanel
 
       // Update our menu state.
 
-      parent.updateMenu() ;
-      parent.showStatus(null) ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.showStatus(null) ;
       repaint() ;
    }
 
@@ -2072,8 +2088,8 @@ final class PanelFrame extends JPanel
 
       Integer multipalette = (page != null) ? page.getMultiPalette() : null ;
       initcolor(multipalette) ;
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       showpage() ;
    }
 
@@ -2086,7 +2102,7 @@ final class PanelFrame extends JPanel
       UndoableColorEdit ce = new UndoableColorEdit(editobject,oldtransparent,newtransparent) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -2099,7 +2115,7 @@ final class PanelFrame extends JPanel
       UndoableImageEdit ce = new UndoableImageEdit(editobject,oldtransparent,loop,offset,location,img,p) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       
       // If we dithered to a KCF palette then we need to add the palette into
       // the configuration.  This will be removed on an undo.
@@ -2137,8 +2153,8 @@ final class PanelFrame extends JPanel
 
       Integer multipalette = (page != null) ? page.getMultiPalette() : null ;
       initcolor(multipalette) ;
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       showpage() ;
    }
 
@@ -2151,7 +2167,7 @@ final class PanelFrame extends JPanel
       UndoablePageSetEdit ce = new UndoablePageSetEdit(p,oldmp,newmp) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -2163,7 +2179,7 @@ final class PanelFrame extends JPanel
       UndoableSizeEdit ce = new UndoableSizeEdit(SIZE,d1,d2) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -2175,7 +2191,7 @@ final class PanelFrame extends JPanel
       UndoableSizeEdit ce = new UndoableSizeEdit(ATTRIBUTES,c,oldattr,newattr) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -2187,7 +2203,7 @@ final class PanelFrame extends JPanel
       UndoableTransparencyEdit ce = new UndoableTransparencyEdit(o,ot,nt) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -2199,7 +2215,7 @@ final class PanelFrame extends JPanel
       UndoableVisibilityEdit ce = new UndoableVisibilityEdit(o,ot,nt) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -2211,7 +2227,7 @@ final class PanelFrame extends JPanel
       UndoableGhostEdit ce = new UndoableGhostEdit(o,ot,nt) ;
       UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
       if (undo != null) undo.undoableEditHappened(evt) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
    }
 
 
@@ -2364,6 +2380,7 @@ final class PanelFrame extends JPanel
       // Add the cel as the first cel in the group.
 
       g.addCel(cel,true) ;
+      config.getCollisionIndex().clear() ;
       g.setContext((Integer) page.getIdentifier()) ;
       g.rebuildBoundingBox() ;
       if (!newgroup)
@@ -2442,8 +2459,8 @@ final class PanelFrame extends JPanel
       // Redraw the page.
       
       OptionsDialog.setTempEditEnable(true) ;
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       page.setChanged(true) ;
       config.setUpdated(true) ;
       KissMenu menu = parent.getMenu() ;
@@ -2508,8 +2525,8 @@ final class PanelFrame extends JPanel
 
       // Redraw the page.
 
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       config.setUpdated(true) ;
       if (config.getPaletteCount() == 1 && paletteadded)
       {
@@ -2712,8 +2729,8 @@ final class PanelFrame extends JPanel
       Integer pid = (Integer) page.getIdentifier() ;
       if (groupset != null) groupset.setContext(pid) ;
       updateCelList() ;
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       showpage() ;
    }
 
@@ -2819,6 +2836,8 @@ final class PanelFrame extends JPanel
    void init(Configuration c)
    {
       config = c ;
+      if (scheduler == null) scheduler = new RenderScheduler(this) ;
+      scheduler.start() ;
       mousedown = false ;
       cels = new Vector() ;
       celList = new int [0] ;
@@ -2850,14 +2869,17 @@ final class PanelFrame extends JPanel
 
       if (config != null)
       {
-         String s = parent.getTitle() ;
-         String s1 = parent.getUserTitle() ;
-         int i = s.indexOf('-') ;
-         s = (i >= 0) ? s.substring(0,i) : s + " " ;
          String name = config.getName() ;
-         if (name != null) s += "- " + " " + name ;
-         if (s1 != null) s = s1 ;
-         if (name != null) parent.setTitle(s) ;
+         if (parent != null)
+         {
+            String s = parent.getTitle() ;
+            String s1 = parent.getUserTitle() ;
+            int i = s.indexOf('-') ;
+            s = (i >= 0) ? s.substring(0,i) : s + " " ;
+            if (name != null) s += "- " + " " + name ;
+            if (s1 != null) s = s1 ;
+            if (name != null) parent.setTitle(s) ;
+         }
          panelSize = new Dimension(config.getSize()) ;
          panelArea = new Rectangle(panelSize) ;
          windowSize = new Dimension(panelSize) ;
@@ -2878,7 +2900,7 @@ final class PanelFrame extends JPanel
       // Locate our undo manager for edits.
 
       undo = null ;
-      KissMenu menu = parent.getMenu() ;
+      KissMenu menu = (parent != null) ? parent.getMenu() : null ;
       if (menu instanceof PanelMenu)
          undo = ((PanelMenu) menu).getUndoManager() ;
    }
@@ -2886,18 +2908,23 @@ final class PanelFrame extends JPanel
 
    // Create two image buffers.  The base image buffer is used
    // as a base upon which to draw the moving cel group.  The full
-   // image buffer is where we actually draw the final scene.
+   // image buffer is where we actually draw the final scene.  A panel
+   // without a parent frame, such as a session replay panel, draws to
+   // plain buffered images.
 
    void createbuffers(int width, int height)
    {
-      GraphicsConfiguration gc = parent.getGraphicsConfiguration() ;
-      if (gc == null) return ;
+      GraphicsConfiguration gc = (parent != null) ? parent.getGraphicsConfiguration() : null ;
+      if (gc == null && parent != null) return ;
       if (width < 1) width = 1 ;
       if (height < 1) height = 1 ;
       if (fullgc != null) fullgc.dispose() ;
       if (basegc != null) basegc.dispose() ;
-      fullImage = gc.createCompatibleImage(width,height) ;
-      baseImage = gc.createCompatibleImage(width,height) ;
+      releaseDragLayers() ;
+      fullImage = (gc != null) ? gc.createCompatibleImage(width,height)
+         : new BufferedImage(width,height,BufferedImage.TYPE_INT_RGB) ;
+      baseImage = (gc != null) ? gc.createCompatibleImage(width,height)
+         : new BufferedImage(width,height,BufferedImage.TYPE_INT_RGB) ;
       fullgc = fullImage.getGraphics() ;
       basegc = baseImage.getGraphics() ;
       imageArea = new Rectangle(0,0,width,height) ;
@@ -3036,7 +3063,7 @@ final class PanelFrame extends JPanel
 
       // We are switching to a new page.
 
-      Cursor cursor = parent.getCursor() ;
+      Cursor cursor = (parent != null) ? parent.getCursor() : null ;
       Kisekae.setCursor(parent,Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
       suspendEvents() ;
       if (OptionsDialog.getDebugControl())
@@ -3102,6 +3129,8 @@ final class PanelFrame extends JPanel
       if (OptionsDialog.getDebugLoad())
          PrintLn.println("PanelFrame load unloaded cels on page " + pageset) ;
       loadCels(pageset) ;
+      CelCache cache = config.getCelCache() ;
+      if (cache != null) cache.pageShown(pageset) ;
 
       // Set the initial colors for this page.  These are the colors defined
       // by the multipalette established for the page set.
@@ -3112,7 +3141,7 @@ final class PanelFrame extends JPanel
       else
          background = config.getBorderColor() ;
       setBackground(background) ;
-      parent.setBackground(background) ;
+      if (parent != null) parent.setBackground(background) ;
       Integer multipalette = (page != null) ? page.getMultiPalette() : null ;
       initcolor(multipalette) ;
 
@@ -3208,10 +3237,11 @@ final class PanelFrame extends JPanel
 
       // Update the toolbar to show the correct page selection.
 
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent == null) return ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
       Kisekae.setCursor(parent,cursor);
-      parent.showStatus(null);
+      if (parent != null) parent.showStatus(null) ;
    }
 
 
@@ -3342,8 +3372,8 @@ final class PanelFrame extends JPanel
 
       // Update the toolbar to show the correct multipalette.
 
-      parent.updateMenu() ;
-      parent.updateToolBar() ;
+      if (parent != null) parent.updateMenu() ;
+      if (parent != null) parent.updateToolBar() ;
    }
 
 
@@ -3357,49 +3387,7 @@ final class PanelFrame extends JPanel
    private int [] createCelList(int pageset)
    {
       if (cels == null) return new int [0] ;
-      Integer pg = Integer.valueOf(pageset) ;
-
-      // Invert the configuration cel list so that lower index duplicate level
-      // cels appear at the top of the working list.
-
-      Vector sortedcels = (Vector) cels.clone() ;
-      Collections.reverse(sortedcels) ;
-
-      // Sort the working list by z-level.  The sort retains original order
-      // for duplicate values.
-
-      Collections.sort(sortedcels,new LevelComparator()) ;
-
-      // Construct the page cel list.  Isolate video cels.
-
-      Vector videoList = new Vector() ;
-      Vector celList = new Vector(cels.size()) ;
-      for (int i = sortedcels.size()-1 ; i >= 0 ; i--)
-      {
-         Cel c = (Cel) sortedcels.elementAt(i) ;
-         if (c.isOnPage(pg))
-         {
-            Object o = c.getGroup() ;
-            if (!(o instanceof Group)) continue ;
-            if (!(page.contains((Group) o))) continue ;
-            if (c instanceof Video)
-               videoList.addElement(Integer.valueOf(cels.indexOf(c))) ;
-            else
-               celList.addElement(Integer.valueOf(cels.indexOf(c))) ;
-         }
-      }
-
-      // Video cels are last in the list so they are drawn on top of all
-      // normal cels, followed by all remaining cels.
-
-      celList.addAll(videoList) ;
-      int [] celnumbers = new int [celList.size()] ;
-      for (int i = 0 ; i < celList.size() ; i++)
-      {
-         Object o = celList.elementAt(i) ;
-         celnumbers[i] = (o instanceof Integer) ? ((Integer) o).intValue() : -1 ;
-      }
-      return celnumbers ;
+      return PageRenderer.createCelList(cels,page,pageset) ;
    }
 
 
@@ -3445,7 +3433,7 @@ final class PanelFrame extends JPanel
          Vector groups = new Vector() ;
          String s = (OptionsDialog.getPagesAreScenes()) ? "scene" : "page" ;
          if (OptionsDialog.getDebugLoad())
-            parent.showStatus("Load images on " + s + " " + pageset + " ...");
+            if (parent != null) parent.showStatus("Load images on " + s + " " + pageset + " ...") ;
          Integer page = Integer.valueOf(pageset) ;
 
          for (int i = 0 ; i < baseList.length ; i++)
@@ -3453,8 +3441,13 @@ final class PanelFrame extends JPanel
             int index = baseList[i] ;
             if (index < 0 || index >= cels.size()) continue ;
             Cel c = (Cel) cels.elementAt(index) ;
-            if (c.isLoaded()) continue ;
             if (!c.isOnSpecificPage(page)) continue ;
+
+            // Cels loaded by the cache prefetch are placed as if we had
+            // loaded them now.
+
+            CelCache cache = config.getCelCache() ;
+            if (c.isLoaded() && (cache == null || !cache.claim(c))) continue ;
             Vector includefiles = config.getIncludeFiles() ;
             loadCel(c,pageset,includefiles) ;
             if (!update) continue ;
@@ -3559,7 +3552,9 @@ final class PanelFrame extends JPanel
    {
       if (c == null) return ;
       if (c.isLoaded()) return ;
-      c.load(includefiles) ;
+      CelCache cache = (config != null) ? config.getCelCache() : null ;
+      if (cache != null) cache.load(c,includefiles) ;
+      else c.load(includefiles) ;
       if (OptionsDialog.getDebugLoad())
       {
          String s = "Load: (page " + pageset + ") " + c ;
@@ -3687,7 +3682,7 @@ final class PanelFrame extends JPanel
       // Initialize the page for viewing.
 
       initpage(p) ;
-      parent.updateMenu() ;
+      if (parent != null) parent.updateMenu() ;
       showpage() ;
    }
 
@@ -3726,8 +3721,8 @@ final class PanelFrame extends JPanel
 
       Object o = this.getParent() ;
       if (o instanceof JComponent) ((JComponent) o).revalidate() ;
-      parent.centerpanel() ;
-      parent.updateMenu() ;
+      if (parent != null) parent.centerpanel() ;
+      if (parent != null) parent.updateMenu() ;
       showpage() ;
    }
 
@@ -3996,7 +3991,7 @@ final class PanelFrame extends JPanel
          UndoableSizeEdit ce = new UndoableSizeEdit(SCALE,oldsf,sf) ;
          UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
          if (undo != null) undo.undoableEditHappened(evt) ;
-         parent.updateMenu() ;
+         if (parent != null) parent.updateMenu() ;
       }
    }
 
@@ -4022,6 +4017,7 @@ final class PanelFrame extends JPanel
 
    private void showpage1()
    {
+      if (parent == null) return ;
       String s = parent.getTitle() ;
       String s1 = parent.getUserTitle() ;
       int i = s.indexOf(" (") ;
@@ -4053,7 +4049,7 @@ final class PanelFrame extends JPanel
       // Resume all suspended alarms.
 
       resumeEvents() ;
-      parent.updateRunState() ;
+      if (parent != null) parent.updateRunState() ;
 //    parent.requestFocus() ;
       requestFocus() ;
       repaint() ;
@@ -4141,7 +4137,37 @@ final class PanelFrame extends JPanel
       // With scaled images we have a one pixel drawing problem.
       // Expanding the box size appear to compensate for this.
 
-      if (box != null)
+      // A dragged group is composed from cached layers.  The lower layer
+      // holds the cels drawn beneath the group and the upper layer holds
+      // the cels drawn above it.  We rebuild the area where the group was,
+      // where it is now, and any area redrawn since the last paint.
+
+      if (box != null && createDragLayers())
+      {
+         Rectangle r = new Rectangle(box) ;
+         if (priorbox != null) r = r.union(priorbox) ;
+         if (group != null) r = r.union(group.getBoundingBox()) ;
+         if (dragdamage != null) r = r.union(dragdamage) ;
+         r = r.intersection(imageArea) ;
+         dragdamage = null ;
+         if (!r.isEmpty())
+         {
+            copy(fullgc,r,lowerImage) ;
+            drawLayer(fullgc,r,middleList) ;
+            copy(fullgc,r,upperImage) ;
+         }
+
+         // Retain the current box coordinates.
+
+         if (priorbox != null)
+         {
+            priorbox.x = box.x ;
+            priorbox.y = box.y ;
+            priorbox.width = box.width ;
+            priorbox.height = box.height ;
+         }
+      }
+      else if (box != null)
       {
          Integer level = (group != null) ? group.getLevel() : null ;
          // Draw where the image once was into the full buffer.
@@ -4178,6 +4204,7 @@ final class PanelFrame extends JPanel
       // Java 1.4 volatile image high performance graphics.  It provides
       // video performance improvements.
 
+      if (box == null && layergroup != null) releaseDragLayers() ;
       if (fullImage != null)
       {
          double windowsfx = ((double) sw) / panelSize.width ;
@@ -4187,6 +4214,7 @@ final class PanelFrame extends JPanel
          int iw = (int) (iw1 * windowsfx) ;
          int ih = (int) (ih1 * windowsfy) ;
          g.drawImage(fullImage,x,y,x+sw,y+sh,sx,sy,sx+iw,sy+ih,null) ;
+         if (Kisekae.isWebsocket()) pushWebSocket(g,sx,sy,sw,sh,iw,ih) ;
       }
 
       // If we are editing, paint a selection box.
@@ -4349,6 +4377,44 @@ final class PanelFrame extends JPanel
 
 
 
+   // When running under websocket the repainted region of the scene is
+   // pushed to the client directly from our full image.  This avoids a 
+   // Robot capture of the whole screen when only a cel moved.  If the 
+   // image is scaled to the window, or a menu, dialog, or selection box 
+   // may show over the scene, we ask for a screen capture instead.
+
+   private void pushWebSocket(Graphics g, int sx, int sy, int sw, int sh, int iw, int ih)
+   {
+      JettyWebSocketEndpoint endpoint = Kisekae.getServerEndpoint() ;
+      if (endpoint == null || !endpoint.isRenderPush()) return ;
+      if (!isShowing()) return ;
+      boolean obscured = (iw != sw || ih != sh) ;
+      if (selection != null || selectbox != null) obscured = true ;
+      if (!parent.isActive()) obscured = true ;
+      if (MenuSelectionManager.defaultManager().getSelectedPath().length > 0) obscured = true ;
+      if (obscured) { endpoint.requestCapture() ; return ; }
+
+      Rectangle clip = g.getClipBounds() ;
+      Rectangle r = new Rectangle(x,y,sw,sh) ;
+      if (clip != null) r = r.intersection(clip) ;
+      Rectangle visible = getVisibleRect() ;
+      r = r.intersection(visible) ;
+      if (r.isEmpty()) return ;
+
+      BufferedImage image = new BufferedImage(r.width,r.height,BufferedImage.TYPE_INT_RGB) ;
+      Graphics ig = image.getGraphics() ;
+      int ix = r.x - x + sx ;
+      int iy = r.y - y + sy ;
+      ig.drawImage(fullImage,0,0,r.width,r.height,ix,iy,ix+r.width,iy+r.height,null) ;
+      ig.dispose() ;
+      Point p = getLocationOnScreen() ;
+      r.translate(p.x,p.y) ;
+      visible.translate(p.x,p.y) ;
+      endpoint.pushImage(image,r,visible) ;
+   }
+
+
+
    // The draw method is used to paint the required set of cels on the
    // screen.  This method clears the drawing area and then draws the
    // cels over a static background.  This method is synchronized
@@ -4451,11 +4517,150 @@ final class PanelFrame extends JPanel
 
 
 
+   // The drawLayer method draws the listed cels within the bounding box
+   // over the current image contents.  The area is not cleared.
+
+   synchronized void drawLayer(Graphics g, Rectangle box, int [] list)
+   {
+      if (list == null || box == null) return ;
+      Graphics2D g2 = (Graphics2D) g ;
+      g2.setClip(new Rectangle(imageArea)) ;
+      for (int i = 0 ; i < list.length ; i++)
+      {
+         Cel drawcel ;
+         int c = list[i] ;
+         if (c < 0) continue ;
+         try { drawcel = (Cel) cels.elementAt(c) ; }
+         catch (ArrayIndexOutOfBoundsException e) { continue ; }
+         if (!(drawcel.getLevel() instanceof Integer)) continue ;
+         if (!drawcel.isDrawable(box)) continue ;
+         drawcel.draw(g2,box) ;
+      }
+   }
+
+
+   // Create the drag layers for the current group.  The page cel list is
+   // split at the first and last group cel.  Cels before the first group
+   // cel form the lower layer, cels after the last group cel form the
+   // upper layer, and the group cels with any cels between them are
+   // drawn on each paint.  The upper layer is transparent where it has no
+   // cels, so layer composition gives the same scene as drawing every cel
+   // in order.  Returns false if layers cannot be used.
+
+   private boolean createDragLayers()
+   {
+      if (group == null || celList == null || imageArea == null) return false ;
+      if (layergroup == group && layercels == group.getCelCount()) return true ;
+      releaseDragLayers() ;
+      GraphicsConfiguration gc = parent.getGraphicsConfiguration() ;
+      if (gc == null) return false ;
+
+      // Find the group cels in the cel list.
+
+      int first = -1 ;
+      int last = -1 ;
+      for (int i = 0 ; i < group.getCelCount() ; i++)
+      {
+         int n = cels.indexOf(group.getCel(i)) ;
+         if (n < 0) continue ;
+         for (int j = 0 ; j < celList.length ; j++)
+         {
+            if (celList[j] != n) continue ;
+            if (first < 0 || j < first) first = j ;
+            if (j > last) last = j ;
+         }
+      }
+      if (first < 0) return false ;
+      lowerList = new int[first] ;
+      middleList = new int[last-first+1] ;
+      upperList = new int[celList.length-last-1] ;
+      System.arraycopy(celList,0,lowerList,0,lowerList.length) ;
+      System.arraycopy(celList,first,middleList,0,middleList.length) ;
+      System.arraycopy(celList,last+1,upperList,0,upperList.length) ;
+
+      // Draw the layers.
+
+      try
+      {
+         int w = imageArea.width ;
+         int h = imageArea.height ;
+         lowerImage = gc.createCompatibleImage(w,h) ;
+         upperImage = gc.createCompatibleImage(w,h,Transparency.TRANSLUCENT) ;
+         lowergc = lowerImage.getGraphics() ;
+         uppergc = upperImage.getGraphics() ;
+      }
+      catch (OutOfMemoryError e)
+      {
+         releaseDragLayers() ;
+         return false ;
+      }
+      layergroup = group ;
+      layercels = group.getCelCount() ;
+      updateDragLayers(new Rectangle(imageArea)) ;
+      return true ;
+   }
+
+
+   // Redraw the drag layers within the bounding box.
+
+   private void updateDragLayers(Rectangle box)
+   {
+      if (layergroup == null || box == null) return ;
+      draw(lowergc,box,lowerList,null) ;
+      Graphics2D g2 = (Graphics2D) uppergc ;
+      g2.setClip(new Rectangle(imageArea)) ;
+      g2.setComposite(AlphaComposite.Clear) ;
+      g2.fillRect(box.x,box.y,box.width,box.height) ;
+      g2.setComposite(AlphaComposite.SrcOver) ;
+      drawLayer(uppergc,box,upperList) ;
+   }
+
+
+   // Release the drag layers.
+
+   private void releaseDragLayers()
+   {
+      if (lowergc != null) lowergc.dispose() ;
+      if (uppergc != null) uppergc.dispose() ;
+      if (lowerImage != null) lowerImage.flush() ;
+      if (upperImage != null) upperImage.flush() ;
+      lowerImage = upperImage = null ;
+      lowergc = uppergc = null ;
+      lowerList = middleList = upperList = null ;
+      layergroup = null ;
+      layercels = 0 ;
+      dragdamage = null ;
+   }
+
+
+
    // The redraw method is used when an alarm fires and a portion
-   // of the screen need to be reconstructed.  The cels are drawn
-   // to the base image then copied to the full image for display.
+   // of the screen need to be reconstructed.  The request is passed
+   // to the render scheduler which combines the damaged areas from
+   // all requests and redraws them once each frame.  If the scheduler
+   // is not running the redraw is performed immediately.
 
-   synchronized void redraw(Rectangle box)
+   void redraw(Rectangle box)
+   {
+      if (box == null) return ;
+      RenderScheduler s = scheduler ;
+      if (s != null && s.isRunning())
+         s.schedule(box) ;
+      else
+         redrawNow(box) ;
+   }
+
+
+   // Return the render scheduler.
+
+   RenderScheduler getRenderScheduler() { return scheduler ; }
+
+
+   // The redrawNow method reconstructs a portion of the screen
+   // immediately.  The cels are drawn to the base image then copied
+   // to the full image for display.
+
+   synchronized void redrawNow(Rectangle box)
    {
       if (box == null) return ;
 
@@ -4480,7 +4685,7 @@ final class PanelFrame extends JPanel
             {
                final Rectangle box1 = box ;
                Runnable runner = new Runnable()
-               { public void run() { redraw(box1) ; } } ;
+               { public void run() { redrawNow(box1) ; } } ;
                javax.swing.SwingUtilities.invokeLater(runner) ;
                return ;
             }
@@ -4496,6 +4701,7 @@ final class PanelFrame extends JPanel
          for (int i = 0 ; i < celList.length ; i++) baseList[i] = celList[i] ;
          box = new Rectangle(imageArea) ;
          redrawimage = false ;
+         releaseDragLayers() ;
       }
 
       // Remove the group cels from the base picture if the mouse is down
@@ -4518,6 +4724,14 @@ final class PanelFrame extends JPanel
 
       draw(basegc,box,baseList,null) ;
       copy(fullgc,box,baseImage) ;
+
+      // Update the drag layers.  The area is recomposed on the next paint.
+
+      if (layergroup != null)
+      {
+         updateDragLayers(box) ;
+         dragdamage = (dragdamage == null) ? new Rectangle(box) : dragdamage.union(box) ;
+      }
       int bx = (int) (box.x * sf) ;
       int by = (int) (box.y * sf) ;
       int bw = (int) Math.ceil(box.width * sf) + 1 ;
@@ -4576,7 +4790,7 @@ final class PanelFrame extends JPanel
 
    private void adjustViewport(Rectangle sb)
    {
-      if (sb == null) return ;
+      if (sb == null || parent == null) return ;
       JViewport jv = parent.getViewport() ;
       if (jv == null) return ;
       Rectangle view = jv.getViewRect() ;
@@ -4634,37 +4848,27 @@ final class PanelFrame extends JPanel
       // on the current page. Transparent cel pixels are recognized.
 
       if (celList == null) return (-1) ;
-      for (int i = celList.length-1 ; i >= 0 ; i--)
+      CelIndex index = getCelIndex() ;
+      int [] list = index.getList() ;
+      int [] positions = index.getCelsAt(x,y) ;
+      for (int k = 0 ; k < positions.length ; k++)
       {
          Cel c ;
-         int celNumber = celList[i] ;
+         int celNumber = list[positions[k]] ;
          try { c = (Cel) cels.elementAt(celNumber) ; }
          catch (ArrayIndexOutOfBoundsException e) { continue ; }
          boolean mousevisible = checkMouse(c) ;
          if (!c.isVisible() && !mousevisible) continue ;
          Rectangle r = c.getBoundingBox() ;
-         int t = c.getAlpha(x-r.x,y-r.y) ;
-         if (t < 0) continue ;
          int n = c.getTransparency() ;
 
          // Transparent pixels are not accepted if the pixel is the cel
          // transparent color.  GIF images appear to return the background
          // color if this the transparent pixel.  This is because the GIF
          // frame 0 buffered image is set to the background color in GifCel.
+         // The cel opacity mask resolves these colors.
 
-         if (t == 0 || (n == 0 && selection != null))
-         {
-            if (c.isTruecolor()) continue ;
-            int rgb = c.getRGB(x-r.x,y-r.y) ;
-            if (rgb < 0) continue ;
-            Color tc = c.getTransparentColor() ;
-            if (tc != null && rgb == (tc.getRGB() & 0xffffff)) continue ;
-            if (c instanceof GifCel && tc != null)
-            {
-               Color bc = c.getBackgroundColor() ;
-               if (bc != null && rgb == (bc.getRGB() & 0xffffff)) continue ;
-            }
-         }
+         if (!c.isHit(x-r.x,y-r.y,(n == 0 && selection != null))) continue ;
 
          // Ghosted cels are recognized if they are edit selected.
 
@@ -4712,10 +4916,13 @@ final class PanelFrame extends JPanel
       // on the current page. Transparent cel pixels are recognized.
 
       if (celList == null) return (-1) ;
-      for (int i = celList.length-1 ; i >= 0 ; i--)
+      CelIndex index = getCelIndex() ;
+      int [] list = index.getList() ;
+      int [] positions = index.getCelsAt(x,y) ;
+      for (int k = 0 ; k < positions.length ; k++)
       {
          Cel c ;
-         int celNumber = celList[i] ;
+         int celNumber = list[positions[k]] ;
          try { c = (Cel) cels.elementAt(celNumber) ; }
          catch (ArrayIndexOutOfBoundsException e) { continue ; }
          if (!c.isVisible()) continue ;
@@ -4727,6 +4934,38 @@ final class PanelFrame extends JPanel
    }
 
 
+   // Function to return the spatial index for the current cel list.  The
+   // index is rebuilt whenever a new cel list is established for the page.
+   // Cels update the index as they move.
+
+   private CelIndex getCelIndex()
+   {
+      int [] list = celList ;
+      if (celindex != null && celindex.getList() == list) return celindex ;
+      if (celindex != null) celindex.clear() ;
+      Dimension d = (config != null) ? config.getSize() : panelSize ;
+      celindex = new CelIndex(list,cels,d) ;
+      return celindex ;
+   }
+
+
+   // Function to return the cel list numbers of the cels on this page
+   // whose bounding box intersects the specified box.  Cels are returned
+   // from the top cel down.
+
+   int [] getCelsIn(Rectangle box)
+   {
+      if (celList == null || box == null) return new int[0] ;
+      CelIndex index = getCelIndex() ;
+      int [] list = index.getList() ;
+      int [] positions = index.getCelsIn(box) ;
+      int [] celnumbers = new int[positions.length] ;
+      for (int i = 0 ; i < positions.length ; i++)
+         celnumbers[i] = list[positions[i]] ;
+      return celnumbers ;
+   }
+
+
 
    // The checkOverlap function is used to determine if two groups have
    // overlapping bounding boxes.  Groups overlap if the intersection
@@ -4735,8 +4974,10 @@ final class PanelFrame extends JPanel
    int checkOverlap(String s1, String s2)
    {
       collide = null ;
-      KissObject g1 = findGroupOrCel(s1) ;
-      KissObject g2 = findGroupOrCel(s2) ;
+      if (config == null) return -1 ;
+      CollisionIndex index = config.getCollisionIndex() ;
+      KissObject g1 = index.getObject(s1) ;
+      KissObject g2 = index.getObject(s2) ;
       Integer pid = (page == null) ? null : (Integer) page.getIdentifier() ;
       if (g1 == null || g2 == null || pid == null) return -1 ;
       if (!(g1.isVisible() && g2.isVisible())) return -1 ;
@@ -4780,9 +5021,6 @@ final class PanelFrame extends JPanel
 
    int checkTouch(String s1, String s2, Object g, FKissEvent event)
    {
-      Object [] o ;
-      Object [] pkt1 ;
-      Object [] pkt2 ;
       collide = null ;
       if (s1 == null) return -1 ;
       if (s2 == null) return -1 ; 
@@ -4790,151 +5028,48 @@ final class PanelFrame extends JPanel
       if (config == null) return -1 ;
       Integer pid = (Integer) page.getIdentifier() ;
 
-      // Get the first cel.  Our parameter may be a CelGroup name.
-      // For CelGroups our list will include all cels in the group.
-      // Ambiguous cels are not checked for group or cel group parameters.
+      // Get the cel lists.  Our parameters may be CelGroup names.  For
+      // CelGroups our list will include all cels in the group.  The lists
+      // are resolved once by the configuration collision index.
 
-      o = (event != null) ? event.getCollision1() : null ;
-      pkt1 = (o != null) ? o : getCelList(s1,config,new Object [2]) ;
-      if (event != null) event.setCollision1(pkt1) ;
-      Vector cellist1 = (Vector) pkt1[1] ;
-      Integer celtype1 = (Integer) pkt1[0] ;
-      if (cellist1 != null) 
+      CollisionIndex index = config.getCollisionIndex() ;
+      Cel [] cels1 = index.getCelList(s1).cels ;
+      Cel [] cels2 = index.getCelList(s2).cels ;
+      for (int i = 0 ; i < cels1.length ; i++)
       {
-         Enumeration enum1 = cellist1.elements() ;
-         while (enum1.hasMoreElements())
-         {
-            Cel c1 = (Cel) enum1.nextElement()  ;
-            while (c1 != null)
-            {
-
-               // Identify the cel background and transparent colors.
-               // Note that we convert pixels (0,0,0) to (0,0,1) so
-               // fully black transparent settings are not 0, but 1.
-
-               Color bc1 = c1.getBackgroundColor() ;
-               Color tc1 = c1.getTransparentColor() ;
-               int bcrgb1 = (bc1 != null) ? (bc1.getRGB() & 0xffffff) : -1 ;
-               int tcrgb1 = (tc1 != null) ? (tc1.getRGB() & 0xffffff) : -1 ;
-               if (tcrgb1 == 0) tcrgb1 = 1 ;
-
-               // Check this cel against all possible occurances of the second cel.
-
-               o = (event != null) ? event.getCollision2() : null ;
-               pkt2 = (o != null) ? o : getCelList(s2,config,new Object [2] ) ;
-               if (event != null) event.setCollision2(pkt2) ;
-               Vector cellist2 = (Vector) pkt2[1] ;
-               Integer celtype2 = (Integer) pkt2[0] ;
-               if (cellist2 != null) 
-               {
-                  Enumeration enum2 = cellist2.elements() ;
-                  while (enum2.hasMoreElements())
-                  {
-                     Cel c2 = (Cel) enum2.nextElement()  ;
-                     while (c2 != null)
-                     {
-                        if (c1 == c2)
-                        {
-                           c2 = Cel.findNextCel(c2,c2.getRelativeName(),config) ;
-                           if (celtype2.intValue() != 1) c2 = null ;
-                           continue ;
-                        }
-                  
-                        // Confirm that the cels are within the area of interest.
-                        // Cels must be visible and on the current page.  For mouse
-                        // pressed events we reference the object base location.
-
-                        boolean caught1 = (g != null && (c1.getGroup().equals(g))) ;
-                        boolean caught2 = (g != null && (c2.getGroup().equals(g))) ;
-                        Rectangle r1 = (caught1) ? c1.getBaseBoundingBox() : c1.getBoundingBox() ;
-                        Rectangle r2 = (caught2) ? c2.getBaseBoundingBox() : c2.getBoundingBox() ;
-                        if (g != null && !(c1.getGroup().equals(g) || c2.getGroup().equals(g)))
-                        {
-                           c2 = Cel.findNextCel(c2,c2.getRelativeName(),config) ;
-                           if (celtype2.intValue() != 1) c2 = null ;
-                           continue ;
-                        }
-                        if (!(c1.isOnPage(pid) && c2.isOnPage(pid)))
-                        {
-                           c2 = Cel.findNextCel(c2,c2.getRelativeName(),config) ;
-                           if (celtype2.intValue() != 1) c2 = null ;
-                           continue ;
-                        }
-                        if (!(c1.isVisible() && c2.isVisible()))
-                        {
-                           c2 = Cel.findNextCel(c2,c2.getRelativeName(),config) ;
-                           if (celtype2.intValue() != 1) c2 = null ;
-                           continue ;
-                        }
-                        if (!(r1.intersects(r2)))
-                        {
-                           c2 = Cel.findNextCel(c2,c2.getRelativeName(),config) ;
-                           if (celtype2.intValue() != 1) c2 = null ;
-                           continue ;
-                        }
+         Cel c1 = cels1[i] ;
+         if (!(c1.isOnPage(pid) && c1.isVisible())) continue ;
+         boolean caught1 = (g != null && c1.getGroup() == g) ;
+         Rectangle r1 = (caught1) ? c1.getBaseBoundingBox() : c1.getBoundingBox() ;
 
-                        // For these cels, check the pixels in the intersection area
-                        // to see if an overlap exists.
+         // Check this cel against all possible occurances of the second cel.
 
-                        Rectangle r = r1.intersection(r2) ;
-                        int pixel1[] = c1.getPixels(r) ;
-                        int pixel2[] = c2.getPixels(r) ;
-                        if (pixel1 == null || pixel2 == null)
-                        {
-                           c2 = Cel.findNextCel(c2,c2.getRelativeName(),config) ;
-                           if (celtype2.intValue() != 1) c2 = null ;
-                           continue ;
-                        }
+         for (int j = 0 ; j < cels2.length ; j++)
+         {
+            Cel c2 = cels2[j] ;
+            if (c1 == c2) continue ;
 
-                        // Identify the second cel background and transparent colors.
-                        // Note that we convert pixels (0,0,0) to (0,0,1) so
-                        // fully black transparent settings are not 0, but 1.
+            // Confirm that the cels are within the area of interest.
+            // Cels must be visible and on the current page.  For mouse
+            // pressed events we reference the object base location and
+            // only the pairs that involve the moving object are tested.
 
-                        Color bc2 = c2.getBackgroundColor() ;
-                        Color tc2 = c2.getTransparentColor() ;
-                        int bcrgb2 = (bc2 != null) ? (bc2.getRGB() & 0xffffff) : -1 ;
-                        int tcrgb2 = (tc2 != null) ? (tc2.getRGB() & 0xffffff) : -1 ;
-                        if (tcrgb2 == 0) tcrgb2 = 1 ;
+            boolean caught2 = (g != null && c2.getGroup() == g) ;
+            if (g != null && !(caught1 || caught2)) continue ;
+            if (!(c2.isOnPage(pid) && c2.isVisible())) continue ;
+            Rectangle r2 = (caught2) ? c2.getBaseBoundingBox() : c2.getBoundingBox() ;
+            if (!(r1.intersects(r2))) continue ;
 
-                        // Scan the intersection area to find two overlapping
-                        // non-transparent pixels.
+            // For these cels, check the opacity masks in the intersection
+            // area to see if an overlap exists.  The index retains the
+            // result for pairs that have not moved.
 
-                        for (int n = 0 ; n < pixel1.length ; n++)
-                        {
-                           if (n >= pixel2.length) break ;
-                           int a1 = (pixel1[n] >> 24) & 255 ;
-                           int a2 = (pixel2[n] >> 24) & 255 ;
-
-                           // Transparent pixels are not really transparent
-                           // unless they are the cel transparent color.
-
-                           if (a1 == 0 && !c1.isTruecolor())
-                           {
-                              int rgb = pixel1[n] & 0xffffff ;
-                              if (rgb == 0) rgb = 1 ;
-                              if (!((rgb == bcrgb1) || (rgb == tcrgb1))) a1 = 1 ;
-                           }
-                           if (a2 == 0 && !c2.isTruecolor())
-                           {
-                              int rgb = pixel2[n] & 0xffffff ;
-                              if (rgb == 0) rgb = 1 ;
-                              if (!((rgb == bcrgb2) || (rgb == tcrgb2))) a2 = 1 ;
-                           }
-                           if (a1 > 0 && a2 > 0)
-                           {
-                              collide = new Object[2] ;
-                              collide[0] = c1 ;
-                              collide[1] = c2 ;
-                              return 1 ;
-                           }
-                        }
-                        c2 = Cel.findNextCel(c2,c2.getRelativeName(),config) ;
-                        if (celtype2.intValue() != 1) c2 = null ;
-                     }
-                  }
-               }
-               c1 = Cel.findNextCel(c1,c1.getRelativeName(),config) ;
-               if (celtype1.intValue() != 1) c1 = null ;
+            if (index.touches(c1,r1,c2,r2))
+            {
+               collide = new Object[2] ;
+               collide[0] = c1 ;
+               collide[1] = c2 ;
+               return 1 ;
             }
          }
       }
@@ -4993,58 +5128,6 @@ final class PanelFrame extends JPanel
    }
 
 
-   // Utility function to return a set of cels depending on the type of
-   // an event parameter (group or cel group or cel).  This is used in the
-   // checkTouch() function.  
-
-   private Object [] getCelList(String s, Configuration c, Object [] pkt)
-   {
-      Vector v = null ;
-      Integer type = Integer.valueOf(0) ;
-      Cel c1 = Cel.findCel(s,c,null) ;
-      if (c1 != null)
-      {
-         type = Integer.valueOf(1) ;
-         v = new Vector() ;
-         v.add(c1) ;
-      }
-      else
-      {
-         Group g = Group.findGroup(s,c,null) ;
-         if (g != null)
-         {
-            type = Integer.valueOf(2) ;
-            v = g.getAllCels() ;
-         }
-         else
-         {
-            CelGroup cg = CelGroup.findCelGroup(s,c,null) ;
-            if (cg != null)
-            {
-               type = Integer.valueOf(3) ;
-               v = cg.getCels() ;
-            }
-         }
-      }
-      pkt[0] = type ;
-      pkt[1] = v ;
-      return pkt ;
-   }
-
-
-   // Function to parse an event Group or Cel or Cel Group parameter.
-   // These cannot be variables.
-
-   private KissObject findGroupOrCel(String s)
-   {
-      Object o = Group.findGroup(s,config,null) ;
-      if (o == null) o = Cel.findCel(s,config,null) ;
-      if (o == null) o = CelGroup.findCelGroup(s,config,null) ;
-      if (!(o instanceof KissObject)) return null ;
-      return (KissObject) o ;
-   }
-
-
    // Function to adjust a cel location offset due to a cel relocation.
    // Cels are relocated if cels are ungrouped and subsequently moved
    // to a new location.  A new offset is calculated as a displacement
@@ -5569,7 +5652,7 @@ final class PanelFrame extends JPanel
 
    // Method to show a status message in the main frame status bar.
 
-   void showStatus(String s) { parent.showStatus(s) ; }
+   void showStatus(String s) { if (parent != null) parent.showStatus(s) ; }
 
 
    // Method to show a trace message during mouse selection events.  This
@@ -5637,6 +5720,7 @@ final class PanelFrame extends JPanel
 */      
       // Release resources.
 
+      if (scheduler != null) scheduler.stop() ;
       config = null ;
       cel = null ;
       group = null ;
@@ -5650,6 +5734,8 @@ final class PanelFrame extends JPanel
       groups = null ;
       celList = null ;
       baseList = null ;
+      if (celindex != null) celindex.clear() ;
+      celindex = null ;
       incel = null ;
       ingroup = null ;
       groupset = null ;
@@ -5660,6 +5746,7 @@ final class PanelFrame extends JPanel
       if (basegc != null) basegc.dispose() ;
       if (fullImage != null) fullImage.flush() ;
       if (baseImage != null) baseImage.flush() ;
+      releaseDragLayers() ;
 
       // Empty the clipboard and clear the undo buffer.
 
@@ -5864,6 +5951,7 @@ final class PanelFrame extends JPanel
 
    synchronized public void mousePressed(MouseEvent e)
    {
+      recordMouse("press",e) ;
       if (mousedown) return ;
       if (config == null) return ;
       metadown = SwingUtilities.isRightMouseButton(e) ;
@@ -6072,7 +6160,7 @@ final class PanelFrame extends JPanel
 
          posX = xmouse ;
          posY = ymouse ;
-         JViewport jv = parent.getViewport() ;
+         JViewport jv = (parent != null) ? parent.getViewport() : null ;
          if (jv != null)
          {
             Rectangle r = jv.getViewRect() ;
@@ -6298,6 +6386,7 @@ final class PanelFrame extends JPanel
 
    synchronized public void mouseReleased(MouseEvent e)
    {
+      recordMouse("release",e) ;
       if (!mousedown) return ;
       if (SwingUtilities.isRightMouseButton(e) != metadown) return ;
       if (config == null) return ;
@@ -6329,7 +6418,7 @@ final class PanelFrame extends JPanel
             group = null ;
             selectbox = null ;
             Kisekae.setCursor(this,defaultcursor) ;
-            parent.updateMenu();
+            if (parent != null) parent.updateMenu() ;
             editmode = false ;
             repaint() ;
             return ;
@@ -6392,7 +6481,7 @@ final class PanelFrame extends JPanel
                UndoablePageEdit ce = new UndoablePageEdit(MOVE,page,kiss,placement) ;
                UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
                if (undo != null) undo.undoableEditHappened(evt) ;
-               parent.updateMenu();
+               if (parent != null) parent.updateMenu() ;
             }
          }
 
@@ -6409,7 +6498,7 @@ final class PanelFrame extends JPanel
                UndoableSizeEdit ce = new UndoableSizeEdit(SIZECEL,cel,celbasesize,s) ;
                UndoableEditEvent evt = new UndoableEditEvent(this,ce) ;
                if (undo != null) undo.undoableEditHappened(evt) ;
-               parent.updateMenu();
+               if (parent != null) parent.updateMenu() ;
             }
          }
 
@@ -6632,6 +6721,7 @@ final class PanelFrame extends JPanel
 
    synchronized public void mouseDragged(MouseEvent e)
    {
+      recordMouse("drag",e) ;
       if (config == null) return ;
       if (!enabledrag) return ;
 
@@ -7159,6 +7249,7 @@ final class PanelFrame extends JPanel
 
    public void mouseMoved(MouseEvent e)
    {
+      recordMouse("move",e) ;
       Component source = (Component) e.getSource() ;
       Cursor cursor = source.getCursor() ;
       mousemoved = source.getCursor() ;
@@ -7321,6 +7412,32 @@ final class PanelFrame extends JPanel
    public void mouseClicked(MouseEvent e) { }
 
 
+   // Session recording.  Mouse events are recorded in unscaled panel
+   // coordinates so that a session can be replayed at any panel size.
+
+   private void recordMouse(String kind, MouseEvent e)
+   {
+      if (!SessionRecorder.isRecording()) return ;
+      if (windowOffset == null || sf <= 0) return ;
+      Component source = (Component) e.getSource() ;
+      Point p = SwingUtilities.convertPoint(source,e.getX(),e.getY(),this) ;
+      int px = (int) ((p.x + windowOffset.x - x) / sf) ;
+      int py = (int) ((p.y + windowOffset.y - y) / sf) ;
+      SessionRecorder.mouse(kind,px,py,e.getModifiersEx(),e.getButton()) ;
+   }
+
+
+   // Session replay.  Construct a mouse event for the specified unscaled
+   // panel coordinates.
+
+   MouseEvent createMouseEvent(int id, int px, int py, int modifiers, int button, long when)
+   {
+      int xmouse = (int) Math.ceil(px * sf) + x - windowOffset.x ;
+      int ymouse = (int) Math.ceil(py * sf) + y - windowOffset.y ;
+      return new MouseEvent(this,id,when,modifiers,xmouse,ymouse,1,false,button) ;
+   }
+
+
    // A utility function to release mouse control.  The optional
    // boolean parameter, if true, forces a mouse release regardless
    // of state.
@@ -7345,18 +7462,21 @@ final class PanelFrame extends JPanel
 
    public void keyTyped(KeyEvent e)
    {
+      SessionRecorder.key("keytype",e.getKeyCode(),e.getKeyChar(),e.getModifiersEx()) ;
       boolean b = fireKeyEvent(e,"keytype") ;
       if (b) e.consume() ;
    }
 
    public void keyReleased(KeyEvent e)
    {
+      SessionRecorder.key("keyrelease",e.getKeyCode(),e.getKeyChar(),e.getModifiersEx()) ;
       boolean b = fireKeyEvent(e,"keyrelease") ;
       if (b) e.consume() ;
    }
 
    public void keyPressed(KeyEvent e)
    {
+      SessionRecorder.key("keypress",e.getKeyCode(),e.getKeyChar(),e.getModifiersEx()) ;
       boolean b = fireKeyEvent(e,"keypress") ;
       if (!b) b = doKeyControl(e) ;
       if (b) e.consume() ;
@@ -8224,7 +8344,7 @@ final class PanelFrame extends JPanel
          {
             if (g == null) return ;
             doSelection(e,new Rectangle(),g,c) ;
-            parent.updateMenu();
+            if (parent != null) parent.updateMenu() ;
             parent.repaint() ;
          }
          
@@ -8235,14 +8355,14 @@ final class PanelFrame extends JPanel
             if (selection != null && selection.contains(g)) edit.add(g) ;
             if (selection != null && selection.contains(c)) edit.add(c) ;
             unselectSet(edit) ;
-            parent.updateMenu();
+            if (parent != null) parent.updateMenu() ;
             parent.repaint() ;
          }
          
          if (source == unselectcel)
          {
             if (selection != null) selection.setMarked(c,false) ;
-            parent.updateMenu();
+            if (parent != null) parent.updateMenu() ;
             parent.repaint() ;
          }
          
@@ -8394,7 +8514,7 @@ final class PanelFrame extends JPanel
             }
             if (page == null) return ;
             initcolor(page.getMultiPalette()) ;
-            parent.updateToolBar() ;
+            if (parent != null) parent.updateToolBar() ;
             showpage() ;
             return ;
          }
@@ -8415,7 +8535,7 @@ final class PanelFrame extends JPanel
                }
             }
             if (page == null) return ;
-            parent.updateToolBar() ;
+            if (parent != null) parent.updateToolBar() ;
             showpage() ;
             return ;
          }
@@ -8970,7 +9090,7 @@ final class PanelFrame extends JPanel
             editCopy(e) ;
 //            PanelEdit clip = (ns == null) ? null : (PanelEdit) ns.clone() ;
 //            clipboard.setContents(clip,panel) ;     
-            parent.updateMenu() ;
+            if (parent != null) parent.updateMenu() ;
             repaint() ;
             break ;
 
@@ -9062,8 +9182,8 @@ final class PanelFrame extends JPanel
 
             // Update the user interface.
 
-            parent.updateMenu() ;
-            parent.updateToolBar() ;
+            if (parent != null) parent.updateMenu() ;
+            if (parent != null) parent.updateToolBar() ;
             showpage() ;
             break ;
 
@@ -9109,6 +9229,7 @@ final class PanelFrame extends JPanel
                   {
                      g.removeCel((Cel) kiss) ;                   
                      if (g.getCelCount() == 0) groups.remove(g) ;
+                     config.getCollisionIndex().clear() ;
                   }
                }
                if (kiss instanceof Palette)
@@ -9168,6 +9289,7 @@ final class PanelFrame extends JPanel
                   if (g != null)
                   {
                      g.addCel((Cel) kiss) ;
+                     config.getCollisionIndex().clear() ;
                      g.rebuildBoundingBox() ;
                      if (!groups.contains(g)) groups.add(g) ;
                   }
@@ -9228,8 +9350,8 @@ final class PanelFrame extends JPanel
             // Update the user interface.
 
             selection = os ;
-            parent.updateMenu() ;
-            parent.updateToolBar() ;
+            if (parent != null) parent.updateMenu() ;
+            if (parent != null) parent.updateToolBar() ;
             showpage() ;
             break ;
 
@@ -9261,8 +9383,8 @@ final class PanelFrame extends JPanel
             // Update the user interface.
 
             selection = ns ;
-            parent.updateMenu() ;
-            parent.updateToolBar() ;
+            if (parent != null) parent.updateMenu() ;
+            if (parent != null) parent.updateToolBar() ;
             showpage() ;
             break ;
          }
@@ -9385,8 +9507,8 @@ final class PanelFrame extends JPanel
 
          // Update the user interface.
 
-         parent.updateMenu() ;
-         parent.updateToolBar() ;
+         if (parent != null) parent.updateMenu() ;
+         if (parent != null) parent.updateToolBar() ;
          showpage() ;
       }
 
@@ -9458,8 +9580,8 @@ final class PanelFrame extends JPanel
 
          // Update the user interface.
 
-         parent.updateMenu() ;
-         parent.updateToolBar() ;
+         if (parent != null) parent.updateMenu() ;
+         if (parent != null) parent.updateToolBar() ;
          showpage() ;
          showStatus(null) ;
       }
@@ -9676,8 +9798,8 @@ final class PanelFrame extends JPanel
          setBackground(config.getBorderColor()) ;
          parent.setBackground(config.getBorderColor()) ;
          initcolor(multipalette) ;
-         parent.updateMenu() ;
-         parent.updateToolBar() ;
+         if (parent != null) parent.updateMenu() ;
+         if (parent != null) parent.updateToolBar() ;
          showpage() ;
       }
 
@@ -9696,8 +9818,8 @@ final class PanelFrame extends JPanel
 
          Integer multipalette = (page != null) ? page.getMultiPalette() : null ;
          initcolor(multipalette) ;
-         parent.updateMenu() ;
-         parent.updateToolBar() ;
+         if (parent != null) parent.updateMenu() ;
+         if (parent != null) parent.updateToolBar() ;
          showpage() ;
       }
 
@@ -9713,8 +9835,8 @@ final class PanelFrame extends JPanel
             background = getBackground() ;
          else
             initcolor(multipalette) ;
-         parent.updateMenu() ;
-         parent.updateToolBar() ;
+         if (parent != null) parent.updateMenu() ;
+         if (parent != null) parent.updateToolBar() ;
          showpage() ;
       }
    }
@@ -9905,8 +10027,8 @@ final class PanelFrame extends JPanel
 
          Integer multipalette = (page != null) ? page.getMultiPalette() : null ;
          initcolor(multipalette) ;
-         parent.updateMenu() ;
-         parent.updateToolBar() ;
+         if (parent != null) parent.updateMenu() ;
+         if (parent != null) parent.updateToolBar() ;
          showpage() ;
       }
    }
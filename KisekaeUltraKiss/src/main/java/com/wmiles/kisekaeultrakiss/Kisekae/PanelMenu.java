@@ -169,6 +169,8 @@ final class PanelMenu extends KissMenu
    protected JMenuItem objects = null ;
    protected JMenuItem archive = null ;
    protected JMenuItem activities = null ;
+   protected JMenuItem profiler = null ;
+   protected JMenuItem recordsession = null ;
    protected JMenuItem debugger = null ;
    protected JMenuItem properties = null ;
    protected JMenuItem importpalette = null ;
@@ -551,6 +553,14 @@ final class PanelMenu extends KissMenu
       m[4].insert(activities,2) ;
       activities.addActionListener(this) ;
       activities.setEnabled(OptionsDialog.getEditEnable()) ;
+      profiler = new JMenuItem(Kisekae.getCaptions().getString("MenuOptionsProfiler")) ;
+      m[4].insert(profiler,3) ;
+      profiler.addActionListener(this) ;
+      profiler.setEnabled(OptionsDialog.getEditEnable()) ;
+      recordsession = new JMenuItem(Kisekae.getCaptions().getString("MenuOptionsRecordSession")) ;
+      m[4].insert(recordsession,4) ;
+      recordsession.addActionListener(this) ;
+      recordsession.setEnabled(OptionsDialog.getEditEnable()) ;
 
       // Create the Window menu.
 
@@ -705,6 +715,10 @@ final class PanelMenu extends KissMenu
       newgroup.setEnabled(b && panel.isEditOn()) ;
       editimage.setEnabled(b && panel.isObjectSelected()) ;
       activities.setEnabled(b) ;
+      profiler.setEnabled(b) ;
+      recordsession.setEnabled(b) ;
+      recordsession.setText(Kisekae.getCaptions().getString((SessionRecorder.isRecording())
+         ? "MenuOptionsStopRecording" : "MenuOptionsRecordSession")) ;
       debugger.setEnabled(b) ;
       edit[0].setEnabled(b && zip != null && zip.containsFileType(ArchiveFile.getConfigurationExt())) ;
       edit[1].setEnabled(zip != null && zip.containsFileType(ArchiveFile.getDocExt())) ;
@@ -1240,6 +1254,38 @@ final class PanelMenu extends KissMenu
             return ;
          }
 
+         // A Profiler request shows the FKiSS profiler dialog.
+
+         if (profiler == source)
+         {
+            new ProfilerDialog(parent).setVisible(true) ;
+            return ;
+         }
+
+         // A Record Session request arms the session recorder and restarts
+         // the set so that the recording begins from the initial state.
+         // A second request stops the recording.
+
+         if (recordsession == source)
+         {
+            if (SessionRecorder.isRecording())
+            {
+               SessionRecorder.stop(parent.getConfig(),parent.getPanel()) ;
+               parent.updateMenu() ;
+               return ;
+            }
+            JFileChooser fc = new JFileChooser() ;
+            fc.setFileSelectionMode(JFileChooser.FILES_ONLY) ;
+            fc.setSelectedFile(new File("session.txt")) ;
+            if (fc.showSaveDialog(parent) != JFileChooser.APPROVE_OPTION) return ;
+            File f = fc.getSelectedFile() ;
+            if (f == null) return ;
+            SessionRecorder.arm(f) ;
+            parent.restart() ;
+            parent.updateMenu() ;
+            return ;
+         }
+
          // An Export request shows the export page image dialog.
 
          if (export == source)
@@ -1927,6 +1973,7 @@ final class PanelMenu extends KissMenu
       if (OptionsDialog.getDebugControl())
          PrintLn.println("PanelMenu eventPage, p = " + p) ;
       if (EventHandler.getModal() != null) return ;
+      SessionRecorder.page(p) ;
       Kisekae.setCursor(parent,Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)) ;
       parent.initpage(p) ;
       parent.showpage() ;
@@ -1938,6 +1985,7 @@ final class PanelMenu extends KissMenu
    {
       if (OptionsDialog.getDebugControl())
          PrintLn.println("PanelMenu eventColor, c = " + c) ;
+      SessionRecorder.color(c) ;
       Kisekae.setCursor(parent,Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)) ;
       parent.initcolor(Integer.valueOf(c)) ;
       parent.showpage() ;
@@ -2015,7 +2063,7 @@ final class PanelMenu extends KissMenu
       // Search for the palette object in our configuration.
 
       Palette palette = null ;
-      Hashtable key = Palette.getKeyTable() ;
+      KeyTable key = Palette.getKeyTable() ;
       Enumeration enum1 = key.elements() ;
       while (enum1.hasMoreElements())
       {
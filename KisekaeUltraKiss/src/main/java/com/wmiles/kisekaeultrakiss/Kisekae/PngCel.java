@@ -369,6 +369,7 @@ final class PngCel extends Cel
          image = bi ;
          baseimage = image ;
          loaded = true ;
+         moved() ;
          imagewidth = w ;
          imageheight = h ;
 		}
@@ -444,6 +445,7 @@ final class PngCel extends Cel
       baseoffset = c.getBaseOffset() ;
       offset.x = baseoffset.x + initialoffset.x ;
       offset.y = baseoffset.y + initialoffset.y ;
+      moved() ;
 		cm = basecm = c.getBaseColorModel() ;
       transparentcolor = c.getTransparentColor() ;
       backgroundcolor = c.getBackgroundColor() ;
@@ -582,14 +584,7 @@ final class PngCel extends Cel
 			// Construct an image filter.
 
          transparentcolor = p.getTransparentColor(multipalette) ;
-			ImageProducer base = img.getSource() ;
-			ImageProducer ip = new FilteredImageSource(base,
-         	new PaletteFilter(cm,basecm,transparency,transparentcolor));
-			filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-         MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-         tracker.addImage(filteredimage,0) ;
-         try { tracker.waitForAll(500) ; }
-         catch (InterruptedException e) { }
+			filteredimage = createPaletteImage(img) ;
 		}
 	}
 
@@ -639,12 +634,7 @@ final class PngCel extends Cel
 		// Construct an image filter.
 
 		PaletteFilter pf = new PaletteFilter(cm,basecm,transparency,transparentcolor) ;
-		ImageProducer ip = new FilteredImageSource(img.getSource(),pf) ;
-		filteredimage = Toolkit.getDefaultToolkit().createImage(ip) ;
-      MediaTracker tracker = new MediaTracker(Kisekae.getKisekae()) ;
-      tracker.addImage(filteredimage,0) ;
-      try { tracker.waitForAll(500) ; }
-      catch (InterruptedException e) { }
+		filteredimage = createFilteredImage(img,pf) ;
    }
 
    
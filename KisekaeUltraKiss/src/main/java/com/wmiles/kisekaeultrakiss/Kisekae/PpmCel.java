@@ -366,6 +366,7 @@ final class PpmCel extends Cel
          }
 
          loaded = true ;
+         moved() ;
          imagewidth = w ;
          imageheight = h ;
 		}
@@ -453,6 +454,7 @@ final class PpmCel extends Cel
       baseoffset = c.getBaseOffset() ;
       offset.x = baseoffset.x + initialoffset.x ;
       offset.y = baseoffset.y + initialoffset.y ;
+      moved() ;
 		cm = basecm = c.getBaseColorModel() ;
       transparentcolor = c.getTransparentColor() ;
       setLastModified(c.lastModified()) ;
@@ -0,0 +1,296 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* ProfilerDialog class
+*
+* Purpose:
+*
+* This class is a dialog that controls the set-wide FKiSS profiler.  The
+* dialog starts, stops and resets profiling windows, shows the current
+* rankings of events, action codes and CNF lines with the EventHandler
+* queue wait and alarm lateness histograms, and exports the statistics
+* as CSV or as collapsed stacks for flame graph tools.
+*
+*/
+
+import java.awt.*;
+import java.awt.event.* ;
+import java.io.* ;
+import javax.swing.*;
+
+final class ProfilerDialog extends KissDialog
+	implements ActionListener, WindowListener
+{
+   private static final long serialVersionUID = 1L ;
+   private static final int TOP = 25 ;       // Rows shown per ranking
+
+	private JFrame parent = null ;			// Parent frame
+   private javax.swing.Timer timer = null ;  // Report refresh timer
+
+   // User interface objects
+
+	private JPanel panel1 = new JPanel();
+	private JPanel jPanel1 = new JPanel();
+	private JPanel jPanel2 = new JPanel();
+	private BorderLayout borderLayout1 = new BorderLayout();
+	private BorderLayout borderLayout2 = new BorderLayout();
+	private JScrollPane jScrollPane1 = new JScrollPane();
+	private JTextArea REPORT = new JTextArea();
+	private JButton START = new JButton();
+	private JButton RESET = new JButton();
+	private JButton CSV = new JButton();
+	private JButton STACKS = new JButton();
+	private JButton CLOSE = new JButton();
+
+
+	// Constructor
+
+	public ProfilerDialog(JFrame frame)
+	{
+ 		super(frame,Kisekae.getCaptions().getString("ProfilerDialogTitle"),false);
+      parent = frame ;
+
+      // Initialize the user interface.
+
+		try { jbInit(); pack(); }
+      catch(Exception ex)
+      {
+         ex.printStackTrace();
+         JOptionPane.showMessageDialog(null,
+            Kisekae.getCaptions().getString("InternalError") +
+            "\n" + ex.toString() + "\n" +
+            Kisekae.getCaptions().getString("ActionNotCompleted"),
+            Kisekae.getCaptions().getString("InternalError"),
+            JOptionPane.ERROR_MESSAGE) ;
+         return ;
+      }
+
+		// Center the frame in the panel space.
+
+ 		center(this) ;
+
+      // The report is refreshed once a second while the dialog is open.
+
+      timer = new javax.swing.Timer(1000,this) ;
+      timer.start() ;
+      setValues() ;
+
+      // Register the event handlers.
+
+		START.addActionListener(this);
+		RESET.addActionListener(this);
+		CSV.addActionListener(this);
+		STACKS.addActionListener(this);
+		CLOSE.addActionListener(this);
+ 		addWindowListener(this);
+	}
+
+   // User interface initialization.
+
+	private void jbInit() throws Exception
+	{
+		panel1.setLayout(borderLayout1);
+		panel1.setPreferredSize(new Dimension(640,480));
+		jPanel1.setLayout(new BoxLayout(jPanel1,BoxLayout.X_AXIS));
+		jPanel1.setBorder(BorderFactory.createEmptyBorder(10,10,10,10));
+		jPanel2.setLayout(borderLayout2);
+		jPanel2.setBorder(BorderFactory.createEmptyBorder(10,10,0,10));
+      REPORT.setEditable(false);
+      REPORT.setFont(new Font("Monospaced",Font.PLAIN,12));
+		RESET.setText(Kisekae.getCaptions().getString("ResetMessage"));
+		CSV.setText(Kisekae.getCaptions().getString("ProfilerExportCSV"));
+		STACKS.setText(Kisekae.getCaptions().getString("ProfilerExportStacks"));
+		CLOSE.setText(Kisekae.getCaptions().getString("CloseMessage"));
+
+		getContentPane().add(panel1);
+		panel1.add(jPanel1, BorderLayout.SOUTH);
+      jPanel1.add(Box.createGlue()) ;
+      jPanel1.add(START, null);
+      jPanel1.add(Box.createGlue()) ;
+      jPanel1.add(RESET, null);
+      jPanel1.add(Box.createGlue()) ;
+      jPanel1.add(CSV, null);
+      jPanel1.add(Box.createGlue()) ;
+      jPanel1.add(STACKS, null);
+      jPanel1.add(Box.createGlue()) ;
+      jPanel1.add(CLOSE, null);
+      jPanel1.add(Box.createGlue()) ;
+		panel1.add(jPanel2, BorderLayout.CENTER);
+		jPanel2.add(jScrollPane1, BorderLayout.CENTER);
+		jScrollPane1.getViewport().add(REPORT, null);
+	}
+
+
+	// The action method is used to process control events.
+
+	public void actionPerformed(ActionEvent evt)
+	{
+      Object source = evt.getSource() ;
+
+      // The timer refreshes the report only while profiling.
+
+      if (source == timer)
+      {
+         if (FKissProfiler.isActive()) setValues() ;
+         return ;
+      }
+
+      if (source == START)
+      {
+         if (FKissProfiler.isActive())
+            FKissProfiler.stop() ;
+         else
+            FKissProfiler.start() ;
+      }
+
+      if (source == RESET)
+         FKissProfiler.reset() ;
+
+      if (source == CSV)
+         export(true) ;
+
+      if (source == STACKS)
+         export(false) ;
+
+      if (source == CLOSE)
+      {
+         close() ;
+         return ;
+      }
+      setValues() ;
+	}
+
+
+   // Export the profile to a user selected file.  The export is either
+   // the CSV statistics or the collapsed stacks.
+
+   private void export(boolean csv)
+   {
+      JFileChooser fc = new JFileChooser() ;
+      fc.setFileSelectionMode(JFileChooser.FILES_ONLY) ;
+      fc.setSelectedFile(new File((csv) ? "fkissprofile.csv" : "fkissprofile.txt")) ;
+      if (fc.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return ;
+      File f = fc.getSelectedFile() ;
+      if (f == null) return ;
+
+      Writer w = null ;
+      try
+      {
+         w = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f),"UTF-8")) ;
+         if (csv)
+            FKissProfiler.writeCSV(w) ;
+         else
+            FKissProfiler.writeCollapsed(w) ;
+         PrintLn.println("ProfilerDialog: profile exported to " + f.getPath()) ;
+      }
+      catch (IOException e)
+      {
+         PrintLn.println("ProfilerDialog: unable to export profile to " + f.getPath() + ", " + e.toString()) ;
+         JOptionPane.showMessageDialog(this,
+            e.toString() + "\n" +
+            Kisekae.getCaptions().getString("ActionNotCompleted"),
+            Kisekae.getCaptions().getString("FileWriteError"),
+            JOptionPane.ERROR_MESSAGE) ;
+      }
+      finally
+      {
+         try { if (w != null) w.close() ; }
+         catch (IOException e) { }
+      }
+   }
+
+
+	// Window Events
+
+	public void windowOpened(WindowEvent evt) { CLOSE.requestFocus() ; }
+	public void windowClosed(WindowEvent evt) { }
+	public void windowIconified(WindowEvent evt) { }
+	public void windowDeiconified(WindowEvent evt) { }
+	public void windowActivated(WindowEvent evt) { }
+	public void windowDeactivated(WindowEvent evt) { }
+	public void windowClosing(WindowEvent evt) { close() ; }
+
+
+   // Function to set the dialog values.
+
+   void setValues()
+   {
+      boolean b = FKissProfiler.isActive() ;
+      START.setText(Kisekae.getCaptions().getString((b) ? "ProfilerStop" : "ProfilerStart")) ;
+      Point p = jScrollPane1.getViewport().getViewPosition() ;
+      REPORT.setText(FKissProfiler.getReport(TOP)) ;
+      jScrollPane1.getViewport().setViewPosition(p) ;
+   }
+
+
+   // We overload the KissDialog close method to release our local references.
+   // Profiling continues after the dialog closes if it was active.
+
+   void close()
+   {
+      flush() ;
+      super.close() ;
+   }
+
+   // We release references to some of our critical objects.
+
+   private void flush()
+   {
+      if (timer != null) timer.stop() ;
+      timer = null ;
+      setVisible(false) ;
+		START.removeActionListener(this) ;
+		RESET.removeActionListener(this) ;
+		CSV.removeActionListener(this) ;
+		STACKS.removeActionListener(this) ;
+		CLOSE.removeActionListener(this) ;
+		removeWindowListener(this);
+		getContentPane().removeAll() ;
+		getContentPane().removeNotify() ;
+   }
+}
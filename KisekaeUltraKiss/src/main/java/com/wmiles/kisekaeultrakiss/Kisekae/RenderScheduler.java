@@ -0,0 +1,325 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* RenderScheduler class
+*
+* Purpose:
+*
+* This class schedules panel redraws.  Timers, events and dialogs request
+* redraws of damaged screen areas concurrently.  Rather than compose the
+* panel image once for each request, the scheduler collects the damaged
+* areas and redraws them once each frame period on its own thread.
+*
+* Damaged areas are merged into a small set of regions.  A new area is
+* merged into a region it overlaps or into a region whose combined bounds
+* waste little area.  When the region set is full the area is merged with
+* the region that grows the least.
+*
+* The scheduler keeps frame statistics.  These are the number of requests,
+* the number of frames drawn, and the average and maximum frame time.
+*
+*/
+
+import java.awt.Rectangle ;
+
+
+final class RenderScheduler implements Runnable
+{
+   private static final int REGIONS = 4 ;       // Maximum damage regions
+   private static final int FRAMERATE = 60 ;    // Target frames per second
+
+   private static int count = 0 ;               // Scheduler thread counter
+
+   private PanelFrame panel = null ;            // The panel to redraw
+   private Thread thread = null ;               // The scheduler thread
+   private Rectangle [] regions = null ;        // The damaged regions
+   private int nregions = 0 ;                   // The number of regions
+   private boolean pending = false ;            // A redraw is requested
+   private long period = 0 ;                    // Frame period in nanoseconds
+   private long lastframe = 0 ;                 // Last frame start time
+
+   // Frame statistics.
+
+   private long requests = 0 ;                  // Redraw requests received
+   private long frames = 0 ;                    // Frames drawn
+   private long drawn = 0 ;                     // Regions drawn
+   private long frametime = 0 ;                 // Total frame time (ns)
+   private long maxframetime = 0 ;              // Maximum frame time (ns)
+
+
+   // Constructor.
+
+   RenderScheduler(PanelFrame p)
+   {
+      panel = p ;
+      regions = new Rectangle[REGIONS] ;
+      period = 1000000000L / FRAMERATE ;
+   }
+
+
+   // Start the scheduler thread.
+
+   synchronized void start()
+   {
+      if (thread != null) return ;
+      thread = new Thread(this) ;
+      thread.setName("RenderScheduler-" + (++count)) ;
+      thread.setDaemon(true) ;
+      thread.start() ;
+      if (OptionsDialog.getDebugControl())
+         PrintLn.println(thread.getName() + " started.") ;
+   }
+
+
+   // Stop the scheduler thread.  Outstanding requests are discarded.  The
+   // thread terminates when it finds that it is no longer the scheduler
+   // thread, so a new thread can be started immediately.
+
+   void stop()
+   {
+      Thread t = null ;
+      synchronized (this)
+      {
+         t = thread ;
+         thread = null ;
+         nregions = 0 ;
+         pending = false ;
+         notifyAll() ;
+      }
+      if (t != null && t != Thread.currentThread()) t.interrupt() ;
+   }
+
+
+   // Return true if the scheduler thread is running.
+
+   synchronized boolean isRunning() { return (thread != null) ; }
+
+
+   // Request a redraw of a damaged area.  An empty area requests a redraw
+   // without damage, which the panel uses for full image redraws.
+
+   synchronized void schedule(Rectangle box)
+   {
+      if (box == null) return ;
+      requests++ ;
+      pending = true ;
+      if (!box.isEmpty()) merge(new Rectangle(box)) ;
+      notifyAll() ;
+   }
+
+
+   // Merge a damaged area into the region set.
+
+   private void merge(Rectangle r)
+   {
+      // Absorb regions that the area overlaps or that combine cheaply.
+      // Repeat as the grown area may now reach other regions.
+
+      boolean merged = true ;
+      while (merged)
+      {
+         merged = false ;
+         for (int i = 0 ; i < nregions ; i++)
+         {
+            if (!combine(regions[i],r)) continue ;
+            r = r.union(regions[i]) ;
+            regions[i] = regions[--nregions] ;
+            regions[nregions] = null ;
+            merged = true ;
+            break ;
+         }
+      }
+      if (nregions < REGIONS)
+      {
+         regions[nregions++] = r ;
+         return ;
+      }
+
+      // The region set is full.  Merge with the region that grows the least.
+
+      int best = 0 ;
+      long growth = Long.MAX_VALUE ;
+      for (int i = 0 ; i < nregions ; i++)
+      {
+         long n = area(regions[i].union(r)) - area(regions[i]) ;
+         if (n < growth) { growth = n ; best = i ; }
+      }
+      regions[best] = regions[best].union(r) ;
+   }
+
+
+   // Return true if two regions should be combined.  Regions are combined
+   // if they overlap or touch, or if their combined bounds are not much
+   // larger than the two regions drawn separately.
+
+   private boolean combine(Rectangle r1, Rectangle r2)
+   {
+      Rectangle r = new Rectangle(r1) ;
+      r.grow(1,1) ;
+      if (r.intersects(r2)) return true ;
+      long n = area(r1.union(r2)) ;
+      return (n <= (area(r1) + area(r2)) * 5 / 4) ;
+   }
+
+
+   // Return the area of a region.
+
+   private long area(Rectangle r) { return (long) r.width * (long) r.height ; }
+
+
+   // Return the region set and reset it for the next frame.  Returns null
+   // if no redraw is pending.
+
+   private synchronized Rectangle [] take()
+   {
+      if (!pending) return null ;
+      Rectangle [] r = new Rectangle[nregions] ;
+      for (int i = 0 ; i < nregions ; i++)
+      {
+         r[i] = regions[i] ;
+         regions[i] = null ;
+      }
+      nregions = 0 ;
+      pending = false ;
+      return r ;
+   }
+
+
+   // The scheduler thread.  We wait for a request, delay until the next
+   // frame period, then redraw all damaged regions.  Requests that arrive
+   // during the delay are drawn in the same frame.
+
+   public void run()
+   {
+      Thread me = Thread.currentThread() ;
+      String name = me.getName() ;
+      while (true)
+      {
+         try
+         {
+            synchronized (this)
+            {
+               while (thread == me && !pending) wait() ;
+               if (thread != me) break ;
+            }
+
+            long delay = lastframe + period - System.nanoTime() ;
+            if (delay > 0) Thread.sleep(delay / 1000000L, (int) (delay % 1000000L)) ;
+            Rectangle [] r = take() ;
+            if (r == null) continue ;
+            long start = System.nanoTime() ;
+            lastframe = start ;
+
+            // Redraw the regions.  A request without damage is drawn as an
+            // empty region so that the panel can perform any full redraw.
+
+            if (r.length == 0)
+               panel.redrawNow(new Rectangle()) ;
+            for (int i = 0 ; i < r.length ; i++)
+               panel.redrawNow(r[i]) ;
+
+            long time = System.nanoTime() - start ;
+            synchronized (this)
+            {
+               frames++ ;
+               drawn += r.length ;
+               frametime += time ;
+               if (time > maxframetime) maxframetime = time ;
+            }
+         }
+         catch (InterruptedException e)
+         {
+            synchronized (this) { if (thread != me) break ; }
+         }
+         catch (Exception e)
+         {
+            PrintLn.println("RenderScheduler: exception " + e.toString()) ;
+            e.printStackTrace() ;
+         }
+      }
+
+      // Shut down.
+
+      if (OptionsDialog.getDebugControl())
+         PrintLn.println(name + " terminated.  " + getStatistics()) ;
+   }
+
+
+   // Frame statistics.  Times are returned in milliseconds.
+
+   synchronized long getRequestCount() { return requests ; }
+   synchronized long getFrameCount() { return frames ; }
+   synchronized long getRegionCount() { return drawn ; }
+   synchronized double getMaxFrameTime() { return maxframetime / 1000000.0 ; }
+
+   synchronized double getAverageFrameTime()
+   {
+      return (frames == 0) ? 0.0 : (frametime / (double) frames) / 1000000.0 ;
+   }
+
+   synchronized void resetStatistics()
+   {
+      requests = 0 ;
+      frames = 0 ;
+      drawn = 0 ;
+      frametime = 0 ;
+      maxframetime = 0 ;
+   }
+
+
+   // Return a statistics summary.
+
+   synchronized String getStatistics()
+   {
+      return "Requests " + requests + ", frames " + frames + ", regions " + drawn
+         + ", average frame " + Math.round(getAverageFrameTime() * 1000) / 1000.0 + " ms"
+         + ", maximum frame " + Math.round(getMaxFrameTime() * 1000) / 1000.0 + " ms" ;
+   }
+
+   public String toString() { return "RenderScheduler " + getStatistics() ; }
+}
@@ -268,6 +268,51 @@ final class SceneTimer extends Thread
 
    long getQueueSize() { return (cels != null) ? cels.size() : 0 ; }
 
+   // Method to unload one scene cel.  Cels specifically on page 0 are not
+   // scene cels.  Cels in the working set of pages loaded to satisfy a
+   // PanelFrame draw and cels on the currently active scene are retained.
+
+   private void unload(Object o, Integer scene, CelCache cache)
+   {
+      if (!(o instanceof Cel)) return ;
+      Cel c = (Cel) o ;
+      if (!c.isLoaded()) return ;
+      if (c.isUpdated()) return ;
+      if (c.isOnAllPage()) return ;
+      if (c.isOnSpecificPage(0)) return ;
+      if (c.isOnSpecificPage(scene)) return ;
+
+      boolean b = false ;
+      for (int j = 0 ; j < workingset.size() ; j++)
+      {
+         Integer page = (Integer) workingset.elementAt(j) ;
+         if (c.isOnSpecificPage(page)) { b = true; break ; }
+      }
+      if (b) return ;
+
+      // Cels on pages predicted by the cel cache are retained.
+
+      if (cache != null && cache.isRetained(c)) return ;
+
+      if (!OptionsDialog.getCacheImage())
+      {
+         c.unload() ;
+         count++ ;
+         cycle++ ;
+      }
+   }
+
+
+   // Session replay method.  A replay suspends the timer thread and steps
+   // the scene unloads through one time cycle in virtual time.
+
+   void step(Integer scene, CelCache cache)
+   {
+      if (!enabled || cels == null) return ;
+      for (int i = 0 ; i < cels.size() ; i++)
+         unload(cels.elementAt(i),scene,cache) ;
+   }
+
 
 
 	// The timer thread code.  This code runs until the activity
@@ -291,6 +336,8 @@ final class SceneTimer extends Thread
          PageSet ps = (pf != null) ? pf.getPage() : null ;
          Object cp = (ps != null) ? ps.getIdentifier() : null ;
          Integer scene = (cp instanceof Integer) ? (Integer) cp : null ;
+         Configuration config = (mf != null) ? mf.getConfig() : null ;
+         CelCache cache = (config != null) ? config.getCelCache() : null ;
 
          try
          {
@@ -316,37 +363,11 @@ final class SceneTimer extends Thread
                   if (restart) break ;
    				}
 
-   				// Access the object to determine the page load state.
-               // Cels specifically on page 0 are not scene cels and should
-               // not be in the cel list.  Cels in the working set of pages  
-               // loaded to satisfy a PanelFrame draw are not unloaded.
-               // Cels on the currently active scene are not unloaded.
+   				// Unload the cel if it is not on an active page.
 
                active = true ;
                if (!enabled) continue ;
-               Object o = cels.elementAt(i) ;
-               if (!(o instanceof Cel)) continue ;
-					Cel c = (Cel) o ;
-               if (!c.isLoaded()) continue ;
-               if (c.isUpdated()) continue ;
-               if (c.isOnAllPage()) continue ;
-               if (c.isOnSpecificPage(0)) continue ;             
-               if (c.isOnSpecificPage(scene)) continue ; 
-               
-               boolean b = false ;
-               for (int j = 0; j < workingset.size(); j++)
-               {
-                  Integer page = (Integer) workingset.elementAt(j) ;
-                  if (c.isOnSpecificPage(page)) { b = true; break ; }
-               }
-               if (b) continue ;
-               
-               if (!OptionsDialog.getCacheImage())
-               {
-                  c.unload() ;
-                  count++ ;
-                  cycle++ ;
-               }
+               unload(cels.elementAt(i),scene,cache) ;
             }
 
      			// Sleep a bit now that we have unloaded all scene cels in this
@@ -0,0 +1,297 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* SessionRecorder class
+*
+* Purpose:
+*
+* This class records an FKiSS session so that it can be reproduced by the
+* SessionReplayer.  The recorder captures the input event stream at the
+* PanelFrame level, that is mouse presses, releases, drags and moves, key
+* strokes, and page and palette changes, together with the alarm timer
+* ticks.  Each record is a text line stamped with the time in milliseconds
+* since the session began.
+*
+* A recording is armed with a file and begins when the next configuration
+* is activated.  The session header identifies the set, the start time and
+* the random number seed.  The FKiSS random number source is seeded from
+* this header so that the replay draws the same numbers.  When the session
+* ends the final state checksum of the configuration is written.
+*
+* Session file format:
+*
+*    # UltraKiss session
+*    set <cnf name>
+*    start <epoch milliseconds>
+*    seed <random seed>
+*    press <t> <x> <y> <modifiers> <button>
+*    release <t> <x> <y> <modifiers> <button>
+*    drag <t> <x> <y> <modifiers> <button>
+*    move <t> <x> <y> <modifiers> <button>
+*    keypress <t> <keycode> <keychar> <modifiers>
+*    keyrelease <t> <keycode> <keychar> <modifiers>
+*    keytype <t> <keycode> <keychar> <modifiers>
+*    page <t> <page>
+*    color <t> <palette>
+*    tick <t> <alarm>
+*    end <t>
+*    checksum <hex>
+*
+* Mouse coordinates are unscaled panel coordinates so that a session can
+* be replayed at any panel size.
+*
+*/
+
+import java.io.* ;
+import java.util.Arrays ;
+import java.util.Enumeration ;
+import java.util.Vector ;
+import java.security.MessageDigest ;
+import java.security.NoSuchAlgorithmException ;
+import java.awt.Point ;
+
+
+final class SessionRecorder
+{
+   private static File armed = null ;           // File for next session
+   private static PrintWriter out = null ;      // Active session writer
+   private static File file = null ;            // Active session file
+   private static long start = 0 ;              // Session start time
+   private static Vector capture = null ;       // Replay tick capture
+
+
+   // Arm the recorder.  The session begins when the next configuration
+   // is activated.
+
+   static synchronized void arm(File f) { armed = f ; }
+
+
+   // Return true if a session is being recorded or is armed.
+
+   static boolean isRecording() { return out != null || armed != null ; }
+
+
+   // Begin recording a session if the recorder is armed.  This is called
+   // before the configuration is activated so that the initial events
+   // draw from the seeded random source.
+
+   static synchronized void begin(Configuration config)
+   {
+      if (armed == null || config == null) return ;
+      file = armed ;
+      armed = null ;
+      try
+      {
+         out = new PrintWriter(new BufferedWriter(
+            new OutputStreamWriter(new FileOutputStream(file),"UTF-8"))) ;
+      }
+      catch (IOException e)
+      {
+         PrintLn.println("SessionRecorder: unable to create " + file.getPath() + ", " + e.toString()) ;
+         out = null ;
+         file = null ;
+         return ;
+      }
+
+      start = KissClock.currentTimeMillis() ;
+      long seed = new java.util.Random().nextLong() ;
+      KissClock.setSeed(seed) ;
+      out.println("# UltraKiss session") ;
+      out.println("set " + config.getName()) ;
+      out.println("start " + start) ;
+      out.println("seed " + seed) ;
+      out.flush() ;
+      PrintLn.println("SessionRecorder: recording " + config.getName() + " to " + file.getPath()) ;
+   }
+
+
+   // Stop recording.  The final state checksum is written and the
+   // session file is closed.
+
+   static synchronized void stop(Configuration config, PanelFrame panel)
+   {
+      armed = null ;
+      if (out == null) return ;
+      out.println("end " + (KissClock.currentTimeMillis() - start)) ;
+      String s = getChecksum(config,panel) ;
+      if (s != null) out.println("checksum " + s) ;
+      out.close() ;
+      PrintLn.println("SessionRecorder: session saved to " + file.getPath() + ((s != null) ? ", checksum " + s : "")) ;
+      out = null ;
+      file = null ;
+   }
+
+
+   // Record a mouse event.  The coordinates are unscaled panel coordinates.
+
+   static void mouse(String kind, int x, int y, int modifiers, int button)
+   {
+      if (out == null) return ;
+      write(kind + " " + time() + " " + x + " " + y + " " + modifiers + " " + button) ;
+   }
+
+
+   // Record a key event.
+
+   static void key(String kind, int code, char c, int modifiers)
+   {
+      if (out == null) return ;
+      write(kind + " " + time() + " " + code + " " + (int) c + " " + modifiers) ;
+   }
+
+
+   // Record a page or palette change.
+
+   static void page(int n)
+   {
+      if (out == null) return ;
+      write("page " + time() + " " + n) ;
+   }
+
+   static void color(int n)
+   {
+      if (out == null) return ;
+      write("color " + time() + " " + n) ;
+   }
+
+
+   // Record an alarm timer tick.  During a replay the ticks are captured
+   // for comparison with the recorded ticks.
+
+   static void tick(Alarm alarm)
+   {
+      if (out == null && capture == null) return ;
+      String s = time() + " " + alarm.getIdentifier() ;
+      if (capture != null) capture.addElement(s) ;
+      if (out != null) write("tick " + s) ;
+   }
+
+
+   // Set the replay tick capture vector.  The time base is the virtual
+   // session start time.
+
+   static synchronized void setCapture(Vector v, long t)
+   {
+      capture = v ;
+      start = t ;
+   }
+
+
+   private static long time() { return KissClock.currentTimeMillis() - start ; }
+
+   private static synchronized void write(String s)
+   {
+      if (out == null) return ;
+      out.println(s) ;
+   }
+
+
+   // Return the canonical state of the configuration.  This is the current
+   // page and palette, the location, visibility and frame of every group,
+   // the visibility and transparency of every cel, and the global variable
+   // values.
+
+   static String getState(Configuration config, PanelFrame panel)
+   {
+      if (config == null) return null ;
+      StringBuffer sb = new StringBuffer() ;
+      PageSet page = (panel != null) ? panel.getPage() : null ;
+      sb.append("page " + ((page != null) ? page.getIdentifier() : null) + "\n") ;
+      sb.append("color " + ((panel != null) ? panel.getMultiPalette() : null) + "\n") ;
+
+      Vector groups = config.getGroups() ;
+      for (int i = 0 ; groups != null && i < groups.size() ; i++)
+      {
+         Group g = (Group) groups.elementAt(i) ;
+         Point p = g.getLocation() ;
+         sb.append("group " + g.getIdentifier() + " " + p.x + "," + p.y + " " +
+            g.isVisible() + " " + g.getFrame() + "\n") ;
+      }
+
+      Vector cels = config.getCels() ;
+      for (int i = 0 ; cels != null && i < cels.size() ; i++)
+      {
+         Cel c = (Cel) cels.elementAt(i) ;
+         sb.append("cel " + i + " " + c.getName() + " " + c.isVisible() + " " +
+            c.getTransparency() + "\n") ;
+      }
+
+      Variable variable = config.getVariable() ;
+      if (variable != null)
+      {
+         Vector names = new Vector() ;
+         Enumeration e = variable.getVariables() ;
+         while (e.hasMoreElements()) names.addElement(e.nextElement().toString()) ;
+         Object [] list = names.toArray() ;
+         Arrays.sort(list) ;
+         for (int i = 0 ; i < list.length ; i++)
+            sb.append("var " + list[i] + "=" + variable.getValue((String) list[i],null) + "\n") ;
+      }
+      return sb.toString() ;
+   }
+
+
+   // Return the SHA-1 checksum of the canonical configuration state.
+
+   static String getChecksum(Configuration config, PanelFrame panel)
+   {
+      String s = getState(config,panel) ;
+      if (s == null) return null ;
+      try
+      {
+         MessageDigest md = MessageDigest.getInstance("SHA-1") ;
+         byte [] b = md.digest(s.getBytes("UTF-8")) ;
+         StringBuffer sb = new StringBuffer() ;
+         for (int i = 0 ; i < b.length ; i++)
+            sb.append(Integer.toHexString((b[i] & 0xFF) | 0x100).substring(1)) ;
+         return sb.toString() ;
+      }
+      catch (NoSuchAlgorithmException e) { return null ; }
+      catch (UnsupportedEncodingException e) { return null ; }
+   }
+}
@@ -0,0 +1,535 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* SessionReplayer class
+*
+* Purpose:
+*
+* This class is a command line utility to replay an FKiSS session recorded
+* by the SessionRecorder.  The set is loaded into a headless configuration
+* and panel frame and the recorded input events are fed back into the
+* panel frame handlers.  The FKiSS clock runs on virtual time so the replay
+* runs as fast as the events can be processed.
+*
+* The alarm, animation and scene timer threads and the event handler
+* threads are held suspended.  Between input events the replay advances
+* the virtual clock to each alarm, animation and scene timer deadline in
+* turn, fires the timer and then processes the event handler queue on the
+* replay thread.  A replay is therefore deterministic from run to run.  A
+* live recording holds the alarm ticks of the recorded session.  Due alarms
+* are not fired until the time of the next recorded tick, so the alarms
+* fire as late as they did when the session was recorded.  The replayed
+* alarm ticks are compared with the recorded ticks.
+*
+* At the end of the session the final state checksum is compared with the
+* expected checksum, which is either the checksum in the session file or
+* the checksum given on the command line.  The process exit code is 0 if
+* the checksums match, 1 if they do not, and 2 if the replay fails.  The
+* recorded checksum of a live recording is reproduced only if the replayed
+* ticks follow the recorded ticks, which the report shows.  Each of several
+* runs must report the same checksum.
+*
+* Usage:
+*
+*    java -cp UltraKiss.jar com.wmiles.kisekaeultrakiss.Kisekae.SessionReplayer
+*       [-expect checksum] [-state file] [-n runs] archive [cnf] session
+*
+*/
+
+import java.io.* ;
+import java.util.Locale ;
+import java.util.StringTokenizer ;
+import java.util.Vector ;
+import java.awt.event.KeyEvent ;
+import java.awt.event.MouseEvent ;
+
+
+final class SessionReplayer
+{
+   private static final int MAXSTEPS = 1000000 ;  // Timer steps per advance
+   private static final int MAXEVENTS = 100000 ;  // Events per drain
+
+   private String setname = null ;              // Recorded set name
+   private long start = 0 ;                     // Recorded start time
+   private long seed = 0 ;                      // Recorded random seed
+   private long end = -1 ;                      // Recorded end time
+   private String checksum = null ;             // Recorded checksum
+   private Vector records = new Vector() ;      // Recorded input events
+   private Vector ticks = new Vector() ;        // Recorded alarm ticks
+   private Vector captured = new Vector() ;     // Replayed alarm ticks
+
+   private Configuration config = null ;        // The replay configuration
+   private PanelFrame panel = null ;            // The headless panel frame
+   private AlarmTimer timer = null ;            // The alarm timer
+   private GifTimer animator = null ;           // The animation timer
+   private SceneTimer scenetimer = null ;       // The scene timer
+   private long nextgif = 0 ;                   // Next animation step
+   private long nextscene = 0 ;                 // Next scene step
+   private long events = 0 ;                    // Events processed
+   private long alarms = 0 ;                    // Alarms fired
+
+
+   public static void main(String [] args)
+   {
+      String expect = null ;
+      String statefile = null ;
+      int runs = 1 ;
+      Vector paths = new Vector() ;
+      try
+      {
+         for (int i = 0 ; i < args.length ; i++)
+         {
+            if ("-expect".equals(args[i]) && i+1 < args.length)
+               expect = args[++i] ;
+            else if ("-state".equals(args[i]) && i+1 < args.length)
+               statefile = args[++i] ;
+            else if ("-n".equals(args[i]) && i+1 < args.length)
+               runs = Integer.parseInt(args[++i]) ;
+            else
+               paths.addElement(args[i]) ;
+         }
+      }
+      catch (NumberFormatException e) { paths.removeAllElements() ; }
+      if (paths.size() < 2 || paths.size() > 3)
+      {
+         System.out.println("Usage: SessionReplayer [-expect checksum] [-state file] [-n runs] archive [cnf] session") ;
+         System.exit(2) ;
+      }
+      if (runs < 1) runs = 1 ;
+
+      String archive = (String) paths.firstElement() ;
+      String session = (String) paths.lastElement() ;
+      String cnf = (paths.size() == 3) ? (String) paths.elementAt(1) : null ;
+
+      // Replays run without a display and without sound.
+
+      if (System.getProperty("java.awt.headless") == null)
+         System.setProperty("java.awt.headless","true") ;
+      Kisekae.setCurrentLocale(Locale.getDefault()) ;
+      OptionsDialog.setSoundOn(false) ;
+
+      int status = 0 ;
+      String first = null ;
+      for (int i = 0 ; i < runs ; i++)
+      {
+         SessionReplayer replayer = new SessionReplayer() ;
+         String s = null ;
+         try
+         {
+            replayer.read(session) ;
+            replayer.load(archive,(cnf != null) ? cnf : replayer.setname) ;
+            long t = System.nanoTime() ;
+            replayer.replay() ;
+            t = System.nanoTime() - t ;
+            s = SessionRecorder.getChecksum(replayer.config,replayer.panel) ;
+            if (statefile != null && i == 0)
+               replayer.writeState(statefile) ;
+            replayer.report(i+1,t,s) ;
+         }
+         catch (Exception e)
+         {
+            System.out.println("SessionReplayer: replay failed, " + e.toString()) ;
+            e.printStackTrace() ;
+            System.exit(2) ;
+         }
+         finally
+         {
+            replayer.close() ;
+         }
+
+         // Every run must reproduce the same final state.
+
+         String expected = (expect != null) ? expect : replayer.checksum ;
+         if (first == null) first = s ;
+         if (expected != null && !expected.equalsIgnoreCase(s))
+         {
+            System.out.println("SessionReplayer: checksum mismatch, expected " + expected) ;
+            status = 1 ;
+         }
+         if (s == null || !s.equals(first))
+         {
+            System.out.println("SessionReplayer: run " + (i+1) + " is not deterministic") ;
+            status = 1 ;
+         }
+      }
+
+      // The timer threads of the suspended configurations are not daemons.
+
+      System.exit(status) ;
+   }
+
+
+   // Read the session file.
+
+   private void read(String path) throws IOException
+   {
+      BufferedReader in = new BufferedReader(
+         new InputStreamReader(new FileInputStream(path),"UTF-8")) ;
+      try
+      {
+         String s = null ;
+         int line = 0 ;
+         while ((s = in.readLine()) != null)
+         {
+            line++ ;
+            s = s.trim() ;
+            if (s.length() == 0 || s.startsWith("#")) continue ;
+            if (s.startsWith("set ")) { setname = s.substring(4).trim() ; continue ; }
+            StringTokenizer st = new StringTokenizer(s) ;
+            String [] record = new String[st.countTokens()] ;
+            for (int i = 0 ; i < record.length ; i++) record[i] = st.nextToken() ;
+            try
+            {
+               String kind = record[0] ;
+               if ("start".equals(kind)) start = Long.parseLong(record[1]) ;
+               else if ("seed".equals(kind)) seed = Long.parseLong(record[1]) ;
+               else if ("end".equals(kind)) end = Long.parseLong(record[1]) ;
+               else if ("checksum".equals(kind)) checksum = record[1] ;
+               else if ("tick".equals(kind))
+               {
+                  Long.parseLong(record[1]) ;
+                  ticks.addElement(record[1] + " " + record[2]) ;
+               }
+               else
+               {
+                  Long.parseLong(record[1]) ;
+                  records.addElement(record) ;
+               }
+            }
+            catch (RuntimeException e)
+            {
+               throw new IOException("invalid session record at line " + line + ", " + s) ;
+            }
+         }
+      }
+      finally { in.close() ; }
+      if (end < 0 && records.size() > 0)
+         end = Long.parseLong(((String []) records.lastElement())[1]) ;
+      if (end < 0) end = 0 ;
+   }
+
+
+   // Load the set into a headless configuration.  The archive can be an
+   // LZH or ZIP archive, or the CNF file in a directory.
+
+   private void load(String path, String cnf) throws Exception
+   {
+      ArchiveFile zip = null ;
+      String s = path.toLowerCase() ;
+      if (s.endsWith(".lzh") || s.endsWith(".lha"))
+         zip = new LhaFile(null,path) ;
+      else if (s.endsWith(".zip") || s.endsWith(".jar") || s.endsWith(".gzip"))
+         zip = new PkzFile(null,path) ;
+      else if (s.endsWith(".cnf"))
+      {
+         File f = new File(path) ;
+         String dir = f.getAbsoluteFile().getParent() ;
+         zip = new DirFile(null,dir) ;
+         if (cnf == null) cnf = f.getName() ;
+      }
+      else
+         zip = new DirFile(null,path) ;
+
+      // Find the configuration entry.  The first CNF file is used if
+      // the session does not name one.
+
+      ArchiveEntry ze = null ;
+      Vector contents = zip.getContents() ;
+      for (int i = 0 ; contents != null && i < contents.size() ; i++)
+      {
+         ArchiveEntry entry = (ArchiveEntry) contents.elementAt(i) ;
+         String name = entry.getName() ;
+         if (!ArchiveFile.isConfiguration(name)) continue ;
+         if (cnf != null && !name.equalsIgnoreCase(cnf) &&
+            !new File(name).getName().equalsIgnoreCase(new File(cnf).getName())) continue ;
+         ze = entry ;
+         break ;
+      }
+      if (ze == null)
+         throw new IOException("configuration " + ((cnf != null) ? cnf + " " : "") + "not found in " + path) ;
+
+      config = new Configuration() ;
+      config.setName(ze.getName()) ;
+      config.open(zip,ze,null) ;
+      config.read() ;
+      config.load() ;
+      config.init() ;
+      if (config.isError())
+         throw new IOException("configuration " + ze.getName() + " has errors") ;
+      panel = new PanelFrame(null) ;
+      panel.init(config) ;
+   }
+
+
+   // Replay the session.  This follows the MainFrame activation sequence
+   // with the timers and event handlers held suspended.
+
+   private void replay()
+   {
+      KissClock.setVirtual(start) ;
+      KissClock.setSeed(seed) ;
+      SessionRecorder.setCapture(captured,start) ;
+      config.activate(panel) ;
+      timer = config.getTimer() ;
+      animator = config.getAnimator() ;
+      scenetimer = config.getSceneTimer() ;
+      if (scenetimer != null) scenetimer.suspendTimer(true) ;
+      nextgif = start + OptionsDialog.getGifPeriod() ;
+      nextscene = start + OptionsDialog.getScenePeriod() ;
+      drain() ;
+
+      // Perform the begin events and open the first page.
+
+      EventHandler handler = config.getEventHandler() ;
+      Vector v = (handler != null) ? handler.getEvent("begin") : null ;
+      EventHandler.fireEvents(v,panel,Thread.currentThread(),null) ;
+      drain() ;
+      PageSet p = panel.getPage() ;
+      Object o = (p != null) ? p.getIdentifier() : null ;
+      int n = (o instanceof Integer) ? ((Integer) o).intValue() : 0 ;
+      panel.initpage(n) ;
+      drain() ;
+
+      // Feed the recorded input.
+
+      for (int i = 0 ; i < records.size() ; i++)
+      {
+         String [] record = (String []) records.elementAt(i) ;
+         advance(start + Long.parseLong(record[1])) ;
+         apply(record) ;
+         drain() ;
+      }
+      advance(start + end) ;
+      SessionRecorder.setCapture(null,0) ;
+   }
+
+
+   // Advance the virtual clock to the specified time.  Each alarm,
+   // animation and scene deadline up to this time is fired in order.
+
+   private void advance(long target)
+   {
+      int gifperiod = Math.max(1,OptionsDialog.getGifPeriod()) ;
+      int sceneperiod = Math.max(1,OptionsDialog.getScenePeriod()) ;
+      for (int steps = 0 ; steps < MAXSTEPS ; steps++)
+      {
+         long due = (timer != null) ? timer.getNextDue() : -1 ;
+         if (due >= 0) due = Math.max(due,getTickTime()) ;
+         long next = target ;
+         if (due >= 0 && due < next) next = due ;
+         if (animator != null && nextgif < next) next = nextgif ;
+         if (scenetimer != null && nextscene < next) next = nextscene ;
+         KissClock.setTime(next) ;
+         boolean fired = false ;
+
+         if (due >= 0 && due <= next)
+         {
+            alarms += timer.fireDue() ;
+            drain() ;
+            fired = true ;
+         }
+         if (animator != null && nextgif <= next)
+         {
+            animator.step(gifperiod) ;
+            nextgif += gifperiod ;
+            drain() ;
+            fired = true ;
+         }
+         if (scenetimer != null && nextscene <= next)
+         {
+            PageSet p = panel.getPage() ;
+            Object o = (p != null) ? p.getIdentifier() : null ;
+            scenetimer.step((o instanceof Integer) ? (Integer) o : null,config.getCelCache()) ;
+            nextscene += sceneperiod ;
+            fired = true ;
+         }
+         if (!fired) return ;
+      }
+      PrintLn.println("SessionReplayer: timer step limit reached at " + (KissClock.currentTimeMillis() - start)) ;
+   }
+
+
+   // Return the time of the next recorded alarm tick that has not been
+   // replayed, or -1 if there is none.  The recorded ticks are matched in
+   // sequence with the replayed ticks.
+
+   private long getTickTime()
+   {
+      int n = captured.size() ;
+      if (n >= ticks.size()) return -1 ;
+      String s = (String) ticks.elementAt(n) ;
+      return start + Long.parseLong(s.substring(0,s.indexOf(' '))) ;
+   }
+
+
+   // Apply a recorded input event to the panel frame.
+
+   private void apply(String [] record)
+   {
+      String kind = record[0] ;
+      long when = KissClock.currentTimeMillis() ;
+
+      if ("press".equals(kind) || "release".equals(kind) ||
+          "drag".equals(kind) || "move".equals(kind))
+      {
+         int x = Integer.parseInt(record[2]) ;
+         int y = Integer.parseInt(record[3]) ;
+         int modifiers = Integer.parseInt(record[4]) ;
+         int button = Integer.parseInt(record[5]) ;
+         if ("press".equals(kind))
+            panel.mousePressed(panel.createMouseEvent(MouseEvent.MOUSE_PRESSED,x,y,modifiers,button,when)) ;
+         else if ("release".equals(kind))
+            panel.mouseReleased(panel.createMouseEvent(MouseEvent.MOUSE_RELEASED,x,y,modifiers,button,when)) ;
+         else if ("drag".equals(kind))
+            panel.mouseDragged(panel.createMouseEvent(MouseEvent.MOUSE_DRAGGED,x,y,modifiers,button,when)) ;
+         else
+            panel.mouseMoved(panel.createMouseEvent(MouseEvent.MOUSE_MOVED,x,y,modifiers,button,when)) ;
+         return ;
+      }
+
+      if ("keypress".equals(kind) || "keyrelease".equals(kind) || "keytype".equals(kind))
+      {
+         int code = Integer.parseInt(record[2]) ;
+         char c = (char) Integer.parseInt(record[3]) ;
+         int modifiers = Integer.parseInt(record[4]) ;
+         if ("keypress".equals(kind))
+            panel.keyPressed(new KeyEvent(panel,KeyEvent.KEY_PRESSED,when,modifiers,code,c)) ;
+         else if ("keyrelease".equals(kind))
+            panel.keyReleased(new KeyEvent(panel,KeyEvent.KEY_RELEASED,when,modifiers,code,c)) ;
+         else
+            panel.keyTyped(new KeyEvent(panel,KeyEvent.KEY_TYPED,when,modifiers,KeyEvent.VK_UNDEFINED,c)) ;
+         return ;
+      }
+
+      if ("page".equals(kind))
+      {
+         panel.initpage(Integer.parseInt(record[2])) ;
+         return ;
+      }
+
+      if ("color".equals(kind))
+      {
+         panel.initcolor(Integer.valueOf(record[2])) ;
+         return ;
+      }
+      PrintLn.println("SessionReplayer: unknown session record " + kind) ;
+   }
+
+
+   // Process the event handler queue on the replay thread.  Events queued
+   // by the processed events are processed in turn.
+
+   private void drain()
+   {
+      for (int n = 0 ; n < MAXEVENTS ; n++)
+      {
+         Object o = EventHandler.dequeueEvent() ;
+         if (o == null) return ;
+         Object [] q = (Object []) o ;
+         if (!(q[0] instanceof FKissEvent)) continue ;
+         ((FKissEvent) q[0]).fireEvent(panel,(Thread) q[1],q[2]) ;
+         events++ ;
+      }
+      PrintLn.println("SessionReplayer: event limit reached at " + (KissClock.currentTimeMillis() - start)) ;
+   }
+
+
+   // Report the replay results.  The replayed alarm ticks are compared in
+   // sequence with the recorded ticks.
+
+   private void report(int run, long elapsed, String s)
+   {
+      int matched = 0 ;
+      int n = Math.min(ticks.size(),captured.size()) ;
+      for ( ; matched < n ; matched++)
+      {
+         String a = (String) ticks.elementAt(matched) ;
+         String b = (String) captured.elementAt(matched) ;
+         if (!a.substring(a.indexOf(' ')).equals(b.substring(b.indexOf(' ')))) break ;
+      }
+
+      long ms = elapsed / 1000000 ;
+      System.out.println("SessionReplayer: " + config.getName() + " run " + run) ;
+      System.out.println("   records " + records.size() + ", events " + events + ", alarms " + alarms) ;
+      System.out.println("   ticks recorded " + ticks.size() + ", replayed " + captured.size() + ", matched in sequence " + matched) ;
+      System.out.println("   virtual time " + end + " ms, elapsed " + ms + " ms" +
+         ((ms > 0) ? ", " + (end / ms) + "x real time" : "")) ;
+      System.out.println("   checksum " + s) ;
+   }
+
+
+   // Write the canonical final state.
+
+   private void writeState(String path) throws IOException
+   {
+      Writer w = new OutputStreamWriter(new FileOutputStream(path),"UTF-8") ;
+      try { w.write(SessionRecorder.getState(config,panel)) ; }
+      finally { w.close() ; }
+   }
+
+
+   // Stop the timers and the event handler and return to the system clock.
+   // The configuration is not closed as a close saves the set value pool
+   // properties and this replay must not have side effects.
+
+   private void close()
+   {
+      if (timer != null) timer.stopTimer() ;
+      if (animator != null) animator.stopTimer() ;
+      if (scenetimer != null) scenetimer.stopTimer() ;
+      CelCache cache = (config != null) ? config.getCelCache() : null ;
+      if (cache != null) cache.stop() ;
+      EventHandler.stopEventHandler() ;
+      EventHandler.clearEventQueue() ;
+      EventHandler.setPanelFrame(null) ;
+      GifTimer.setPanelFrame(null) ;
+      KissClock.setReal() ;
+      config = null ;
+      panel = null ;
+   }
+}
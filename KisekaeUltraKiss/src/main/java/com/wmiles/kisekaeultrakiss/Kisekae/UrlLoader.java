@@ -51,8 +51,6 @@ import javax.swing.border.*;
 import javax.swing.SwingUtilities ;
 import java.net.* ;
 import java.io.* ;
-import java.util.Collections;
-import java.util.Comparator;
 
 
 class UrlLoader extends KissFrame
@@ -283,52 +281,20 @@ class UrlLoader extends KissFrame
          showFile(s) ;
       
          // Determine if the file exists in our download cache directory.
-         // Check based on filename and last date modified.  Natural sort
-         // is ascending so search backwards to get latest date.
+         // The download cache index locates the file by its URL.
 
          String cachepath = Kisekae.getCachePath() ;
          File directory = (cachepath != null) ? new File(cachepath) : null ;
          if (!OptionsDialog.getCacheInclude()) directory = null ;
          if (directory != null && !Kisekae.isBatch())
          {
-            Vector v = new Vector() ;
-            File [] files = directory.listFiles() ;
-            if (files == null) 
+            File cached = DownloadCache.lookup(openurl) ;
+            if (cached != null)
             {
-               files = new File [0] ;
-               directory = null ;
-            }
-            
-            for (int i = 0 ; i < files.length ; i++)
-            {
-               long date = files[i].lastModified() ;
-               String name = files[i].getName() ;
-               v.add(name+"\t"+date) ;
-            }
-            
-            Collections.sort(v, new Comparator(){
-               public int compare(Object a, Object b)
-               {
-                  String [] parts1 = ((String) a).split("\t") ;
-                  String [] parts2 = ((String) b).split("\t") ;
-                  if (parts1.length > 1 && parts2.length > 1)
-                     return (parts1[1].compareTo(parts2[1])) ;
-                  return 0 ;              
-               }
-            }) ;
-            
-            for (int i = v.size()-1 ; i >= 0 ; i--)
-            {
-               if (((String) v.elementAt(i)).startsWith("UltraKiss-"+file))
-               {
-                  String key = (String) v.elementAt(i) ;
-                  String [] parts = key.split("\t") ;
-                  f = new File(cachepath+parts[0]) ;
-                  pathname = f.getPath() ;
-                  incache = true ;
-                  PrintLn.println("URL File " + pathname + " located in cache.") ;
-                  break ;
-               }
+               f = cached ;
+               pathname = f.getPath() ;
+               incache = true ;
+               PrintLn.println("URL File " + pathname + " located in cache.") ;
             }
          }
 
@@ -369,13 +335,15 @@ class UrlLoader extends KissFrame
          if (connid != null)
             c.setRequestProperty("Authorization", "Basic " + connid);
          ErrorMsg.setIcon(null);
+         if (incache) DownloadCache.prepare(openurl,c) ;
          int size = c.getContentLength() ;
          initProgress(size) ;
       
          // Open the stream and read the data.  Read stream if not cached or 
-         // the content size differs from cached file size.
+         // the cached file is not current.
       
-         if (!incache || size != f.length())
+         if (incache && !DownloadCache.isCurrent(openurl,c)) incache = false ;
+         if (!incache)
          {
             s = (size  / 1024) + "K" ;
             String s1 = Kisekae.getCaptions().getString("TransferText") ;
@@ -409,6 +377,15 @@ class UrlLoader extends KissFrame
                os.write(buffer,0,n) ;
                updateProgress(n) ;
             }
+
+            // Index a complete download in the download cache.
+
+            if (os instanceof FileOutputStream && !stop)
+            {
+               os.close() ;
+               os = null ;
+               if (size < 0 || f.length() == size) DownloadCache.record(openurl,f,c) ;
+            }
          }
 
          // Close the connection.
@@ -67,6 +67,12 @@ package com.wmiles.kisekaeultrakiss.Kisekae ;
 * groups is an FKiss 4 extension that is used to apply an FKiSS function
 * to a collection of cels.
 *
+* Global and local variable values are kept in VariableTable objects.  A
+* table assigns each variable name a fixed slot and holds numeric values
+* unboxed.  Action parameters are compiled to FKissOperand objects that
+* hold the resolved slot, so that event processing does not look up the
+* variable name.
+*
 */
 
 import java.util.Hashtable ;
@@ -75,9 +81,12 @@ import java.util.Vector ;
 
 final class Variable
 {
-	// Class attributes.  Sized for 1000 variables.
+	// Class attributes.  Values are held in a slot indexed table with
+	// primitive storage for numeric values.  Local event variable tables
+	// share one symbol table.
 	
-	private Hashtable globalvariable = new Hashtable(1200,0.8f) ;
+	private VariableTable globalvariable = new VariableTable() ;
+	private VariableTable.Symbols localsymbols = new VariableTable.Symbols() ;
 
 
 	// Variable set value.  Given a variable, set its value.
@@ -89,7 +98,7 @@ final class Variable
 		if (!(name instanceof String)) return ;
 		String v = (String) name ;
 		if (v.length() == 0) return ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
       // Adjust for case sensitive variables.
 
@@ -150,7 +159,7 @@ final class Variable
 	{ 
 		if (v == null) return null ;
 		if (v.length() == 0) return v ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
 		// If this is a string literal value, return it.
 
@@ -189,19 +198,8 @@ final class Variable
 		
 		// If this is a numeric literal value, return it.
 
-      if (v.length() > 0)
-      {
-         char c = v.charAt(0) ;
-         if (c == '-' || Character.isDigit(c))
-         {
-   		   try {	return Integer.valueOf(Integer.parseInt(v)) ; }
-   		   catch (NumberFormatException e) { }
-   		   try {	return Long.valueOf(Long.parseLong(v)) ; }
-   		   catch (NumberFormatException e) { }
-   		   try {	return Double.valueOf(Double.parseDouble(v)) ; }
-   		   catch (NumberFormatException e) { }
-         }
-      }
+      Object literal = FKissOperand.parseNumber(v) ;
+      if (literal != null) return literal ;
 
 		// Check for relative variable names.
 
@@ -241,7 +239,7 @@ final class Variable
 	{ 
 		if (v == null) return 0 ;
 		if (v.length() == 0) return 0 ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
 		// If this is a string literal value, return it.
 
@@ -263,19 +261,10 @@ final class Variable
 		
 		// If this is a numeric literal value, return it.
 
-      if (v.length() > 0)
-      {
-         char c = v.charAt(0) ;
-         if (c == '-' || Character.isDigit(c))
-         {
-   		   try {	Integer.parseInt(v) ; return 1 ; }
-   		   catch (NumberFormatException e) { }
-   		   try {	Long.parseLong(v) ; return 2 ; }
-   		   catch (NumberFormatException e) { }
-   		   try {	Double.parseDouble(v) ; return 3 ; }
-   		   catch (NumberFormatException e) { }
-         }
-      }
+      Object literal = FKissOperand.parseNumber(v) ;
+      if (literal instanceof Integer) return 1 ;
+      if (literal instanceof Long) return 2 ;
+      if (literal instanceof Double) return 3 ;
 
 		// Check for relative variable names.
 
@@ -304,12 +293,9 @@ final class Variable
 		// Otherwise return the variable type.
 
       if (variable == null) return 0 ;
-		Object o = variable.get(v) ;
-      if (o instanceof Integer) return 1 ;
-      if (o instanceof Long) return 2 ;
-      if (o instanceof Double) return 3 ;
-      if (o instanceof String) return 4 ;
-      return 0 ;
+		int type = variable.getType(v) ;
+      if (type != 4) return type ;
+      return (variable.get(v) instanceof String) ? 4 : 0 ;
 	}
 
 	// Variable get type for conversion.  Checks string type for numeric
@@ -349,7 +335,7 @@ final class Variable
 	void setIntValue(String v, int n, FKissEvent event)
 	{ 
 		if (v == null || v.length() == 0) return ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
       // Adjust for case sensitive variables.
 
@@ -379,7 +365,7 @@ final class Variable
       // sentinal '*' inserted in the text string. These trace lines are not 
       // forwarded to the trace dialog although they will appear in the log file.
 		
-		variable.put(v,Integer.valueOf(n)) ;
+		variable.putInt(v,n) ;
 		if (OptionsDialog.getDebugVariable() && (!event.getNoBreakpoint() || OptionsDialog.getDebugDisabled())) 
       {
          String bp = (event.getNoBreakpoint()) ? "*" : " " ;
@@ -395,7 +381,7 @@ final class Variable
 	void setLongValue(String v, long n, FKissEvent event)
 	{ 
 		if (v == null || v.length() == 0) return ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
       // Adjust for case sensitive variables.
 
@@ -422,7 +408,7 @@ final class Variable
 
 		// Save the value using the absolute variable name.
 		
-		variable.put(v,Long.valueOf(n)) ;
+		variable.putLong(v,n) ;
 		if (OptionsDialog.getDebugVariable() && (!event.getNoBreakpoint() || OptionsDialog.getDebugDisabled())) 
       {
          String bp = (event.getNoBreakpoint()) ? "*" : " " ;
@@ -438,7 +424,7 @@ final class Variable
 	void setDoubleValue(String v, double n, FKissEvent event)
 	{ 
 		if (v == null || v.length() == 0) return ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
       // Adjust for case sensitive variables.
 
@@ -465,7 +451,7 @@ final class Variable
 
 		// Save the value using the absolute variable name.
 		
-		variable.put(v,Double.valueOf(n)) ;
+		variable.putDouble(v,n) ;
 		if (OptionsDialog.getDebugVariable() && (!event.getNoBreakpoint() || OptionsDialog.getDebugDisabled())) 
       {
          String bp = (event.getNoBreakpoint()) ? "*" : " " ;
@@ -480,7 +466,7 @@ final class Variable
 	int getIntValue(String v, FKissEvent event)
 	{
 		if (v == null) return 0 ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
       // Adjust for case sensitive variables.
 
@@ -494,8 +480,8 @@ final class Variable
          char c = v.charAt(0) ;
          if (c == '-' || Character.isDigit(c))
          {
-      		try {	return (Integer.parseInt(v)) ; }
-      		catch (NumberFormatException e) { }
+            Object literal = FKissOperand.parseNumber(v) ;
+            if (literal instanceof Integer) return ((Integer) literal).intValue() ;
          }
       }
 		
@@ -519,14 +505,7 @@ final class Variable
 		// Reference the integer value using the absolute variable name.
 
       if (variable == null) return 0 ;
-		Object o = variable.get(v) ;
-      if (o == null) return 0 ;
-		if (o instanceof Integer) return ((Integer) o).intValue() ;
-		if (o instanceof Long) return ((Long) o).intValue() ;
-		if (o instanceof Double) return ((Double) o).intValue() ;
-		try {	return (Integer.parseInt(o.toString().trim())) ;	}
-		catch (NumberFormatException e) { }
-      return 0 ;
+		return variable.getInt(v) ;
 	}
 
 
@@ -536,7 +515,7 @@ final class Variable
 	long getLongValue(String v, FKissEvent event)
 	{
 		if (v == null) return 0 ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
       // Adjust for case sensitive variables.
 
@@ -550,8 +529,9 @@ final class Variable
          char c = v.charAt(0) ;
          if (c == '-' || Character.isDigit(c))
          {
-      		try {	return (Long.parseLong(v)) ; }
-      		catch (NumberFormatException e) { }
+            Object literal = FKissOperand.parseNumber(v) ;
+            if (literal instanceof Integer) return ((Integer) literal).longValue() ;
+            if (literal instanceof Long) return ((Long) literal).longValue() ;
          }
       }
 		
@@ -575,14 +555,7 @@ final class Variable
 		// Reference the long value using the absolute variable name.
 
       if (variable == null) return 0 ;
-		Object o = variable.get(v) ;
-      if (o == null) return 0 ;
-		if (o instanceof Integer) return ((Integer) o).longValue() ;
-		if (o instanceof Long) return ((Long) o).longValue() ;
-		if (o instanceof Double) return ((Double) o).longValue() ;
-		try {	return (Long.parseLong(o.toString().trim())) ;	}
-		catch (NumberFormatException e) { }
-      return 0 ;
+		return variable.getLong(v) ;
 	}
 
 
@@ -592,7 +565,7 @@ final class Variable
 	double getDoubleValue(String v, FKissEvent event)
 	{
 		if (v == null) return 0 ;
-      Hashtable variable = globalvariable ;
+      VariableTable variable = globalvariable ;
 
       // Adjust for case sensitive variables.
 
@@ -606,8 +579,8 @@ final class Variable
          char c = v.charAt(0) ;
          if (c == '-' || Character.isDigit(c))
          {
-      		try {	return (Double.parseDouble(v)) ; }
-      		catch (NumberFormatException e) { }
+            Object literal = FKissOperand.parseNumber(v) ;
+            if (literal instanceof Number) return ((Number) literal).doubleValue() ;
          }
       }
 		
@@ -631,17 +604,179 @@ final class Variable
 		// Reference the double value using the absolute variable name.
 
       if (variable == null) return 0 ;
-		Object o = variable.get(v) ;
-      if (o == null) return 0 ;
-		if (o instanceof Integer) return ((Integer) o).doubleValue() ;
-		if (o instanceof Long) return ((Long) o).doubleValue() ;
-		if (o instanceof Double) return ((Double) o).doubleValue() ;
-		try {	return (Double.parseDouble(o.toString().trim())) ;	}
-		catch (NumberFormatException e) { }
-      return 0 ;
+		return variable.getDouble(v) ;
 	}
 
 
+   // Operand access methods.  Action parameters are compiled to operands
+   // when the action is parsed.  Operands that resolve to a variable slot
+   // or a literal are processed without a variable name lookup.  All other
+   // operands are processed from the parameter text.
+
+   // Return the symbol tables.  Local event variable tables share one
+   // symbol table so that a local slot is valid at every call depth.
+
+   VariableTable.Symbols getGlobalSymbols() { return globalvariable.getSymbols() ; }
+   VariableTable.Symbols getLocalSymbols() { return localsymbols ; }
+
+   // Return the variable table for an operand slot, or null if the operand
+   // must be processed from its text.
+
+   private VariableTable getTable(int kind, FKissOperand op, FKissEvent event)
+   {
+      if (!op.isCurrent()) return null ;
+      if (kind == FKissOperand.GLOBAL) return globalvariable ;
+      if (kind == FKissOperand.LOCAL && event != null) return event.getLocalTable() ;
+      return null ;
+   }
+
+
+	// Variable get value for an operand.
+
+	Object getValue(FKissOperand op, FKissEvent event)
+	{
+      if (op == null) return null ;
+      if (op.vkind == FKissOperand.LITERAL && op.isCurrent()) return op.value ;
+      VariableTable variable = getTable(op.vkind,op,event) ;
+      if (variable == null) return getValue(op.text,event) ;
+      return variable.get(op.vslot) ;
+   }
+
+	// Variable get type for an operand.
+
+	int getType(FKissOperand op, FKissEvent event)
+	{
+      if (op == null) return 0 ;
+      if (op.vtype >= 0 && op.isCurrent()) return op.vtype ;
+      VariableTable variable = getTable(op.vkind,op,event) ;
+      if (variable == null) return getType(op.text,event) ;
+		int type = variable.getType(op.vslot) ;
+      if (type != 4) return type ;
+      return (variable.get(op.vslot) instanceof String) ? 4 : 0 ;
+   }
+
+	// Variable get type for conversion for an operand.
+
+	int getConvertType(FKissOperand op, FKissEvent event)
+	{
+      int n = getType(op,event) ;
+      if (n != 4) return n ;
+      Object o = getValue(op,event) ;
+      if (o == null) return n ;
+      Object literal = FKissOperand.parseNumber(o.toString().trim()) ;
+      if (literal instanceof Integer) return 1 ;
+      if (literal instanceof Long) return 2 ;
+      if (literal instanceof Double) return 3 ;
+      return n ;
+   }
+
+	// Integer, long and double get value for an operand.
+
+	int getIntValue(FKissOperand op, FKissEvent event)
+	{
+      if (op == null) return 0 ;
+      if (op.numtype == 1 && op.isCurrent()) return op.ivalue ;
+      VariableTable variable = getTable(op.kind,op,event) ;
+      if (variable == null) return getIntValue(op.text,event) ;
+      return variable.getInt(op.slot) ;
+   }
+
+	long getLongValue(FKissOperand op, FKissEvent event)
+	{
+      if (op == null) return 0 ;
+      if (op.numtype == 1 && op.isCurrent()) return op.ivalue ;
+      if (op.numtype == 2 && op.isCurrent()) return op.lvalue ;
+      VariableTable variable = getTable(op.kind,op,event) ;
+      if (variable == null) return getLongValue(op.text,event) ;
+      return variable.getLong(op.slot) ;
+   }
+
+	double getDoubleValue(FKissOperand op, FKissEvent event)
+	{
+      if (op == null) return 0 ;
+      if (op.numtype == 1 && op.isCurrent()) return op.ivalue ;
+      if (op.numtype == 2 && op.isCurrent()) return op.lvalue ;
+      if (op.numtype == 3 && op.isCurrent()) return op.dvalue ;
+      VariableTable variable = getTable(op.kind,op,event) ;
+      if (variable == null) return getDoubleValue(op.text,event) ;
+      return variable.getDouble(op.slot) ;
+   }
+
+
+	// Variable set value for an operand.
+
+	void setValue(FKissOperand op, Object o, FKissEvent event)
+	{
+      if (op == null) return ;
+      VariableTable variable = getTable(op.kind,op,event) ;
+      if (variable == null) { setValue(op.text,o,event) ; return ; }
+      if (o == null) variable.remove(op.slot) ;
+      else variable.put(op.slot,o) ;
+      if (OptionsDialog.getDebugVariable()) showValue(op.name,o,event) ;
+   }
+
+	// Integer, long and double set value for an operand.
+
+	void setIntValue(FKissOperand op, int n, FKissEvent event)
+	{
+      if (op == null) return ;
+      VariableTable variable = getTable(op.kind,op,event) ;
+      if (variable == null) { setIntValue(op.text,n,event) ; return ; }
+      variable.putInt(op.slot,n) ;
+      if (OptionsDialog.getDebugVariable()) showValue(op.name,Integer.valueOf(n),event) ;
+   }
+
+	void setLongValue(FKissOperand op, long n, FKissEvent event)
+	{
+      if (op == null) return ;
+      VariableTable variable = getTable(op.kind,op,event) ;
+      if (variable == null) { setLongValue(op.text,n,event) ; return ; }
+      variable.putLong(op.slot,n) ;
+      if (OptionsDialog.getDebugVariable()) showValue(op.name,Long.valueOf(n),event) ;
+   }
+
+	void setDoubleValue(FKissOperand op, double n, FKissEvent event)
+	{
+      if (op == null) return ;
+      VariableTable variable = getTable(op.kind,op,event) ;
+      if (variable == null) { setDoubleValue(op.text,n,event) ; return ; }
+      variable.putDouble(op.slot,n) ;
+      if (OptionsDialog.getDebugVariable()) showValue(op.name,Double.valueOf(n),event) ;
+   }
+
+   // Copy one variable value to another without converting numeric values
+   // to objects.  This is the FKiSS 'let' assignment.
+
+   void copyValue(FKissOperand to, FKissOperand from, FKissEvent event)
+   {
+      if (to == null || from == null) return ;
+      VariableTable variable = getTable(to.kind,to,event) ;
+      VariableTable source = (from.vkind == FKissOperand.LITERAL)
+         ? null : getTable(from.vkind,from,event) ;
+      if (variable == null || source == null || OptionsDialog.getDebugVariable())
+      {
+         setValue(to,getValue(from,event),event) ;
+         return ;
+      }
+      variable.copy(to.slot,source,from.vslot) ;
+   }
+
+	// Trace a variable set.  Note, event, action, and variable traces set as
+   // 'nobreakpoint' in the FKiSS editor have a sentinal '*' inserted in the
+   // text string. These trace lines are not forwarded to the trace dialog
+   // although they will appear in the log file.
+
+   private void showValue(String v, Object o, FKissEvent event)
+   {
+      if (event.getNoBreakpoint() && !OptionsDialog.getDebugDisabled()) return ;
+      String bp = (event.getNoBreakpoint()) ? "*" : " " ;
+      if (o == null)
+			PrintLn.println("  > [" + Thread.currentThread().getName() + "]"+bp+"Variable " + v + " removed.") ;
+      else
+			PrintLn.println("  > [" + Thread.currentThread().getName() + "]"+bp+"Variable " + v + " set to " + o.toString()) ;
+   }
+
+
    // Function to remove temporary variables from the hashtable.
    // Key values for temporary variables are unique by event, call depth,
    // and scheduling thread.
@@ -660,17 +795,11 @@ final class Variable
    {
    	if (event1 == null || event2 == null) return ;
       if (!event1.getTemporary()) return ;
-      Hashtable variable1 = event1.getVariableTable() ;
+      VariableTable variable1 = event1.getVariableTable() ;
       event1.setTemporary(false) ;
       event2.setTemporary(true) ;
-      Hashtable variable2 = event2.getVariableTable() ;
-      Enumeration enum1 = variable1.keys() ;
-      while (enum1.hasMoreElements())
-      {
-         Object o1 = enum1.nextElement() ;
-         Object o2 = variable1.get(o1) ;
-         variable2.put(o1,o2) ;
-      }
+      VariableTable variable2 = event2.getVariableTable() ;
+      if (variable2 != null) variable2.putAll(variable1) ;
    }
 
 
@@ -725,7 +854,7 @@ final class Variable
 	}
 
 
-	// Hashtable reset.  The variable table should be cleared when
+	// Variable reset.  The variable table should be cleared when
 	// a new configuration is activated.
 	
 	void clear() { globalvariable.clear() ; }
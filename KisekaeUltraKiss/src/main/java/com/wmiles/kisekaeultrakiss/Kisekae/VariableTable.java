@@ -0,0 +1,572 @@
+package com.wmiles.kisekaeultrakiss.Kisekae ;
+
+// Title:        Kisekae UltraKiss
+// Version:      3.4  (May 11, 2023)
+// Copyright:    Copyright (c) 2002-2023
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+
+
+/**
+* VariableTable class
+*
+* Purpose:
+*
+* This class is a slot indexed store for FKiSS variable values.  Each
+* variable name is assigned a slot number by a symbol table.  Action
+* parameters are resolved to slots when the actions are parsed, so that
+* variable access during event processing is an array reference with no
+* name lookup.  Integer, long and double values are kept unboxed in
+* primitive arrays.  Other values, such as strings and named cel group
+* vectors, are kept as objects.
+*
+* One table holds the global variables for a configuration.  Each event
+* holds a table for its local variables at each call depth.  All local
+* tables for a configuration share one symbol table, thus a local slot
+* resolved at parse time is valid in every local table.
+*
+* Slot values are held in fixed size pages.  Pages are never moved or
+* replaced once allocated.  Each slot is read and written as one unit
+* while holding the lock for its page, so that event handler threads see
+* either the old or the new value of a variable, never a mix of the two.
+* The page directory is only locked when a new page is allocated.
+*
+* The name based access methods return values as the same object type
+* they were set with, thus a value set as an Integer is returned as an
+* Integer.  The slot based primitive access methods avoid the object
+* conversion.
+*
+*/
+
+import java.util.Arrays ;
+import java.util.Enumeration ;
+import java.util.HashMap ;
+import java.util.Vector ;
+
+
+final class VariableTable
+{
+   // Slot value types.  These are also the Variable type codes.
+
+   static final byte NONE = 0 ;
+   static final byte INT = 1 ;
+   static final byte LONG = 2 ;
+   static final byte DOUBLE = 3 ;
+   static final byte OBJECT = 4 ;
+
+   private static final int SHIFT = 6 ;         // Slots per page as a power of 2
+   private static final int PAGE = 1 << SHIFT ; // Slots per page
+   private static final int MASK = PAGE - 1 ;   // Slot offset in page
+
+   private Symbols symbols = null ;           // Slot numbers for names
+   private volatile Page [] pages = null ;    // Slot value pages
+
+
+   // Constructor.  A table with its own symbol table.
+
+   VariableTable() { this(new Symbols()) ; }
+
+   // Constructor.  A table that shares a symbol table with other tables.
+
+   VariableTable(Symbols s)
+   {
+      symbols = (s != null) ? s : new Symbols() ;
+      pages = new Page[4] ;
+   }
+
+
+   // Return the symbol table for this variable table.
+
+   Symbols getSymbols() { return symbols ; }
+
+
+   // Return the page that holds a slot.  If create is true and the page
+   // does not exist it is allocated, otherwise null is returned.
+
+   private Page getPage(int slot, boolean create)
+   {
+      if (slot < 0) return null ;
+      Page [] p = pages ;
+      int n = slot >>> SHIFT ;
+      if (n < p.length && p[n] != null) return p[n] ;
+      return (create) ? addPage(n) : null ;
+   }
+
+   // Allocate a page.  The page directory is replaced when it grows.
+   // Existing pages are shared by the new directory.
+
+   private synchronized Page addPage(int n)
+   {
+      Page [] p = pages ;
+      if (n < p.length && p[n] != null) return p[n] ;
+      if (n >= p.length)
+      {
+         int size = p.length * 2 ;
+         while (size <= n) size *= 2 ;
+         Page [] p1 = new Page[size] ;
+         System.arraycopy(p,0,p1,0,p.length) ;
+         p = p1 ;
+      }
+      p[n] = new Page() ;
+      pages = p ;
+      return p[n] ;
+   }
+
+
+   // Slot access methods
+   // -------------------
+   //
+   // A slot type and value are read and written together while holding
+   // the lock for the page, so a reader never sees the type of one value
+   // with the content of another.
+
+   // Return the type of a slot value.  0 = undefined, 1 = integer,
+   // 2 = long, 3 = double, 4 = object.
+
+   int getType(int slot)
+   {
+      Page p = getPage(slot,false) ;
+      if (p == null) return NONE ;
+      synchronized (p) { return p.types[slot & MASK] ; }
+   }
+
+   // Return a slot value.  Numeric values are returned as the object type
+   // they were set with.  Undefined slots return null.
+
+   Object get(int slot)
+   {
+      Page p = getPage(slot,false) ;
+      if (p == null) return null ;
+      int i = slot & MASK ;
+      synchronized (p)
+      {
+         switch (p.types[i])
+         {
+            case INT: return Integer.valueOf((int) p.longs[i]) ;
+            case LONG: return Long.valueOf(p.longs[i]) ;
+            case DOUBLE: return Double.valueOf(p.doubles[i]) ;
+            case OBJECT: return p.objects[i] ;
+         }
+      }
+      return null ;
+   }
+
+   // Return primitive slot values.  Numeric values are converted to the
+   // requested type.  Object values are converted from their string
+   // representation.  Undefined or invalid values return zero.
+
+   int getInt(int slot)
+   {
+      Page p = getPage(slot,false) ;
+      if (p == null) return 0 ;
+      int i = slot & MASK ;
+      Object o = null ;
+      synchronized (p)
+      {
+         switch (p.types[i])
+         {
+            case INT:
+            case LONG: return (int) p.longs[i] ;
+            case DOUBLE: return (int) p.doubles[i] ;
+            case OBJECT: o = p.objects[i] ; break ;
+         }
+      }
+      return parseInt(o) ;
+   }
+
+   long getLong(int slot)
+   {
+      Page p = getPage(slot,false) ;
+      if (p == null) return 0 ;
+      int i = slot & MASK ;
+      Object o = null ;
+      synchronized (p)
+      {
+         switch (p.types[i])
+         {
+            case INT:
+            case LONG: return p.longs[i] ;
+            case DOUBLE: return (long) p.doubles[i] ;
+            case OBJECT: o = p.objects[i] ; break ;
+         }
+      }
+      return parseLong(o) ;
+   }
+
+   double getDouble(int slot)
+   {
+      Page p = getPage(slot,false) ;
+      if (p == null) return 0 ;
+      int i = slot & MASK ;
+      Object o = null ;
+      synchronized (p)
+      {
+         switch (p.types[i])
+         {
+            case INT:
+            case LONG: return p.longs[i] ;
+            case DOUBLE: return p.doubles[i] ;
+            case OBJECT: o = p.objects[i] ; break ;
+         }
+      }
+      return parseDouble(o) ;
+   }
+
+   // Set a slot value.  Integer, Long and Double objects are stored as
+   // primitive values.  A null value removes the variable.
+
+   void put(int slot, Object o)
+   {
+      if (o instanceof Integer) putInt(slot,((Integer) o).intValue()) ;
+      else if (o instanceof Long) putLong(slot,((Long) o).longValue()) ;
+      else if (o instanceof Double) putDouble(slot,((Double) o).doubleValue()) ;
+      else if (o == null) remove(slot) ;
+      else
+      {
+         Page p = getPage(slot,true) ;
+         if (p == null) return ;
+         p.set(slot & MASK,OBJECT,0,0,o) ;
+      }
+   }
+
+   // Set primitive slot values.
+
+   void putInt(int slot, int n)
+   {
+      Page p = getPage(slot,true) ;
+      if (p == null) return ;
+      p.set(slot & MASK,INT,n,0,null) ;
+   }
+
+   void putLong(int slot, long n)
+   {
+      Page p = getPage(slot,true) ;
+      if (p == null) return ;
+      p.set(slot & MASK,LONG,n,0,null) ;
+   }
+
+   void putDouble(int slot, double d)
+   {
+      Page p = getPage(slot,true) ;
+      if (p == null) return ;
+      p.set(slot & MASK,DOUBLE,0,d,null) ;
+   }
+
+   // Remove a slot value.  The slot is retained for reuse by the same name.
+
+   void remove(int slot)
+   {
+      Page p = getPage(slot,false) ;
+      if (p == null) return ;
+      p.set(slot & MASK,NONE,0,0,null) ;
+   }
+
+   // Copy a slot value from another table without converting it to an
+   // object.  Returns false if the source value is undefined, in which
+   // case the destination is removed.
+
+   boolean copy(int slot, VariableTable t, int tslot)
+   {
+      Page from = (t != null) ? t.getPage(tslot,false) : null ;
+      if (from == null) { remove(slot) ; return false ; }
+      int j = tslot & MASK ;
+      byte type = NONE ;
+      long n = 0 ;
+      double d = 0 ;
+      Object o = null ;
+      synchronized (from)
+      {
+         type = from.types[j] ;
+         n = from.longs[j] ;
+         d = from.doubles[j] ;
+         o = from.objects[j] ;
+      }
+      if (type == OBJECT && o == null) type = NONE ;
+      Page p = getPage(slot,type != NONE) ;
+      if (p != null) p.set(slot & MASK,type,n,d,o) ;
+      return (type != NONE) ;
+   }
+
+
+   // Name access methods
+   // -------------------
+
+   // Set a variable value.  Integer, Long and Double objects are stored
+   // as primitive values.
+
+   void put(String name, Object o)
+   {
+      if (name == null) return ;
+      if (o == null) { remove(name) ; return ; }
+      put(symbols.getSlot(name),o) ;
+   }
+
+   // Set primitive variable values.
+
+   void putInt(String name, int n)
+   {
+      if (name == null) return ;
+      putInt(symbols.getSlot(name),n) ;
+   }
+
+   void putLong(String name, long n)
+   {
+      if (name == null) return ;
+      putLong(symbols.getSlot(name),n) ;
+   }
+
+   void putDouble(String name, double d)
+   {
+      if (name == null) return ;
+      putDouble(symbols.getSlot(name),d) ;
+   }
+
+   // Remove a variable.
+
+   void remove(String name)
+   {
+      if (name == null) return ;
+      remove(symbols.findSlot(name)) ;
+   }
+
+   // Return a variable value.  Numeric values are returned as the object
+   // type they were set with.  Undefined variables return null.
+
+   Object get(String name)
+   {
+      if (name == null) return null ;
+      return get(symbols.findSlot(name)) ;
+   }
+
+   // Return the variable type.  0 = undefined, 1 = integer, 2 = long,
+   // 3 = double, 4 = object.
+
+   int getType(String name)
+   {
+      if (name == null) return NONE ;
+      return getType(symbols.findSlot(name)) ;
+   }
+
+   // Return primitive variable values.
+
+   int getInt(String name)
+   {
+      if (name == null) return 0 ;
+      return getInt(symbols.findSlot(name)) ;
+   }
+
+   long getLong(String name)
+   {
+      if (name == null) return 0 ;
+      return getLong(symbols.findSlot(name)) ;
+   }
+
+   double getDouble(String name)
+   {
+      if (name == null) return 0 ;
+      return getDouble(symbols.findSlot(name)) ;
+   }
+
+
+   // Copy all variables from another table.  Tables that share a symbol
+   // table are copied slot by slot.
+
+   void putAll(VariableTable t)
+   {
+      if (t == null || t == this) return ;
+      if (t.symbols == symbols)
+      {
+         int n = symbols.size() ;
+         for (int i = 0 ; i < n ; i++)
+            if (t.getType(i) != NONE) copy(i,t,i) ;
+         return ;
+      }
+      Enumeration enum1 = t.keys() ;
+      while (enum1.hasMoreElements())
+      {
+         String name = (String) enum1.nextElement() ;
+         put(name,t.get(name)) ;
+      }
+   }
+
+
+   // Remove all variables.  Slot numbers are retained as they are held by
+   // the parsed actions.  Pages are emptied in place rather than replaced,
+   // so a value set through a page that a writer has already obtained is
+   // not lost.
+
+   synchronized void clear()
+   {
+      Page [] p = pages ;
+      for (int n = 0 ; n < p.length ; n++)
+         if (p[n] != null) p[n].clear() ;
+   }
+
+
+   // Return the number of variables set.
+
+   int size()
+   {
+      int count = 0 ;
+      int n = symbols.size() ;
+      for (int i = 0 ; i < n ; i++)
+         if (getType(i) != NONE) count++ ;
+      return count ;
+   }
+
+
+   // Return an enumeration of the names of all variables set.
+
+   Enumeration keys()
+   {
+      int n = symbols.size() ;
+      Vector v = new Vector() ;
+      for (int i = 0 ; i < n ; i++)
+         if (getType(i) != NONE) v.addElement(symbols.getName(i)) ;
+      return v.elements() ;
+   }
+
+
+   // Object conversion for numeric access to object values.
+
+   private static int parseInt(Object o)
+   {
+      if (o == null) return 0 ;
+		try {	return (Integer.parseInt(o.toString().trim())) ;	}
+		catch (NumberFormatException e) { }
+      return 0 ;
+   }
+
+   private static long parseLong(Object o)
+   {
+      if (o == null) return 0 ;
+		try {	return (Long.parseLong(o.toString().trim())) ;	}
+		catch (NumberFormatException e) { }
+      return 0 ;
+   }
+
+   private static double parseDouble(Object o)
+   {
+      if (o == null) return 0 ;
+		try {	return (Double.parseDouble(o.toString().trim())) ;	}
+		catch (NumberFormatException e) { }
+      return 0 ;
+   }
+
+
+   // Inner class to describe a page of slot values.  The page is the lock
+   // for its slots.
+
+   static final class Page
+   {
+      byte [] types = new byte[PAGE] ;       // Value type for each slot
+      long [] longs = new long[PAGE] ;       // Integer and long values
+      double [] doubles = new double[PAGE] ; // Double values
+      Object [] objects = new Object[PAGE] ; // Object values
+
+      // Set a slot type and value.
+
+      synchronized void set(int i, byte type, long n, double d, Object o)
+      {
+         types[i] = type ;
+         longs[i] = n ;
+         doubles[i] = d ;
+         objects[i] = o ;
+      }
+
+      // Remove all slot values.
+
+      synchronized void clear()
+      {
+         Arrays.fill(types,NONE) ;
+         Arrays.fill(objects,null) ;
+      }
+   }
+
+
+   // Inner class to describe a symbol table.  Each name is assigned the
+   // next slot number the first time it is seen.  Slots are never released.
+
+   static final class Symbols
+   {
+      private HashMap slots = new HashMap() ;   // Slot numbers keyed by name
+      private String [] names = new String[64] ; // Name for each slot
+      private int used = 0 ;                    // Number of slots assigned
+
+      // Return the slot number for a name, assigning a new slot if the
+      // name has not been seen.
+
+      synchronized int getSlot(String name)
+      {
+         Integer n = (Integer) slots.get(name) ;
+         if (n != null) return n.intValue() ;
+         if (used == names.length)
+         {
+            String [] names1 = new String[names.length*2] ;
+            System.arraycopy(names,0,names1,0,used) ;
+            names = names1 ;
+         }
+         int slot = used++ ;
+         names[slot] = name ;
+         slots.put(name,Integer.valueOf(slot)) ;
+         return slot ;
+      }
+
+      // Return the slot number for a name, or -1 if the name has no slot.
+
+      synchronized int findSlot(String name)
+      {
+         Integer n = (Integer) slots.get(name) ;
+         return (n != null) ? n.intValue() : -1 ;
+      }
+
+      // Return the name for a slot.
+
+      synchronized String getName(int slot)
+      {
+         return (slot >= 0 && slot < used) ? names[slot] : null ;
+      }
+
+      // Return the number of slots assigned.
+
+      synchronized int size() { return used ; }
+   }
+}
@@ -921,6 +921,7 @@ final class Video extends Cel
       baseoffset = c.getBaseOffset() ;
       offset.x = baseoffset.x + initialoffset.x ;
       offset.y = baseoffset.y + initialoffset.y ;
+      moved() ;
       ze = a.getZipEntry() ;
 		b = a.getVideoData() ;
 		bytes = a.getBytes() ;
@@ -1538,6 +1539,12 @@ final class Video extends Cel
    }
 
 
+	// Function to determine if the specified point selects the video.
+   // The video window has no image mask so the pixel is probed.
+
+	boolean isHit(int x, int y, boolean keyed) { return isPixelHit(x,y,keyed) ; }
+
+
 	// Function to return the current pixel at the specified point.  This
    // function returns -1 if the point is outside the cel. This returns
    // only the RGB value.
@@ -1620,7 +1627,7 @@ final class Video extends Cel
       MainFrame frame = Kisekae.getMainFrame() ;
 		if (line > 0) s = "Line [" + line + "] " + s ;
 		if (loader != null) loader.showError(s) ;
-      else frame.showStatus(errormessage) ;
+      else if (frame != null) frame.showStatus(errormessage) ;
 		PrintLn.println(s) ;
 	}
 
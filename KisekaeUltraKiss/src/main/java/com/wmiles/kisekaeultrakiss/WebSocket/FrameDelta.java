@@ -0,0 +1,258 @@
+// Title:        Kisekae UltraKiss
+// Version:      5.0 (December 25, 2025)
+// Copyright:    Copyright (c) 2002-2025
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+// This FrameDelta class compares successive screen captures in tiles and
+// encodes only the regions that changed since the last frame delivered to
+// the client.  Adjacent changed tiles in a tile row are merged into one
+// region to reduce the number of PNG images that are encoded and sent.
+//
+// A delta message is a binary image message with the following layout,
+// all integers big-endian:
+//
+//    [3] [frame width:2] [frame height:2] [region count:2]
+//    { [x:2] [y:2] [width:2] [height:2] [png length:4] [png data] } ...
+//
+// The client draws each region on top of the prior frame.
+
+package com.wmiles.kisekaeultrakiss.WebSocket;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import javax.imageio.ImageIO;
+
+public class FrameDelta 
+{
+   static final int TILESIZE = 64 ;          // tile edge in pixels
+   static final float FULLFRAME = 0.5f ;     // changed area for full frame
+   
+   private int [] prior = null ;             // last frame sent to client
+   private int width = 0 ;                   // last frame width
+   private int height = 0 ;                  // last frame height
+   private int [] pending = null ;           // frame being sent to client
+   
+   
+   // Compare the new frame against the last frame sent and return the list
+   // of changed regions.  An empty list means the frame is idle and need
+   // not be sent.  A null return means a full frame must be sent, either
+   // because there is no prior frame, the screen size changed, or so much 
+   // of the screen changed that a full frame is cheaper.
+   
+   public ArrayList<Rectangle> getChangedRegions(BufferedImage bi)
+   {
+      int w = bi.getWidth() ;
+      int h = bi.getHeight() ;
+      pending = getPixels(bi) ;
+      if (prior == null || w != width || h != height) return null ;
+      
+      ArrayList<Rectangle> regions = new ArrayList<Rectangle>() ;
+      long changedarea = 0 ;
+      for (int ty = 0 ; ty < h ; ty += TILESIZE)
+      {
+         int th = Math.min(TILESIZE, h - ty) ;
+         Rectangle span = null ;
+         for (int tx = 0 ; tx < w ; tx += TILESIZE)
+         {
+            int tw = Math.min(TILESIZE, w - tx) ;
+            if (tileChanged(tx,ty,tw,th,w))
+            {
+               if (span == null) 
+                  span = new Rectangle(tx,ty,tw,th) ;
+               else
+                  span.width += tw ;
+            }
+            else if (span != null)
+            {
+               regions.add(span) ;
+               changedarea += span.width * span.height ;
+               span = null ;
+            }
+         }
+         if (span != null) 
+         {
+            regions.add(span) ;
+            changedarea += span.width * span.height ;
+         }
+      }
+      
+      if (changedarea > FULLFRAME * w * h) return null ;
+      return regions ;
+   }
+   
+   
+   // Encode the changed regions of the image as a delta message.  The
+   // header byte identifies the binary message type for the client.
+   
+   public byte[] encode(byte header, BufferedImage bi, ArrayList<Rectangle> regions) throws IOException 
+   {
+      ArrayList<BufferedImage> images = new ArrayList<BufferedImage>() ;
+      for (int i = 0 ; i < regions.size() ; i++)
+      {
+         Rectangle r = regions.get(i) ;
+         images.add(bi.getSubimage(r.x,r.y,r.width,r.height)) ;
+      }
+      return encode(header,bi.getWidth(),bi.getHeight(),images,regions) ;
+   }
+   
+   
+   // Encode a set of region images as a delta message for a frame of the 
+   // specified size.  Each image is drawn at its region location.
+   
+   public byte[] encode(byte header, int w, int h, ArrayList<BufferedImage> images, ArrayList<Rectangle> regions) throws IOException 
+   {
+      ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+      DataOutputStream dos = new DataOutputStream(out) ;
+      dos.writeByte(header) ;
+      dos.writeShort(w) ;
+      dos.writeShort(h) ;
+      dos.writeShort(regions.size()) ;
+      ByteArrayOutputStream png = new ByteArrayOutputStream() ;
+      for (int i = 0 ; i < regions.size() ; i++)
+      {
+         Rectangle r = regions.get(i) ;
+         png.reset() ;
+         ImageIO.write(images.get(i), "png", png) ;
+         dos.writeShort(r.x) ;
+         dos.writeShort(r.y) ;
+         dos.writeShort(r.width) ;
+         dos.writeShort(r.height) ;
+         dos.writeInt(png.size()) ;
+         png.writeTo(dos) ;
+      }
+      dos.flush() ;
+      return out.toByteArray() ;
+   }
+   
+   
+   // Update a region of the last frame sent with an image that was sent to 
+   // the client outside of a screen capture.  This keeps the next capture 
+   // comparison from sending the same region again.
+   
+   public void update(Rectangle r, BufferedImage image)
+   {
+      if (prior == null) return ;
+      Rectangle frame = new Rectangle(0,0,width,height) ;
+      Rectangle area = frame.intersection(r) ;
+      if (area.isEmpty()) return ;
+      int [] row = new int[area.width] ;
+      for (int y = area.y ; y < area.y + area.height ; y++)
+      {
+         image.getRGB(area.x-r.x,y-r.y,area.width,1,row,0,area.width) ;
+         int offset = y * width + area.x ;
+         for (int i = 0 ; i < area.width ; i++)
+            prior[offset+i] = row[i] & 0xFFFFFF ;
+      }
+   }
+   
+   
+   // Return the size of the last frame sent to the client, or null if
+   // the next frame must be a full frame.
+   
+   public Dimension getFrameSize()
+   {
+      if (prior == null) return null ;
+      return new Dimension(width,height) ;
+   }
+   
+   
+   // The frame returned from the last getChangedRegions call was delivered
+   // to the client.  It becomes the reference for the next comparison.
+   
+   public void commit(BufferedImage bi)
+   {
+      if (pending == null) return ;
+      prior = pending ;
+      width = bi.getWidth() ;
+      height = bi.getHeight() ;
+      pending = null ;
+   }
+   
+   
+   // Forget the reference frame.  The next frame is sent in full.  This is
+   // required if a send fails or the client requests a refresh.
+   
+   public void reset()
+   {
+      prior = null ;
+      pending = null ;
+   }
+   
+   
+   // Compare one tile of the pending frame against the prior frame.
+   
+   private boolean tileChanged(int tx, int ty, int tw, int th, int w)
+   {
+      for (int y = ty ; y < ty + th ; y++)
+      {
+         int offset = y * w + tx ;
+         for (int i = offset ; i < offset + tw ; i++)
+            if (pending[i] != prior[i]) return true ;
+      }
+      return false ;
+   }
+   
+   
+   // Obtain a private copy of the frame pixels without alpha.  Robot 
+   // captures are integer RGB images so the raster can be copied directly.
+   
+   private int [] getPixels(BufferedImage bi)
+   {
+      int w = bi.getWidth() ;
+      int h = bi.getHeight() ;
+      if (bi.getType() == BufferedImage.TYPE_INT_RGB
+         && bi.getRaster().getDataBuffer() instanceof DataBufferInt
+         && bi.getRaster().getParent() == null)
+      {
+         int [] data = ((DataBufferInt) bi.getRaster().getDataBuffer()).getData() ;
+         if (data.length == w * h) return data.clone() ;
+      }
+      int [] data = bi.getRGB(0,0,w,h,null,0,w) ;
+      for (int i = 0 ; i < data.length ; i++) data[i] &= 0xFFFFFF ;
+      return data ;
+   }
+}
@@ -0,0 +1,148 @@
+// Title:        Kisekae UltraKiss
+// Version:      5.0 (December 25, 2025)
+// Copyright:    Copyright (c) 2002-2025
+// Author:       William Miles
+// Description:  Kisekae Set System
+//
+//  This program is free software; you can redistribute it and/or modify
+//  it under the terms of the GNU General Public License as published by
+//  the Free Software Foundation; either version 3 of the License, or
+//  (at your option) any later version.
+//
+//  This program is distributed in the hope that it will be useful,
+//  but WITHOUT ANY WARRANTY; without even the implied warranty of
+//  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+//  GNU General Public License for more details.
+//
+//  You should have received a copy of the GNU General Public License
+//  along with this program; if not, write to the Free Software
+//  Foundation, Inc., 51 Franklin St, Fifth Floor, Boston, MA  02110-1301  USA
+
+/*
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+%  This copyright notice and this permission notice shall be included in      %
+%  all copies or substantial portions of UltraKiss.                           %
+%                                                                             %
+%  The software is provided "as is", without warranty of any kind, express or %
+%  implied, including but not limited to the warranties of merchantability,   %
+%  fitness for a particular purpose and noninfringement.  In no event shall   %
+%  William Miles be liable for any claim, damages or other liability,         %
+%  whether in an action of contract, tort or otherwise, arising from, out of  %
+%  or in connection with Kisekae UltraKiss or the use of UltraKiss.           %
+%                                                                             %
+%  William Miles                                                              %
+%  144 Oakmount Rd. S.W.                                                      %
+%  Calgary, Alberta                                                           %
+%  Canada  T2V 4X4                                                            %
+%                                                                             %
+%  w.miles@wmiles.com                                                         %
+%                                                                             %
+%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%%
+*/
+
+
+// This FramePush class collects the screen regions repainted by the doll 
+// scene panel so that they can be sent to the client as soon as the panel
+// paints, without a Robot screen capture.  The panel supplies a copy of 
+// the repainted pixels in screen coordinates.  The screen capture thread 
+// waits on this object and is woken either by pushed regions or by a 
+// request for a Robot capture when something outside the panel changes.
+
+package com.wmiles.kisekaeultrakiss.WebSocket;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+
+public class FramePush 
+{
+   static final int MAXREGIONS = 32 ;        // pushed regions before merge
+   
+   private ArrayList<Rectangle> regions = new ArrayList<Rectangle>() ;
+   private ArrayList<BufferedImage> images = new ArrayList<BufferedImage>() ;
+   private Rectangle pusharea = null ;       // screen area of the panel
+   private boolean capture = false ;         // true if capture requested
+   private long capturetime = 0 ;            // end of capture period
+   
+   
+   // Add a repainted panel region.  The image is a copy of the pixels
+   // drawn at the screen location.  The area is the visible panel area
+   // on the screen.
+   
+   public synchronized void push(BufferedImage image, Rectangle r, Rectangle area)
+   {
+      if (image == null || r == null) return ;
+      pusharea = area ;
+      if (regions.size() >= MAXREGIONS) 
+      {
+         regions.clear() ;
+         images.clear() ;
+         capture = true ;
+      }
+      else
+      {
+         regions.add(r) ;
+         images.add(image) ;
+      }
+      notifyAll() ;
+   }
+   
+   
+   // Request a Robot screen capture.  Captures continue at the normal
+   // capture rate for the specified period so that menus and dialogs
+   // that respond to the user are shown.
+   
+   public synchronized void requestCapture(long period)
+   {
+      capture = true ;
+      long t = System.currentTimeMillis() + period ;
+      if (t > capturetime) capturetime = t ;
+      notifyAll() ;
+   }
+   
+   
+   // Return true if the screen point is within the area painted by the
+   // panel.  Mouse movement over the panel does not require a capture
+   // because the panel pushes whatever it repaints.
+   
+   public synchronized boolean inPushArea(int x, int y)
+   {
+      return (pusharea != null && pusharea.contains(x,y)) ;
+   }
+   
+   
+   // Forget the push area.  This is required when the panel can no longer
+   // push its regions, for example when a dialog or menu is showing.
+   
+   public synchronized void clearPushArea()
+   {
+      pusharea = null ;
+   }
+   
+   
+   // Return true if a Robot capture is required now.
+   
+   public synchronized boolean isCaptureRequired()
+   {
+      return capture || System.currentTimeMillis() < capturetime ;
+   }
+   
+   
+   // Wait for pushed regions or a capture request.  The wait ends early
+   // when regions are pushed or a capture is requested.  The pushed
+   // regions are moved to the supplied lists.  We return true if a
+   // capture was requested.
+   
+   public synchronized boolean take(long wait, ArrayList<Rectangle> r, ArrayList<BufferedImage> i) 
+      throws InterruptedException
+   {
+      if (regions.isEmpty() && !capture && wait > 0) wait(wait) ;
+      r.addAll(regions) ;
+      i.addAll(images) ;
+      regions.clear() ;
+      images.clear() ;
+      boolean b = capture ;
+      capture = false ;
+      return b ;
+   }
+}
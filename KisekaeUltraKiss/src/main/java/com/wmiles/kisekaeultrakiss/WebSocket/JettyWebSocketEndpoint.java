@@ -50,6 +50,7 @@ import com.wmiles.kisekaeultrakiss.Kisekae.Audio;
 import com.wmiles.kisekaeultrakiss.Kisekae.ColorFrame;
 import com.wmiles.kisekaeultrakiss.Kisekae.ImageFrame;
 import com.wmiles.kisekaeultrakiss.Kisekae.Kisekae;
+import com.wmiles.kisekaeultrakiss.Kisekae.KissExecutor;
 import com.wmiles.kisekaeultrakiss.Kisekae.KissFrame;
 import com.wmiles.kisekaeultrakiss.Kisekae.MainFrame;
 import com.wmiles.kisekaeultrakiss.Kisekae.MediaFrame;
@@ -59,6 +60,7 @@ import com.wmiles.kisekaeultrakiss.Kisekae.PrintLn;
 import com.wmiles.kisekaeultrakiss.Kisekae.ZipManager;
 import java.awt.AWTException;
 import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
@@ -103,12 +105,22 @@ public class JettyWebSocketEndpoint
 	private Session session ;                   // set on websocket open
    private Thread processThread ;              // sends screen image to client
    private Thread timeoutThread ;              // watches for no activity
+   private final Object textlane = new Object() ; // serial lane for text sends
 	private static ArrayList<JettyWebSocketEndpoint> sessions = new ArrayList<JettyWebSocketEndpoint>();
    private final Map<Session, FileUploadClass> fosMap = Collections.synchronizedMap(new HashMap<>());
    private final Queue<String> queue = new LinkedList<>();
    private final byte[] imageheader = {0} ;    // binary type for image transfer
    private final byte[] fileheader = {1} ;     // binary type for file transfer
    private final byte[] soundheader = {2} ;    // binary type for audio transfer
+   private final byte deltaheader = 3 ;        // binary type for image tiles
+   private volatile boolean deltaframes = true ; // send changed tiles only
+   private static int keyframe = 10000 ;       // full frame period in ms
+   private static boolean renderpush = true ;  // panel pushes repaints
+   private static int fallback = 1000 ;        // capture period with push
+   private static int boostperiod = 1000 ;     // capture period after input
+   private final FrameDelta framedelta = new FrameDelta() ;
+   private final FramePush framepush = new FramePush() ;
+   private volatile boolean refresh = false ;  // client requests full frame
    private boolean socketBusy = false ;   // Set true if file transfer to client
    private boolean bufferBusy = false ;   // Set true if partial buffer is sent
    private boolean audioIsPlaying = false ;   // Set true audio sent and no stop
@@ -200,6 +212,30 @@ public class JettyWebSocketEndpoint
 			}
       }    
             
+      // client requests a full frame, "refresh"
+      if (message.equals("refresh")) 
+      {
+         refresh = true ;
+      }
+      
+      // client enables or disables delta frames, "delta true|false"
+      if (message.startsWith("delta ")) 
+      {
+         String [] tokens = message.split(" ") ;
+         if (tokens.length < 2) return ;
+         setDeltaFrames(Boolean.parseBoolean(tokens[1])) ;
+         refresh = true ;
+      }
+            
+      // client enables or disables render push, "push true|false"
+      if (message.startsWith("push ")) 
+      {
+         String [] tokens = message.split(" ") ;
+         if (tokens.length < 2) return ;
+         setRenderPush(Boolean.parseBoolean(tokens[1])) ;
+         refresh = true ;
+      }
+            
       // request client close websocket "close reason"
       if (message.startsWith("close")) 
       {
@@ -264,6 +300,7 @@ public class JettyWebSocketEndpoint
             int X = Integer.parseInt(tokens[1]) ;
             int Y = Integer.parseInt(tokens[2]) ;
             ScreenCapture.mouseMove(X,Y);
+            if (!framepush.inPushArea(X,Y)) framepush.requestCapture(boostperiod) ;
             setTimeoutStart() ;
 			} 
          catch (Exception e) 
@@ -283,6 +320,7 @@ public class JettyWebSocketEndpoint
             int Y = Integer.parseInt(tokens[2]) ;
             int button = Integer.parseInt(tokens[3]) ;
             ScreenCapture.mouseUp(X,Y,button);
+            framepush.requestCapture(boostperiod) ;
             setTimeoutStart() ;
 			} 
          catch (Exception e) 
@@ -302,6 +340,7 @@ public class JettyWebSocketEndpoint
             int Y = Integer.parseInt(tokens[2]) ;
             int button = Integer.parseInt(tokens[3]) ;
             ScreenCapture.mouseDown(X,Y,button);
+            framepush.requestCapture(boostperiod) ;
             setTimeoutStart() ;
    		} 
          catch (Exception e) 
@@ -322,6 +361,7 @@ public class JettyWebSocketEndpoint
             int mode = Integer.parseInt(tokens[3]) ;
             boolean ctrl = Boolean.parseBoolean(tokens[4]) ;
             ScreenCapture.mouseWheel(X,Y,mode,ctrl);
+            framepush.requestCapture(boostperiod) ;
             setTimeoutStart() ;
 			} 
          catch (Exception e) 
@@ -347,6 +387,7 @@ public class JettyWebSocketEndpoint
             }
             else
                ScreenCapture.keyPress(((KeyCodeMapper.KeyClass) o).key);
+            framepush.requestCapture(boostperiod) ;
             setTimeoutStart() ;
    		} 
          catch (Exception e) 
@@ -372,6 +413,7 @@ public class JettyWebSocketEndpoint
             }
             else
                ScreenCapture.keyRelease(((KeyCodeMapper.KeyClass) o).key);
+            framepush.requestCapture(boostperiod) ;
             setTimeoutStart() ;
 			} 
          catch (Exception e) 
@@ -655,7 +697,10 @@ public class JettyWebSocketEndpoint
       }
    }
 
-   // Messages are sent to the client as text data.   
+   // Messages are sent to the client as text data.  Sends requested on the
+   // EDT run on the text lane so that they reach the client in order.  Text
+   // has its own lane so a long file or audio transfer on the session lane
+   // does not hold back status messages.
    
 	public void send(String message) 
    {
@@ -664,15 +709,8 @@ public class JettyWebSocketEndpoint
    
       if (javax.swing.SwingUtilities.isEventDispatchThread())
       {
-      	Thread thread = new Thread()
-			{ 
-            public void run() 
-            { 
-               setName("SendText " + message) ;
-               send(message) ; 
-            } 
-         } ;
-   		thread.start() ;
+         KissExecutor.serial(textlane,"SendText " + message,new Runnable()
+         { public void run() { send(message) ; } }) ;
          return ;
       }
       
@@ -727,16 +765,9 @@ public class JettyWebSocketEndpoint
       if (javax.swing.SwingUtilities.isEventDispatchThread())
       {
 			time = System.currentTimeMillis() - createtime ;
-         System.out.println("[" + time + "] "+"JettyWebSocketEndpoint: sendFile "+file.getName()+" on EDT, starting new thread for websocket transfer.") ;   
-      	Thread thread = new Thread()
-			{ 
-            public void run() 
-            { 
-               setName("SendFile " + file.getName()) ;
-               sendFile(file) ; 
-            } 
-         } ;
-   		thread.start() ;
+         System.out.println("[" + time + "] "+"JettyWebSocketEndpoint: sendFile "+file.getName()+" on EDT, queued for websocket transfer.") ;   
+         KissExecutor.serial(this,"SendFile " + file.getName(),new Runnable()
+         { public void run() { sendFile(file) ; } }) ;
          return ;
       }
       
@@ -854,16 +885,9 @@ public class JettyWebSocketEndpoint
       if (javax.swing.SwingUtilities.isEventDispatchThread())
       {
 			time = System.currentTimeMillis() - createtime ;
-         System.out.println("[" + time + "] "+"JettyWebSocketEndpoint: sendAudio "+name+" on EDT, starting new thread for websocket transfer.") ;   
-      	Thread thread = new Thread()
-			{ 
-            public void run() 
-            { 
-               setName("SendAudio " + name) ;
-               sendAudio(stream,name,length) ; 
-            } 
-         } ;
-   		thread.start() ;
+         System.out.println("[" + time + "] "+"JettyWebSocketEndpoint: sendAudio "+name+" on EDT, queued for websocket transfer.") ;   
+         KissExecutor.serial(this,"SendAudio " + name,new Runnable()
+         { public void run() { sendAudio(stream,name,length) ; } }) ;
          return ;
       }
       
@@ -1016,6 +1040,34 @@ public class JettyWebSocketEndpoint
       timeoutstart = new Date().getTime() ;      
    }
    
+   // Delta frames are chosen by each client for its own session.  Render
+   // push applies to a session only if the session uses delta frames.
+   
+   public boolean getDeltaFrames() { return deltaframes ; }
+   public void setDeltaFrames(boolean b) { deltaframes = b ; }
+   public boolean isRenderPush() { return renderpush && deltaframes ; }
+   public static boolean getRenderPush() { return renderpush ; }
+   public static void setRenderPush(boolean b) { renderpush = b ; }
+   
+   // The doll scene panel pushes the regions it repaints.  The image is a
+   // copy of the repainted pixels at the screen rectangle r.  The area is 
+   // the visible panel area on the screen.
+   
+   public void pushImage(BufferedImage image, Rectangle r, Rectangle area)
+   {
+      if (session == null) return ;
+      framepush.push(image,r,area) ;
+   }
+   
+   // The panel requests a Robot capture when it cannot push its repaint,
+   // for example when a menu or dialog is showing over the panel.
+   
+   public void requestCapture()
+   {
+      framepush.clearPushArea() ;
+      framepush.requestCapture(boostperiod) ;
+   }
+   
    public static String removeSpaces(String source, String sub)
    {
       if (source == null) return null ;
@@ -1025,7 +1077,13 @@ public class JettyWebSocketEndpoint
    
    /**
     * Inner class to animate screen captures.  This runs many times a second
-    * to animate the client display.  
+    * to animate the client display.  When delta frames are enabled the 
+    * capture is compared tile by tile against the last frame sent and only
+    * the changed regions are sent.  Idle frames send nothing.  A full frame
+    * is sent periodically and whenever the client requests a refresh.
+    * With render push the doll scene panel supplies its repainted regions
+    * and Robot captures are reduced to user input outside the panel and a
+    * slow fallback period.
     */
 
    class ProcessThread extends Thread 
@@ -1033,10 +1091,19 @@ public class JettyWebSocketEndpoint
       int delay = 100 ;  // screen capture period
 //      int delay = 5000 ;  // screen capture period
       int iterations = 0 ;
+      int fullcount = 0 ;
+      int deltacount = 0 ;
+      int idlecount = 0 ;
+      long totalbytes = 0 ;
       long totaltime = 0 ;
       long maxtime = 0 ;
       long mintime = 0 ;
       long time = 0 ;
+      long lastkeyframe = 0 ;
+      long lastcapture = 0 ;
+      int pushcount = 0 ;
+      ArrayList<Rectangle> pushregions = new ArrayList<Rectangle>() ;
+      ArrayList<BufferedImage> pushimages = new ArrayList<BufferedImage>() ;
       boolean error = false ;
       int errors = 0 ;
       
@@ -1087,14 +1154,78 @@ public class JettyWebSocketEndpoint
                iterations++ ;
       			time = System.currentTimeMillis() - createtime ;
                long starttime = System.currentTimeMillis() ;
+               boolean boost = false ;
+               boolean progress = false ;
+               
+               // With render push the panel supplies its repainted regions.
+               // We wait for these and send them as delta images.  A Robot
+               // capture is performed only when requested after user input
+               // outside the panel, or at the fallback period so that other
+               // windows are shown.
+               
+               if (isRenderPush() && !refresh)
+               {
+                  Dimension frame = framedelta.getFrameSize() ;
+                  if (frame != null)
+                  {
+                     boost = framepush.isCaptureRequired() ;
+                     long wait = fallback - (starttime - lastcapture) ;
+                     if (wait < 1) wait = 1 ;
+                     if (boost) wait = 0 ;
+                     pushregions.clear() ;
+                     pushimages.clear() ;
+                     boolean requested = framepush.take(wait,pushregions,pushimages) ;
+                     if (!pushregions.isEmpty())
+                        sendPushRegions(frame) ;
+                     starttime = System.currentTimeMillis() ;
+                     if (!(requested || boost || starttime - lastcapture >= fallback)) 
+                        continue ;
+                  }
+               }
+               
+               lastcapture = starttime ;
 					BufferedImage bi = ScreenCapture.captureScreenImage() ;
-					ByteArrayOutputStream out = new ByteArrayOutputStream();
-					ImageIO.write(bi, "png", out);
-					ByteBuffer byteBuffer = ByteBuffer.wrap(addHeader(imageheader,out.toByteArray()));
                
-               if (!socketBusy) 
+               // Determine what must be sent.  A null region list is a
+               // full frame.  An empty region list is an idle frame.
+               
+               ArrayList<Rectangle> regions = null ;
+               if (getDeltaFrames() && !refresh
+                  && starttime - lastkeyframe < keyframe)
+                  regions = framedelta.getChangedRegions(bi) ;
+               else
+                  framedelta.getChangedRegions(bi) ;
+               
+               if (regions != null && regions.isEmpty())
                {
+                  idlecount++ ;
+                  framedelta.commit(bi) ;
+                  progress = true ;
+               }
+               else if (!socketBusy) 
+               {
+                  byte[] data ;
+                  if (regions == null)
+                  {
+                     ByteArrayOutputStream out = new ByteArrayOutputStream();
+                     ImageIO.write(bi, "png", out);
+                     data = addHeader(imageheader,out.toByteArray()) ;
+                     out.close();
+                     refresh = false ;
+                     lastkeyframe = starttime ;
+                     fullcount++ ;
+                  }
+                  else
+                  {
+                     data = framedelta.encode(deltaheader,bi,regions) ;
+                     deltacount++ ;
+                  }
+                  
+                  ByteBuffer byteBuffer = ByteBuffer.wrap(data);
+                  totalbytes += data.length ;
                   socketBusy = true ;
+                  framedelta.commit(bi) ;
+                  progress = true ;
                   session.sendBinary(byteBuffer, new Callback() {
                      @Override
                      public void succeed() {
@@ -1106,6 +1237,7 @@ public class JettyWebSocketEndpoint
                         // Failed to send screen capture to client, cause=DataFrame before fin==true                                   
                         errors++ ;
                         socketBusy = false ;
+                        framedelta.reset() ;
                         String reason = cause.getMessage() ;
                         if (reason == null) reason = "Unknown" ;
                         System.out.println("[" + time + "] "+"Failed to send screen capture to client, cause=" + reason);
@@ -1115,14 +1247,18 @@ public class JettyWebSocketEndpoint
                   });
                }
                
-					out.close();
-					byteBuffer.clear();
                long endtime = System.currentTimeMillis() ;
                long time = endtime - starttime ;
                if (time > maxtime || maxtime == 0) maxtime = time ;
                if (time < mintime || mintime == 0) mintime = time ;
                totaltime += time ;
-               sleep(delay) ;
+               
+               // With render push the wait for pushed regions paces the
+               // loop.  If no frame was sent or committed, for example while
+               // the socket is busy with a file transfer, we must sleep or
+               // we would capture the screen continuously.
+               
+               if (!isRenderPush() || boost || refresh || !progress) sleep(delay) ;
 				} 
             catch (InterruptedException e) 
             { break ; }               
@@ -1139,6 +1275,7 @@ public class JettyWebSocketEndpoint
          long averagetime = (iterations > 0) ? totaltime / iterations : 0 ;
          System.out.println("JettyWebSocketEndpoint: screen capture stops, average capture time="+averagetime+"ms");
          System.out.println("JettyWebSocketEndpoint: screen capture maxtime="+maxtime+"ms, mintime="+mintime+"ms");
+         System.out.println("JettyWebSocketEndpoint: screen capture full frames="+fullcount+", delta frames="+deltacount+", idle frames="+idlecount+", pushed frames="+pushcount+", bytes sent="+totalbytes);
          
          if (error)
          {
@@ -1148,6 +1285,63 @@ public class JettyWebSocketEndpoint
             Kisekae.exit() ;
          }
       }
+      
+      // Send the regions pushed by the panel as one delta image.  The frame
+      // size is the size of the last full frame so the client can position
+      // the regions.  The pushed pixels also update our last frame so the
+      // next Robot capture does not send them again.  A busy socket drops
+      // the regions and forces a full frame.
+      
+      void sendPushRegions(Dimension frame) throws IOException
+      {
+         int waittime = 0 ;
+         while (socketBusy && waittime < busytimeout)
+         {
+            try { Thread.sleep(busywait) ; }
+            catch (InterruptedException e) { return ; }
+            waittime += busywait ;
+         }
+         if (socketBusy)
+         {
+            framedelta.reset() ;
+            return ;
+         }
+         
+         Rectangle screen = new Rectangle(frame) ;
+         ArrayList<Rectangle> regions = new ArrayList<Rectangle>() ;
+         ArrayList<BufferedImage> images = new ArrayList<BufferedImage>() ;
+         for (int i = 0 ; i < pushregions.size() ; i++)
+         {
+            Rectangle r = pushregions.get(i) ;
+            if (!screen.contains(r)) continue ;
+            regions.add(r) ;
+            images.add(pushimages.get(i)) ;
+            framedelta.update(r,pushimages.get(i)) ;
+         }
+         if (regions.isEmpty()) return ;
+         
+         byte[] data = framedelta.encode(deltaheader,frame.width,frame.height,images,regions) ;
+         ByteBuffer byteBuffer = ByteBuffer.wrap(data);
+         totalbytes += data.length ;
+         pushcount++ ;
+         socketBusy = true ;
+         session.sendBinary(byteBuffer, new Callback() {
+            @Override
+            public void succeed() {
+               socketBusy = false ;
+            }
+            @Override
+            public void fail(Throwable cause) {
+               errors++ ;
+               socketBusy = false ;
+               framedelta.reset() ;
+               String reason = cause.getMessage() ;
+               if (reason == null) reason = "Unknown" ;
+               System.out.println("[" + time + "] "+"Failed to send pushed image to client, cause=" + reason);
+               error = !session.isOpen() ; 
+            }
+         });
+      }
    }
    
    /**
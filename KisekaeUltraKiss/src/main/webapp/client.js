@@ -55,6 +55,11 @@ var receivedFileSize = 0 ;   // received size of downloaded file message chunk
 var expectedAudioSize = 0 ;  // expected size of audio downloaded from server
 var receivedAudioSize = 0 ;  // received size of downloaded file message chunk
 var retransmitCount = 0 ;    // number of retransmissions attempted
+var frameQueue = Promise.resolve() ; // draws screen images in arrival order
+var frameWidth = 0 ;         // width of last full screen image drawn
+var frameHeight = 0 ;        // height of last full screen image drawn
+var frameX = 0 ;             // canvas x origin of last full screen image
+var frameY = 0 ;             // canvas y origin of last full screen image
 var playerstopped = true ;   // true if midi player is stopped
 
 // Translation maps to convert a java object unique id to an audio source node 
@@ -596,24 +601,51 @@ ws.onmessage = function (evt) {
             const canvas = document.getElementById('myCanvas'); // Replace 'myCanvas' with your canvas ID
             const ctx = canvas.getContext('2d');
             const img = new Image();
-            img.onload = function() 
+            const loaded = new Promise((resolve) => {
+                img.onload = function() { resolve(img) ; } ;
+                img.onerror = function() { resolve(null) ; } ;
+            }) ;
+            img.src = "data:image/png;base64,"+window.btoa(data);
+            
+            // Images decode concurrently but are drawn in arrival order so
+            // that delta images always draw over the correct full image.
+            
+            frameQueue = frameQueue.then(() => loaded).then((img) => 
             { 
+                if (!img) return ;
                 const w = img.width ;
                 const h = img.height ;
                 const cw = canvas.width ;
                 const ch = canvas.height ;
+                frameWidth = w ;
+                frameHeight = h ;
                 
                 if (w === cw)     
+                {
+                    frameX = 0 ;
+                    frameY = 0 ;
                     ctx.drawImage(img, 0, 0); 
+                }
                 else
                 {
+                    frameX = (cw-w)/2 ;
+                    frameY = (ch-h)/2 ;
                     ctx.fillStyle = 'black'; // Set fill color
                     ctx.fillRect(0, 0, cw, ch); // Draw a filled rectangle            
-                    ctx.drawImage(img, (cw-w)/2, (ch-h)/2); 
+                    ctx.drawImage(img, frameX, frameY); 
                     console.log("Drawing centered image");
                }
-            };    
-            img.src = "data:image/png;base64,"+window.btoa(data);
+            });    
+        }
+        
+        // Message type 3 is a delta screen image.  Only the regions of the
+        // screen that changed since the last image are sent.  Each region
+        // is drawn over the prior image at its screen position.  If the 
+        // delta does not match the size of our last full image we ask the
+        // server for a full image refresh.
+        
+        if (messageType === 3) {
+            drawDeltaFrame(evt.data) ;
         }
         
         // Message type 1 represents file data.  The "filesave" message from the
@@ -670,6 +702,49 @@ function requestScreen()
 }
 
 
+// Draw a delta screen image.  The message layout, all integers big-endian,
+// is [3] [frame width:2] [frame height:2] [region count:2] followed by
+// [x:2] [y:2] [width:2] [height:2] [png length:4] [png data] for each
+// changed region.
+
+function drawDeltaFrame(buffer)
+{
+    const view = new DataView(buffer) ;
+    const fw = view.getUint16(1) ;
+    const fh = view.getUint16(3) ;
+    const count = view.getUint16(5) ;
+    const regions = [] ;
+    var offset = 7 ;
+    for (var i = 0 ; i < count ; i++)
+    {
+        const x = view.getUint16(offset) ;
+        const y = view.getUint16(offset+2) ;
+        const len = view.getUint32(offset+8) ;
+        const png = new Blob([new Uint8Array(buffer, offset+12, len)], { type: 'image/png' }) ;
+        regions.push(createImageBitmap(png).then((bitmap) => ({ x: x, y: y, bitmap: bitmap }))) ;
+        offset += 12 + len ;
+    }
+    
+    const decoded = Promise.all(regions).catch(() => null) ;
+    frameQueue = frameQueue.then(() => decoded).then((tiles) =>
+    {
+        if (!tiles || fw !== frameWidth || fh !== frameHeight)
+        {
+            console.log("Delta image mismatch, requesting refresh.") ;
+            if (ws) ws.send("refresh") ;
+            return ;
+        }
+        // Tiles are placed relative to the origin of the full image.
+        
+        for (const tile of tiles)
+        {
+            ctx.drawImage(tile.bitmap, frameX + tile.x, frameY + tile.y) ;
+            tile.bitmap.close() ;
+        }
+    }) ;
+}
+
+
 // Send an audio stop message to the server.  The client does this when audio
 // stops playing.
 